@@ -1,6 +1,9 @@
 package com.musicshop.application.cart;
 
 import com.musicshop.dto.cart.CartItemDTO;
+import com.musicshop.dto.cart.CartOperation;
+import com.musicshop.dto.cart.CartPricePreviewDTO;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.access.prepost.PreAuthorize;
 import com.musicshop.service.cart.CartService;
 import com.musicshop.service.user.UserService;
@@ -22,7 +25,18 @@ public class CartUseCase {
     @PreAuthorize("isAuthenticated()")
     public void addProduct(String email, Long productId, int quantity) {
         Long userId = userService.findUserIdByEmail(email);
-        cartService.addProductToCart(userId, productId, quantity);
+        try {
+            cartService.addProductToCart(userId, productId, quantity);
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent add inserted the same cart line first; retrying increments it instead
+            cartService.addProductToCart(userId, productId, quantity);
+        }
+    }
+
+    @PreAuthorize("isAuthenticated()")
+    public List<CartItemDTO> applyOperations(String email, List<CartOperation> operations) {
+        Long userId = userService.findUserIdByEmail(email);
+        return cartService.applyOperations(userId, operations);
     }
 
     @PreAuthorize("isAuthenticated()")
@@ -31,6 +45,12 @@ public class CartUseCase {
         return cartService.listCartItemDTOsForUser(userId);
     }
 
+    @PreAuthorize("isAuthenticated()")
+    public CartPricePreviewDTO previewPrice(String email, List<String> couponCodes) {
+        Long userId = userService.findUserIdByEmail(email);
+        return cartService.previewPrice(userId, couponCodes);
+    }
+
     @PreAuthorize("isAuthenticated()")
     public void clearCart(String email) {
         Long userId = userService.findUserIdByEmail(email);
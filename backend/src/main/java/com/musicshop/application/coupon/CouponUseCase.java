@@ -0,0 +1,29 @@
+package com.musicshop.application.coupon;
+
+import com.musicshop.dto.coupon.CouponDTO;
+import com.musicshop.dto.coupon.CreateCouponRequest;
+import com.musicshop.service.coupon.CouponService;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+public class CouponUseCase {
+
+    private final CouponService couponService;
+
+    public CouponUseCase(CouponService couponService) {
+        this.couponService = couponService;
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    public List<CouponDTO> listCoupons() {
+        return couponService.findAll();
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    public CouponDTO createCoupon(CreateCouponRequest request) {
+        return couponService.createCoupon(request);
+    }
+}
@@ -4,6 +4,8 @@ import com.musicshop.dto.checkout.CheckoutRequest;
 import com.musicshop.dto.checkout.CheckoutResponse;
 import org.springframework.security.access.prepost.PreAuthorize;
 import com.musicshop.service.checkout.CheckoutFacade;
+import com.musicshop.service.checkout.CheckoutIdempotencyService;
+import com.musicshop.service.checkout.CheckoutOrderService;
 import com.musicshop.service.user.UserService;
 import org.springframework.stereotype.Service;
 
@@ -11,16 +13,31 @@ import org.springframework.stereotype.Service;
 public class CheckoutUseCase {
 
     private final CheckoutFacade checkoutFacade;
+    private final CheckoutIdempotencyService checkoutIdempotencyService;
+    private final CheckoutOrderService checkoutOrderService;
     private final UserService userService;
 
-    public CheckoutUseCase(CheckoutFacade checkoutFacade, UserService userService) {
+    public CheckoutUseCase(CheckoutFacade checkoutFacade, CheckoutIdempotencyService checkoutIdempotencyService,
+            CheckoutOrderService checkoutOrderService, UserService userService) {
         this.checkoutFacade = checkoutFacade;
+        this.checkoutIdempotencyService = checkoutIdempotencyService;
+        this.checkoutOrderService = checkoutOrderService;
         this.userService = userService;
     }
 
+    /**
+     * Place a PENDING order for the user's cart, at most once per
+     * {@code idempotencyKey} when one is given; replays do not look up the user.
+     * The payment completes asynchronously.
+     */
     @PreAuthorize("isAuthenticated()")
-    public CheckoutResponse checkout(String email, CheckoutRequest request) {
-        Long userId = userService.findUserIdByEmail(email);
-        return checkoutFacade.checkout(userId, request);
+    public CheckoutResponse checkout(String email, String idempotencyKey, CheckoutRequest request) {
+        return checkoutIdempotencyService.execute(email, idempotencyKey, request,
+                claim -> checkoutFacade.checkout(userService.findUserIdByEmail(email), request, claim));
+    }
+
+    @PreAuthorize("isAuthenticated()")
+    public CheckoutResponse getCheckoutStatus(String email, Long orderId) {
+        return checkoutOrderService.getCheckoutStatus(userService.findUserIdByEmail(email), orderId);
     }
 }
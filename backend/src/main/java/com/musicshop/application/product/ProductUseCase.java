@@ -1,10 +1,16 @@
 package com.musicshop.application.product;
 
 import com.musicshop.dto.product.DetailedProductDTO;
+import com.musicshop.dto.product.ProductFacetsDTO;
 import com.musicshop.dto.product.ProductPatchRequest;
+import com.musicshop.dto.product.ProductSliceDTO;
 import com.musicshop.dto.product.ProductUpsertRequest;
 import com.musicshop.dto.product.SimpleProductDTO;
+import com.musicshop.dto.review.ProductReviewsDTO;
+import com.musicshop.service.product.ProductDetailCache;
 import com.musicshop.service.product.ProductService;
+import com.musicshop.service.review.ReviewService;
+import com.musicshop.service.search.ProductFacetService;
 import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Component;
 
@@ -16,9 +22,16 @@ import java.util.Optional;
 public class ProductUseCase {
 
     private final ProductService productService;
+    private final ProductFacetService productFacetService;
+    private final ProductDetailCache productDetailCache;
+    private final ReviewService reviewService;
 
-    public ProductUseCase(ProductService productService) {
+    public ProductUseCase(ProductService productService, ProductFacetService productFacetService,
+            ProductDetailCache productDetailCache, ReviewService reviewService) {
         this.productService = productService;
+        this.productFacetService = productFacetService;
+        this.productDetailCache = productDetailCache;
+        this.reviewService = reviewService;
     }
 
     public Page<SimpleProductDTO> listProducts(
@@ -29,14 +42,45 @@ public class ProductUseCase {
             BigDecimal maxPrice,
             String condition,
             String sort,
+            boolean fuzzy,
             int page,
             int size) {
-        return productService.listProducts(query, category, brandSlugs, minPrice, maxPrice, condition, sort, page,
-                size);
+        return productService.listProducts(query, category, brandSlugs, minPrice, maxPrice, condition, sort, fuzzy,
+                page, size);
+    }
+
+    public ProductSliceDTO scrollProducts(
+            String query,
+            String category,
+            List<String> brandSlugs,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            String condition,
+            String sort,
+            String cursor,
+            int size) {
+        return productService.scrollProducts(query, category, brandSlugs, minPrice, maxPrice, condition, sort,
+                cursor, size);
+    }
+
+    public ProductFacetsDTO getFacets(
+            String query,
+            String category,
+            List<String> brandSlugs,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            String condition) {
+        return productFacetService.getFacets(query, category, brandSlugs, minPrice, maxPrice, condition);
     }
 
     public Optional<DetailedProductDTO> getDetailedProductById(Long id) {
-        return productService.getDetailedProductById(id);
+        // Checked outside the service transaction so cache hits never touch the database
+        return productDetailCache.get(id, productService::getDetailedProductById);
+    }
+
+    public ProductReviewsDTO getProductReviews(Long id, Integer rating, Boolean verifiedPurchase, String cursor,
+            int size) {
+        return reviewService.getProductReviews(id, rating, verifiedPurchase, cursor, size);
     }
 
     public DetailedProductDTO createProduct(ProductUpsertRequest request) {
@@ -0,0 +1,21 @@
+package com.musicshop.application.search;
+
+import com.musicshop.dto.search.SuggestionDTO;
+import com.musicshop.service.search.SuggestionService;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+public class SearchUseCase {
+
+    private final SuggestionService suggestionService;
+
+    public SearchUseCase(SuggestionService suggestionService) {
+        this.suggestionService = suggestionService;
+    }
+
+    public List<SuggestionDTO> suggest(String prefix, int limit) {
+        return suggestionService.suggest(prefix, limit);
+    }
+}
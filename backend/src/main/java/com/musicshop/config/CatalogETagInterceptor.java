@@ -0,0 +1,53 @@
+package com.musicshop.config;
+
+import com.musicshop.service.catalog.CatalogVersionService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.time.Duration;
+import java.util.regex.Pattern;
+
+/**
+ * Conditional GET for the public catalog endpoints.
+ *
+ * Sets a strong ETag from {@link CatalogVersionService} and a per-endpoint
+ * Cache-Control policy, and answers a matching {@code If-None-Match} with 304
+ * before the controller runs, so revalidation never reaches the database.
+ */
+public class CatalogETagInterceptor implements HandlerInterceptor {
+
+    /** Category tree and brand list: rarely change, short shared freshness. */
+    static final CacheControl TAXONOMY_POLICY = CacheControl.maxAge(Duration.ofMinutes(1)).cachePublic();
+    /** Listings, facets and details: always revalidate (cheap with the ETag). */
+    static final CacheControl PRODUCT_POLICY = CacheControl.noCache().cachePublic();
+
+    private static final Pattern PRODUCT_DETAIL_PATH = Pattern.compile("^/api/products/\\d+$");
+
+    private final CatalogVersionService catalogVersionService;
+
+    public CatalogETagInterceptor(CatalogVersionService catalogVersionService) {
+        this.catalogVersionService = catalogVersionService;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String method = request.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return true;
+        }
+
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        boolean productDetail = PRODUCT_DETAIL_PATH.matcher(path).matches();
+        String eTag = productDetail
+                ? catalogVersionService.productDetailETag()
+                : catalogVersionService.catalogETag();
+        CacheControl policy = path.startsWith("/api/products") ? PRODUCT_POLICY : TAXONOMY_POLICY;
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, policy.getHeaderValue());
+        return !new ServletWebRequest(request, response).checkNotModified(eTag);
+    }
+}
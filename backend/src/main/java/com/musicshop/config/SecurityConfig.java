@@ -58,16 +58,21 @@ public class SecurityConfig {
                 .antMatchers(HttpMethod.GET, "/api/products/**").permitAll()
                 .antMatchers(HttpMethod.GET, "/api/categories/**").permitAll()
                 .antMatchers(HttpMethod.GET, "/api/brands/**").permitAll()
+                .antMatchers(HttpMethod.GET, "/api/search/**").permitAll()
                 // Admin-only mutating endpoints
                 .antMatchers(HttpMethod.POST, "/api/products/**").hasRole("ADMIN")
                 .antMatchers(HttpMethod.PUT, "/api/products/**").hasRole("ADMIN")
                 .antMatchers(HttpMethod.PATCH, "/api/products/**").hasRole("ADMIN")
                 .antMatchers(HttpMethod.DELETE, "/api/products/**").hasRole("ADMIN")
                 .antMatchers(HttpMethod.POST, "/api/categories/**").hasRole("ADMIN")
+                .antMatchers("/api/coupons/**").hasRole("ADMIN")
                 .antMatchers(HttpMethod.POST, "/api/products/*/images/**").hasRole("ADMIN")
                 .antMatchers(HttpMethod.PUT, "/api/products/*/images/**").hasRole("ADMIN")
                 .antMatchers(HttpMethod.PATCH, "/api/products/*/images/**").hasRole("ADMIN")
                 .antMatchers(HttpMethod.DELETE, "/api/products/*/images/**").hasRole("ADMIN")
+                // Actuator: health is public, metrics are admin-only
+                .antMatchers("/actuator/health").permitAll()
+                .antMatchers("/actuator/**").hasRole("ADMIN")
                 // Swagger UI
                 .antMatchers("/swagger-ui/**", "/swagger-ui.html", "/v3/api-docs/**").permitAll()
                 // SSE (authenticated, but might need specific config for event stream if using
@@ -1,8 +1,11 @@
 package com.musicshop.config;
 
+import com.musicshop.service.catalog.CatalogVersionService;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -12,6 +15,21 @@ public class WebConfig implements WebMvcConfigurer {
     @Value("${app.upload.dir}")
     private String uploadDir;
 
+    private final ObjectProvider<CatalogVersionService> catalogVersionService;
+
+    public WebConfig(ObjectProvider<CatalogVersionService> catalogVersionService) {
+        this.catalogVersionService = catalogVersionService;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Absent in web-layer test slices, which then serve unconditional responses
+        catalogVersionService.ifAvailable(versions -> registry
+                .addInterceptor(new CatalogETagInterceptor(versions))
+                .addPathPatterns("/api/products", "/api/products/*", "/api/products/*/reviews",
+                        "/api/categories", "/api/brands"));
+    }
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         registry.addResourceHandler("/uploads/**")
@@ -2,6 +2,8 @@ package com.musicshop.controller.cart;
 
 import com.musicshop.application.cart.CartUseCase;
 import com.musicshop.dto.cart.CartItemDTO;
+import com.musicshop.dto.cart.CartPatchRequest;
+import com.musicshop.dto.cart.CartPricePreviewDTO;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,6 +13,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import javax.validation.Valid;
 import javax.validation.constraints.Min;
 import java.util.List;
 
@@ -37,12 +40,31 @@ public class CartController {
         return ResponseEntity.noContent().build();
     }
 
+    @PatchMapping("/my")
+    @PreAuthorize("isAuthenticated()")
+    @Operation(summary = "Apply add, set-quantity and remove operations to current user's cart",
+            description = "All operations succeed or none do. Returns the resulting cart.")
+    public ResponseEntity<List<CartItemDTO>> patchMyCart(@Valid @RequestBody CartPatchRequest request,
+            Authentication authentication) {
+        return ResponseEntity.ok(cartUseCase.applyOperations(authentication.getName(), request.getOperations()));
+    }
+
     @GetMapping("/my/details")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<List<CartItemDTO>> listMyCartDetails(Authentication authentication) {
         return ResponseEntity.ok(cartUseCase.listCartDetails(authentication.getName()));
     }
 
+    @GetMapping("/my/price")
+    @PreAuthorize("isAuthenticated()")
+    @Operation(summary = "Preview the current user's cart price with optional coupon codes",
+            description = "Line discounts, coupons, tax and shipping as checkout would apply them.")
+    public ResponseEntity<CartPricePreviewDTO> previewMyCartPrice(
+            @RequestParam(name = "coupon", required = false) List<String> couponCodes,
+            Authentication authentication) {
+        return ResponseEntity.ok(cartUseCase.previewPrice(authentication.getName(), couponCodes));
+    }
+
     @DeleteMapping("/my/clear")
     @PreAuthorize("isAuthenticated()")
     @Operation(summary = "Clear current user's cart")
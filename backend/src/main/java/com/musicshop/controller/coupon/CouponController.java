@@ -0,0 +1,38 @@
+package com.musicshop.controller.coupon;
+
+import com.musicshop.application.coupon.CouponUseCase;
+import com.musicshop.dto.coupon.CouponDTO;
+import com.musicshop.dto.coupon.CreateCouponRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/coupons")
+public class CouponController {
+
+    private final CouponUseCase couponUseCase;
+
+    @Autowired
+    public CouponController(CouponUseCase couponUseCase) {
+        this.couponUseCase = couponUseCase;
+    }
+
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<CouponDTO>> getAllCoupons() {
+        return ResponseEntity.ok(couponUseCase.listCoupons());
+    }
+
+    @PostMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CouponDTO> createCoupon(@Valid @RequestBody CreateCouponRequest request) {
+        CouponDTO createdCoupon = couponUseCase.createCoupon(request);
+        return ResponseEntity.status(HttpStatus.CREATED).body(createdCoupon);
+    }
+}
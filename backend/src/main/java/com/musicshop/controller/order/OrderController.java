@@ -3,6 +3,7 @@ package com.musicshop.controller.order;
 import com.musicshop.application.order.CheckoutUseCase;
 import com.musicshop.dto.checkout.CheckoutRequest;
 import com.musicshop.dto.checkout.CheckoutResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -24,9 +25,19 @@ public class OrderController {
 
     @PostMapping("/checkout")
     @PreAuthorize("isAuthenticated()")
+    @ApiResponse(responseCode = "202", description = "Accepted")
     public ResponseEntity<CheckoutResponse> checkout(@Valid @RequestBody CheckoutRequest request,
+                                                     @RequestHeader(value = "Idempotency-Key", required = false)
+                                                     String idempotencyKey,
                                                      Authentication authentication) {
-        CheckoutResponse response = checkoutUseCase.checkout(authentication.getName(), request);
-        return ResponseEntity.ok(response);
+        CheckoutResponse response = checkoutUseCase.checkout(authentication.getName(), idempotencyKey, request);
+        return ResponseEntity.accepted().body(response);
+    }
+
+    @GetMapping("/{orderId}")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<CheckoutResponse> getCheckoutStatus(@PathVariable Long orderId,
+                                                              Authentication authentication) {
+        return ResponseEntity.ok(checkoutUseCase.getCheckoutStatus(authentication.getName(), orderId));
     }
 }
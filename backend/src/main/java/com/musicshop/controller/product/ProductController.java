@@ -1,9 +1,12 @@
 package com.musicshop.controller.product;
 
 import com.musicshop.dto.product.DetailedProductDTO;
+import com.musicshop.dto.product.ProductFacetsDTO;
 import com.musicshop.dto.product.ProductPatchRequest;
+import com.musicshop.dto.product.ProductSliceDTO;
 import com.musicshop.dto.product.ProductUpsertRequest;
 import com.musicshop.dto.product.SimpleProductDTO;
+import com.musicshop.dto.review.ProductReviewsDTO;
 
 import com.musicshop.application.product.ProductUseCase;
 import com.musicshop.exception.ResourceNotFoundException;
@@ -18,6 +21,8 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
 import java.math.BigDecimal;
 import java.util.Arrays;
@@ -42,6 +47,10 @@ public class ProductController {
      * GET
      * /api/products?q=strat&category=guitars&brand=fender,gibson&minPrice=100&maxPrice=1000
      * &condition=EXCELLENT,GOOD&sort=recommended&page=0&size=20
+     *
+     * With {@code fuzzy=true} the {@code q} terms tolerate typos ("ibanes",
+     * "stratocastr") and results are ranked by match quality; {@code sort} is
+     * ignored.
      */
     @GetMapping
     public ResponseEntity<Page<SimpleProductDTO>> listProducts(
@@ -52,6 +61,7 @@ public class ProductController {
             @RequestParam(required = false) BigDecimal maxPrice,
             @RequestParam(required = false) String condition,
             @RequestParam(defaultValue = "recommended") String sort,
+            @RequestParam(defaultValue = "false") boolean fuzzy,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size) {
 
@@ -60,11 +70,60 @@ public class ProductController {
                 : Collections.emptyList();
 
         Page<SimpleProductDTO> products = productUseCase.listProducts(
-                q, category, brandSlugs, minPrice, maxPrice, condition, sort, page, size);
+                q, category, brandSlugs, minPrice, maxPrice, condition, sort, fuzzy, page, size);
 
         return ResponseEntity.ok(products);
     }
 
+    /**
+     * Cursor-paginated listing with the same filters and sort options. Pass the
+     * returned {@code nextCursor} back as {@code cursor} to fetch the next slice;
+     * no total count is computed.
+     *
+     * GET /api/products/scroll?category=guitars&sort=newest&size=20&cursor=...
+     */
+    @GetMapping("/scroll")
+    public ResponseEntity<ProductSliceDTO> scrollProducts(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String brand,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) String condition,
+            @RequestParam(defaultValue = "recommended") String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") @Min(1) @Max(100) int size) {
+
+        List<String> brandSlugs = brand != null
+                ? Arrays.asList(brand.split(","))
+                : Collections.emptyList();
+
+        return ResponseEntity.ok(productUseCase.scrollProducts(
+                q, category, brandSlugs, minPrice, maxPrice, condition, sort, cursor, size));
+    }
+
+    /**
+     * Facet counts for the filter sidebar, computed for the same filter set as the
+     * listing. Each facet ignores its own filter so alternatives keep their counts.
+     *
+     * GET /api/products/facets?q=strat&category=guitars&brand=fender&condition=GOOD
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<ProductFacetsDTO> getFacets(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String brand,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) String condition) {
+
+        List<String> brandSlugs = brand != null
+                ? Arrays.asList(brand.split(","))
+                : Collections.emptyList();
+
+        return ResponseEntity.ok(productUseCase.getFacets(q, category, brandSlugs, minPrice, maxPrice, condition));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<DetailedProductDTO> getProductById(@PathVariable Long id) {
         return productUseCase.getDetailedProductById(id)
@@ -72,6 +131,24 @@ public class ProductController {
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
     }
 
+    /**
+     * A product's review feed, newest first, with the product's rating summary
+     * (average, count, 1-5 histogram). Optionally filtered by star rating and
+     * verified purchase. Pass the returned {@code nextCursor} back as
+     * {@code cursor} to fetch the next slice.
+     *
+     * GET /api/products/42/reviews?rating=5&verified=true&size=10&cursor=...
+     */
+    @GetMapping("/{id}/reviews")
+    public ResponseEntity<ProductReviewsDTO> getProductReviews(
+            @PathVariable Long id,
+            @RequestParam(required = false) @Min(1) @Max(5) Integer rating,
+            @RequestParam(required = false) Boolean verified,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") @Min(1) @Max(50) int size) {
+        return ResponseEntity.ok(productUseCase.getProductReviews(id, rating, verified, cursor, size));
+    }
+
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<DetailedProductDTO> createProduct(@Valid @RequestBody ProductUpsertRequest request) {
@@ -0,0 +1,40 @@
+package com.musicshop.controller.search;
+
+import com.musicshop.application.search.SearchUseCase;
+import com.musicshop.dto.search.SuggestionDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/search")
+@Validated
+public class SearchController {
+
+    private final SearchUseCase searchUseCase;
+
+    @Autowired
+    public SearchController(SearchUseCase searchUseCase) {
+        this.searchUseCase = searchUseCase;
+    }
+
+    /**
+     * Type-ahead completions for product, brand and category names, best first.
+     *
+     * GET /api/search/suggest?prefix=stra&limit=8
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SuggestionDTO>> suggest(
+            @RequestParam(defaultValue = "") String prefix,
+            @RequestParam(defaultValue = "10") @Min(1) @Max(10) int limit) {
+        return ResponseEntity.ok(searchUseCase.suggest(prefix, limit));
+    }
+}
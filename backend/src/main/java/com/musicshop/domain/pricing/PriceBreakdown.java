@@ -0,0 +1,84 @@
+package com.musicshop.domain.pricing;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Result of evaluating a {@link PricingPlan}. Amounts are kept in cents and
+ * converted to BigDecimal when read; per-line amounts follow the order of the
+ * evaluated lines.
+ */
+public final class PriceBreakdown {
+
+    private final long subtotal;
+    private final long lineDiscount;
+    private final long couponDiscount;
+    private final long tax;
+    private final long shipping;
+    private final long total;
+    private final long[] lineDiscounts;
+    private final long[] lineTotals;
+    private final List<String> couponCodes;
+
+    PriceBreakdown(long subtotal, long lineDiscount, long couponDiscount, long tax, long shipping, long total,
+            long[] lineDiscounts, long[] lineTotals, List<String> couponCodes) {
+        this.subtotal = subtotal;
+        this.lineDiscount = lineDiscount;
+        this.couponDiscount = couponDiscount;
+        this.tax = tax;
+        this.shipping = shipping;
+        this.total = total;
+        this.lineDiscounts = lineDiscounts;
+        this.lineTotals = lineTotals;
+        this.couponCodes = couponCodes;
+    }
+
+    /**
+     * Sum of unit price times quantity, before any discount.
+     */
+    public BigDecimal getSubtotal() {
+        return money(subtotal);
+    }
+
+    public BigDecimal getLineDiscount() {
+        return money(lineDiscount);
+    }
+
+    public BigDecimal getCouponDiscount() {
+        return money(couponDiscount);
+    }
+
+    public BigDecimal getTax() {
+        return money(tax);
+    }
+
+    public BigDecimal getShipping() {
+        return money(shipping);
+    }
+
+    public BigDecimal getTotal() {
+        return money(total);
+    }
+
+    public BigDecimal getLineDiscount(int line) {
+        return money(lineDiscounts[line]);
+    }
+
+    /**
+     * The line's amount after its line discount, before coupons and tax.
+     */
+    public BigDecimal getLineTotal(int line) {
+        return money(lineTotals[line]);
+    }
+
+    /**
+     * The applied coupon codes, normalized to upper case.
+     */
+    public List<String> getCouponCodes() {
+        return couponCodes;
+    }
+
+    private static BigDecimal money(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+}
@@ -0,0 +1,78 @@
+package com.musicshop.domain.pricing;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A coupon ready for {@link PricingPlan#evaluate}: its value is converted to
+ * basis points or cents when the coupon is created, so a coupon built once can
+ * be applied to any number of carts.
+ *
+ * A coupon can be limited to lines in a set of categories and to one brand;
+ * its discount is then taken off those lines only.
+ */
+public final class PricingCoupon {
+
+    private final String code;
+    private final boolean percentage;
+    private final long value;
+    private final boolean stackable;
+    private final Set<Long> categoryIds;
+    private final Long brandId;
+
+    private PricingCoupon(String code, boolean percentage, long value, boolean stackable, Set<Long> categoryIds,
+            Long brandId) {
+        this.code = Objects.requireNonNull(code).trim().toUpperCase(Locale.ROOT);
+        if (this.code.isEmpty()) {
+            throw new IllegalArgumentException("Coupon code must not be blank");
+        }
+        this.percentage = percentage;
+        this.value = value;
+        this.stackable = stackable;
+        this.categoryIds = Set.copyOf(categoryIds);
+        this.brandId = brandId;
+    }
+
+    /**
+     * A coupon taking {@code percent} (10 for 10%) off the lines it applies to.
+     */
+    public static PricingCoupon percentage(String code, BigDecimal percent, boolean stackable,
+            Set<Long> categoryIds, Long brandId) {
+        return new PricingCoupon(code, true, PricingPlan.percentage(percent), stackable, categoryIds, brandId);
+    }
+
+    /**
+     * A coupon taking {@code amount} off the lines it applies to, at most their total.
+     */
+    public static PricingCoupon fixedAmount(String code, BigDecimal amount, boolean stackable,
+            Set<Long> categoryIds, Long brandId) {
+        return new PricingCoupon(code, false, PricingPlan.amount(amount), stackable, categoryIds, brandId);
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public boolean isStackable() {
+        return stackable;
+    }
+
+    boolean isPercentage() {
+        return percentage;
+    }
+
+    long getValue() {
+        return value;
+    }
+
+    boolean isScoped() {
+        return !categoryIds.isEmpty() || brandId != null;
+    }
+
+    boolean appliesTo(PricingLine line) {
+        return (categoryIds.isEmpty() || categoryIds.contains(line.categoryId()))
+                && (brandId == null || brandId.equals(line.brandId()));
+    }
+}
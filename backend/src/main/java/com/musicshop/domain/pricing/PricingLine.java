@@ -0,0 +1,22 @@
+package com.musicshop.domain.pricing;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * One cart line as seen by a {@link PricingPlan}: the unit price is held in
+ * cents so evaluation runs on longs.
+ */
+public record PricingLine(Long productId, Long categoryId, Long brandId, long unitPriceCents, int quantity) {
+
+    public PricingLine {
+        if (unitPriceCents < 0 || quantity < 0) {
+            throw new IllegalArgumentException("Price and quantity must not be negative");
+        }
+    }
+
+    public static PricingLine of(Long productId, Long categoryId, Long brandId, BigDecimal unitPrice, int quantity) {
+        return new PricingLine(productId, categoryId, brandId,
+                PricingPlan.toCents(unitPrice.setScale(2, RoundingMode.HALF_UP)), quantity);
+    }
+}
@@ -0,0 +1,343 @@
+package com.musicshop.domain.pricing;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable evaluation plan compiled from {@link PricingRules}. Amounts are
+ * compiled to cents and rates to basis points, tax rates are interned into a
+ * few tax classes and shipping tiers into sorted arrays, so evaluating a cart
+ * is one pass over its lines in long arithmetic; BigDecimals are only created
+ * when reading the resulting {@link PriceBreakdown}. A plan is safe to share
+ * between threads.
+ *
+ * A cart is priced as follows:
+ * <ol>
+ * <li>each line takes the largest line discount it qualifies for;</li>
+ * <li>each coupon is taken off the discounted total of the lines it applies
+ * to, as a percentage of it or a fixed amount capped at it, and spread over
+ * those lines' tax classes pro rata;</li>
+ * <li>each tax class is taxed at its rate, rounded half up to the cent;</li>
+ * <li>shipping is the fee of the highest tier the discounted merchandise total
+ * reaches, and nothing for an empty cart.</li>
+ * </ol>
+ */
+public final class PricingPlan {
+
+    private static final long BASIS_POINTS = 10_000;
+    private static final int MAX_DENSE_CATEGORY_ID = 4096;
+    private static final DiscountTier[] NO_TIERS = new DiscountTier[0];
+
+    private final long[] taxBasisPoints;
+    private final CategoryRule defaultRule;
+    private final CategoryRule[] rulesByCategoryId;
+    private final Map<Long, CategoryRule> sparseRules;
+    private final long[] shippingThresholds;
+    private final long[] shippingFees;
+
+    private PricingPlan(long[] taxBasisPoints, CategoryRule defaultRule, Map<Long, CategoryRule> categoryRules,
+            long[] shippingThresholds, long[] shippingFees) {
+        this.taxBasisPoints = taxBasisPoints;
+        this.defaultRule = defaultRule;
+        // Category IDs are small and dense in practice: index them directly and
+        // keep a map only for IDs beyond the table
+        long maxId = categoryRules.keySet().stream().mapToLong(Long::longValue).max().orElse(-1);
+        this.rulesByCategoryId = new CategoryRule[(int) Math.min(maxId + 1, MAX_DENSE_CATEGORY_ID)];
+        Map<Long, CategoryRule> sparse = new HashMap<>();
+        categoryRules.forEach((id, rule) -> {
+            if (id >= 0 && id < rulesByCategoryId.length) {
+                rulesByCategoryId[id.intValue()] = rule;
+            } else {
+                sparse.put(id, rule);
+            }
+        });
+        this.sparseRules = Map.copyOf(sparse);
+        this.shippingThresholds = shippingThresholds;
+        this.shippingFees = shippingFees;
+    }
+
+    /**
+     * Check the rules and compile them into a plan.
+     *
+     * @throws IllegalArgumentException if a rule is out of range or has more
+     *         precision than a cent or a basis point
+     */
+    public static PricingPlan compile(PricingRules rules) {
+        // Tax class 0 is the default rate; categories sharing a rate share a class
+        Map<Long, Integer> classByRate = new LinkedHashMap<>();
+        classByRate.put(rate(rules.getDefaultTaxRate()), 0);
+        Map<Long, Integer> taxClassByCategory = new HashMap<>();
+        for (PricingRules.TaxRate taxRate : rules.getTaxRates()) {
+            Integer taxClass = classByRate.computeIfAbsent(rate(taxRate.rate()), bps -> classByRate.size());
+            taxClassByCategory.put(taxRate.categoryId(), taxClass);
+        }
+        long[] taxBasisPoints = new long[classByRate.size()];
+        classByRate.forEach((bps, taxClass) -> taxBasisPoints[taxClass] = bps);
+
+        // Each category gets its tax class and its line discounts merged with
+        // the ones for any category, so a line needs a single lookup
+        List<DiscountTier> anyCategory = new ArrayList<>();
+        Map<Long, List<DiscountTier>> byCategory = new HashMap<>();
+        for (PricingRules.LineDiscount discount : rules.getLineDiscounts()) {
+            if (discount.minimumQuantity() < 1) {
+                throw new IllegalArgumentException("Line discount minimum quantity must be at least 1");
+            }
+            DiscountTier tier = new DiscountTier(discount.minimumQuantity(), percentage(discount.percentage()));
+            if (discount.categoryId() == null) {
+                anyCategory.add(tier);
+            } else {
+                byCategory.computeIfAbsent(discount.categoryId(), id -> new ArrayList<>()).add(tier);
+            }
+        }
+        Map<Long, CategoryRule> categoryRules = new HashMap<>();
+        Set<Long> categoryIds = new HashSet<>(taxClassByCategory.keySet());
+        categoryIds.addAll(byCategory.keySet());
+        for (Long categoryId : categoryIds) {
+            List<DiscountTier> discounts = new ArrayList<>(anyCategory);
+            discounts.addAll(byCategory.getOrDefault(categoryId, List.of()));
+            categoryRules.put(categoryId, new CategoryRule(taxClassByCategory.getOrDefault(categoryId, 0),
+                    toTierArray(discounts)));
+        }
+
+        List<PricingRules.ShippingTier> tiers = new ArrayList<>(rules.getShippingTiers());
+        tiers.sort(Comparator.comparing(PricingRules.ShippingTier::minimumSubtotal));
+        long[] shippingThresholds = new long[tiers.size()];
+        long[] shippingFees = new long[tiers.size()];
+        for (int i = 0; i < tiers.size(); i++) {
+            shippingThresholds[i] = amount(tiers.get(i).minimumSubtotal());
+            shippingFees[i] = amount(tiers.get(i).fee());
+            if (i > 0 && shippingThresholds[i] == shippingThresholds[i - 1]) {
+                throw new IllegalArgumentException("Duplicate shipping tier at " + tiers.get(i).minimumSubtotal());
+            }
+        }
+
+        return new PricingPlan(taxBasisPoints, new CategoryRule(0, toTierArray(anyCategory)), categoryRules,
+                shippingThresholds, shippingFees);
+    }
+
+    /**
+     * Price the lines with the given coupons; a coupon given twice counts once.
+     *
+     * @throws IllegalArgumentException if a coupon that does not stack is
+     *         combined with another, or a scoped coupon applies to none of the lines
+     */
+    public PriceBreakdown evaluate(List<PricingLine> lines, List<PricingCoupon> coupons) {
+        List<PricingCoupon> applied = checkCombination(coupons);
+
+        int lineCount = lines.size();
+        long[] lineDiscounts = new long[lineCount];
+        long[] lineTotals = new long[lineCount];
+        int[] lineClasses = new int[lineCount];
+        long[] taxable = new long[taxBasisPoints.length];
+        long subtotal = 0;
+        long lineDiscountTotal = 0;
+        for (int i = 0; i < lineCount; i++) {
+            PricingLine line = lines.get(i);
+            CategoryRule rule = ruleFor(line.categoryId());
+            long gross = Math.multiplyExact(line.unitPriceCents(), line.quantity());
+            long discount = percentOf(gross, bestDiscount(rule.discounts(), line.quantity()));
+            long net = gross - discount;
+            lineDiscounts[i] = discount;
+            lineTotals[i] = net;
+            lineClasses[i] = rule.taxClass();
+            subtotal += gross;
+            lineDiscountTotal += discount;
+            taxable[rule.taxClass()] += net;
+        }
+        long merchandise = subtotal - lineDiscountTotal;
+
+        // Each coupon is taken off the lines it applies to and spread over their
+        // tax classes pro rata; a class never loses more than its amount
+        long[] couponByClass = new long[taxBasisPoints.length];
+        for (PricingCoupon coupon : applied) {
+            long[] base = coupon.isScoped() ? eligible(coupon, lines, lineTotals, lineClasses) : taxable;
+            long eligibleTotal = 0;
+            for (long amount : base) {
+                eligibleTotal += amount;
+            }
+            if (eligibleTotal == 0) {
+                if (coupon.isScoped() && lineCount > 0) {
+                    throw new IllegalArgumentException("Coupon " + coupon.getCode() + " does not apply to this cart");
+                }
+                continue;
+            }
+            long discount = coupon.isPercentage()
+                    ? percentOf(eligibleTotal, coupon.getValue())
+                    : Math.min(coupon.getValue(), eligibleTotal);
+            spread(discount, base, eligibleTotal, couponByClass);
+        }
+
+        long couponDiscount = 0;
+        long tax = 0;
+        for (int taxClass = 0; taxClass < taxable.length; taxClass++) {
+            long share = Math.min(couponByClass[taxClass], taxable[taxClass]);
+            couponDiscount += share;
+            tax += percentOf(taxable[taxClass] - share, taxBasisPoints[taxClass]);
+        }
+
+        long discounted = merchandise - couponDiscount;
+        long shipping = lineCount == 0 ? 0 : shippingFee(discounted);
+        List<String> codes = new ArrayList<>(applied.size());
+        for (PricingCoupon coupon : applied) {
+            codes.add(coupon.getCode());
+        }
+        return new PriceBreakdown(subtotal, lineDiscountTotal, couponDiscount, tax, shipping,
+                discounted + tax + shipping, lineDiscounts, lineTotals, codes);
+    }
+
+    private static List<PricingCoupon> checkCombination(List<PricingCoupon> coupons) {
+        if (coupons == null || coupons.isEmpty()) {
+            return List.of();
+        }
+        List<PricingCoupon> applied = new ArrayList<>(coupons.size());
+        Set<String> codes = new HashSet<>();
+        for (PricingCoupon coupon : coupons) {
+            if (codes.add(coupon.getCode())) {
+                applied.add(coupon);
+            }
+        }
+        if (applied.size() > 1) {
+            for (PricingCoupon coupon : applied) {
+                if (!coupon.isStackable()) {
+                    throw new IllegalArgumentException("Coupon " + coupon.getCode()
+                            + " cannot be combined with other coupons");
+                }
+            }
+        }
+        return applied;
+    }
+
+    private long[] eligible(PricingCoupon coupon, List<PricingLine> lines, long[] lineTotals, int[] lineClasses) {
+        long[] base = new long[taxBasisPoints.length];
+        for (int i = 0; i < lineTotals.length; i++) {
+            if (coupon.appliesTo(lines.get(i))) {
+                base[lineClasses[i]] += lineTotals[i];
+            }
+        }
+        return base;
+    }
+
+    /**
+     * Add {@code discount} to the classes in proportion to {@code base}, the
+     * rounding remainder going to the last class with an amount.
+     */
+    private static void spread(long discount, long[] base, long baseTotal, long[] into) {
+        int lastClass = lastNonEmpty(base);
+        long unallocated = discount;
+        for (int taxClass = 0; taxClass < lastClass; taxClass++) {
+            long share = Math.multiplyExact(discount, base[taxClass]) / baseTotal;
+            into[taxClass] += share;
+            unallocated -= share;
+        }
+        into[lastClass] += unallocated;
+    }
+
+    private CategoryRule ruleFor(Long categoryId) {
+        if (categoryId == null) {
+            return defaultRule;
+        }
+        long id = categoryId;
+        CategoryRule rule = id >= 0 && id < rulesByCategoryId.length
+                ? rulesByCategoryId[(int) id]
+                : sparseRules.get(categoryId);
+        return rule != null ? rule : defaultRule;
+    }
+
+    private static long bestDiscount(DiscountTier[] tiers, int quantity) {
+        long best = 0;
+        for (DiscountTier tier : tiers) {
+            if (quantity >= tier.minimumQuantity()) {
+                best = Math.max(best, tier.basisPoints());
+            }
+        }
+        return best;
+    }
+
+    private long shippingFee(long merchandise) {
+        int index = Arrays.binarySearch(shippingThresholds, merchandise);
+        if (index < 0) {
+            index = -index - 2;
+        }
+        return index < 0 ? 0 : shippingFees[index];
+    }
+
+    private static int lastNonEmpty(long[] amounts) {
+        for (int i = amounts.length - 1; i >= 0; i--) {
+            if (amounts[i] != 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * {@code basisPoints} of a non-negative amount in cents, rounded half up.
+     */
+    private static long percentOf(long cents, long basisPoints) {
+        if (basisPoints == 0) {
+            return 0;
+        }
+        return (Math.multiplyExact(cents, basisPoints) + BASIS_POINTS / 2) / BASIS_POINTS;
+    }
+
+    static long toCents(BigDecimal amount) {
+        try {
+            return amount.movePointRight(2).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount " + amount + " is not a whole number of cents", e);
+        }
+    }
+
+    static long amount(BigDecimal amount) {
+        if (amount.signum() < 0) {
+            throw new IllegalArgumentException("Amount must not be negative: " + amount);
+        }
+        return toCents(amount);
+    }
+
+    /**
+     * A fraction (0.21) in basis points.
+     */
+    private static long rate(BigDecimal fraction) {
+        return basisPoints(fraction.movePointRight(4), fraction);
+    }
+
+    /**
+     * A percentage (10 for 10%) in basis points.
+     */
+    static long percentage(BigDecimal percent) {
+        return basisPoints(percent.movePointRight(2), percent);
+    }
+
+    private static long basisPoints(BigDecimal scaled, BigDecimal original) {
+        long bps;
+        try {
+            bps = scaled.longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Rate " + original + " is finer than a basis point", e);
+        }
+        if (bps < 0 || bps > BASIS_POINTS) {
+            throw new IllegalArgumentException("Rate " + original + " is out of range");
+        }
+        return bps;
+    }
+
+    private static DiscountTier[] toTierArray(List<DiscountTier> tiers) {
+        return tiers.isEmpty() ? NO_TIERS : tiers.toArray(DiscountTier[]::new);
+    }
+
+    private record DiscountTier(int minimumQuantity, long basisPoints) {
+    }
+
+    private record CategoryRule(int taxClass, DiscountTier[] discounts) {
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.musicshop.domain.pricing;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A declarative pricing rule set: tax rates per category, shipping tiers and
+ * line discounts. Rules are checked and turned into an evaluation plan by
+ * {@link PricingPlan#compile(PricingRules)}; coupons are passed to the plan
+ * per cart as {@link PricingCoupon}s.
+ */
+public final class PricingRules {
+
+    private final BigDecimal defaultTaxRate;
+    private final List<TaxRate> taxRates;
+    private final List<ShippingTier> shippingTiers;
+    private final List<LineDiscount> lineDiscounts;
+
+    private PricingRules(Builder builder) {
+        this.defaultTaxRate = builder.defaultTaxRate;
+        this.taxRates = List.copyOf(builder.taxRates);
+        this.shippingTiers = List.copyOf(builder.shippingTiers);
+        this.lineDiscounts = List.copyOf(builder.lineDiscounts);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public BigDecimal getDefaultTaxRate() {
+        return defaultTaxRate;
+    }
+
+    public List<TaxRate> getTaxRates() {
+        return taxRates;
+    }
+
+    public List<ShippingTier> getShippingTiers() {
+        return shippingTiers;
+    }
+
+    public List<LineDiscount> getLineDiscounts() {
+        return lineDiscounts;
+    }
+
+    /**
+     * Tax rate of one category, as a fraction (0.21 for 21%). A later rate for
+     * the same category replaces an earlier one.
+     */
+    public record TaxRate(Long categoryId, BigDecimal rate) {
+    }
+
+    /**
+     * Shipping fee for orders whose discounted merchandise total is at least
+     * {@code minimumSubtotal}; a fee of zero makes a free-shipping threshold.
+     */
+    public record ShippingTier(BigDecimal minimumSubtotal, BigDecimal fee) {
+    }
+
+    /**
+     * Percentage off lines of {@code minimumQuantity} or more units, in one
+     * category or, with a null category, in any. A line gets the largest
+     * discount it qualifies for.
+     */
+    public record LineDiscount(Long categoryId, int minimumQuantity, BigDecimal percentage) {
+    }
+
+    public static final class Builder {
+
+        private BigDecimal defaultTaxRate = BigDecimal.ZERO;
+        private final List<TaxRate> taxRates = new ArrayList<>();
+        private final List<ShippingTier> shippingTiers = new ArrayList<>();
+        private final List<LineDiscount> lineDiscounts = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        public Builder defaultTaxRate(BigDecimal rate) {
+            this.defaultTaxRate = Objects.requireNonNull(rate);
+            return this;
+        }
+
+        public Builder taxRate(Long categoryId, BigDecimal rate) {
+            taxRates.add(new TaxRate(Objects.requireNonNull(categoryId), Objects.requireNonNull(rate)));
+            return this;
+        }
+
+        public Builder shippingTier(BigDecimal minimumSubtotal, BigDecimal fee) {
+            shippingTiers.add(new ShippingTier(Objects.requireNonNull(minimumSubtotal), Objects.requireNonNull(fee)));
+            return this;
+        }
+
+        public Builder lineDiscount(Long categoryId, int minimumQuantity, BigDecimal percentage) {
+            lineDiscounts.add(new LineDiscount(categoryId, minimumQuantity, Objects.requireNonNull(percentage)));
+            return this;
+        }
+
+        public PricingRules build() {
+            return new PricingRules(this);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.musicshop.domain.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The free-text matching rules shared by the in-memory search index and its SQL
+ * fallback, so both resolve a query to the same products.
+ *
+ * Text is lower-cased, stripped of accents and split into tokens at every
+ * character that is not a letter or digit. A product matches a query when every
+ * query token is a prefix of some token of the product's name, description,
+ * brand name or category name: "strat fend" matches "Fender Stratocaster",
+ * "caster" does not.
+ *
+ * {@link #FOLD_FROM} and {@link #FOLD_TO} are the same folding as a SQL
+ * {@code TRANSLATE} table, to be applied to lower-cased text: accented Latin
+ * letters map to their base letter and punctuation to a space.
+ */
+public final class SearchText {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    public static final String FOLD_FROM;
+    public static final String FOLD_TO;
+
+    static {
+        StringBuilder from = new StringBuilder();
+        StringBuilder to = new StringBuilder();
+        // ASCII, Latin-1 and Latin Extended, plus general punctuation; control
+        // characters other than whitespace cannot appear in a SQL string
+        for (char c = 0; c <= 0x206F; c++) {
+            boolean control = c < 0x20 && c != '\t' && c != '\n' && c != '\r';
+            if (c == ' ' || control || c > 0x024F && c < 0x2000) {
+                continue;
+            }
+            String character = String.valueOf(c);
+            if (!character.toLowerCase().equals(character) || DIACRITICS.matcher(character).matches()) {
+                continue;
+            }
+            if (SEPARATORS.matcher(character).matches()) {
+                from.append(c);
+                to.append(' ');
+                continue;
+            }
+            String folded = stripDiacritics(character);
+            if (folded.length() == 1 && !folded.equals(character)) {
+                from.append(c);
+                to.append(folded);
+            }
+        }
+        FOLD_FROM = from.toString();
+        FOLD_TO = to.toString();
+    }
+
+    private SearchText() {
+    }
+
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return Collections.emptyList();
+        }
+        String normalized = stripDiacritics(text).toLowerCase();
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(normalized)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static String stripDiacritics(String text) {
+        return DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+    }
+}
@@ -1,6 +1,6 @@
 package com.musicshop.dto.brand;
 
-public record BrandDTO(Long id, String name, String slug, String logoUrl) {
+public record BrandDTO(Long id, String name, String slug, String logoUrl, long productCount) {
 
     public Long getId() {
         return id;
@@ -17,4 +17,8 @@ public record BrandDTO(Long id, String name, String slug, String logoUrl) {
     public String getLogoUrl() {
         return logoUrl;
     }
+
+    public long getProductCount() {
+        return productCount;
+    }
 }
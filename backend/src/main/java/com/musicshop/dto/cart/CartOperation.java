@@ -0,0 +1,51 @@
+package com.musicshop.dto.cart;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+/**
+ * One step of a batch cart update. {@code quantity} is the amount to add for
+ * {@code ADD} (at least 1), the new line quantity for {@code SET_QUANTITY}
+ * (0 removes the line) and is ignored for {@code REMOVE}.
+ */
+public class CartOperation {
+
+    public enum Type {
+        ADD,
+        SET_QUANTITY,
+        REMOVE
+    }
+
+    @NotNull(message = "Operation type is required.")
+    private Type op;
+
+    @NotNull(message = "Product ID is required.")
+    private Long productId;
+
+    @Min(value = 0, message = "Quantity cannot be negative.")
+    private Integer quantity;
+
+    public Type getOp() {
+        return op;
+    }
+
+    public void setOp(Type op) {
+        this.op = op;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+}
@@ -0,0 +1,25 @@
+package com.musicshop.dto.cart;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+public class CartPatchRequest {
+
+    public static final int MAX_OPERATIONS = 100;
+
+    @NotEmpty(message = "Operation list cannot be empty.")
+    @Size(max = MAX_OPERATIONS, message = "At most 100 operations per request.")
+    @Valid
+    private List<@NotNull(message = "Operation cannot be null.") CartOperation> operations;
+
+    public List<CartOperation> getOperations() {
+        return operations;
+    }
+
+    public void setOperations(List<CartOperation> operations) {
+        this.operations = operations;
+    }
+}
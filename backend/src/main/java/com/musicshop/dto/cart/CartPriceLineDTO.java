@@ -0,0 +1,41 @@
+package com.musicshop.dto.cart;
+
+import java.math.BigDecimal;
+
+public record CartPriceLineDTO(
+        Long id,
+        Long productId,
+        String productName,
+        Integer quantity,
+        BigDecimal unitPrice,
+        BigDecimal discount,
+        BigDecimal total) {
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public BigDecimal getUnitPrice() {
+        return unitPrice;
+    }
+
+    public BigDecimal getDiscount() {
+        return discount;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+}
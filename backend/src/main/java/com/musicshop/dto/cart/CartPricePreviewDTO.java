@@ -0,0 +1,47 @@
+package com.musicshop.dto.cart;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public record CartPricePreviewDTO(
+        List<CartPriceLineDTO> lines,
+        List<String> couponCodes,
+        BigDecimal subtotal,
+        BigDecimal lineDiscount,
+        BigDecimal couponDiscount,
+        BigDecimal tax,
+        BigDecimal shipping,
+        BigDecimal total) {
+
+    public List<CartPriceLineDTO> getLines() {
+        return lines;
+    }
+
+    public List<String> getCouponCodes() {
+        return couponCodes;
+    }
+
+    public BigDecimal getSubtotal() {
+        return subtotal;
+    }
+
+    public BigDecimal getLineDiscount() {
+        return lineDiscount;
+    }
+
+    public BigDecimal getCouponDiscount() {
+        return couponDiscount;
+    }
+
+    public BigDecimal getTax() {
+        return tax;
+    }
+
+    public BigDecimal getShipping() {
+        return shipping;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+}
@@ -1,12 +1,14 @@
 package com.musicshop.dto.checkout;
 
 import javax.validation.constraints.NotBlank;
+import java.util.List;
 
 public class CheckoutRequest {
 
     @NotBlank
     private String paymentMethod;
     private String couponCode;
+    private List<String> couponCodes;
     @NotBlank
     private String street;
     @NotBlank
@@ -34,6 +36,14 @@ public class CheckoutRequest {
         this.couponCode = couponCode;
     }
 
+    public List<String> getCouponCodes() {
+        return couponCodes;
+    }
+
+    public void setCouponCodes(List<String> couponCodes) {
+        this.couponCodes = couponCodes;
+    }
+
     public String getStreet() {
         return street;
     }
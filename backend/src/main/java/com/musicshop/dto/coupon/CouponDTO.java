@@ -0,0 +1,69 @@
+package com.musicshop.dto.coupon;
+
+import com.musicshop.model.coupon.Coupon;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public record CouponDTO(
+        Long id,
+        String code,
+        Coupon.Kind kind,
+        BigDecimal value,
+        boolean stackable,
+        LocalDateTime validFrom,
+        LocalDateTime validUntil,
+        Integer maxRedemptions,
+        Integer maxRedemptionsPerUser,
+        long redemptionCount,
+        Long categoryId,
+        Long brandId) {
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public Coupon.Kind getKind() {
+        return kind;
+    }
+
+    public BigDecimal getValue() {
+        return value;
+    }
+
+    public boolean isStackable() {
+        return stackable;
+    }
+
+    public LocalDateTime getValidFrom() {
+        return validFrom;
+    }
+
+    public LocalDateTime getValidUntil() {
+        return validUntil;
+    }
+
+    public Integer getMaxRedemptions() {
+        return maxRedemptions;
+    }
+
+    public Integer getMaxRedemptionsPerUser() {
+        return maxRedemptionsPerUser;
+    }
+
+    public long getRedemptionCount() {
+        return redemptionCount;
+    }
+
+    public Long getCategoryId() {
+        return categoryId;
+    }
+
+    public Long getBrandId() {
+        return brandId;
+    }
+}
@@ -0,0 +1,118 @@
+package com.musicshop.dto.coupon;
+
+import com.musicshop.model.coupon.Coupon;
+
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.Size;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public class CreateCouponRequest {
+
+    @NotBlank(message = "Coupon code is required.")
+    @Size(max = 50, message = "Coupon code is too long.")
+    private String code;
+
+    @NotNull(message = "Coupon kind is required.")
+    private Coupon.Kind kind;
+
+    @NotNull(message = "Coupon value is required.")
+    @DecimalMin(value = "0.00", message = "Coupon value cannot be negative.")
+    private BigDecimal value;
+
+    private boolean stackable;
+    private LocalDateTime validFrom;
+    private LocalDateTime validUntil;
+
+    @Positive(message = "Maximum redemptions must be greater than 0.")
+    private Integer maxRedemptions;
+
+    @Positive(message = "Maximum redemptions per user must be greater than 0.")
+    private Integer maxRedemptionsPerUser;
+
+    private Long categoryId;
+    private Long brandId;
+
+    public String getCode() {
+        return code;
+    }
+
+    public void setCode(String code) {
+        this.code = code;
+    }
+
+    public Coupon.Kind getKind() {
+        return kind;
+    }
+
+    public void setKind(Coupon.Kind kind) {
+        this.kind = kind;
+    }
+
+    public BigDecimal getValue() {
+        return value;
+    }
+
+    public void setValue(BigDecimal value) {
+        this.value = value;
+    }
+
+    public boolean isStackable() {
+        return stackable;
+    }
+
+    public void setStackable(boolean stackable) {
+        this.stackable = stackable;
+    }
+
+    public LocalDateTime getValidFrom() {
+        return validFrom;
+    }
+
+    public void setValidFrom(LocalDateTime validFrom) {
+        this.validFrom = validFrom;
+    }
+
+    public LocalDateTime getValidUntil() {
+        return validUntil;
+    }
+
+    public void setValidUntil(LocalDateTime validUntil) {
+        this.validUntil = validUntil;
+    }
+
+    public Integer getMaxRedemptions() {
+        return maxRedemptions;
+    }
+
+    public void setMaxRedemptions(Integer maxRedemptions) {
+        this.maxRedemptions = maxRedemptions;
+    }
+
+    public Integer getMaxRedemptionsPerUser() {
+        return maxRedemptionsPerUser;
+    }
+
+    public void setMaxRedemptionsPerUser(Integer maxRedemptionsPerUser) {
+        this.maxRedemptionsPerUser = maxRedemptionsPerUser;
+    }
+
+    public Long getCategoryId() {
+        return categoryId;
+    }
+
+    public void setCategoryId(Long categoryId) {
+        this.categoryId = categoryId;
+    }
+
+    public Long getBrandId() {
+        return brandId;
+    }
+
+    public void setBrandId(Long brandId) {
+        this.brandId = brandId;
+    }
+}
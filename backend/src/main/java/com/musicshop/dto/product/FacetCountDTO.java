@@ -0,0 +1,19 @@
+package com.musicshop.dto.product;
+
+public record FacetCountDTO(
+        String value,
+        String label,
+        long count) {
+
+    public String getValue() {
+        return value;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public long getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,21 @@
+package com.musicshop.dto.product;
+
+import java.math.BigDecimal;
+
+public record PriceBucketDTO(
+        BigDecimal min,
+        BigDecimal max,
+        long count) {
+
+    public BigDecimal getMin() {
+        return min;
+    }
+
+    public BigDecimal getMax() {
+        return max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,38 @@
+package com.musicshop.dto.product;
+
+import java.util.List;
+
+public record ProductFacetsDTO(
+        long totalCount,
+        List<FacetCountDTO> brands,
+        List<FacetCountDTO> categories,
+        List<FacetCountDTO> conditions,
+        List<PriceBucketDTO> priceBuckets) {
+
+    public ProductFacetsDTO {
+        brands = (brands == null) ? List.of() : List.copyOf(brands);
+        categories = (categories == null) ? List.of() : List.copyOf(categories);
+        conditions = (conditions == null) ? List.of() : List.copyOf(conditions);
+        priceBuckets = (priceBuckets == null) ? List.of() : List.copyOf(priceBuckets);
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public List<FacetCountDTO> getBrands() {
+        return brands;
+    }
+
+    public List<FacetCountDTO> getCategories() {
+        return categories;
+    }
+
+    public List<FacetCountDTO> getConditions() {
+        return conditions;
+    }
+
+    public List<PriceBucketDTO> getPriceBuckets() {
+        return priceBuckets;
+    }
+}
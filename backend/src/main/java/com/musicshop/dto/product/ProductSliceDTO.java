@@ -0,0 +1,30 @@
+package com.musicshop.dto.product;
+
+import java.util.List;
+
+public record ProductSliceDTO(
+        List<SimpleProductDTO> content,
+        int size,
+        boolean hasNext,
+        String nextCursor) {
+
+    public ProductSliceDTO {
+        content = (content == null) ? List.of() : List.copyOf(content);
+    }
+
+    public List<SimpleProductDTO> getContent() {
+        return content;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
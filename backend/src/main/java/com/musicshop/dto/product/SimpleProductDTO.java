@@ -2,6 +2,7 @@ package com.musicshop.dto.product;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.musicshop.model.product.ProductCondition;
+import com.musicshop.model.product.RatingAggregate;
 import java.math.BigDecimal;
 import java.util.List;
 
@@ -15,12 +16,26 @@ public record SimpleProductDTO(
         ProductCondition condition,
         String thumbnailUrl,
         boolean isPromoted,
+        Double averageRating,
+        long reviewCount,
         List<ProductImageDTO> images) {
 
     public SimpleProductDTO {
         images = (images == null) ? List.of() : List.copyOf(images);
     }
 
+    /**
+     * Listing projection: everything a product card needs, without the images.
+     * The average rating is derived from the product's maintained rating sum and
+     * count.
+     */
+    public SimpleProductDTO(Long id, String name, String slug, BigDecimal price, String categoryName,
+            String brandName, ProductCondition condition, String thumbnailUrl, boolean isPromoted,
+            long reviewCount, long ratingSum) {
+        this(id, name, slug, price, categoryName, brandName, condition, thumbnailUrl, isPromoted,
+                RatingAggregate.averageOf(ratingSum, reviewCount), reviewCount, List.of());
+    }
+
     public Long getId() {
         return id;
     }
@@ -58,6 +73,14 @@ public record SimpleProductDTO(
         return isPromoted;
     }
 
+    public Double getAverageRating() {
+        return averageRating;
+    }
+
+    public long getReviewCount() {
+        return reviewCount;
+    }
+
     public List<ProductImageDTO> getImages() {
         return images;
     }
@@ -6,6 +6,7 @@ public record CategoryReviewsDTO(
         String categoryName,
         Double averageRating,
         long reviewCount,
+        RatingHistogramDTO ratingHistogram,
         List<ReviewDTO> reviews) {
 
     public CategoryReviewsDTO {
@@ -24,6 +25,10 @@ public record CategoryReviewsDTO(
         return reviewCount;
     }
 
+    public RatingHistogramDTO getRatingHistogram() {
+        return ratingHistogram;
+    }
+
     public List<ReviewDTO> getReviews() {
         return reviews;
     }
@@ -0,0 +1,50 @@
+package com.musicshop.dto.review;
+
+import java.util.List;
+
+public record ProductReviewsDTO(
+        Long productId,
+        Double averageRating,
+        long reviewCount,
+        RatingHistogramDTO ratingHistogram,
+        List<ReviewDTO> reviews,
+        int size,
+        boolean hasNext,
+        String nextCursor) {
+
+    public ProductReviewsDTO {
+        reviews = (reviews == null) ? List.of() : List.copyOf(reviews);
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public Double getAverageRating() {
+        return averageRating;
+    }
+
+    public long getReviewCount() {
+        return reviewCount;
+    }
+
+    public RatingHistogramDTO getRatingHistogram() {
+        return ratingHistogram;
+    }
+
+    public List<ReviewDTO> getReviews() {
+        return reviews;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,24 @@
+package com.musicshop.dto.review;
+
+public record RatingHistogramDTO(long oneStar, long twoStars, long threeStars, long fourStars, long fiveStars) {
+
+    public long getOneStar() {
+        return oneStar;
+    }
+
+    public long getTwoStars() {
+        return twoStars;
+    }
+
+    public long getThreeStars() {
+        return threeStars;
+    }
+
+    public long getFourStars() {
+        return fourStars;
+    }
+
+    public long getFiveStars() {
+        return fiveStars;
+    }
+}
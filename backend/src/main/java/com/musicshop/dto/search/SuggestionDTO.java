@@ -0,0 +1,28 @@
+package com.musicshop.dto.search;
+
+/**
+ * One type-ahead completion. {@code type} is PRODUCT, BRAND or CATEGORY;
+ * {@code id} is set for products only.
+ */
+public record SuggestionDTO(
+        String type,
+        String text,
+        String slug,
+        Long id) {
+
+    public String getType() {
+        return type;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public String getSlug() {
+        return slug;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
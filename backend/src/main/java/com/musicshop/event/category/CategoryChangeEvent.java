@@ -0,0 +1,16 @@
+package com.musicshop.event.category;
+
+import org.springframework.context.ApplicationEvent;
+
+public class CategoryChangeEvent extends ApplicationEvent {
+    private final Long categoryId;
+
+    public CategoryChangeEvent(Object source, Long categoryId) {
+        super(source);
+        this.categoryId = categoryId;
+    }
+
+    public Long getCategoryId() {
+        return categoryId;
+    }
+}
@@ -0,0 +1,16 @@
+package com.musicshop.event.coupon;
+
+import org.springframework.context.ApplicationEvent;
+
+public class CouponChangeEvent extends ApplicationEvent {
+    private final Long couponId;
+
+    public CouponChangeEvent(Object source, Long couponId) {
+        super(source);
+        this.couponId = couponId;
+    }
+
+    public Long getCouponId() {
+        return couponId;
+    }
+}
@@ -0,0 +1,24 @@
+package com.musicshop.event.order;
+
+import org.springframework.context.ApplicationEvent;
+
+import java.util.List;
+
+public class OrderConfirmedEvent extends ApplicationEvent {
+    private final Long orderId;
+    private final List<Long> productIds;
+
+    public OrderConfirmedEvent(Object source, Long orderId, List<Long> productIds) {
+        super(source);
+        this.orderId = orderId;
+        this.productIds = List.copyOf(productIds);
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public List<Long> getProductIds() {
+        return productIds;
+    }
+}
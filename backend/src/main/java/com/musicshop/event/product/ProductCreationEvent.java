@@ -0,0 +1,17 @@
+package com.musicshop.event.product;
+
+import com.musicshop.model.product.Product;
+import org.springframework.context.ApplicationEvent;
+
+public class ProductCreationEvent extends ApplicationEvent {
+    private final Product createdProduct;
+
+    public ProductCreationEvent(Object source, Product createdProduct) {
+        super(source);
+        this.createdProduct = createdProduct;
+    }
+
+    public Product getCreatedProduct() {
+        return createdProduct;
+    }
+}
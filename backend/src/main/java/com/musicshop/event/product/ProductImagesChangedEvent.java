@@ -0,0 +1,16 @@
+package com.musicshop.event.product;
+
+import org.springframework.context.ApplicationEvent;
+
+public class ProductImagesChangedEvent extends ApplicationEvent {
+    private final Long productId;
+
+    public ProductImagesChangedEvent(Object source, Long productId) {
+        super(source);
+        this.productId = productId;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+}
@@ -0,0 +1,18 @@
+package com.musicshop.event.product;
+
+import org.springframework.context.ApplicationEvent;
+
+import java.util.List;
+
+public class ProductStockChangedEvent extends ApplicationEvent {
+    private final List<Long> productIds;
+
+    public ProductStockChangedEvent(Object source, List<Long> productIds) {
+        super(source);
+        this.productIds = List.copyOf(productIds);
+    }
+
+    public List<Long> getProductIds() {
+        return productIds;
+    }
+}
@@ -0,0 +1,22 @@
+package com.musicshop.event.review;
+
+import org.springframework.context.ApplicationEvent;
+
+public class ReviewCreatedEvent extends ApplicationEvent {
+    private final Long reviewId;
+    private final Long productId;
+
+    public ReviewCreatedEvent(Object source, Long reviewId, Long productId) {
+        super(source);
+        this.reviewId = reviewId;
+        this.productId = productId;
+    }
+
+    public Long getReviewId() {
+        return reviewId;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+}
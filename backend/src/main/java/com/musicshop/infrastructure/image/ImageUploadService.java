@@ -2,6 +2,7 @@ package com.musicshop.infrastructure.image;
 
 import com.musicshop.dto.product.ProductImageDTO;
 import com.musicshop.dto.product.ImageUploadCommand;
+import com.musicshop.event.product.ProductImagesChangedEvent;
 import com.musicshop.exception.ImageStorageException;
 import com.musicshop.exception.ResourceNotFoundException;
 import com.musicshop.exception.ValidationException;
@@ -12,6 +13,7 @@ import com.musicshop.repository.product.ProductImageRepository;
 import com.musicshop.repository.product.ProductRepository;
 import com.musicshop.service.image.ImageUploader;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
@@ -33,13 +35,16 @@ public class ImageUploadService implements ImageUploader {
     private final ProductRepository productRepository;
     private final ProductImageRepository productImageRepository;
     private final ProductImageMapper productImageMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     public ImageUploadService(ProductRepository productRepository,
             ProductImageRepository productImageRepository,
-            ProductImageMapper productImageMapper) {
+            ProductImageMapper productImageMapper,
+            ApplicationEventPublisher eventPublisher) {
         this.productRepository = productRepository;
         this.productImageRepository = productImageRepository;
         this.productImageMapper = productImageMapper;
+        this.eventPublisher = eventPublisher;
     }
 
     @PostConstruct
@@ -94,7 +99,9 @@ public class ImageUploadService implements ImageUploader {
             productImage.setPrimary(command.isPrimary());
             productImage.setDisplayOrder(product.getImages().size());
 
-            return productImageRepository.save(productImage);
+            ProductImage saved = productImageRepository.save(productImage);
+            refreshThumbnail(product);
+            return saved;
 
         } catch (IOException e) {
             throw new ImageStorageException("Failed to save image file", e);
@@ -109,7 +116,8 @@ public class ImageUploadService implements ImageUploader {
     public void deleteProductImage(Long imageId) {
         ProductImage image = productImageRepository.findById(imageId)
                 .orElseThrow(() -> new ResourceNotFoundException("Image not found"));
-        Long productId = image.getProduct().getId();
+        Product product = image.getProduct();
+        Long productId = product.getId();
         boolean deletedWasPrimary = image.isPrimary();
 
         try {
@@ -120,7 +128,9 @@ public class ImageUploadService implements ImageUploader {
 
             // Delete from database
             productImageRepository.delete(image);
-            normalizeImageStateAfterDelete(productId, deletedWasPrimary);
+            product.updateThumbnailUrl(normalizeImageStateAfterDelete(productId, deletedWasPrimary));
+            productRepository.save(product);
+            eventPublisher.publishEvent(new ProductImagesChangedEvent(this, productId));
 
         } catch (IOException e) {
             throw new ImageStorageException("Failed to delete image file", e);
@@ -141,6 +151,7 @@ public class ImageUploadService implements ImageUploader {
             img.setPrimary(img.getId().equals(imageId));
             productImageRepository.save(img);
         });
+        refreshThumbnail(product);
     }
 
     public void reorderImages(Long productId, List<Long> imageIds) {
@@ -159,6 +170,7 @@ public class ImageUploadService implements ImageUploader {
             image.setPrimary(i == 0);
             productImageRepository.save(image);
         }
+        refreshThumbnail(product);
     }
 
     private void validateImageFile(ImageUploadCommand command) {
@@ -177,11 +189,21 @@ public class ImageUploadService implements ImageUploader {
         }
     }
 
-    private void normalizeImageStateAfterDelete(Long productId, boolean deletedWasPrimary) {
+    /**
+     * Keep the product's denormalized thumbnail in step with its current images
+     * and announce the change (e.g. for product detail cache invalidation).
+     */
+    private void refreshThumbnail(Product product) {
+        product.updateThumbnailUrl(productImageRepository.findByProductIdOrderByDisplayOrderAsc(product.getId()));
+        productRepository.save(product);
+        eventPublisher.publishEvent(new ProductImagesChangedEvent(this, product.getId()));
+    }
+
+    private List<ProductImage> normalizeImageStateAfterDelete(Long productId, boolean deletedWasPrimary) {
         List<ProductImage> remaining = new ArrayList<>(
                 productImageRepository.findByProductIdOrderByDisplayOrderAsc(productId));
         if (remaining.isEmpty()) {
-            return;
+            return remaining;
         }
 
         boolean hasPrimary = remaining.stream().anyMatch(ProductImage::isPrimary);
@@ -195,6 +217,7 @@ public class ImageUploadService implements ImageUploader {
             }
             productImageRepository.save(current);
         }
+        return remaining;
     }
 
 }
@@ -7,6 +7,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import java.math.BigDecimal;
 import java.util.Locale;
 import java.util.UUID;
 
@@ -34,4 +35,15 @@ public class PayPalPaymentAdapter implements PaymentGateway {
 
         return PaymentResult.successful(transactionId);
     }
+
+    @Override
+    public PaymentResult refundPayment(String transactionId, BigDecimal amount) {
+        logger.info("Refunding PayPal transaction {} of {}", transactionId, amount);
+
+        // Simulated PayPal API call
+        String refundId = "paypal_refund_" + UUID.randomUUID().toString().substring(0, 8);
+        logger.info("PayPal refund completed: {}", refundId);
+
+        return PaymentResult.successful(refundId);
+    }
 }
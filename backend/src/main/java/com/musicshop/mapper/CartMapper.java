@@ -1,6 +1,9 @@
 package com.musicshop.mapper;
 
+import com.musicshop.domain.pricing.PriceBreakdown;
 import com.musicshop.dto.cart.CartItemDTO;
+import com.musicshop.dto.cart.CartPriceLineDTO;
+import com.musicshop.dto.cart.CartPricePreviewDTO;
 import com.musicshop.dto.cart.CartProductDTO;
 import com.musicshop.model.cart.CartDetail;
 import com.musicshop.model.product.Product;
@@ -8,6 +11,7 @@ import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 
 @Mapper(config = CentralMapperConfig.class, uses = { BrandMapper.class, CategoryMapper.class })
@@ -30,4 +34,16 @@ public interface CartMapper {
         }
         return detail.getProduct().getPrice().multiply(new BigDecimal(detail.getQuantity()));
     }
+
+    default CartPricePreviewDTO toCartPricePreviewDTO(List<CartDetail> details, PriceBreakdown price) {
+        List<CartPriceLineDTO> lines = new ArrayList<>(details.size());
+        for (int i = 0; i < details.size(); i++) {
+            CartDetail detail = details.get(i);
+            lines.add(new CartPriceLineDTO(detail.getId(), detail.getProduct().getId(), detail.getProduct().getName(),
+                    detail.getQuantity(), detail.getProduct().getPrice(), price.getLineDiscount(i),
+                    price.getLineTotal(i)));
+        }
+        return new CartPricePreviewDTO(lines, price.getCouponCodes(), price.getSubtotal(), price.getLineDiscount(),
+                price.getCouponDiscount(), price.getTax(), price.getShipping(), price.getTotal());
+    }
 }
@@ -5,6 +5,8 @@ import com.musicshop.model.category.Category;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 
+import java.util.List;
+
 @Mapper(config = CentralMapperConfig.class)
 public interface CategoryMapper {
     @Mapping(target = "productCount", ignore = true)
@@ -14,6 +16,11 @@ public interface CategoryMapper {
     @Mapping(target = "withSubCategories", ignore = true)
     CategoryDTO toCategoryDTO(Category category);
 
+    default CategoryDTO toCategoryDTO(Long id, String name, String slug, String description, long productCount,
+            List<CategoryDTO> subCategories) {
+        return new CategoryDTO(id, name, slug, description, productCount, subCategories);
+    }
+
     @Mapping(target = "categoryName", source = "name")
     @Mapping(target = "iconUrl", ignore = true)
     @Mapping(target = "displayOrder", ignore = true)
@@ -0,0 +1,20 @@
+package com.musicshop.mapper;
+
+import com.musicshop.dto.coupon.CouponDTO;
+import com.musicshop.model.coupon.Coupon;
+import org.mapstruct.Mapper;
+
+@Mapper(config = CentralMapperConfig.class)
+public interface CouponMapper {
+
+    /**
+     * {@code redemptionCount} includes redemptions not yet written back.
+     */
+    default CouponDTO toCouponDTO(Coupon coupon, long redemptionCount) {
+        return new CouponDTO(coupon.getId(), coupon.getCode(), coupon.getKind(), coupon.getValue(),
+                coupon.isStackable(), coupon.getValidFrom(), coupon.getValidUntil(), coupon.getMaxRedemptions(),
+                coupon.getMaxRedemptionsPerUser(), redemptionCount,
+                coupon.getCategory() != null ? coupon.getCategory().getId() : null,
+                coupon.getBrand() != null ? coupon.getBrand().getId() : null);
+    }
+}
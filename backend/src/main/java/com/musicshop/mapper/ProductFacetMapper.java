@@ -0,0 +1,26 @@
+package com.musicshop.mapper;
+
+import com.musicshop.dto.product.FacetCountDTO;
+import com.musicshop.dto.product.PriceBucketDTO;
+import com.musicshop.dto.product.ProductFacetsDTO;
+import org.mapstruct.Mapper;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Mapper(config = CentralMapperConfig.class)
+public interface ProductFacetMapper {
+
+    default FacetCountDTO toFacetCountDTO(String value, String label, long count) {
+        return new FacetCountDTO(value, label, count);
+    }
+
+    default PriceBucketDTO toPriceBucketDTO(BigDecimal min, BigDecimal max, long count) {
+        return new PriceBucketDTO(min, max, count);
+    }
+
+    default ProductFacetsDTO toProductFacetsDTO(long totalCount, List<FacetCountDTO> brands,
+            List<FacetCountDTO> categories, List<FacetCountDTO> conditions, List<PriceBucketDTO> priceBuckets) {
+        return new ProductFacetsDTO(totalCount, brands, categories, conditions, priceBuckets);
+    }
+}
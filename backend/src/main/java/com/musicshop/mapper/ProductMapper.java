@@ -1,18 +1,23 @@
 package com.musicshop.mapper;
 
 import com.musicshop.dto.product.DetailedProductDTO;
+import com.musicshop.dto.product.ProductSliceDTO;
 import com.musicshop.dto.product.SimpleProductDTO;
 import com.musicshop.model.product.Product;
 import com.musicshop.model.product.ProductImage;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 
+import java.util.List;
+
 @Mapper(config = CentralMapperConfig.class, uses = { BrandMapper.class, CategoryMapper.class })
 public interface ProductMapper {
 
     @Mapping(target = "brandName", source = "brand.name")
     @Mapping(target = "categoryName", source = "category.categoryName")
     @Mapping(target = "isPromoted", ignore = true)
+    @Mapping(target = "averageRating", source = "ratings.averageRating")
+    @Mapping(target = "reviewCount", source = "ratings.reviewCount")
     SimpleProductDTO toSimpleProductDTO(Product product);
 
     @Mapping(target = "brandName", source = "brand.name")
@@ -20,6 +25,11 @@ public interface ProductMapper {
     @Mapping(target = "isPromoted", ignore = true)
     DetailedProductDTO toDetailedProductDTO(Product product);
 
+    default ProductSliceDTO toProductSliceDTO(List<SimpleProductDTO> content, int size, boolean hasNext,
+            String nextCursor) {
+        return new ProductSliceDTO(content, size, hasNext, nextCursor);
+    }
+
     @Mapping(target = "isPrimary", ignore = true)
     com.musicshop.dto.product.ProductImageDTO toProductImageDTO(ProductImage productImage);
 }
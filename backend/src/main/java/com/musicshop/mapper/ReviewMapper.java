@@ -1,7 +1,10 @@
 package com.musicshop.mapper;
 
 import com.musicshop.dto.review.CategoryReviewsDTO;
+import com.musicshop.dto.review.ProductReviewsDTO;
+import com.musicshop.dto.review.RatingHistogramDTO;
 import com.musicshop.dto.review.ReviewDTO;
+import com.musicshop.model.product.RatingAggregate;
 import com.musicshop.model.product.Review;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
@@ -15,8 +18,20 @@ public interface ReviewMapper {
     @Mapping(target = "productThumbnailUrl", source = "product.thumbnailUrl")
     ReviewDTO toReviewDTO(Review review);
 
-    default CategoryReviewsDTO toCategoryReviewsDTO(String categoryName, Double averageRating, long totalCount,
+    default CategoryReviewsDTO toCategoryReviewsDTO(String categoryName, RatingAggregate ratings,
             List<ReviewDTO> reviews) {
-        return new CategoryReviewsDTO(categoryName, averageRating, totalCount, reviews);
+        return new CategoryReviewsDTO(categoryName, ratings.getAverageRating(), ratings.getReviewCount(),
+                toRatingHistogramDTO(ratings), reviews);
+    }
+
+    default ProductReviewsDTO toProductReviewsDTO(Long productId, RatingAggregate ratings, List<ReviewDTO> reviews,
+            boolean hasNext, String nextCursor) {
+        return new ProductReviewsDTO(productId, ratings.getAverageRating(), ratings.getReviewCount(),
+                toRatingHistogramDTO(ratings), reviews, reviews.size(), hasNext, nextCursor);
+    }
+
+    default RatingHistogramDTO toRatingHistogramDTO(RatingAggregate ratings) {
+        return new RatingHistogramDTO(ratings.getOneStarCount(), ratings.getTwoStarCount(),
+                ratings.getThreeStarCount(), ratings.getFourStarCount(), ratings.getFiveStarCount());
     }
 }
@@ -0,0 +1,12 @@
+package com.musicshop.mapper;
+
+import com.musicshop.dto.search.SuggestionDTO;
+import org.mapstruct.Mapper;
+
+@Mapper(config = CentralMapperConfig.class)
+public interface SearchMapper {
+
+    default SuggestionDTO toSuggestionDTO(String type, String text, String slug, Long id) {
+        return new SuggestionDTO(type, text, slug, id);
+    }
+}
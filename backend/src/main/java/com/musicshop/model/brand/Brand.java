@@ -18,6 +18,13 @@ public class Brand extends BaseModel<Long> {
 
     private String logoUrl;
 
+    /**
+     * Denormalized number of products of this brand. Maintained only by bulk
+     * updates from {@code CatalogCountService}, never written through the entity.
+     */
+    @Column(nullable = false, insertable = false, updatable = false, columnDefinition = "bigint default 0 not null")
+    private long productCount;
+
     public String getName() {
         return name;
     }
@@ -41,4 +48,8 @@ public class Brand extends BaseModel<Long> {
     public void setLogoUrl(String logoUrl) {
         this.logoUrl = logoUrl;
     }
+
+    public long getProductCount() {
+        return productCount;
+    }
 }
@@ -4,9 +4,14 @@ import com.musicshop.model.BaseModel;
 import com.musicshop.model.product.Product;
 
 import javax.persistence.*;
+import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "cart_details")
+@Table(name = "cart_details", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_cart_details_cart_product", columnNames = { "cart_id", "product_id" })
+}, indexes = {
+        @Index(name = "idx_cart_details_reserved_at_id", columnList = "reservedAt, id")
+})
 public class CartDetail extends BaseModel<Long> {
 
     @ManyToOne
@@ -19,6 +24,9 @@ public class CartDetail extends BaseModel<Long> {
 
     private int quantity;
 
+    /** When the line last took stock; lines older than the cart TTL are expired. */
+    private LocalDateTime reservedAt;
+
     public Cart getCart() {
         return cart;
     }
@@ -42,4 +50,12 @@ public class CartDetail extends BaseModel<Long> {
     public void setQuantity(int quantity) {
         this.quantity = quantity;
     }
+
+    public LocalDateTime getReservedAt() {
+        return reservedAt;
+    }
+
+    public void setReservedAt(LocalDateTime reservedAt) {
+        this.reservedAt = reservedAt;
+    }
 }
@@ -3,6 +3,7 @@ package com.musicshop.model.category;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import com.musicshop.model.BaseModel;
+import com.musicshop.model.product.RatingAggregate;
 
 import javax.persistence.*;
 import java.util.HashSet;
@@ -25,6 +26,20 @@ public class Category extends BaseModel<Long> {
 
     private int displayOrder;
 
+    /**
+     * Denormalized number of products in this category and all its descendants.
+     * Maintained only by bulk updates from {@code CatalogCountService}, never
+     * written through the entity.
+     */
+    @Column(nullable = false, insertable = false, updatable = false, columnDefinition = "bigint default 0 not null")
+    private long productCount;
+
+    /**
+     * Review statistics of the whole subtree.
+     */
+    @Embedded
+    private RatingAggregate ratings = new RatingAggregate();
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "ParentCategoryID")
     @JsonBackReference
@@ -76,6 +91,14 @@ public class Category extends BaseModel<Long> {
         this.displayOrder = displayOrder;
     }
 
+    public long getProductCount() {
+        return productCount;
+    }
+
+    public RatingAggregate getRatings() {
+        return ratings;
+    }
+
     public Category getParentCategory() {
         return parentCategory;
     }
@@ -0,0 +1,159 @@
+package com.musicshop.model.coupon;
+
+import com.musicshop.model.BaseModel;
+import com.musicshop.model.brand.Brand;
+import com.musicshop.model.category.Category;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "coupons")
+public class Coupon extends BaseModel<Long> {
+
+    public enum Kind {
+        PERCENTAGE,
+        FIXED_AMOUNT
+    }
+
+    @Column(nullable = false, unique = true, length = 50)
+    private String code;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Kind kind;
+
+    // A percentage (10 for 10%) or an amount, depending on the kind
+    @Column(name = "discount_value", nullable = false, precision = 10, scale = 2)
+    private BigDecimal value;
+
+    @Column(nullable = false)
+    private boolean stackable;
+
+    private LocalDateTime validFrom;
+    private LocalDateTime validUntil;
+
+    // Null means no cap
+    private Integer maxRedemptions;
+    private Integer maxRedemptionsPerUser;
+
+    /**
+     * Redemptions written back so far. Maintained only by bulk updates from
+     * {@code CouponService}, never written through the entity.
+     */
+    @Column(nullable = false, insertable = false, updatable = false, columnDefinition = "bigint default 0 not null")
+    private long redemptionCount;
+
+    // Limits the coupon to the category's subtree
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "category_id")
+    private Category category;
+
+    // Limits the coupon to the brand's products
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "brand_id")
+    private Brand brand;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public void setCode(String code) {
+        this.code = code;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public void setKind(Kind kind) {
+        this.kind = kind;
+    }
+
+    public BigDecimal getValue() {
+        return value;
+    }
+
+    public void setValue(BigDecimal value) {
+        this.value = value;
+    }
+
+    public boolean isStackable() {
+        return stackable;
+    }
+
+    public void setStackable(boolean stackable) {
+        this.stackable = stackable;
+    }
+
+    public LocalDateTime getValidFrom() {
+        return validFrom;
+    }
+
+    public void setValidFrom(LocalDateTime validFrom) {
+        this.validFrom = validFrom;
+    }
+
+    public LocalDateTime getValidUntil() {
+        return validUntil;
+    }
+
+    public void setValidUntil(LocalDateTime validUntil) {
+        this.validUntil = validUntil;
+    }
+
+    public Integer getMaxRedemptions() {
+        return maxRedemptions;
+    }
+
+    public void setMaxRedemptions(Integer maxRedemptions) {
+        this.maxRedemptions = maxRedemptions;
+    }
+
+    public Integer getMaxRedemptionsPerUser() {
+        return maxRedemptionsPerUser;
+    }
+
+    public void setMaxRedemptionsPerUser(Integer maxRedemptionsPerUser) {
+        this.maxRedemptionsPerUser = maxRedemptionsPerUser;
+    }
+
+    public long getRedemptionCount() {
+        return redemptionCount;
+    }
+
+    public Category getCategory() {
+        return category;
+    }
+
+    public void setCategory(Category category) {
+        this.category = category;
+    }
+
+    public Brand getBrand() {
+        return brand;
+    }
+
+    public void setBrand(Brand brand) {
+        this.brand = brand;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
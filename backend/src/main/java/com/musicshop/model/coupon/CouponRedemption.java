@@ -0,0 +1,70 @@
+package com.musicshop.model.coupon;
+
+import com.musicshop.model.BaseModel;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * One use of a coupon by an order. Rows are only inserted and deleted, so
+ * concurrent redemptions of one coupon never update a shared row; the coupon's
+ * total is written back separately.
+ */
+@Entity
+@Table(name = "coupon_redemptions", indexes = {
+        @Index(name = "idx_coupon_redemptions_coupon_user", columnList = "coupon_id, user_id"),
+        @Index(name = "idx_coupon_redemptions_order", columnList = "order_id")
+})
+public class CouponRedemption extends BaseModel<Long> {
+
+    @Column(name = "coupon_id", nullable = false)
+    private Long couponId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(nullable = false)
+    private LocalDateTime redeemedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (redeemedAt == null) {
+            redeemedAt = LocalDateTime.now();
+        }
+    }
+
+    public Long getCouponId() {
+        return couponId;
+    }
+
+    public void setCouponId(Long couponId) {
+        this.couponId = couponId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(Long orderId) {
+        this.orderId = orderId;
+    }
+
+    public LocalDateTime getRedeemedAt() {
+        return redeemedAt;
+    }
+
+    public void setRedeemedAt(LocalDateTime redeemedAt) {
+        this.redeemedAt = redeemedAt;
+    }
+}
@@ -0,0 +1,40 @@
+package com.musicshop.model.inventory;
+
+import com.musicshop.model.BaseModel;
+
+import javax.persistence.*;
+
+/**
+ * Units taken by a committed cart reservation that are not yet subtracted from
+ * the product's stored stock. Rows are inserted with the cart line and deleted
+ * by the ledger's write-back in the same transaction as the stock update, so a
+ * debit is neither lost on a crash nor applied twice.
+ */
+@Entity
+@Table(name = "stock_debits", indexes = {
+        @Index(name = "idx_stock_debits_product", columnList = "product_id")
+})
+public class StockDebit extends BaseModel<Long> {
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(nullable = false)
+    private int quantity;
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+}
@@ -12,7 +12,8 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "user_orders")
+@Table(name = "user_orders",
+        indexes = @Index(name = "idx_user_orders_status_order_date", columnList = "status, orderDate"))
 public class UserOrder extends BaseModel<Long> {
     @ManyToOne
     @JoinColumn(name = "user_id", referencedColumnName = "id")
@@ -0,0 +1,102 @@
+package com.musicshop.model.outbox;
+
+import com.musicshop.model.BaseModel;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "outbox_messages", indexes = {
+        @Index(name = "idx_outbox_messages_partition_key_id", columnList = "partitionKey, id"),
+        @Index(name = "idx_outbox_messages_available_at", columnList = "availableAt")
+})
+public class OutboxMessage extends BaseModel<Long> {
+
+    @Column(nullable = false, length = 50)
+    private String topic;
+
+    // Messages with the same key are dispatched in order, e.g. a user's notifications
+    @Column(nullable = false)
+    private Long partitionKey;
+
+    private Long aggregateId;
+
+    @Column(length = 2000)
+    private String payload;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    // Not handed out before this: pushed back by a dispatcher's lease or a retry's backoff
+    @Column(nullable = false)
+    private LocalDateTime availableAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+        if (availableAt == null) {
+            availableAt = createdAt;
+        }
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public void setTopic(String topic) {
+        this.topic = topic;
+    }
+
+    public Long getPartitionKey() {
+        return partitionKey;
+    }
+
+    public void setPartitionKey(Long partitionKey) {
+        this.partitionKey = partitionKey;
+    }
+
+    public Long getAggregateId() {
+        return aggregateId;
+    }
+
+    public void setAggregateId(Long aggregateId) {
+        this.aggregateId = aggregateId;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public LocalDateTime getAvailableAt() {
+        return availableAt;
+    }
+
+    public void setAvailableAt(LocalDateTime availableAt) {
+        this.availableAt = availableAt;
+    }
+}
@@ -17,6 +17,7 @@ public class Payment extends BaseModel<Long> {
     private String paymentMethod;
     private LocalDateTime paymentDate;
     private BigDecimal amount;
+    private String transactionId;
 
     public UserOrder getOrder() {
         return order;
@@ -49,4 +50,12 @@ public class Payment extends BaseModel<Long> {
     public void setAmount(BigDecimal amount) {
         this.amount = amount;
     }
+
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    public void setTransactionId(String transactionId) {
+        this.transactionId = transactionId;
+    }
 }
@@ -12,7 +12,12 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_category_id", columnList = "category_id"),
+        @Index(name = "idx_products_created_at_id", columnList = "createdAt, id"),
+        @Index(name = "idx_products_price_id", columnList = "price, id"),
+        @Index(name = "idx_products_recommended_score_id", columnList = "recommendedScore, id")
+})
 public class Product extends BaseModel<Long> {
 
     @Column(nullable = false)
@@ -56,6 +61,22 @@ public class Product extends BaseModel<Long> {
     @Column(nullable = false)
     private LocalDateTime createdAt;
 
+    /**
+     * Denormalized URL of the primary (or first) image, so listings can read it
+     * without loading the images collection.
+     */
+    private String thumbnailUrl;
+
+    /**
+     * Precomputed rank for the recommended listing, maintained by the ranking
+     * service so the sort is a plain index scan.
+     */
+    @Column(nullable = false)
+    private double recommendedScore;
+
+    @Embedded
+    private RatingAggregate ratings = new RatingAggregate();
+
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, orphanRemoval = true)
     @OrderBy("displayOrder ASC")
     private List<ProductImage> images = new ArrayList<>();
@@ -169,10 +190,34 @@ public class Product extends BaseModel<Long> {
     }
 
     public String getThumbnailUrl() {
-        return images.stream()
+        return thumbnailUrl;
+    }
+
+    public void setThumbnailUrl(String thumbnailUrl) {
+        this.thumbnailUrl = thumbnailUrl;
+    }
+
+    public double getRecommendedScore() {
+        return recommendedScore;
+    }
+
+    public void setRecommendedScore(double recommendedScore) {
+        this.recommendedScore = recommendedScore;
+    }
+
+    public RatingAggregate getRatings() {
+        return ratings;
+    }
+
+    /**
+     * Recompute the thumbnail from the product's images in display order: the
+     * primary image if there is one, otherwise the first image.
+     */
+    public void updateThumbnailUrl(List<ProductImage> orderedImages) {
+        thumbnailUrl = orderedImages.stream()
                 .filter(ProductImage::isPrimary)
                 .findFirst()
                 .map(ProductImage::getUrl)
-                .orElse(images.isEmpty() ? null : images.get(0).getUrl());
+                .orElse(orderedImages.isEmpty() ? null : orderedImages.get(0).getUrl());
     }
 }
@@ -0,0 +1,77 @@
+package com.musicshop.model.product;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+
+/**
+ * Denormalized review statistics: count, rating sum and the 1-5 star histogram.
+ *
+ * Embedded in products (their own reviews) and categories (reviews of the whole
+ * subtree). Maintained only by bulk updates from {@code ReviewAggregateService},
+ * never written through the owning entity.
+ */
+@Embeddable
+public class RatingAggregate {
+
+    private static final String COUNTER = "bigint default 0 not null";
+
+    @Column(nullable = false, insertable = false, updatable = false, columnDefinition = COUNTER)
+    private long reviewCount;
+
+    @Column(nullable = false, insertable = false, updatable = false, columnDefinition = COUNTER)
+    private long ratingSum;
+
+    @Column(nullable = false, insertable = false, updatable = false, columnDefinition = COUNTER)
+    private long oneStarCount;
+
+    @Column(nullable = false, insertable = false, updatable = false, columnDefinition = COUNTER)
+    private long twoStarCount;
+
+    @Column(nullable = false, insertable = false, updatable = false, columnDefinition = COUNTER)
+    private long threeStarCount;
+
+    @Column(nullable = false, insertable = false, updatable = false, columnDefinition = COUNTER)
+    private long fourStarCount;
+
+    @Column(nullable = false, insertable = false, updatable = false, columnDefinition = COUNTER)
+    private long fiveStarCount;
+
+    public long getReviewCount() {
+        return reviewCount;
+    }
+
+    public long getRatingSum() {
+        return ratingSum;
+    }
+
+    /**
+     * Mean rating rounded to one decimal, or null without reviews.
+     */
+    public Double getAverageRating() {
+        return averageOf(ratingSum, reviewCount);
+    }
+
+    public long getOneStarCount() {
+        return oneStarCount;
+    }
+
+    public long getTwoStarCount() {
+        return twoStarCount;
+    }
+
+    public long getThreeStarCount() {
+        return threeStarCount;
+    }
+
+    public long getFourStarCount() {
+        return fourStarCount;
+    }
+
+    public long getFiveStarCount() {
+        return fiveStarCount;
+    }
+
+    public static Double averageOf(long ratingSum, long reviewCount) {
+        return reviewCount > 0 ? Math.round(ratingSum * 10.0 / reviewCount) / 10.0 : null;
+    }
+}
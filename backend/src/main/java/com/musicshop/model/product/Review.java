@@ -8,7 +8,13 @@ import javax.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "reviews")
+@Table(name = "reviews", indexes = {
+        // Product review feed: the first serves every filter combination from the
+        // index alone, the second turns a rating filter into a single range scan.
+        @Index(name = "idx_reviews_product_date_id",
+                columnList = "product_id, datePosted, id, rating, verifiedPurchase"),
+        @Index(name = "idx_reviews_product_rating_date_id", columnList = "product_id, rating, datePosted, id")
+})
 public class Review extends BaseModel<Long> {
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -5,6 +5,7 @@ public enum NotificationType {
     PRICE_DROP, // Product price decreased
     BACK_IN_STOCK, // Out-of-stock product available again
     ORDER_CONFIRMED, // Your order was confirmed
+    ORDER_PAYMENT_FAILED, // Payment for your order failed
     ORDER_SHIPPED, // Your order was shipped
     CART_REMINDER, // Items left in cart
     WISHLIST_SALE // Wishlist item on sale
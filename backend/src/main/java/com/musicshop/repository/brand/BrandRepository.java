@@ -1,10 +1,28 @@
 package com.musicshop.repository.brand;
 
 import com.musicshop.model.brand.Brand;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface BrandRepository extends JpaRepository<Brand, Long> {
     Optional<Brand> findBySlug(String slug);
+
+    @Modifying
+    @Query("UPDATE Brand b SET b.productCount = b.productCount + :delta WHERE b.id = :id")
+    int adjustProductCount(@Param("id") Long id, @Param("delta") long delta);
+
+    @Query("SELECT b.id AS id, b.productCount AS productCount FROM Brand b WHERE b.id > :afterId ORDER BY b.id")
+    List<ProductCountRow> findProductCountBatch(@Param("afterId") Long afterId, Pageable pageable);
+
+    interface ProductCountRow {
+        Long getId();
+
+        Long getProductCount();
+    }
 }
@@ -3,9 +3,17 @@ package com.musicshop.repository.cart;
 import com.musicshop.model.cart.CartDetail;
 import com.musicshop.model.cart.Cart;
 import com.musicshop.model.product.Product;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,4 +24,37 @@ public interface CartDetailRepository extends JpaRepository<CartDetail, Long> {
     List<CartDetail> findByCart(Cart cart);
 
     List<CartDetail> findByProductId(Long productId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT d.id AS id, d.product.id AS productId, d.quantity AS quantity FROM CartDetail d "
+            + "WHERE d.reservedAt < :cutoff ORDER BY d.id")
+    List<LineStock> findReservedBeforeForUpdate(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT d.id AS id, d.product.id AS productId, d.quantity AS quantity FROM CartDetail d "
+            + "WHERE d.cart.id = :cartId ORDER BY d.id")
+    List<LineStock> findByCartIdForUpdate(@Param("cartId") Long cartId);
+
+    @Modifying
+    @Query("UPDATE CartDetail d SET d.quantity = :quantity, d.reservedAt = :reservedAt WHERE d.id = :id")
+    int updateQuantity(@Param("id") Long id, @Param("quantity") int quantity,
+            @Param("reservedAt") LocalDateTime reservedAt);
+
+    @Modifying
+    @Query("UPDATE CartDetail d SET d.quantity = d.quantity + :quantity, d.reservedAt = :reservedAt "
+            + "WHERE d.cart.id = :cartId AND d.product.id = :productId")
+    int incrementQuantity(@Param("cartId") Long cartId, @Param("productId") Long productId,
+            @Param("quantity") int quantity, @Param("reservedAt") LocalDateTime reservedAt);
+
+    @Modifying
+    @Query("DELETE FROM CartDetail d WHERE d.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    interface LineStock {
+        Long getId();
+
+        Long getProductId();
+
+        Integer getQuantity();
+    }
 }
@@ -3,6 +3,8 @@ package com.musicshop.repository.cart;
 import com.musicshop.model.cart.Cart;
 import com.musicshop.model.user.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Optional;
 
@@ -10,4 +12,7 @@ public interface CartRepository extends JpaRepository<Cart, Long> {
     Optional<Cart> findByUser(User customer);
 
     Optional<Cart> findByUserId(Long userId);
+
+    @Query("SELECT c.id FROM Cart c WHERE c.user.id = :userId")
+    Optional<Long> findIdByUserId(@Param("userId") Long userId);
 }
\ No newline at end of file
@@ -2,28 +2,62 @@ package com.musicshop.repository.category;
 
 import com.musicshop.model.category.Category;
 
-import com.musicshop.dto.category.CategoryDTO;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface CategoryRepository extends JpaRepository<Category, Long> {
 
-        @Query("SELECT new com.musicshop.dto.category.CategoryDTO(c.id, c.categoryName, c.slug, COUNT(p)) "
-                        + "FROM Category c LEFT JOIN Product p ON p.category = c "
-                        + "WHERE c.parentCategory IS NULL "
-                        + "GROUP BY c.id, c.categoryName, c.slug")
-        List<CategoryDTO> findAllWithProductCount();
+        /**
+         * Every category with its parent ID and its maintained (rolled-up) product
+         * count, in one query.
+         */
+        @Query("SELECT c.id AS id, c.categoryName AS name, c.slug AS slug, c.description AS description, "
+                        + "c.displayOrder AS displayOrder, parent.id AS parentId, c.productCount AS productCount "
+                        + "FROM Category c LEFT JOIN c.parentCategory parent")
+        List<CategoryTreeRow> findTreeRows();
 
-        @Query("SELECT new com.musicshop.dto.category.CategoryDTO(c.id, c.categoryName, c.slug, COUNT(p)) "
-                        + "FROM Category c LEFT JOIN Product p ON p.category = c "
-                        + "WHERE c.parentCategory = :parent "
-                        + "GROUP BY c.id, c.categoryName, c.slug")
-        List<CategoryDTO> findSubcategoriesWithProductCount(
-                        @Param("parent") Category parent);
+        @Modifying
+        @Query("UPDATE Category c SET c.productCount = c.productCount + :delta WHERE c.id IN :ids")
+        int adjustProductCount(@Param("ids") Collection<Long> ids, @Param("delta") long delta);
+
+        @Query("SELECT c.id AS id, c.slug AS slug, c.productCount AS productCount FROM Category c "
+                        + "WHERE c.id > :afterId ORDER BY c.id")
+        List<ProductCountRow> findProductCountBatch(@Param("afterId") Long afterId, Pageable pageable);
+
+        @Modifying
+        @Query("UPDATE Category c SET c.ratings.reviewCount = c.ratings.reviewCount + 1, "
+                        + "c.ratings.ratingSum = c.ratings.ratingSum + :rating, "
+                        + "c.ratings.oneStarCount = c.ratings.oneStarCount + CASE WHEN :rating = 1 THEN 1 ELSE 0 END, "
+                        + "c.ratings.twoStarCount = c.ratings.twoStarCount + CASE WHEN :rating = 2 THEN 1 ELSE 0 END, "
+                        + "c.ratings.threeStarCount = c.ratings.threeStarCount + CASE WHEN :rating = 3 THEN 1 ELSE 0 END, "
+                        + "c.ratings.fourStarCount = c.ratings.fourStarCount + CASE WHEN :rating = 4 THEN 1 ELSE 0 END, "
+                        + "c.ratings.fiveStarCount = c.ratings.fiveStarCount + CASE WHEN :rating = 5 THEN 1 ELSE 0 END "
+                        + "WHERE c.id IN :ids")
+        int addRating(@Param("ids") Collection<Long> ids, @Param("rating") long rating);
+
+        @Modifying
+        @Query("UPDATE Category c SET c.ratings.reviewCount = :reviewCount, c.ratings.ratingSum = :ratingSum, "
+                        + "c.ratings.oneStarCount = :one, c.ratings.twoStarCount = :two, "
+                        + "c.ratings.threeStarCount = :three, c.ratings.fourStarCount = :four, "
+                        + "c.ratings.fiveStarCount = :five "
+                        + "WHERE c.id = :id")
+        int setRatings(@Param("id") Long id, @Param("reviewCount") long reviewCount, @Param("ratingSum") long ratingSum,
+                        @Param("one") long one, @Param("two") long two, @Param("three") long three,
+                        @Param("four") long four, @Param("five") long five);
+
+        @Modifying
+        @Query("UPDATE Category c SET c.ratings.reviewCount = 0, c.ratings.ratingSum = 0, "
+                        + "c.ratings.oneStarCount = 0, c.ratings.twoStarCount = 0, c.ratings.threeStarCount = 0, "
+                        + "c.ratings.fourStarCount = 0, c.ratings.fiveStarCount = 0 "
+                        + "WHERE c.ratings.reviewCount <> 0")
+        int clearRatings();
 
         Optional<Category> findByCategoryName(String categoryName);
 
@@ -32,4 +66,28 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
         List<Category> findByParentCategory(Category parent);
 
         List<Category> findByParentCategorySlug(String parentSlug);
+
+        interface CategoryTreeRow {
+                Long getId();
+
+                String getName();
+
+                String getSlug();
+
+                String getDescription();
+
+                Integer getDisplayOrder();
+
+                Long getParentId();
+
+                Long getProductCount();
+        }
+
+        interface ProductCountRow {
+                Long getId();
+
+                String getSlug();
+
+                Long getProductCount();
+        }
 }
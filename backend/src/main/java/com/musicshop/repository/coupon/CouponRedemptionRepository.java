@@ -0,0 +1,21 @@
+package com.musicshop.repository.coupon;
+
+import com.musicshop.model.coupon.CouponRedemption;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface CouponRedemptionRepository extends JpaRepository<CouponRedemption, Long> {
+
+    long countByCouponIdAndUserId(Long couponId, Long userId);
+
+    @Query("SELECT r.couponId FROM CouponRedemption r WHERE r.orderId = :orderId")
+    List<Long> findCouponIdsByOrderId(@Param("orderId") Long orderId);
+
+    @Modifying
+    @Query("DELETE FROM CouponRedemption r WHERE r.orderId = :orderId")
+    int deleteByOrderId(@Param("orderId") Long orderId);
+}
@@ -0,0 +1,57 @@
+package com.musicshop.repository.coupon;
+
+import com.musicshop.model.coupon.Coupon;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface CouponRepository extends JpaRepository<Coupon, Long> {
+
+    boolean existsByCode(String code);
+
+    @Query("SELECT c FROM Coupon c LEFT JOIN FETCH c.category LEFT JOIN FETCH c.brand ORDER BY c.id")
+    List<Coupon> findAllWithScope();
+
+    @Query("SELECT c.id AS id, c.code AS code, c.kind AS kind, c.value AS value, c.stackable AS stackable, "
+            + "c.validFrom AS validFrom, c.validUntil AS validUntil, c.maxRedemptionsPerUser AS maxRedemptionsPerUser, "
+            + "c.maxRedemptions AS maxRedemptions, cat.slug AS categorySlug, b.id AS brandId "
+            + "FROM Coupon c LEFT JOIN c.category cat LEFT JOIN c.brand b")
+    List<CouponRule> findAllRules();
+
+    @Query("SELECT c.redemptionCount FROM Coupon c WHERE c.id = :id")
+    Optional<Long> findRedemptionCountById(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE Coupon c SET c.redemptionCount = c.redemptionCount + :delta WHERE c.id = :id")
+    int addRedemptions(@Param("id") Long id, @Param("delta") long delta);
+
+    interface CouponRule {
+        Long getId();
+
+        String getCode();
+
+        Coupon.Kind getKind();
+
+        BigDecimal getValue();
+
+        boolean isStackable();
+
+        LocalDateTime getValidFrom();
+
+        LocalDateTime getValidUntil();
+
+        Integer getMaxRedemptionsPerUser();
+
+        Integer getMaxRedemptions();
+
+        String getCategorySlug();
+
+        Long getBrandId();
+    }
+}
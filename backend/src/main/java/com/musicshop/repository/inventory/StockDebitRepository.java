@@ -0,0 +1,39 @@
+package com.musicshop.repository.inventory;
+
+import com.musicshop.model.inventory.StockDebit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+
+public interface StockDebitRepository extends JpaRepository<StockDebit, Long> {
+
+    // Rows locked by another write-back are skipped rather than waited for
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT d.id AS id, d.productId AS productId, d.quantity AS quantity FROM StockDebit d ORDER BY d.id")
+    List<Debit> findOldestForUpdate(Pageable pageable);
+
+    @Query("SELECT COALESCE(SUM(d.quantity), 0) FROM StockDebit d WHERE d.productId = :productId")
+    int sumQuantityByProductId(@Param("productId") Long productId);
+
+    @Modifying
+    @Query("DELETE FROM StockDebit d WHERE d.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    interface Debit {
+        Long getId();
+
+        Long getProductId();
+
+        Integer getQuantity();
+    }
+}
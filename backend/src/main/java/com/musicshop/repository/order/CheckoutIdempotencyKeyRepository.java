@@ -0,0 +1,33 @@
+package com.musicshop.repository.order;
+
+import com.musicshop.model.order.CheckoutIdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface CheckoutIdempotencyKeyRepository extends JpaRepository<CheckoutIdempotencyKey, Long> {
+
+    Optional<CheckoutIdempotencyKey> findByPrincipalAndIdempotencyKey(String principal, String idempotencyKey);
+
+    @Modifying
+    @Query("UPDATE CheckoutIdempotencyKey k SET k.claimedAt = :claimedAt WHERE k.id = :id "
+            + "AND k.claimedAt = :staleClaimedAt AND k.orderId IS NULL AND k.status = :status")
+    int takeOver(@Param("id") Long id, @Param("staleClaimedAt") LocalDateTime staleClaimedAt,
+            @Param("claimedAt") LocalDateTime claimedAt, @Param("status") CheckoutIdempotencyKey.Status status);
+
+    @Modifying
+    @Query("UPDATE CheckoutIdempotencyKey k SET k.orderId = :orderId WHERE k.id = :id AND k.claimedAt = :claimedAt")
+    int bindOrder(@Param("id") Long id, @Param("claimedAt") LocalDateTime claimedAt, @Param("orderId") Long orderId);
+
+    @Modifying
+    @Query("DELETE FROM CheckoutIdempotencyKey k WHERE k.id = :id AND k.claimedAt = :claimedAt")
+    int deleteClaim(@Param("id") Long id, @Param("claimedAt") LocalDateTime claimedAt);
+
+    @Modifying
+    @Query("DELETE FROM CheckoutIdempotencyKey k WHERE k.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -2,7 +2,39 @@ package com.musicshop.repository.order;
 
 import com.musicshop.model.order.OrderDetail;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 public interface OrderDetailRepository extends JpaRepository<OrderDetail, Long> {
     boolean existsByProductId(Long productId);
+
+    @Query("SELECT od.product.id AS productId, SUM(od.quantity) AS unitsSold FROM OrderDetail od "
+            + "WHERE od.order.status = 'CONFIRMED' GROUP BY od.product.id")
+    List<ProductUnitsSold> sumUnitsSoldByProduct();
+
+    @Query("SELECT od.product.id AS productId, SUM(od.quantity) AS unitsSold FROM OrderDetail od "
+            + "WHERE od.product.id IN :productIds AND od.order.status = 'CONFIRMED' "
+            + "AND od.order.orderDate >= :since GROUP BY od.product.id")
+    List<ProductUnitsSold> sumUnitsSoldSince(@Param("productIds") Collection<Long> productIds,
+            @Param("since") LocalDateTime since);
+
+    @Query("SELECT od.product.id AS productId, od.quantity AS quantity FROM OrderDetail od "
+            + "WHERE od.order.id = :orderId")
+    List<LineUnits> findLineUnitsByOrderId(@Param("orderId") Long orderId);
+
+    interface ProductUnitsSold {
+        Long getProductId();
+
+        Long getUnitsSold();
+    }
+
+    interface LineUnits {
+        Long getProductId();
+
+        Integer getQuantity();
+    }
 }
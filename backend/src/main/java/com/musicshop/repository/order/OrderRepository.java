@@ -1,8 +1,42 @@
 package com.musicshop.repository.order;
 
 import com.musicshop.model.order.UserOrder;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
 
 public interface OrderRepository extends JpaRepository<UserOrder, Long> {
-    // Implement specific methods for Order
+
+    @Modifying
+    @Query("UPDATE UserOrder o SET o.status = :status WHERE o.id = :id AND o.status = 'PENDING'")
+    int completePending(@Param("id") Long id, @Param("status") String status);
+
+    @Query("SELECT o.id FROM UserOrder o WHERE o.status = 'PENDING' AND o.orderDate < :cutoff ORDER BY o.id")
+    List<Long> findPendingIdsPlacedBefore(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    @Query("SELECT o.id AS orderId, o.totalAmount AS totalAmount, o.status AS status, "
+            + "p.transactionId AS transactionId FROM UserOrder o LEFT JOIN o.payments p "
+            + "WHERE o.id = :id AND o.user.id = :userId")
+    Optional<CheckoutStatus> findCheckoutStatus(@Param("id") Long id, @Param("userId") Long userId);
+
+    @Query("SELECT o.id AS orderId, o.totalAmount AS totalAmount, o.status AS status, "
+            + "p.transactionId AS transactionId FROM UserOrder o LEFT JOIN o.payments p WHERE o.id = :id")
+    Optional<CheckoutStatus> findCheckoutStatusById(@Param("id") Long id);
+
+    interface CheckoutStatus {
+        Long getOrderId();
+
+        BigDecimal getTotalAmount();
+
+        String getStatus();
+
+        String getTransactionId();
+    }
 }
@@ -0,0 +1,47 @@
+package com.musicshop.repository.outbox;
+
+import com.musicshop.model.outbox.OutboxMessage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxMessageRepository extends JpaRepository<OutboxMessage, Long> {
+
+    /**
+     * Lock the oldest message of each partition key that is due, skipping heads
+     * another dispatcher has locked. Holding a key's head is what entitles a
+     * dispatcher to the key's later messages.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT m FROM OutboxMessage m WHERE m.availableAt <= :now AND NOT EXISTS ("
+            + "SELECT e.id FROM OutboxMessage e WHERE e.partitionKey = m.partitionKey AND e.id < m.id) "
+            + "ORDER BY m.id")
+    List<OutboxMessage> findDueHeadsForUpdate(@Param("now") LocalDateTime now, Pageable pageable);
+
+    @Query("SELECT m FROM OutboxMessage m WHERE m.partitionKey IN :partitionKeys ORDER BY m.id")
+    List<OutboxMessage> findByPartitionKeyIn(@Param("partitionKeys") Collection<Long> partitionKeys,
+            Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE OutboxMessage m SET m.availableAt = :availableAt WHERE m.id IN :ids")
+    int updateAvailableAt(@Param("ids") Collection<Long> ids, @Param("availableAt") LocalDateTime availableAt);
+
+    @Modifying
+    @Query("UPDATE OutboxMessage m SET m.attempts = m.attempts + 1, m.availableAt = :retryAt WHERE m.id = :id")
+    int recordFailedAttempt(@Param("id") Long id, @Param("retryAt") LocalDateTime retryAt);
+
+    @Modifying
+    @Query("DELETE FROM OutboxMessage m WHERE m.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,48 @@
+package com.musicshop.repository.product;
+
+import com.musicshop.dto.product.SimpleProductDTO;
+import com.musicshop.model.product.Product;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * Listing queries that page over product IDs first and then load the page's
+ * products with brand, category and images, so the limit is always applied in
+ * SQL rather than to a fetch-joined collection in memory.
+ */
+public interface ProductQueryRepository {
+
+    /**
+     * Fetch one page of products matching the specification. The count query is
+     * skipped when the page size and offset already determine the total.
+     */
+    Page<Product> findPage(@Nullable Specification<Product> spec, Pageable pageable);
+
+    /**
+     * Fetch one page of listing rows projected straight into {@link SimpleProductDTO}
+     * (no images, thumbnail from the denormalized column). The rows are not
+     * managed entities, so nothing is tracked by the persistence context.
+     */
+    Page<SimpleProductDTO> findSimplePage(@Nullable Specification<Product> spec, Pageable pageable);
+
+    /**
+     * IDs of all products matching the specification, unordered.
+     */
+    List<Long> findIds(@Nullable Specification<Product> spec);
+
+    /**
+     * Listing rows for the given IDs, returned in the order of {@code ids}.
+     */
+    List<SimpleProductDTO> findSimpleByIds(List<Long> ids);
+
+    /**
+     * Fetch at most {@code limit} products matching the specification in the given
+     * order, with brand, category and images initialized. Issues no count query.
+     */
+    List<Product> findSlice(@Nullable Specification<Product> spec, Sort sort, int limit);
+}
@@ -0,0 +1,145 @@
+package com.musicshop.repository.product;
+
+import com.musicshop.dto.product.SimpleProductDTO;
+import com.musicshop.model.product.Product;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.lang.Nullable;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.springframework.data.jpa.repository.query.QueryUtils.toOrders;
+
+class ProductQueryRepositoryImpl implements ProductQueryRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<Product> findPage(@Nullable Specification<Product> spec, Pageable pageable) {
+        TypedQuery<Long> idQuery = createIdQuery(spec, pageable.getSort());
+        if (pageable.isPaged()) {
+            idQuery.setFirstResult((int) pageable.getOffset());
+            idQuery.setMaxResults(pageable.getPageSize());
+        }
+        List<Product> products = loadInOrder(idQuery.getResultList());
+        return PageableExecutionUtils.getPage(products, pageable, () -> count(spec));
+    }
+
+    @Override
+    public Page<SimpleProductDTO> findSimplePage(@Nullable Specification<Product> spec, Pageable pageable) {
+        TypedQuery<Long> idQuery = createIdQuery(spec, pageable.getSort());
+        if (pageable.isPaged()) {
+            idQuery.setFirstResult((int) pageable.getOffset());
+            idQuery.setMaxResults(pageable.getPageSize());
+        }
+        List<SimpleProductDTO> rows = projectInOrder(idQuery.getResultList());
+        return PageableExecutionUtils.getPage(rows, pageable, () -> count(spec));
+    }
+
+    @Override
+    public List<Product> findSlice(@Nullable Specification<Product> spec, Sort sort, int limit) {
+        List<Long> ids = createIdQuery(spec, sort)
+                .setMaxResults(limit)
+                .getResultList();
+        return loadInOrder(ids);
+    }
+
+    @Override
+    public List<Long> findIds(@Nullable Specification<Product> spec) {
+        return createIdQuery(spec, Sort.unsorted()).getResultList();
+    }
+
+    @Override
+    public List<SimpleProductDTO> findSimpleByIds(List<Long> ids) {
+        return projectInOrder(ids);
+    }
+
+    private TypedQuery<Long> createIdQuery(@Nullable Specification<Product> spec, Sort sort) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Product> root = query.from(Product.class);
+        applySpecification(spec, root, query, cb);
+        query.select(root.get("id")).orderBy(toOrders(sort, root, cb));
+        return entityManager.createQuery(query);
+    }
+
+    private long count(@Nullable Specification<Product> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Product> root = query.from(Product.class);
+        applySpecification(spec, root, query, cb);
+        query.select(cb.count(root));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private static void applySpecification(@Nullable Specification<Product> spec, Root<Product> root,
+            CriteriaQuery<?> query, CriteriaBuilder cb) {
+        if (spec == null) {
+            return;
+        }
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+    }
+
+    private List<SimpleProductDTO> projectInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        List<SimpleProductDTO> rows = entityManager.createQuery(
+                "SELECT new com.musicshop.dto.product.SimpleProductDTO(p.id, p.name, p.slug, p.price, "
+                        + "c.categoryName, b.name, p.condition, p.thumbnailUrl, p.isPromoted, "
+                        + "p.ratings.reviewCount, p.ratings.ratingSum) "
+                        + "FROM Product p LEFT JOIN p.category c LEFT JOIN p.brand b WHERE p.id IN :ids",
+                SimpleProductDTO.class)
+                .setParameter("ids", ids)
+                .getResultList();
+        return sortByIds(rows, ids, SimpleProductDTO::getId);
+    }
+
+    /**
+     * Load the products for a page of IDs in one query, fetch-joining brand,
+     * category and images, and return them in the order of {@code ids}. No limit
+     * is applied here, so the collection fetch does not trigger in-memory paging.
+     */
+    private List<Product> loadInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        List<Product> products = entityManager.createQuery(
+                "SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.brand LEFT JOIN FETCH p.category "
+                        + "LEFT JOIN FETCH p.images WHERE p.id IN :ids", Product.class)
+                .setParameter("ids", ids)
+                .setHint("hibernate.query.passDistinctThrough", false)
+                .getResultList();
+
+        return sortByIds(products, ids, Product::getId);
+    }
+
+    private static <T> List<T> sortByIds(List<T> rows, List<Long> ids, Function<T, Long> idOf) {
+        Map<Long, Integer> position = new HashMap<>(ids.size() * 2);
+        for (int i = 0; i < ids.size(); i++) {
+            position.put(ids.get(i), i);
+        }
+        List<T> sorted = new ArrayList<>(rows);
+        sorted.sort(Comparator.comparing(row -> position.get(idOf.apply(row))));
+        return sorted;
+    }
+}
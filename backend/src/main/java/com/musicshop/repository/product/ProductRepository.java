@@ -1,33 +1,113 @@
 package com.musicshop.repository.product;
 
 import com.musicshop.model.product.Product;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.domain.Specification;
-import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
-import org.springframework.lang.Nullable;
 
 import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
-public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
-
-    @Override
-    @EntityGraph(attributePaths = { "category", "brand", "images" })
-    Page<Product> findAll(@Nullable Specification<Product> spec, Pageable pageable);
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product>,
+        ProductQueryRepository, ProductStockRepository {
 
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT p FROM Product p WHERE p.id = :id")
     Optional<Product> findByIdForUpdate(@Param("id") Long id);
 
+    // One statement, so a concurrent write-back is seen either entirely or not at all
+    @Query("SELECT p.quantityAvailable - COALESCE((SELECT SUM(d.quantity) FROM StockDebit d "
+            + "WHERE d.productId = p.id), 0) FROM Product p WHERE p.id = :id")
+    Optional<Long> findQuantityLessPendingDebitsById(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE Product p SET p.quantityAvailable = p.quantityAvailable + :quantity WHERE p.id = :id")
+    int restock(@Param("id") Long id, @Param("quantity") int quantity);
+
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.brand LEFT JOIN FETCH p.category c "
+            + "LEFT JOIN FETCH c.parentCategory WHERE p.id > :afterId ORDER BY p.id")
+    List<Product> findBatchWithBrandAndCategory(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.brand LEFT JOIN FETCH p.category c "
+            + "LEFT JOIN FETCH c.parentCategory WHERE p.id = :id")
+    Optional<Product> findByIdWithBrandAndCategory(@Param("id") Long id);
+
+    @Query("SELECT p.id FROM Product p WHERE p.id > :afterId ORDER BY p.id")
+    List<Long> findIdBatch(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT p.id AS id, p.isPromoted AS promoted, p.createdAt AS createdAt, "
+            + "p.quantityAvailable AS quantityAvailable, p.recommendedScore AS recommendedScore "
+            + "FROM Product p WHERE p.id IN :ids")
+    List<RankingInput> findRankingInputs(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("UPDATE Product p SET p.recommendedScore = :score WHERE p.id = :id")
+    int updateRecommendedScore(@Param("id") Long id, @Param("score") double score);
+
+    @Query("SELECT p.category.id AS groupId, COUNT(p) AS productCount FROM Product p "
+            + "WHERE p.category.id IN :categoryIds GROUP BY p.category.id")
+    List<GroupCount> countByCategoryIdIn(@Param("categoryIds") Collection<Long> categoryIds);
+
+    @Query("SELECT p.brand.id AS groupId, COUNT(p) AS productCount FROM Product p "
+            + "WHERE p.brand.id IN :brandIds GROUP BY p.brand.id")
+    List<GroupCount> countByBrandIdIn(@Param("brandIds") Collection<Long> brandIds);
+
+    @Modifying
+    @Query("UPDATE Product p SET p.ratings.reviewCount = p.ratings.reviewCount + 1, "
+            + "p.ratings.ratingSum = p.ratings.ratingSum + :rating, "
+            + "p.ratings.oneStarCount = p.ratings.oneStarCount + CASE WHEN :rating = 1 THEN 1 ELSE 0 END, "
+            + "p.ratings.twoStarCount = p.ratings.twoStarCount + CASE WHEN :rating = 2 THEN 1 ELSE 0 END, "
+            + "p.ratings.threeStarCount = p.ratings.threeStarCount + CASE WHEN :rating = 3 THEN 1 ELSE 0 END, "
+            + "p.ratings.fourStarCount = p.ratings.fourStarCount + CASE WHEN :rating = 4 THEN 1 ELSE 0 END, "
+            + "p.ratings.fiveStarCount = p.ratings.fiveStarCount + CASE WHEN :rating = 5 THEN 1 ELSE 0 END "
+            + "WHERE p.id = :id")
+    int addRating(@Param("id") Long id, @Param("rating") long rating);
+
+    @Modifying
+    @Query("UPDATE Product p SET p.ratings.reviewCount = :reviewCount, p.ratings.ratingSum = :ratingSum, "
+            + "p.ratings.oneStarCount = :one, p.ratings.twoStarCount = :two, "
+            + "p.ratings.threeStarCount = :three, p.ratings.fourStarCount = :four, "
+            + "p.ratings.fiveStarCount = :five "
+            + "WHERE p.id = :id")
+    int setRatings(@Param("id") Long id, @Param("reviewCount") long reviewCount, @Param("ratingSum") long ratingSum,
+            @Param("one") long one, @Param("two") long two, @Param("three") long three,
+            @Param("four") long four, @Param("five") long five);
+
+    @Modifying
+    @Query("UPDATE Product p SET p.ratings.reviewCount = 0, p.ratings.ratingSum = 0, "
+            + "p.ratings.oneStarCount = 0, p.ratings.twoStarCount = 0, p.ratings.threeStarCount = 0, "
+            + "p.ratings.fourStarCount = 0, p.ratings.fiveStarCount = 0 "
+            + "WHERE p.ratings.reviewCount <> 0")
+    int clearRatings();
+
     Optional<Product> findByName(String productName);
 
     Optional<Product> findBySlug(String slug);
 
     void deleteByName(String productName);
+
+    interface RankingInput {
+        Long getId();
+
+        Boolean getPromoted();
+
+        LocalDateTime getCreatedAt();
+
+        Integer getQuantityAvailable();
+
+        Double getRecommendedScore();
+    }
+
+    interface GroupCount {
+        Long getGroupId();
+
+        Long getProductCount();
+    }
 }
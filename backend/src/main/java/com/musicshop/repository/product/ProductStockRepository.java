@@ -0,0 +1,18 @@
+package com.musicshop.repository.product;
+
+import java.util.Set;
+import java.util.SortedMap;
+
+/**
+ * Batched stock write-back for the in-memory reservation ledger.
+ */
+public interface ProductStockRepository {
+
+    /**
+     * Subtract each quantity from its product's available stock in a single JDBC
+     * batch of conditional updates, in ascending product ID order. A row is only
+     * updated while it still holds at least the requested quantity. Returns the
+     * IDs that were not updated (not enough stock, or the product is gone).
+     */
+    Set<Long> debitStock(SortedMap<Long, Integer> quantities);
+}
@@ -0,0 +1,47 @@
+package com.musicshop.repository.product;
+
+import org.hibernate.Session;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.PreparedStatement;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+
+class ProductStockRepositoryImpl implements ProductStockRepository {
+
+    private static final String DEBIT_SQL = "UPDATE products SET quantity_available = quantity_available - ? "
+            + "WHERE id = ? AND quantity_available >= ?";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Set<Long> debitStock(SortedMap<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return Set.of();
+        }
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            Long[] ids = quantities.keySet().toArray(Long[]::new);
+            int[] updated;
+            try (PreparedStatement statement = connection.prepareStatement(DEBIT_SQL)) {
+                for (Map.Entry<Long, Integer> debit : quantities.entrySet()) {
+                    statement.setInt(1, debit.getValue());
+                    statement.setLong(2, debit.getKey());
+                    statement.setInt(3, debit.getValue());
+                    statement.addBatch();
+                }
+                updated = statement.executeBatch();
+            }
+            Set<Long> rejected = new HashSet<>();
+            for (int i = 0; i < ids.length; i++) {
+                if (updated[i] == 0) {
+                    rejected.add(ids[i]);
+                }
+            }
+            return rejected;
+        });
+    }
+}
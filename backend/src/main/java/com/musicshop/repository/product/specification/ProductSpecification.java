@@ -1,48 +1,77 @@
 package com.musicshop.repository.product.specification;
 
+import com.musicshop.domain.search.SearchText;
 import com.musicshop.model.product.Product;
 import com.musicshop.model.product.ProductCondition;
 import org.springframework.data.jpa.domain.Specification;
 
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.JoinType;
 import javax.persistence.criteria.Predicate;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public class ProductSpecification {
 
-    public static Specification<Product> hasQuery(String query) {
-        return (root, criteriaQuery, cb) -> {
-            if (query == null || query.isBlank()) {
-                return null;
+    /**
+     * Database-side equivalent of the search index: every token must start a
+     * word of the product's name, description, brand name or category name,
+     * with the text folded by the {@link SearchText} rules. Tokens are expected
+     * to come from {@link SearchText#tokenize}. Like the index, a query without
+     * any token (only punctuation, say) matches nothing.
+     */
+    public static Specification<Product> hasTokenPrefixes(List<String> tokens) {
+        return (root, query, cb) -> {
+            if (tokens.isEmpty()) {
+                return cb.disjunction();
+            }
+
+            Expression<String> space = cb.literal(" ");
+            Expression<String> text = cb.concat(space, root.get("name"));
+            text = cb.concat(cb.concat(text, space), cb.coalesce(root.get("description"), ""));
+            text = cb.concat(cb.concat(text, space),
+                    cb.coalesce(root.join("brand", JoinType.LEFT).get("name"), ""));
+            text = cb.concat(cb.concat(text, space),
+                    cb.coalesce(root.join("category", JoinType.LEFT).get("categoryName"), ""));
+            Expression<String> folded = cb.function("translate", String.class, cb.lower(text),
+                    cb.literal(SearchText.FOLD_FROM), cb.literal(SearchText.FOLD_TO));
+
+            // Tokens hold only letters and digits, so they need no LIKE escaping
+            List<Predicate> matches = new ArrayList<>(tokens.size());
+            for (String token : tokens) {
+                matches.add(cb.like(folded, "% " + token + "%"));
             }
+            return cb.and(matches.toArray(new Predicate[0]));
+        };
+    }
 
-            String needle = "%" + query.toLowerCase() + "%";
-            Predicate nameMatch = cb.like(cb.lower(root.get("name")), needle);
-            Predicate descriptionMatch = cb.like(cb.lower(root.get("description")), needle);
-            Predicate brandMatch = cb.like(cb.lower(root.join("brand", javax.persistence.criteria.JoinType.LEFT).get("name")),
-                    needle);
-            Predicate categoryMatch = cb.like(
-                    cb.lower(root.join("category", javax.persistence.criteria.JoinType.LEFT).get("categoryName")),
-                    needle);
-            return cb.or(nameMatch, descriptionMatch, brandMatch, categoryMatch);
+    /**
+     * Restrict to a precomputed set of product IDs (e.g. search index candidates).
+     * An empty set matches nothing.
+     */
+    public static Specification<Product> hasIdIn(Collection<Long> productIds) {
+        return (root, query, cb) -> {
+            if (productIds.isEmpty())
+                return cb.disjunction();
+            return root.get("id").in(productIds);
         };
     }
 
     /**
-     * Filter by category slug. Matches products whose category slug equals the
-     * given slug,
-     * OR whose parent category slug equals the given slug (so filtering by a parent
-     * category returns all subcategory products too).
+     * Filter by a precomputed set of category IDs (a category and its
+     * descendants). Compares the foreign key directly, so no category join is
+     * added. A null set means no filter; an empty set matches nothing.
      */
-    public static Specification<Product> hasCategory(String categorySlug) {
+    public static Specification<Product> hasCategory(Collection<Long> categoryIds) {
         return (root, query, cb) -> {
-            if (categorySlug == null || categorySlug.isBlank())
+            if (categoryIds == null)
                 return null;
-            var categoryJoin = root.join("category");
-            Predicate directMatch = cb.equal(categoryJoin.get("slug"), categorySlug);
-            Predicate parentMatch = cb.equal(
-                    categoryJoin.get("parentCategory").get("slug"), categorySlug);
-            return cb.or(directMatch, parentMatch);
+            if (categoryIds.isEmpty())
+                return cb.disjunction();
+            return root.get("category").get("id").in(categoryIds);
         };
     }
 
@@ -78,6 +107,42 @@ public class ProductSpecification {
         };
     }
 
+    /**
+     * Keyset predicate for price ordering: rows strictly after (price, id) in the
+     * given direction, with the ID breaking ties in the same direction.
+     */
+    public static Specification<Product> isAfterPrice(BigDecimal price, Long id, boolean ascending) {
+        return (root, query, cb) -> {
+            if (ascending) {
+                return cb.or(
+                        cb.greaterThan(root.get("price"), price),
+                        cb.and(cb.equal(root.get("price"), price), cb.greaterThan(root.get("id"), id)));
+            }
+            return cb.or(
+                    cb.lessThan(root.get("price"), price),
+                    cb.and(cb.equal(root.get("price"), price), cb.lessThan(root.get("id"), id)));
+        };
+    }
+
+    /**
+     * Keyset predicate for newest-first ordering: rows strictly before (createdAt, id).
+     */
+    public static Specification<Product> isCreatedBefore(LocalDateTime createdAt, Long id) {
+        return (root, query, cb) -> cb.or(
+                cb.lessThan(root.get("createdAt"), createdAt),
+                cb.and(cb.equal(root.get("createdAt"), createdAt), cb.lessThan(root.get("id"), id)));
+    }
+
+    /**
+     * Keyset predicate for the recommended ordering (highest score first): rows
+     * strictly after (recommendedScore, id).
+     */
+    public static Specification<Product> isAfterRecommended(double recommendedScore, Long id) {
+        return (root, query, cb) -> cb.or(
+                cb.lessThan(root.get("recommendedScore"), recommendedScore),
+                cb.and(cb.equal(root.get("recommendedScore"), recommendedScore), cb.lessThan(root.get("id"), id)));
+    }
+
     public static Specification<Product> inStock() {
         return (root, query, cb) -> cb.greaterThan(root.get("quantityAvailable"), 0);
     }
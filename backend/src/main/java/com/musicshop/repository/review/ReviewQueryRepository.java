@@ -0,0 +1,21 @@
+package com.musicshop.repository.review;
+
+import com.musicshop.model.product.Review;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/**
+ * Two-step review reads: IDs from an index-only query, then the rows.
+ */
+public interface ReviewQueryRepository {
+
+    /**
+     * Fetch up to {@code limit} reviews matching {@code spec} in {@code sort}
+     * order. The IDs are selected first, so a covering index can answer the
+     * filtering and ordering; the reviews are then loaded with their authors in
+     * one query.
+     */
+    List<Review> findSlice(Specification<Review> spec, Sort sort, int limit);
+}
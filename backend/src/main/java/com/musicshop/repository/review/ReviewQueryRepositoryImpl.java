@@ -0,0 +1,55 @@
+package com.musicshop.repository.review;
+
+import com.musicshop.model.product.Review;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.data.jpa.repository.query.QueryUtils.toOrders;
+
+class ReviewQueryRepositoryImpl implements ReviewQueryRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Review> findSlice(Specification<Review> spec, Sort sort, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Review> root = query.from(Review.class);
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.select(root.get("id")).orderBy(toOrders(sort, root, cb));
+        List<Long> ids = entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        List<Review> reviews = entityManager.createQuery(
+                "SELECT r FROM Review r JOIN FETCH r.user WHERE r.id IN :ids", Review.class)
+                .setParameter("ids", ids)
+                .getResultList();
+        Map<Long, Integer> position = new HashMap<>(ids.size() * 2);
+        for (int i = 0; i < ids.size(); i++) {
+            position.put(ids.get(i), i);
+        }
+        List<Review> sorted = new ArrayList<>(reviews);
+        sorted.sort(Comparator.comparing(review -> position.get(review.getId())));
+        return sorted;
+    }
+}
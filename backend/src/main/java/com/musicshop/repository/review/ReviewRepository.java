@@ -1,22 +1,49 @@
 package com.musicshop.repository.review;
 
 import com.musicshop.model.product.Review;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
-public interface ReviewRepository extends JpaRepository<Review, Long> {
+public interface ReviewRepository extends JpaRepository<Review, Long>, ReviewQueryRepository {
 
     boolean existsByProductId(Long productId);
 
-    Page<Review> findByCategoryIdIn(List<Long> categoryIds, Pageable pageable);
+    /**
+     * One page of reviews without a total count; totals come from the maintained
+     * rating aggregates.
+     */
+    List<Review> findByCategoryIdIn(List<Long> categoryIds, Pageable pageable);
 
-    @Query("SELECT AVG(r.rating) FROM Review r WHERE r.category.id IN :categoryIds")
-    Double findAverageRatingByCategoryIdIn(@Param("categoryIds") List<Long> categoryIds);
+    @Query("SELECT r.product.id AS groupId, r.rating AS rating, COUNT(r) AS reviewCount "
+            + "FROM Review r GROUP BY r.product.id, r.rating")
+    List<RatingBucket> countByProductAndRating();
 
-    long countByCategoryIdIn(List<Long> categoryIds);
+    @Query("SELECT r.category.id AS groupId, r.rating AS rating, COUNT(r) AS reviewCount "
+            + "FROM Review r GROUP BY r.category.id, r.rating")
+    List<RatingBucket> countByCategoryAndRating();
+
+    @Query("SELECT r.product.id AS productId, AVG(r.rating) AS averageRating, COUNT(r) AS reviewCount "
+            + "FROM Review r WHERE r.product.id IN :productIds GROUP BY r.product.id")
+    List<ProductRatingSummary> summarizeRatingsByProductIdIn(@Param("productIds") Collection<Long> productIds);
+
+    interface ProductRatingSummary {
+        Long getProductId();
+
+        Double getAverageRating();
+
+        Long getReviewCount();
+    }
+
+    interface RatingBucket {
+        Long getGroupId();
+
+        Integer getRating();
+
+        Long getReviewCount();
+    }
 }
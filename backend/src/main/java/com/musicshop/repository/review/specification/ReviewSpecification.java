@@ -0,0 +1,39 @@
+package com.musicshop.repository.review.specification;
+
+import com.musicshop.model.product.Review;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+
+public class ReviewSpecification {
+
+    public static Specification<Review> forProduct(Long productId) {
+        return (root, query, cb) -> cb.equal(root.get("product").get("id"), productId);
+    }
+
+    public static Specification<Review> hasRating(Integer rating) {
+        return (root, query, cb) -> {
+            if (rating == null)
+                return null;
+            return cb.equal(root.get("rating"), rating);
+        };
+    }
+
+    public static Specification<Review> isVerifiedPurchase(Boolean verifiedPurchase) {
+        return (root, query, cb) -> {
+            if (verifiedPurchase == null)
+                return null;
+            return cb.equal(root.get("verifiedPurchase"), verifiedPurchase);
+        };
+    }
+
+    /**
+     * Keyset predicate for newest-first ordering: rows strictly before
+     * (datePosted, id).
+     */
+    public static Specification<Review> isPostedBefore(LocalDateTime datePosted, Long id) {
+        return (root, query, cb) -> cb.or(
+                cb.lessThan(root.get("datePosted"), datePosted),
+                cb.and(cb.equal(root.get("datePosted"), datePosted), cb.lessThan(root.get("id"), id)));
+    }
+}
@@ -0,0 +1,81 @@
+package com.musicshop.service.cart;
+
+import com.musicshop.repository.cart.CartDetailRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Expires cart lines that have held their stock longer than {@code cart.expiry.ttl},
+ * so abandoned carts do not hide inventory indefinitely.
+ *
+ * Each run removes the stale lines in ID-ordered batches, one transaction per
+ * batch, restoring their units with one update per product. Metrics:
+ * {@code cart.expiry.lines}, {@code cart.expiry.units} and {@code cart.expiry.sweep}.
+ */
+@Service
+public class AbandonedCartSweeper {
+
+    private static final Logger logger = LoggerFactory.getLogger(AbandonedCartSweeper.class);
+    private static final int SWEEP_BATCH_SIZE = 500;
+
+    private final CartService cartService;
+    private final Duration ttl;
+    private final Counter linesExpired;
+    private final Counter unitsReleased;
+    private final Timer sweepDuration;
+
+    @Autowired
+    public AbandonedCartSweeper(CartService cartService,
+            @Value("${cart.expiry.ttl:24h}") Duration ttl,
+            MeterRegistry meterRegistry) {
+        this.cartService = cartService;
+        this.ttl = ttl;
+        this.linesExpired = Counter.builder("cart.expiry.lines")
+                .description("Cart lines expired by the abandoned-cart sweeper")
+                .register(meterRegistry);
+        this.unitsReleased = Counter.builder("cart.expiry.units")
+                .description("Stock units returned by expired cart lines")
+                .register(meterRegistry);
+        this.sweepDuration = Timer.builder("cart.expiry.sweep")
+                .description("Duration of abandoned-cart sweeps")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${cart.expiry.sweep-interval-ms:300000}")
+    public void sweep() {
+        long start = System.nanoTime();
+        LocalDateTime cutoff = LocalDateTime.now().minus(ttl);
+        int lines = 0;
+        long units = 0;
+        List<CartDetailRepository.LineStock> batch;
+        try {
+            do {
+                batch = cartService.expireLines(cutoff, SWEEP_BATCH_SIZE);
+                lines += batch.size();
+                for (CartDetailRepository.LineStock line : batch) {
+                    units += line.getQuantity();
+                }
+            } while (batch.size() == SWEEP_BATCH_SIZE);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            sweepDuration.record(Duration.ofNanos(elapsed));
+            linesExpired.increment(lines);
+            unitsReleased.increment(units);
+            if (lines > 0) {
+                logger.info("Abandoned cart lines expired: {} lines, {} units released in {} ms",
+                        lines, units, Duration.ofNanos(elapsed).toMillis());
+            }
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package com.musicshop.service.cart;
 
-import com.musicshop.exception.InsufficientStockException;
 import com.musicshop.exception.ResourceNotFoundException;
 import com.musicshop.model.cart.Cart;
 import com.musicshop.model.cart.CartDetail;
@@ -11,14 +10,25 @@ import com.musicshop.repository.cart.CartRepository;
 import com.musicshop.repository.product.ProductRepository;
 import com.musicshop.repository.user.UserRepository;
 import com.musicshop.dto.cart.CartItemDTO;
+import com.musicshop.dto.cart.CartOperation;
+import com.musicshop.dto.cart.CartPricePreviewDTO;
 import com.musicshop.mapper.CartMapper;
+import com.musicshop.service.checkout.CheckoutPricingService;
+import com.musicshop.service.coupon.CouponService;
+import com.musicshop.service.inventory.StockReservationLedger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 @Service
 public class CartService {
@@ -28,16 +38,23 @@ public class CartService {
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
     private final CartMapper cartMapper;
+    private final StockReservationLedger stockLedger;
+    private final CheckoutPricingService checkoutPricingService;
+    private final CouponService couponService;
 
     @Autowired
     public CartService(CartRepository cartRepository, CartDetailRepository cartDetailRepository,
             ProductRepository productRepository, UserRepository userRepository,
-            CartMapper cartMapper) {
+            CartMapper cartMapper, StockReservationLedger stockLedger,
+            CheckoutPricingService checkoutPricingService, CouponService couponService) {
         this.cartRepository = cartRepository;
         this.cartDetailRepository = cartDetailRepository;
         this.productRepository = productRepository;
         this.userRepository = userRepository;
         this.cartMapper = cartMapper;
+        this.stockLedger = stockLedger;
+        this.checkoutPricingService = checkoutPricingService;
+        this.couponService = couponService;
     }
 
     public Cart createNewCart(User user) {
@@ -47,27 +64,109 @@ public class CartService {
         return cartRepository.save(newCart);
     }
 
+    /**
+     * Add {@code quantity} units of the product to the user's cart: one increment
+     * of the existing line, or an insert when the product is not in the cart yet.
+     * An insert racing with another add of the same product fails on the unique
+     * (cart, product) constraint and is retried by the caller.
+     */
     @Transactional
-    public CartDetail addProductToCart(Long userId, Long productId, int quantity) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-        Cart cart = cartRepository.findByUser(user).orElseGet(() -> createNewCart(user));
+    public void addProductToCart(Long userId, Long productId, int quantity) {
+        Long cartId = cartRepository.findIdByUserId(userId).orElseGet(() -> createNewCart(
+                userRepository.findById(userId).orElseThrow(() -> new ResourceNotFoundException("User not found")))
+                .getId());
 
-        Product product = productRepository.findByIdForUpdate(productId)
-                .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
+        // Admission happens in memory; the stock row is debited by the ledger's batched write-back
+        stockLedger.reserve(productId, quantity);
 
-        if (quantity > product.getQuantityAvailable()) {
-            throw new InsufficientStockException("Not enough quantity available");
+        LocalDateTime now = LocalDateTime.now();
+        if (cartDetailRepository.incrementQuantity(cartId, productId, quantity, now) == 0) {
+            CartDetail cartDetail = new CartDetail();
+            cartDetail.setCart(cartRepository.getReferenceById(cartId));
+            cartDetail.setProduct(productRepository.getReferenceById(productId));
+            cartDetail.setQuantity(quantity);
+            cartDetail.setReservedAt(now);
+            cartDetailRepository.save(cartDetail);
         }
+    }
+
+    /**
+     * Apply a batch of add, set-quantity and remove operations to the user's cart
+     * in one transaction and return the resulting cart.
+     *
+     * The operations are folded into a target quantity per product first, so each
+     * product is touched once however often it appears. Increases are reserved
+     * and returned units restocked in product ID order, and the cart's lines are
+     * locked up front.
+     */
+    @Transactional
+    public List<CartItemDTO> applyOperations(Long userId, List<CartOperation> operations) {
+        Cart cart = cartRepository.findByUserId(userId)
+                .orElseGet(() -> createNewCart(userRepository.getReferenceById(userId)));
 
-        product.setQuantityAvailable(product.getQuantityAvailable() - quantity);
-        productRepository.save(product);
+        Map<Long, Long> lineIds = new HashMap<>();
+        Map<Long, Integer> current = new HashMap<>();
+        for (CartDetailRepository.LineStock line : cartDetailRepository.findByCartIdForUpdate(cart.getId())) {
+            lineIds.put(line.getProductId(), line.getId());
+            current.put(line.getProductId(), line.getQuantity());
+        }
 
-        CartDetail cartDetail = new CartDetail();
-        cartDetail.setCart(cart);
-        cartDetail.setProduct(product);
-        cartDetail.setQuantity(quantity);
-        return cartDetailRepository.save(cartDetail);
+        SortedMap<Long, Integer> target = new TreeMap<>();
+        for (CartOperation operation : operations) {
+            Long productId = operation.getProductId();
+            int quantity = operation.getQuantity() != null ? operation.getQuantity() : 0;
+            int before = target.getOrDefault(productId, current.getOrDefault(productId, 0));
+            switch (operation.getOp()) {
+                case ADD -> {
+                    if (quantity < 1) {
+                        throw new IllegalArgumentException("ADD requires a quantity of at least 1");
+                    }
+                    target.put(productId, before + quantity);
+                }
+                case SET_QUANTITY -> {
+                    if (operation.getQuantity() == null) {
+                        throw new IllegalArgumentException("SET_QUANTITY requires a quantity");
+                    }
+                    target.put(productId, quantity);
+                }
+                case REMOVE -> target.put(productId, 0);
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, Integer> credits = new HashMap<>();
+        List<Long> deletes = new ArrayList<>();
+        List<CartDetail> inserts = new ArrayList<>();
+        target.forEach((productId, quantity) -> {
+            int delta = quantity - current.getOrDefault(productId, 0);
+            if (delta > 0) {
+                stockLedger.reserve(productId, delta);
+            } else if (delta < 0) {
+                credits.put(productId, -delta);
+            }
+            Long lineId = lineIds.get(productId);
+            if (quantity == 0) {
+                if (lineId != null) {
+                    deletes.add(lineId);
+                }
+            } else if (lineId == null) {
+                CartDetail cartDetail = new CartDetail();
+                cartDetail.setCart(cart);
+                cartDetail.setProduct(productRepository.getReferenceById(productId));
+                cartDetail.setQuantity(quantity);
+                cartDetail.setReservedAt(now);
+                inserts.add(cartDetail);
+            } else if (delta != 0) {
+                cartDetailRepository.updateQuantity(lineId, quantity, now);
+            }
+        });
+        stockLedger.restock(credits);
+        if (!deletes.isEmpty()) {
+            cartDetailRepository.deleteByIdIn(deletes);
+        }
+        cartDetailRepository.saveAll(inserts);
+
+        return listCartItemDTOs(cart.getId());
     }
 
     public Optional<CartDetail> getCartDetail(Long cartId, Long productId) {
@@ -113,22 +212,70 @@ public class CartService {
         CartDetail detail = cartDetailRepository.findById(detailId)
                 .orElseThrow(() -> new ResourceNotFoundException("Cart detail not found"));
 
-        Product product = detail.getProduct();
-        product.setQuantityAvailable(product.getQuantityAvailable() + detail.getQuantity());
-        productRepository.save(product);
-
+        stockLedger.restock(detail.getProduct().getId(), detail.getQuantity());
         cartDetailRepository.delete(detail);
     }
 
+    /**
+     * Empty the cart with one locking read of its lines, one stock update per
+     * product (in product ID order) and one delete. Only the lines read are
+     * deleted, so a line added concurrently keeps its stock.
+     */
     @Transactional
     public void clearCart(Long cartId) {
-        List<CartDetail> details = listCartDetails(cartId);
-        for (CartDetail detail : details) {
-            Product product = detail.getProduct();
-            product.setQuantityAvailable(product.getQuantityAvailable() + detail.getQuantity());
-            productRepository.save(product);
+        List<CartDetailRepository.LineStock> lines = cartDetailRepository.findByCartIdForUpdate(cartId);
+        if (lines.isEmpty()) {
+            if (!cartRepository.existsById(cartId)) {
+                throw new ResourceNotFoundException("Cart not found");
+            }
+            return;
+        }
+        releaseLines(lines);
+    }
+
+    /**
+     * Lock the cart's lines and return them for checkout. The caller turns them
+     * into an order and removes them with {@link #consumeLines}, so their units
+     * pass to the order without going back to stock.
+     */
+    @Transactional
+    public List<CartDetail> lockCartDetails(Long cartId) {
+        cartDetailRepository.findByCartIdForUpdate(cartId);
+        return listCartDetails(cartId);
+    }
+
+    /**
+     * Delete checked-out lines without restocking them. Lines added since they
+     * were locked are left in the cart.
+     */
+    @Transactional
+    public void consumeLines(List<CartDetail> lines) {
+        cartDetailRepository.deleteByIdIn(lines.stream().map(CartDetail::getId).toList());
+    }
+
+    /**
+     * Remove up to {@code limit} cart lines that took their stock before
+     * {@code cutoff}, in ID order, and give their units back with one update per
+     * product. The selected lines are locked so a concurrent removal cannot
+     * restock them twice. Returns the removed lines.
+     */
+    @Transactional
+    public List<CartDetailRepository.LineStock> expireLines(LocalDateTime cutoff, int limit) {
+        List<CartDetailRepository.LineStock> lines = cartDetailRepository.findReservedBeforeForUpdate(cutoff,
+                PageRequest.of(0, limit));
+        if (!lines.isEmpty()) {
+            releaseLines(lines);
         }
-        cartDetailRepository.deleteAll(details);
+        return lines;
+    }
+
+    private void releaseLines(List<CartDetailRepository.LineStock> lines) {
+        Map<Long, Integer> units = new HashMap<>();
+        for (CartDetailRepository.LineStock line : lines) {
+            units.merge(line.getProductId(), line.getQuantity(), Integer::sum);
+        }
+        stockLedger.restock(units);
+        cartDetailRepository.deleteByIdIn(lines.stream().map(CartDetailRepository.LineStock::getId).toList());
     }
 
     public Cart getCartForUser(User user) {
@@ -149,6 +296,19 @@ public class CartService {
         return listCartItemDTOs(cart.getId());
     }
 
+    /**
+     * Price the user's cart as checkout would, with the given coupon codes,
+     * without changing anything.
+     */
+    @Transactional(readOnly = true)
+    public CartPricePreviewDTO previewPrice(Long userId, List<String> couponCodes) {
+        Cart cart = cartRepository.findByUserId(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Cart not found"));
+        List<CartDetail> details = listCartDetails(cart.getId());
+        return cartMapper.toCartPricePreviewDTO(details,
+                checkoutPricingService.price(details, couponService.resolve(userId, couponCodes)));
+    }
+
     public void clearCartForUserId(Long userId) {
         cartRepository.findByUserId(userId).ifPresent(cart -> clearCart(cart.getId()));
     }
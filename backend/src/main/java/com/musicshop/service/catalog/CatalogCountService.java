@@ -0,0 +1,199 @@
+package com.musicshop.service.catalog;
+
+import com.musicshop.event.category.CategoryChangeEvent;
+import com.musicshop.model.product.Product;
+import com.musicshop.repository.brand.BrandRepository;
+import com.musicshop.repository.category.CategoryRepository;
+import com.musicshop.repository.product.ProductRepository;
+import com.musicshop.service.category.CategoryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Maintains the denormalized product counters on categories and brands.
+ *
+ * A category's counter covers its own products and those of all descendants,
+ * so every product write adjusts the whole ancestor chain. Adjustments are
+ * relative bulk updates issued inside the caller's transaction. A scheduled
+ * reconciliation (also run on startup) recounts in ID-ordered batches and
+ * corrects any drift, for example from writes that bypass
+ * {@code ProductService}.
+ */
+@Service
+public class CatalogCountService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogCountService.class);
+    private static final int RECONCILE_BATCH_SIZE = 500;
+
+    private final CategoryRepository categoryRepository;
+    private final BrandRepository brandRepository;
+    private final ProductRepository productRepository;
+    private final CategoryService categoryService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    public CatalogCountService(CategoryRepository categoryRepository,
+            BrandRepository brandRepository,
+            ProductRepository productRepository,
+            CategoryService categoryService,
+            ApplicationEventPublisher eventPublisher) {
+        this.categoryRepository = categoryRepository;
+        this.brandRepository = brandRepository;
+        this.productRepository = productRepository;
+        this.categoryService = categoryService;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Transactional
+    public void productAdded(Product product) {
+        adjust(categoryIdOf(product), brandIdOf(product), 1);
+    }
+
+    @Transactional
+    public void productRemoved(Product product) {
+        adjust(categoryIdOf(product), brandIdOf(product), -1);
+    }
+
+    /**
+     * Move a product's contribution from its previous category and brand to its
+     * current ones. A no-op when neither changed.
+     */
+    @Transactional
+    public void productMoved(Long previousCategoryId, Long previousBrandId, Product product) {
+        Long categoryId = categoryIdOf(product);
+        Long brandId = brandIdOf(product);
+        if (!Objects.equals(previousCategoryId, categoryId)) {
+            adjust(previousCategoryId, null, -1);
+            adjust(categoryId, null, 1);
+        }
+        if (!Objects.equals(previousBrandId, brandId)) {
+            adjust(null, previousBrandId, -1);
+            adjust(null, brandId, 1);
+        }
+    }
+
+    /**
+     * Recount every category and brand in ID-ordered batches and correct the
+     * counters that drifted.
+     */
+    @Transactional
+    @Scheduled(cron = "${catalog.counts.reconcile-cron:0 15 * * * *}")
+    public void reconcile() {
+        long start = System.currentTimeMillis();
+        int categoriesRepaired = reconcileCategories();
+        int brandsRepaired = reconcileBrands();
+
+        if (categoriesRepaired + brandsRepaired > 0) {
+            // Rebuilds the category snapshot and bumps the catalog version after commit
+            eventPublisher.publishEvent(new CategoryChangeEvent(this, null));
+        }
+        logger.info("Catalog counts reconciled: {} categories and {} brands repaired in {} ms",
+                categoriesRepaired, brandsRepaired, System.currentTimeMillis() - start);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void onApplicationReady() {
+        reconcile();
+    }
+
+    private int reconcileCategories() {
+        int repaired = 0;
+        Long lastId = 0L;
+        List<CategoryRepository.ProductCountRow> batch;
+        do {
+            batch = categoryRepository.findProductCountBatch(lastId, PageRequest.of(0, RECONCILE_BATCH_SIZE));
+            if (batch.isEmpty()) {
+                break;
+            }
+            Map<Long, List<Long>> subtrees = new HashMap<>();
+            Set<Long> counted = new HashSet<>();
+            for (CategoryRepository.ProductCountRow row : batch) {
+                List<Long> subtree = row.getSlug() != null ? categoryService.findSubtreeIds(row.getSlug()) : List.of();
+                if (subtree.isEmpty()) {
+                    subtree = List.of(row.getId());
+                }
+                subtrees.put(row.getId(), subtree);
+                counted.addAll(subtree);
+            }
+            Map<Long, Long> ownCounts = toMap(productRepository.countByCategoryIdIn(counted));
+
+            for (CategoryRepository.ProductCountRow row : batch) {
+                long actual = subtrees.get(row.getId()).stream()
+                        .mapToLong(id -> ownCounts.getOrDefault(id, 0L))
+                        .sum();
+                if (actual != row.getProductCount()) {
+                    categoryRepository.adjustProductCount(List.of(row.getId()), actual - row.getProductCount());
+                    repaired++;
+                }
+            }
+            lastId = batch.get(batch.size() - 1).getId();
+        } while (batch.size() == RECONCILE_BATCH_SIZE);
+        return repaired;
+    }
+
+    private int reconcileBrands() {
+        int repaired = 0;
+        Long lastId = 0L;
+        List<BrandRepository.ProductCountRow> batch;
+        do {
+            batch = brandRepository.findProductCountBatch(lastId, PageRequest.of(0, RECONCILE_BATCH_SIZE));
+            if (batch.isEmpty()) {
+                break;
+            }
+            Map<Long, Long> counts = toMap(productRepository.countByBrandIdIn(
+                    batch.stream().map(BrandRepository.ProductCountRow::getId).toList()));
+
+            for (BrandRepository.ProductCountRow row : batch) {
+                long actual = counts.getOrDefault(row.getId(), 0L);
+                if (actual != row.getProductCount()) {
+                    brandRepository.adjustProductCount(row.getId(), actual - row.getProductCount());
+                    repaired++;
+                }
+            }
+            lastId = batch.get(batch.size() - 1).getId();
+        } while (batch.size() == RECONCILE_BATCH_SIZE);
+        return repaired;
+    }
+
+    private void adjust(Long categoryId, Long brandId, long delta) {
+        if (categoryId != null) {
+            List<Long> ancestors = categoryService.findAncestorIds(categoryId);
+            categoryRepository.adjustProductCount(ancestors.isEmpty() ? List.of(categoryId) : ancestors, delta);
+        }
+        if (brandId != null) {
+            brandRepository.adjustProductCount(brandId, delta);
+        }
+    }
+
+    private static Long categoryIdOf(Product product) {
+        return product.getCategory() != null ? product.getCategory().getId() : null;
+    }
+
+    private static Long brandIdOf(Product product) {
+        return product.getBrand() != null ? product.getBrand().getId() : null;
+    }
+
+    private static Map<Long, Long> toMap(List<ProductRepository.GroupCount> rows) {
+        Map<Long, Long> counts = new HashMap<>();
+        for (ProductRepository.GroupCount row : rows) {
+            counts.put(row.getGroupId(), row.getProductCount());
+        }
+        return counts;
+    }
+}
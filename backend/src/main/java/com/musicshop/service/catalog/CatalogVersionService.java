@@ -0,0 +1,100 @@
+package com.musicshop.service.catalog;
+
+import com.musicshop.event.category.CategoryChangeEvent;
+import com.musicshop.event.product.ProductCreationEvent;
+import com.musicshop.event.product.ProductDeletionEvent;
+import com.musicshop.event.product.ProductDiscountEvent;
+import com.musicshop.event.product.ProductImagesChangedEvent;
+import com.musicshop.event.product.ProductRankingChangedEvent;
+import com.musicshop.event.product.ProductStockChangedEvent;
+import com.musicshop.event.product.ProductUpdateEvent;
+import com.musicshop.event.review.ReviewCreatedEvent;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory version counters for the public catalog, used as HTTP validators.
+ *
+ * The catalog version is bumped after every committed product or category
+ * change, new review and recommended-score update. Brands cannot be changed
+ * through the API, so {@link #bumpCatalog()} is public for other writers. The
+ * stock version is bumped by stock movements, which product details reflect.
+ *
+ * Tags carry a per-process epoch, so a restart, which resets the counters,
+ * never revalidates a stale client copy.
+ */
+@Service
+public class CatalogVersionService {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong catalogVersion = new AtomicLong();
+    private final AtomicLong stockVersion = new AtomicLong();
+
+    /**
+     * ETag for catalog listings (products, facets, categories, brands).
+     */
+    public String catalogETag() {
+        return "\"" + epoch + "-" + catalogVersion.get() + "\"";
+    }
+
+    /**
+     * ETag for a product detail, which also reflects available quantity.
+     */
+    public String productDetailETag() {
+        return "\"" + epoch + "-" + catalogVersion.get() + "-" + stockVersion.get() + "\"";
+    }
+
+    public void bumpCatalog() {
+        catalogVersion.incrementAndGet();
+    }
+
+    @TransactionalEventListener
+    public void onProductCreation(ProductCreationEvent event) {
+        bumpCatalog();
+    }
+
+    @TransactionalEventListener
+    public void onProductUpdate(ProductUpdateEvent event) {
+        bumpCatalog();
+    }
+
+    @TransactionalEventListener
+    public void onProductDiscount(ProductDiscountEvent event) {
+        bumpCatalog();
+    }
+
+    @TransactionalEventListener
+    public void onProductDeletion(ProductDeletionEvent event) {
+        bumpCatalog();
+    }
+
+    @TransactionalEventListener
+    public void onProductImagesChanged(ProductImagesChangedEvent event) {
+        bumpCatalog();
+    }
+
+    @TransactionalEventListener
+    public void onCategoryChange(CategoryChangeEvent event) {
+        bumpCatalog();
+    }
+
+    @TransactionalEventListener
+    public void onProductRankingChanged(ProductRankingChangedEvent event) {
+        bumpCatalog();
+    }
+
+    /**
+     * Listings carry rating averages and counts.
+     */
+    @TransactionalEventListener
+    public void onReviewCreated(ReviewCreatedEvent event) {
+        bumpCatalog();
+    }
+
+    @TransactionalEventListener
+    public void onProductStockChanged(ProductStockChangedEvent event) {
+        stockVersion.incrementAndGet();
+    }
+}
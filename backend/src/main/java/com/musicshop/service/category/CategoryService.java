@@ -12,6 +12,25 @@ public interface CategoryService {
 
     List<Category> findAll();
 
+    /**
+     * IDs of the category with the given slug and all its descendants at any
+     * depth, or an empty list if no such category exists.
+     */
+    List<Long> findSubtreeIds(String slug);
+
+    /**
+     * IDs of the category and all its ancestors, nearest first, or an empty list
+     * if no such category exists.
+     */
+    List<Long> findAncestorIds(Long categoryId);
+
+    /**
+     * Version of the tree shape the lookups above answer from. It changes once
+     * the snapshot is rebuilt with categories added, removed, moved or
+     * re-slugged, so caches derived from those lookups can tell they are stale.
+     */
+    long findTreeVersion();
+
     CategoryDTO createCategory(CreateCategoryRequest request, Long parentId);
 
     Optional<Category> findById(Long id);
@@ -2,11 +2,19 @@ package com.musicshop.service.category;
 
 import com.musicshop.dto.category.CategoryDTO;
 import com.musicshop.dto.category.CreateCategoryRequest;
+import com.musicshop.event.category.CategoryChangeEvent;
+import com.musicshop.event.product.ProductCreationEvent;
+import com.musicshop.event.product.ProductDeletionEvent;
+import com.musicshop.event.product.ProductUpdateEvent;
 import com.musicshop.mapper.CategoryMapper;
 import com.musicshop.model.category.Category;
 import com.musicshop.repository.category.CategoryRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.util.List;
 import java.util.Optional;
@@ -16,31 +24,82 @@ public class CategoryServiceImpl implements CategoryService {
 
     private final CategoryRepository categoryRepository;
     private final CategoryMapper categoryMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private volatile CategoryTreeSnapshot snapshot;
 
     @Autowired
-    public CategoryServiceImpl(CategoryRepository categoryRepository, CategoryMapper categoryMapper) {
+    public CategoryServiceImpl(CategoryRepository categoryRepository, CategoryMapper categoryMapper,
+            ApplicationEventPublisher eventPublisher) {
         this.categoryRepository = categoryRepository;
         this.categoryMapper = categoryMapper;
+        this.eventPublisher = eventPublisher;
     }
 
+    /**
+     * The category tree with rolled-up product counts, served from an immutable
+     * in-memory snapshot. The snapshot is built with a single query on
+     * first use and rebuilt after commit of any category change or product write
+     * that can move a product between categories.
+     */
     @Override
     public List<CategoryDTO> findAllProperties() {
-        // Fetch parent categories with counts
-        List<CategoryDTO> parents = categoryRepository.findAllWithProductCount();
-
-        // For each parent, fetch subcategories with counts and return an enriched immutable DTO.
-        return parents.stream()
-                .map(parent -> categoryRepository.findBySlug(parent.getSlug())
-                        .map(parentEntity -> {
-                            List<CategoryDTO> subs = categoryRepository.findSubcategoriesWithProductCount(parentEntity);
-                            long totalCount = subs.stream().mapToLong(CategoryDTO::getProductCount).sum();
-                            return parent
-                                    .withSubCategories(subs)
-                                    .withDescription(parentEntity.getDescription())
-                                    .withProductCount(totalCount);
-                        })
-                        .orElse(parent))
-                .toList();
+        return currentSnapshot().roots();
+    }
+
+    @Override
+    public List<Long> findSubtreeIds(String slug) {
+        return currentSnapshot().subtreeIds(slug);
+    }
+
+    @Override
+    public List<Long> findAncestorIds(Long categoryId) {
+        return currentSnapshot().ancestorIds(categoryId);
+    }
+
+    @Override
+    public long findTreeVersion() {
+        return currentSnapshot().treeVersion();
+    }
+
+    private CategoryTreeSnapshot currentSnapshot() {
+        CategoryTreeSnapshot current = snapshot;
+        if (current == null) {
+            rebuildSnapshot();
+            current = snapshot;
+        }
+        return current;
+    }
+
+    /**
+     * Rebuild the tree snapshot and swap it in atomically.
+     */
+    public synchronized void rebuildSnapshot() {
+        snapshot = CategoryTreeSnapshot.build(categoryRepository.findTreeRows(), categoryMapper, snapshot);
+    }
+
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onCategoryChange(CategoryChangeEvent event) {
+        rebuildSnapshot();
+    }
+
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onProductCreation(ProductCreationEvent event) {
+        rebuildSnapshot();
+    }
+
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onProductUpdate(ProductUpdateEvent event) {
+        rebuildSnapshot();
+    }
+
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onProductDeletion(ProductDeletionEvent event) {
+        rebuildSnapshot();
     }
 
     @Override
@@ -49,6 +108,7 @@ public class CategoryServiceImpl implements CategoryService {
     }
 
     @Override
+    @Transactional
     public CategoryDTO createCategory(CreateCategoryRequest request, Long parentId) {
         Category category = new Category();
         category.setCategoryName(request.getCategoryName());
@@ -64,6 +124,7 @@ public class CategoryServiceImpl implements CategoryService {
             category.setSlug(category.getCategoryName().toLowerCase().replaceAll("[^a-z0-9]+", "-"));
         }
         Category saved = categoryRepository.save(category);
+        eventPublisher.publishEvent(new CategoryChangeEvent(this, saved.getId()));
         return categoryMapper.toCategoryDTO(saved).withProductCount(0L);
     }
 
@@ -73,7 +134,9 @@ public class CategoryServiceImpl implements CategoryService {
     }
 
     @Override
+    @Transactional
     public void deleteCategory(Long id) {
         categoryRepository.deleteById(id);
+        eventPublisher.publishEvent(new CategoryChangeEvent(this, id));
     }
 }
@@ -0,0 +1,141 @@
+package com.musicshop.service.category;
+
+import com.musicshop.dto.category.CategoryDTO;
+import com.musicshop.mapper.CategoryMapper;
+import com.musicshop.repository.category.CategoryRepository.CategoryTreeRow;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable category tree with product counts, assembled in memory from the
+ * flat rows of a single query.
+ *
+ * Counts are the maintained rolled-up counters (own products plus those of all
+ * descendants). Siblings are ordered by display order, then ID. The snapshot
+ * also keeps a descendant index (slug to the IDs of the category and every
+ * category below it) so subtree filters need no hierarchy join, and an
+ * ancestor index (ID to the IDs of the category and every category above it)
+ * for rolling counter updates up the tree.
+ *
+ * The tree version identifies the shape of the tree (its IDs, parents and
+ * slugs): a rebuild keeps the previous snapshot's version unless the shape
+ * changed, so product counts alone never change it.
+ */
+final class CategoryTreeSnapshot {
+
+    private static final Comparator<CategoryTreeRow> SIBLING_ORDER = Comparator
+            .comparing((CategoryTreeRow row) -> row.getDisplayOrder() != null ? row.getDisplayOrder() : 0)
+            .thenComparing(CategoryTreeRow::getId);
+
+    private final List<CategoryDTO> roots;
+    private final Map<String, List<Long>> subtreeIdsBySlug;
+    private final Map<Long, List<Long>> ancestorIdsById;
+    private final long treeVersion;
+
+    private CategoryTreeSnapshot(List<CategoryDTO> roots, CategoryTreeSnapshot previous) {
+        this.roots = List.copyOf(roots);
+        Map<String, List<Long>> subtrees = new HashMap<>();
+        indexSubtrees(this.roots, subtrees);
+        this.subtreeIdsBySlug = Map.copyOf(subtrees);
+        Map<Long, List<Long>> ancestors = new HashMap<>();
+        indexAncestors(this.roots, List.of(), ancestors);
+        this.ancestorIdsById = Map.copyOf(ancestors);
+        if (previous == null) {
+            this.treeVersion = 1;
+        } else if (previous.subtreeIdsBySlug.equals(subtreeIdsBySlug)
+                && previous.ancestorIdsById.equals(ancestorIdsById)) {
+            this.treeVersion = previous.treeVersion;
+        } else {
+            this.treeVersion = previous.treeVersion + 1;
+        }
+    }
+
+    /**
+     * Assemble a snapshot from the tree rows, versioned against the snapshot it
+     * replaces ({@code null} for the first one).
+     */
+    static CategoryTreeSnapshot build(List<CategoryTreeRow> rows, CategoryMapper categoryMapper,
+            CategoryTreeSnapshot previous) {
+        Map<Long, List<CategoryTreeRow>> childrenByParent = new HashMap<>();
+        List<CategoryTreeRow> rootRows = new ArrayList<>();
+        for (CategoryTreeRow row : rows) {
+            if (row.getParentId() == null) {
+                rootRows.add(row);
+            } else {
+                childrenByParent.computeIfAbsent(row.getParentId(), id -> new ArrayList<>()).add(row);
+            }
+        }
+
+        Set<Long> visited = new HashSet<>();
+        return new CategoryTreeSnapshot(assemble(rootRows, childrenByParent, visited, categoryMapper), previous);
+    }
+
+    List<CategoryDTO> roots() {
+        return roots;
+    }
+
+    long treeVersion() {
+        return treeVersion;
+    }
+
+    /**
+     * IDs of the category with the given slug and all its descendants, or an
+     * empty list if no such category exists.
+     */
+    List<Long> subtreeIds(String slug) {
+        return subtreeIdsBySlug.getOrDefault(slug, List.of());
+    }
+
+    /**
+     * IDs of the category and all its ancestors, nearest first, or an empty list
+     * if no such category exists.
+     */
+    List<Long> ancestorIds(Long categoryId) {
+        return ancestorIdsById.getOrDefault(categoryId, List.of());
+    }
+
+    private static void indexAncestors(List<CategoryDTO> nodes, List<Long> above, Map<Long, List<Long>> index) {
+        for (CategoryDTO node : nodes) {
+            List<Long> chain = new ArrayList<>(above.size() + 1);
+            chain.add(node.getId());
+            chain.addAll(above);
+            index.put(node.getId(), List.copyOf(chain));
+            indexAncestors(node.getSubCategories(), chain, index);
+        }
+    }
+
+    private static List<Long> indexSubtrees(List<CategoryDTO> nodes, Map<String, List<Long>> index) {
+        List<Long> ids = new ArrayList<>();
+        for (CategoryDTO node : nodes) {
+            List<Long> subtree = new ArrayList<>();
+            subtree.add(node.getId());
+            subtree.addAll(indexSubtrees(node.getSubCategories(), index));
+            if (node.getSlug() != null) {
+                index.put(node.getSlug(), List.copyOf(subtree));
+            }
+            ids.addAll(subtree);
+        }
+        return ids;
+    }
+
+    private static List<CategoryDTO> assemble(List<CategoryTreeRow> siblings,
+            Map<Long, List<CategoryTreeRow>> childrenByParent, Set<Long> visited, CategoryMapper categoryMapper) {
+        List<CategoryDTO> nodes = new ArrayList<>(siblings.size());
+        siblings.stream().sorted(SIBLING_ORDER).forEach(row -> {
+            if (!visited.add(row.getId())) {
+                return;
+            }
+            List<CategoryDTO> children = assemble(childrenByParent.getOrDefault(row.getId(), List.of()),
+                    childrenByParent, visited, categoryMapper);
+            nodes.add(categoryMapper.toCategoryDTO(row.getId(), row.getName(), row.getSlug(), row.getDescription(),
+                    row.getProductCount(), children));
+        });
+        return nodes;
+    }
+}
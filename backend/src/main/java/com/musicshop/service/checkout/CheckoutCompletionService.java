@@ -0,0 +1,108 @@
+package com.musicshop.service.checkout;
+
+import com.musicshop.event.order.OrderConfirmedEvent;
+import com.musicshop.exception.ResourceNotFoundException;
+import com.musicshop.model.order.UserOrder;
+import com.musicshop.repository.order.OrderDetailRepository;
+import com.musicshop.repository.order.OrderRepository;
+import com.musicshop.service.coupon.CouponService;
+import com.musicshop.service.inventory.StockReservationLedger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Final phase of a checkout, run once the gateway has answered: a PENDING order
+ * is either confirmed with its payment or cancelled with its units returned to
+ * stock and its coupons given back. Both move the order out of PENDING with a
+ * conditional update, so an order is completed once, and notify the user. A
+ * payment captured for an order that was completed meanwhile, e.g. cancelled
+ * by the pending order sweeper, is refunded through {@link PaymentRefundOutbox}.
+ *
+ * Completion always runs in a transaction of its own: it must never join the
+ * checkout transaction that placed the order.
+ */
+@Service
+public class CheckoutCompletionService {
+
+    public static final String CONFIRMED = "CONFIRMED";
+    public static final String PAYMENT_FAILED = "PAYMENT_FAILED";
+
+    private static final Logger logger = LoggerFactory.getLogger(CheckoutCompletionService.class);
+
+    private final OrderRepository orderRepository;
+    private final OrderDetailRepository orderDetailRepository;
+    private final CheckoutOrderService checkoutOrderService;
+    private final CheckoutNotificationService checkoutNotificationService;
+    private final StockReservationLedger stockLedger;
+    private final CouponService couponService;
+    private final PaymentRefundOutbox paymentRefundOutbox;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public CheckoutCompletionService(OrderRepository orderRepository,
+            OrderDetailRepository orderDetailRepository,
+            CheckoutOrderService checkoutOrderService,
+            CheckoutNotificationService checkoutNotificationService,
+            StockReservationLedger stockLedger,
+            CouponService couponService,
+            PaymentRefundOutbox paymentRefundOutbox,
+            ApplicationEventPublisher eventPublisher) {
+        this.orderRepository = orderRepository;
+        this.orderDetailRepository = orderDetailRepository;
+        this.checkoutOrderService = checkoutOrderService;
+        this.checkoutNotificationService = checkoutNotificationService;
+        this.stockLedger = stockLedger;
+        this.couponService = couponService;
+        this.paymentRefundOutbox = paymentRefundOutbox;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void confirm(Long orderId, String paymentMethod, BigDecimal amount, String transactionId) {
+        if (orderRepository.completePending(orderId, CONFIRMED) == 0) {
+            logger.warn("Payment {} captured for order {} which is no longer pending, refunding it",
+                    transactionId, orderId);
+            paymentRefundOutbox.enqueue(orderId, paymentMethod, amount, transactionId);
+            return;
+        }
+        UserOrder order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
+        checkoutOrderService.recordPayment(order, paymentMethod, amount, transactionId);
+        List<OrderDetailRepository.LineUnits> lines = orderDetailRepository.findLineUnitsByOrderId(orderId);
+        eventPublisher.publishEvent(new OrderConfirmedEvent(this, orderId, lines.stream()
+                .map(OrderDetailRepository.LineUnits::getProductId)
+                .distinct()
+                .toList()));
+        checkoutNotificationService.sendOrderConfirmation(order.getUser(), order);
+    }
+
+    /**
+     * Cancel the order if it is still PENDING.
+     *
+     * @return false if it was already completed
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean compensate(Long orderId, String reason) {
+        if (orderRepository.completePending(orderId, PAYMENT_FAILED) == 0) {
+            return false;
+        }
+        Map<Long, Integer> units = new HashMap<>();
+        for (OrderDetailRepository.LineUnits line : orderDetailRepository.findLineUnitsByOrderId(orderId)) {
+            units.merge(line.getProductId(), line.getQuantity(), Integer::sum);
+        }
+        stockLedger.restock(units);
+        couponService.release(orderId);
+        UserOrder order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
+        checkoutNotificationService.sendPaymentFailed(order.getUser(), order, reason);
+        return true;
+    }
+}
@@ -1,5 +1,6 @@
 package com.musicshop.service.checkout;
 
+import com.musicshop.domain.pricing.PricingCoupon;
 import com.musicshop.dto.checkout.CheckoutRequest;
 import com.musicshop.dto.checkout.CheckoutResponse;
 import com.musicshop.exception.CartEmptyException;
@@ -10,33 +11,43 @@ import com.musicshop.model.cart.Cart;
 import com.musicshop.model.cart.CartDetail;
 import com.musicshop.model.order.UserOrder;
 import com.musicshop.model.user.User;
-import com.musicshop.service.payment.PaymentResult;
 import com.musicshop.repository.cart.CartRepository;
 import com.musicshop.repository.user.UserRepository;
 import com.musicshop.service.cart.CartService;
+import com.musicshop.service.checkout.CheckoutIdempotencyClaimService.Claim;
+import com.musicshop.service.coupon.CouponService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * First phase of a checkout: in one short transaction the cart's lines are
+ * locked and turned into a PENDING order, taking over the stock they reserved,
+ * and the cart is emptied. The payment is handed to
+ * {@link CheckoutPaymentProcessor} after commit, so the gateway call holds no
+ * connection or lock; clients follow the order through its status or the
+ * notification sent on completion.
+ */
 @Service
 public class CheckoutFacade {
 
-    private static final BigDecimal DEFAULT_COUPON_AMOUNT = new BigDecimal("10.00");
-
     private final CartService cartService;
     private final CartRepository cartRepository;
     private final UserRepository userRepository;
     private final CheckoutAddressService checkoutAddressService;
     private final CheckoutPricingService checkoutPricingService;
+    private final CouponService couponService;
     private final CheckoutPaymentService checkoutPaymentService;
     private final CheckoutOrderService checkoutOrderService;
-    private final CheckoutNotificationService checkoutNotificationService;
+    private final CheckoutPaymentProcessor checkoutPaymentProcessor;
+    private final CheckoutIdempotencyClaimService checkoutIdempotencyClaimService;
     private final CheckoutMapper checkoutMapper;
-    private final BigDecimal couponAmount;
 
     @Autowired
     public CheckoutFacade(CartService cartService,
@@ -44,66 +55,93 @@ public class CheckoutFacade {
             UserRepository userRepository,
             CheckoutAddressService checkoutAddressService,
             CheckoutPricingService checkoutPricingService,
+            CouponService couponService,
             CheckoutPaymentService checkoutPaymentService,
             CheckoutOrderService checkoutOrderService,
-            CheckoutNotificationService checkoutNotificationService,
-            CheckoutMapper checkoutMapper,
-            @Value("${checkout.coupon.fixed-amount:10.00}") BigDecimal couponAmount) {
+            CheckoutPaymentProcessor checkoutPaymentProcessor,
+            CheckoutIdempotencyClaimService checkoutIdempotencyClaimService,
+            CheckoutMapper checkoutMapper) {
         this.cartService = cartService;
         this.cartRepository = cartRepository;
         this.userRepository = userRepository;
         this.checkoutAddressService = checkoutAddressService;
         this.checkoutPricingService = checkoutPricingService;
+        this.couponService = couponService;
         this.checkoutPaymentService = checkoutPaymentService;
         this.checkoutOrderService = checkoutOrderService;
-        this.checkoutNotificationService = checkoutNotificationService;
+        this.checkoutPaymentProcessor = checkoutPaymentProcessor;
+        this.checkoutIdempotencyClaimService = checkoutIdempotencyClaimService;
         this.checkoutMapper = checkoutMapper;
-        this.couponAmount = couponAmount != null ? couponAmount : DEFAULT_COUPON_AMOUNT;
     }
 
     @Transactional
     public CheckoutResponse checkout(Long userId, CheckoutRequest request) {
+        return checkout(userId, request, null);
+    }
+
+    /**
+     * Place the order and record it on {@code claim}, the request's idempotency
+     * claim, in the same transaction; {@code claim} may be null.
+     */
+    @Transactional
+    public CheckoutResponse checkout(Long userId, CheckoutRequest request, Claim claim) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
-        // 1. Load cart
+        // 1. Load and lock the cart lines
         Cart cart = cartRepository.findByUserId(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Cart not found"));
 
-        List<CartDetail> cartDetails = cartService.listCartDetails(cart.getId());
+        List<CartDetail> cartDetails = cartService.lockCartDetails(cart.getId());
         if (cartDetails.isEmpty()) {
             throw new CartEmptyException("Cart is empty");
         }
+        checkoutPaymentService.validatePaymentMethod(request.getPaymentMethod());
 
         // 2. Create shipping address
         Address address = checkoutAddressService.createShippingAddress(request);
 
-        // 3. Calculate total using pricing pipeline
-        BigDecimal totalAmount = checkoutPricingService.calculateTotal(cartDetails, request.getCouponCode(),
-                couponAmount);
+        // 3. Calculate total with the compiled pricing plan
+        List<PricingCoupon> coupons = couponService.resolve(userId, couponCodes(request));
+        BigDecimal totalAmount = checkoutPricingService.calculateTotal(cartDetails, coupons);
 
-        // 4. Build order
+        // 4. Persist the PENDING order; the cart lines' stock now belongs to it
         UserOrder order = checkoutOrderService.buildOrder(user, address, cartDetails, totalAmount);
+        UserOrder savedOrder = checkoutOrderService.savePendingOrder(order);
+        if (claim != null) {
+            checkoutIdempotencyClaimService.bindOrder(claim, savedOrder.getId());
+        }
+        couponService.redeem(userId, savedOrder.getId(), coupons);
+        cartService.consumeLines(cartDetails);
 
-        // 5. Process payment
-        PaymentResult paymentResult = checkoutPaymentService.processPayment(request.getPaymentMethod(), totalAmount);
-
-        // 6. Persist order and payment
-        UserOrder savedOrder = checkoutOrderService.saveConfirmedOrder(order);
-        checkoutOrderService.recordPayment(savedOrder, request.getPaymentMethod(), totalAmount);
-
-        // 7. Clear the cart
-        cartService.clearCart(cart.getId());
+        // 5. Pay once the order is committed
+        afterCommit(() -> checkoutPaymentProcessor.submit(savedOrder.getId(), request.getPaymentMethod(),
+                totalAmount));
 
-        // 8. Send notification
-        checkoutNotificationService.sendOrderConfirmation(user, savedOrder);
+        return checkoutMapper.toCheckoutResponse(savedOrder.getId(), totalAmount, savedOrder.getStatus(), null);
+    }
 
-        // 9. Return response
-        return checkoutMapper.toCheckoutResponse(
-                savedOrder.getId(),
-                totalAmount,
-                "CONFIRMED",
-                paymentResult.getTransactionId());
+    private static List<String> couponCodes(CheckoutRequest request) {
+        List<String> codes = new ArrayList<>();
+        if (request.getCouponCode() != null) {
+            codes.add(request.getCouponCode());
+        }
+        if (request.getCouponCodes() != null) {
+            codes.addAll(request.getCouponCodes());
+        }
+        return codes;
     }
 
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
 }
@@ -0,0 +1,57 @@
+package com.musicshop.service.checkout;
+
+import com.musicshop.exception.DuplicateResourceException;
+import com.musicshop.model.order.CheckoutIdempotencyKey;
+import com.musicshop.repository.order.CheckoutIdempotencyKeyRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Guarded updates of an IN_PROGRESS idempotency key. A claim's
+ * {@code claimedAt} acts as a fencing token: each update only applies while the
+ * row still carries it, so a request whose stale claim was taken over can
+ * neither place its order nor release the new claimant's key.
+ */
+@Service
+public class CheckoutIdempotencyClaimService {
+
+    private final CheckoutIdempotencyKeyRepository idempotencyKeyRepository;
+
+    public CheckoutIdempotencyClaimService(CheckoutIdempotencyKeyRepository idempotencyKeyRepository) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+    }
+
+    /**
+     * Take over {@code stale} as {@code claimedAt}, provided it is still the same
+     * claim and no order was recorded against it.
+     */
+    @Transactional
+    public boolean takeOver(Claim stale, LocalDateTime claimedAt) {
+        return idempotencyKeyRepository.takeOver(stale.id(), stale.claimedAt(), claimedAt,
+                CheckoutIdempotencyKey.Status.IN_PROGRESS) == 1;
+    }
+
+    /**
+     * Record the order placed for the claim, in the checkout's own transaction, so
+     * the key shows an order exactly when one was committed.
+     *
+     * @throws DuplicateResourceException if the claim has been taken over
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void bindOrder(Claim claim, Long orderId) {
+        if (idempotencyKeyRepository.bindOrder(claim.id(), claim.claimedAt(), orderId) == 0) {
+            throw new DuplicateResourceException("A checkout with this Idempotency-Key is still in progress");
+        }
+    }
+
+    @Transactional
+    public void release(Claim claim) {
+        idempotencyKeyRepository.deleteClaim(claim.id(), claim.claimedAt());
+    }
+
+    public record Claim(Long id, LocalDateTime claimedAt) {
+    }
+}
@@ -0,0 +1,387 @@
+package com.musicshop.service.checkout;
+
+import com.musicshop.dto.checkout.CheckoutRequest;
+import com.musicshop.dto.checkout.CheckoutResponse;
+import com.musicshop.exception.CartEmptyException;
+import com.musicshop.exception.DuplicateResourceException;
+import com.musicshop.exception.InsufficientStockException;
+import com.musicshop.exception.PaymentFailedException;
+import com.musicshop.exception.ResourceNotFoundException;
+import com.musicshop.mapper.CheckoutMapper;
+import com.musicshop.model.order.CheckoutIdempotencyKey;
+import com.musicshop.repository.order.CheckoutIdempotencyKeyRepository;
+import com.musicshop.repository.order.OrderRepository;
+import com.musicshop.service.checkout.CheckoutIdempotencyClaimService.Claim;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Runs a checkout at most once per {@code Idempotency-Key} and principal.
+ *
+ * The first request claims the key with an IN_PROGRESS row and stores its
+ * outcome, the response or a domain error (empty cart, failed payment,
+ * insufficient stock, missing resource), when it finishes. The order is
+ * recorded on the row in the checkout's own transaction. Duplicates in this
+ * instance wait on the in-flight execution through the front cache and replay
+ * its outcome from memory; after {@code checkout.idempotency.cache-ttl} they
+ * replay from the stored row. A replayed order's status is read afresh, so it
+ * follows the payment. A duplicate still running elsewhere, or one not
+ * finished within {@code checkout.idempotency.wait-timeout}, is refused with a
+ * conflict. Unexpected errors release the key so the client can retry.
+ *
+ * A claim older than the wait timeout whose row records no order is taken
+ * over by the next duplicate, e.g. after the claiming instance died; one that
+ * records an order is answered from the order (see
+ * {@link CheckoutIdempotencyClaimService} for how a superseded claimant is kept
+ * from placing a second order).
+ *
+ * Keys are scoped to the principal, bound to a fingerprint of the request body
+ * and kept for {@code checkout.idempotency.ttl}.
+ */
+@Service
+public class CheckoutIdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CheckoutIdempotencyService.class);
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final CheckoutIdempotencyKeyRepository idempotencyKeyRepository;
+    private final CheckoutIdempotencyClaimService claimService;
+    private final OrderRepository orderRepository;
+    private final CheckoutMapper checkoutMapper;
+    private final Duration ttl;
+    private final long cacheTtlNanos;
+    private final Duration waitTimeout;
+
+    private final ConcurrentMap<String, Execution> executions = new ConcurrentHashMap<>();
+    private final LongAdder replays = new LongAdder();
+
+    @Autowired
+    public CheckoutIdempotencyService(CheckoutIdempotencyKeyRepository idempotencyKeyRepository,
+            CheckoutIdempotencyClaimService claimService,
+            OrderRepository orderRepository,
+            CheckoutMapper checkoutMapper,
+            @Value("${checkout.idempotency.ttl:24h}") Duration ttl,
+            @Value("${checkout.idempotency.cache-ttl:10m}") Duration cacheTtl,
+            @Value("${checkout.idempotency.wait-timeout:30s}") Duration waitTimeout,
+            MeterRegistry meterRegistry) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.claimService = claimService;
+        this.orderRepository = orderRepository;
+        this.checkoutMapper = checkoutMapper;
+        this.ttl = ttl;
+        this.cacheTtlNanos = cacheTtl.toNanos();
+        this.waitTimeout = waitTimeout;
+        FunctionCounter.builder("checkout.idempotency.replays", replays, LongAdder::sum)
+                .description("Checkout requests answered from a previous execution")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Run {@code checkout} unless {@code idempotencyKey} was already used by the
+     * principal, in which case the first outcome is returned or rethrown. The
+     * checkout is given the key's claim to bind its order to, or null when there
+     * is no key.
+     *
+     * @throws IllegalArgumentException if the key is blank or too long, or was used for a different request
+     * @throws DuplicateResourceException if the first request with the key has not finished
+     */
+    public CheckoutResponse execute(String principal, String idempotencyKey, CheckoutRequest request,
+            Function<Claim, CheckoutResponse> checkout) {
+        if (idempotencyKey == null) {
+            return checkout.apply(null);
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be between 1 and " + MAX_KEY_LENGTH
+                    + " characters");
+        }
+        String requestHash = fingerprint(request);
+        String cacheKey = principal + '\n' + idempotencyKey;
+        Execution execution = new Execution(requestHash);
+        Execution existing = executions.putIfAbsent(cacheKey, execution);
+        if (existing != null) {
+            replays.increment();
+            return withCurrentStatus(existing.await(requestHash, waitTimeout).get());
+        }
+
+        Outcome outcome;
+        try {
+            outcome = resolve(principal, idempotencyKey, requestHash, checkout);
+        } catch (RuntimeException e) {
+            outcome = new Outcome(null, e, false);
+        }
+        execution.complete(outcome, System.nanoTime());
+        if (!outcome.replayable()) {
+            executions.remove(cacheKey, execution);
+        }
+        return outcome.get();
+    }
+
+    /**
+     * Drop front-cache entries older than {@code checkout.idempotency.cache-ttl}
+     * and stored keys older than {@code checkout.idempotency.ttl}.
+     */
+    @Transactional
+    @Scheduled(fixedDelayString = "${checkout.idempotency.purge-interval-ms:600000}")
+    public void purgeExpired() {
+        long now = System.nanoTime();
+        executions.values().removeIf(execution -> execution.isExpired(now, cacheTtlNanos));
+        int purged = idempotencyKeyRepository.deleteCreatedBefore(LocalDateTime.now().minus(ttl));
+        if (purged > 0) {
+            logger.info("Checkout idempotency keys purged: {}", purged);
+        }
+    }
+
+    private Outcome resolve(String principal, String idempotencyKey, String requestHash,
+            Function<Claim, CheckoutResponse> checkout) {
+        Optional<CheckoutIdempotencyKey> stored = idempotencyKeyRepository
+                .findByPrincipalAndIdempotencyKey(principal, idempotencyKey);
+        CheckoutIdempotencyKey claim;
+        if (stored.isPresent()) {
+            if (!isAbandoned(stored.get(), requestHash)) {
+                replays.increment();
+                return replay(stored.get(), requestHash);
+            }
+            claim = stored.get();
+            LocalDateTime claimedAt = now();
+            if (!claimService.takeOver(claimOf(claim), claimedAt)) {
+                return new Outcome(null, inProgress(), false);
+            }
+            logger.warn("Checkout idempotency key {} taken over from a claim made at {}", claim.getId(),
+                    claim.getClaimedAt());
+            claim.setClaimedAt(claimedAt);
+        } else {
+            claim = new CheckoutIdempotencyKey();
+            claim.setPrincipal(principal);
+            claim.setIdempotencyKey(idempotencyKey);
+            claim.setRequestHash(requestHash);
+            claim.setStatus(CheckoutIdempotencyKey.Status.IN_PROGRESS);
+            claim.setClaimedAt(now());
+            try {
+                claim = idempotencyKeyRepository.saveAndFlush(claim);
+            } catch (DataIntegrityViolationException e) {
+                // Claimed by another instance in the meantime
+                return new Outcome(null, inProgress(), false);
+            }
+        }
+
+        CheckoutResponse response;
+        try {
+            response = checkout.apply(claimOf(claim));
+        } catch (RuntimeException e) {
+            Optional<ReplayableError> error = ReplayableError.of(e);
+            if (error.isEmpty()) {
+                release(claim);
+                throw e;
+            }
+            claim.setStatus(CheckoutIdempotencyKey.Status.FAILED);
+            claim.setErrorType(error.get().name());
+            claim.setErrorMessage(e.getMessage());
+            store(claim);
+            return new Outcome(null, e, true);
+        }
+        claim.setStatus(CheckoutIdempotencyKey.Status.COMPLETED);
+        claim.setOrderId(response.getOrderId());
+        claim.setTotalAmount(response.getTotalAmount());
+        claim.setPaymentStatus(response.getPaymentStatus());
+        claim.setTransactionId(response.getTransactionId());
+        store(claim);
+        return new Outcome(response, null, true);
+    }
+
+    private Outcome replay(CheckoutIdempotencyKey stored, String requestHash) {
+        if (!stored.getRequestHash().equals(requestHash)) {
+            return new Outcome(null, keyReused(), false);
+        }
+        if (stored.getOrderId() != null) {
+            // Completed, or placed by a claimant that died before storing the outcome
+            return new Outcome(withCurrentStatus(checkoutMapper.toCheckoutResponse(stored.getOrderId(),
+                    stored.getTotalAmount(), stored.getPaymentStatus(), stored.getTransactionId())), null, true);
+        }
+        return switch (stored.getStatus()) {
+            case IN_PROGRESS, COMPLETED -> new Outcome(null, inProgress(), false);
+            case FAILED -> new Outcome(null,
+                    ReplayableError.valueOf(stored.getErrorType()).create(stored.getErrorMessage()), true);
+        };
+    }
+
+    /**
+     * Whether a duplicate may take over the key: its claim is older than the
+     * wait timeout and no order was placed under it.
+     */
+    private boolean isAbandoned(CheckoutIdempotencyKey stored, String requestHash) {
+        return stored.getStatus() == CheckoutIdempotencyKey.Status.IN_PROGRESS
+                && stored.getOrderId() == null
+                && stored.getRequestHash().equals(requestHash)
+                && stored.getClaimedAt().isBefore(LocalDateTime.now().minus(waitTimeout));
+    }
+
+    /**
+     * The response with the order's current status and transaction, which move
+     * on once the asynchronous payment completes.
+     */
+    private CheckoutResponse withCurrentStatus(CheckoutResponse response) {
+        if (response == null || response.getOrderId() == null) {
+            return response;
+        }
+        return orderRepository.findCheckoutStatusById(response.getOrderId())
+                .map(status -> checkoutMapper.toCheckoutResponse(status.getOrderId(), status.getTotalAmount(),
+                        status.getStatus(), status.getTransactionId()))
+                .orElse(response);
+    }
+
+    private void store(CheckoutIdempotencyKey outcome) {
+        try {
+            idempotencyKeyRepository.save(outcome);
+        } catch (DataAccessException e) {
+            // A placed order is already recorded on the key, so duplicates are still answered from it
+            logger.warn("Could not store the outcome of checkout idempotency key {}", outcome.getId(), e);
+        }
+    }
+
+    private void release(CheckoutIdempotencyKey claim) {
+        try {
+            claimService.release(claimOf(claim));
+        } catch (DataAccessException e) {
+            logger.warn("Could not release checkout idempotency key {}", claim.getId(), e);
+        }
+    }
+
+    private static Claim claimOf(CheckoutIdempotencyKey claim) {
+        return new Claim(claim.getId(), claim.getClaimedAt());
+    }
+
+    // Millisecond precision, so the fencing comparison survives the database's timestamp precision
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    }
+
+    private static DuplicateResourceException inProgress() {
+        return new DuplicateResourceException("A checkout with this Idempotency-Key is still in progress");
+    }
+
+    private static IllegalArgumentException keyReused() {
+        return new IllegalArgumentException("Idempotency-Key was already used for a different checkout request");
+    }
+
+    static String fingerprint(CheckoutRequest request) {
+        StringBuilder canonical = new StringBuilder();
+        for (String field : new String[] { request.getPaymentMethod(), request.getCouponCode(), request.getStreet(),
+                request.getNumber(), request.getPostalCode(), request.getCity(), request.getCountry() }) {
+            canonical.append(field == null ? "\u0001" : field).append('\u0000');
+        }
+        // Appended only when present, so fingerprints of requests without it are unchanged
+        if (request.getCouponCodes() != null) {
+            canonical.append(String.join("\u0000", request.getCouponCodes())).append('\u0000');
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Checkout errors that are part of the outcome and replayed as-is; anything
+     * else is treated as transient.
+     */
+    private enum ReplayableError {
+        CART_EMPTY(CartEmptyException.class, CartEmptyException::new),
+        PAYMENT_FAILED(PaymentFailedException.class, PaymentFailedException::new),
+        INSUFFICIENT_STOCK(InsufficientStockException.class, InsufficientStockException::new),
+        NOT_FOUND(ResourceNotFoundException.class, ResourceNotFoundException::new);
+
+        private final Class<? extends RuntimeException> type;
+        private final Function<String, RuntimeException> factory;
+
+        ReplayableError(Class<? extends RuntimeException> type, Function<String, RuntimeException> factory) {
+            this.type = type;
+            this.factory = factory;
+        }
+
+        RuntimeException create(String message) {
+            return factory.apply(message);
+        }
+
+        static Optional<ReplayableError> of(RuntimeException e) {
+            for (ReplayableError error : values()) {
+                if (error.type.isInstance(e)) {
+                    return Optional.of(error);
+                }
+            }
+            return Optional.empty();
+        }
+    }
+
+    private record Outcome(CheckoutResponse response, RuntimeException error, boolean replayable) {
+
+        CheckoutResponse get() {
+            if (error != null) {
+                throw error;
+            }
+            return response;
+        }
+    }
+
+    private static final class Execution {
+
+        private final String requestHash;
+        private final CompletableFuture<Outcome> outcome = new CompletableFuture<>();
+        private volatile long completedAt;
+
+        Execution(String requestHash) {
+            this.requestHash = requestHash;
+        }
+
+        void complete(Outcome result, long now) {
+            completedAt = now;
+            outcome.complete(result);
+        }
+
+        Outcome await(String duplicateHash, Duration timeout) {
+            if (!requestHash.equals(duplicateHash)) {
+                throw keyReused();
+            }
+            try {
+                return outcome.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                throw inProgress();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw inProgress();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        boolean isExpired(long now, long ttlNanos) {
+            return outcome.isDone() && now - completedAt > ttlNanos;
+        }
+    }
+}
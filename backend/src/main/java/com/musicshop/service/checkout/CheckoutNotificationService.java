@@ -1,6 +1,6 @@
 package com.musicshop.service.checkout;
 
-import com.musicshop.service.notification.NotificationBroker;
+import com.musicshop.service.notification.NotificationOutbox;
 import com.musicshop.model.order.UserOrder;
 import com.musicshop.model.user.Notification;
 import com.musicshop.model.user.NotificationType;
@@ -14,12 +14,12 @@ import java.time.LocalDateTime;
 public class CheckoutNotificationService {
 
     private final NotificationRepository notificationRepository;
-    private final NotificationBroker notificationBroker;
+    private final NotificationOutbox notificationOutbox;
 
     public CheckoutNotificationService(NotificationRepository notificationRepository,
-            NotificationBroker notificationBroker) {
+            NotificationOutbox notificationOutbox) {
         this.notificationRepository = notificationRepository;
-        this.notificationBroker = notificationBroker;
+        this.notificationOutbox = notificationOutbox;
     }
 
     public void sendOrderConfirmation(User user, UserOrder order) {
@@ -33,6 +33,19 @@ public class CheckoutNotificationService {
         notification.setRead(false);
 
         Notification saved = notificationRepository.save(notification);
-        notificationBroker.sendToUser(user.getId(), saved);
+        notificationOutbox.enqueue(user.getId(), saved);
+    }
+
+    public void sendPaymentFailed(User user, UserOrder order, String reason) {
+        Notification notification = new Notification();
+        notification.setTimestamp(LocalDateTime.now());
+        notification.setMessage(String.format("Order #%d was cancelled: %s", order.getId(), reason));
+        notification.setType(NotificationType.ORDER_PAYMENT_FAILED);
+        notification.setUser(user);
+        notification.setRelatedEntityId(order.getId());
+        notification.setRead(false);
+
+        Notification saved = notificationRepository.save(notification);
+        notificationOutbox.enqueue(user.getId(), saved);
     }
 }
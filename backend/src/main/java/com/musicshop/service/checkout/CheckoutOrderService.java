@@ -1,5 +1,8 @@
 package com.musicshop.service.checkout;
 
+import com.musicshop.dto.checkout.CheckoutResponse;
+import com.musicshop.exception.ResourceNotFoundException;
+import com.musicshop.mapper.CheckoutMapper;
 import com.musicshop.model.address.Address;
 import com.musicshop.model.cart.CartDetail;
 import com.musicshop.model.order.UserOrder;
@@ -9,6 +12,7 @@ import com.musicshop.model.user.User;
 import com.musicshop.repository.order.OrderRepository;
 import com.musicshop.repository.payment.PaymentRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -19,10 +23,13 @@ public class CheckoutOrderService {
 
     private final OrderRepository orderRepository;
     private final PaymentRepository paymentRepository;
+    private final CheckoutMapper checkoutMapper;
 
-    public CheckoutOrderService(OrderRepository orderRepository, PaymentRepository paymentRepository) {
+    public CheckoutOrderService(OrderRepository orderRepository, PaymentRepository paymentRepository,
+            CheckoutMapper checkoutMapper) {
         this.orderRepository = orderRepository;
         this.paymentRepository = paymentRepository;
+        this.checkoutMapper = checkoutMapper;
     }
 
     public UserOrder buildOrder(User user, Address shippingAddress, List<CartDetail> cartDetails, BigDecimal totalAmount) {
@@ -43,17 +50,29 @@ public class CheckoutOrderService {
         return builder.build();
     }
 
-    public UserOrder saveConfirmedOrder(UserOrder order) {
-        order.setStatus("CONFIRMED");
+    public UserOrder savePendingOrder(UserOrder order) {
+        order.setStatus("PENDING");
         return orderRepository.save(order);
     }
 
-    public void recordPayment(UserOrder order, String paymentMethod, BigDecimal totalAmount) {
+    public void recordPayment(UserOrder order, String paymentMethod, BigDecimal totalAmount, String transactionId) {
         Payment payment = new Payment();
         payment.setOrder(order);
         payment.setPaymentMethod(paymentMethod);
         payment.setPaymentDate(LocalDateTime.now());
         payment.setAmount(totalAmount);
+        payment.setTransactionId(transactionId);
         paymentRepository.save(payment);
     }
+
+    /**
+     * Current state of one of the user's orders, for clients polling a checkout.
+     */
+    @Transactional(readOnly = true)
+    public CheckoutResponse getCheckoutStatus(Long userId, Long orderId) {
+        OrderRepository.CheckoutStatus status = orderRepository.findCheckoutStatus(orderId, userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Order not found"));
+        return checkoutMapper.toCheckoutResponse(status.getOrderId(), status.getTotalAmount(), status.getStatus(),
+                status.getTransactionId());
+    }
 }
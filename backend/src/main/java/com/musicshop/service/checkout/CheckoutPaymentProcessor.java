@@ -0,0 +1,136 @@
+package com.musicshop.service.checkout;
+
+import com.musicshop.service.payment.PaymentResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs checkout payments off the request transaction, so a slow gateway holds a
+ * worker thread but no database connection or row lock.
+ *
+ * Payments run on {@code checkout.payment.workers} threads behind a queue of
+ * {@code checkout.payment.queue-capacity}. A payment is never run on the
+ * submitting thread, which is still completing the checkout transaction: when
+ * the queue is full it is refused and its order stays PENDING until
+ * {@link PendingOrderSweeper} cancels it. Each result is handed to
+ * {@link CheckoutCompletionService}. Metrics: {@code checkout.payment.queued},
+ * {@code checkout.payment.active}, {@code checkout.payment.rejected} and
+ * {@code checkout.payment.duration}.
+ */
+@Service
+public class CheckoutPaymentProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(CheckoutPaymentProcessor.class);
+
+    private final CheckoutPaymentService checkoutPaymentService;
+    private final CheckoutCompletionService checkoutCompletionService;
+    private final ThreadPoolExecutor executor;
+    private final Timer paymentDuration;
+    private final Counter rejected;
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public CheckoutPaymentProcessor(CheckoutPaymentService checkoutPaymentService,
+            CheckoutCompletionService checkoutCompletionService,
+            @Value("${checkout.payment.workers:8}") int workers,
+            @Value("${checkout.payment.queue-capacity:500}") int queueCapacity,
+            MeterRegistry meterRegistry) {
+        this.checkoutPaymentService = checkoutPaymentService;
+        this.checkoutCompletionService = checkoutCompletionService;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "checkout-payment-" + threads.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.paymentDuration = Timer.builder("checkout.payment.duration")
+                .description("Gateway time of checkout payments")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("checkout.payment.rejected")
+                .description("Checkout payments refused by a full queue, left to the pending-order sweep")
+                .register(meterRegistry);
+        Gauge.builder("checkout.payment.queued", executor, e -> e.getQueue().size())
+                .description("Checkout payments waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("checkout.payment.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Checkout payments in progress")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Charge {@code amount} for the PENDING order and complete it with the result.
+     * A payment that cannot be queued leaves the order PENDING.
+     */
+    public void submit(Long orderId, String paymentMethod, BigDecimal amount) {
+        inFlight.add(orderId);
+        try {
+            executor.execute(() -> {
+                try {
+                    process(orderId, paymentMethod, amount);
+                } finally {
+                    inFlight.remove(orderId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(orderId);
+            rejected.increment();
+            logger.warn("Payment for order {} not queued; the order stays PENDING until swept", orderId);
+        }
+    }
+
+    /**
+     * Whether the order's payment is queued or running on this instance.
+     */
+    boolean isInFlight(Long orderId) {
+        return inFlight.contains(orderId);
+    }
+
+    private void process(Long orderId, String paymentMethod, BigDecimal amount) {
+        Timer.Sample sample = Timer.start();
+        PaymentResult result;
+        try {
+            result = checkoutPaymentService.processPayment(paymentMethod, amount);
+        } catch (RuntimeException e) {
+            sample.stop(paymentDuration);
+            logger.info("Payment for order {} failed: {}", orderId, e.getMessage());
+            try {
+                checkoutCompletionService.compensate(orderId, e.getMessage());
+            } catch (RuntimeException compensationFailure) {
+                logger.error("Order {} could not be cancelled after its payment failed", orderId,
+                        compensationFailure);
+            }
+            return;
+        }
+        sample.stop(paymentDuration);
+        try {
+            checkoutCompletionService.confirm(orderId, paymentMethod, amount, result.getTransactionId());
+        } catch (RuntimeException e) {
+            logger.error("Payment {} captured but order {} could not be confirmed", result.getTransactionId(),
+                    orderId, e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            logger.warn("Checkout payments still running at shutdown: {}", executor.getActiveCount());
+        }
+    }
+}
@@ -18,6 +18,13 @@ public class CheckoutPaymentService {
         this.paymentGatewayProvider = paymentGatewayProvider;
     }
 
+    /**
+     * @throws IllegalArgumentException if no gateway supports the payment method
+     */
+    public void validatePaymentMethod(String paymentMethod) {
+        paymentGatewayProvider.getGateway(paymentMethod);
+    }
+
     public PaymentResult processPayment(String paymentMethod, BigDecimal totalAmount) {
         PaymentGateway gateway = paymentGatewayProvider.getGateway(paymentMethod);
         PaymentRequest paymentRequest = new PaymentRequest(totalAmount, "EUR", paymentMethod);
@@ -1,34 +1,174 @@
 package com.musicshop.service.checkout;
 
+import com.musicshop.domain.pricing.PriceBreakdown;
+import com.musicshop.domain.pricing.PricingCoupon;
+import com.musicshop.domain.pricing.PricingLine;
+import com.musicshop.domain.pricing.PricingPlan;
+import com.musicshop.domain.pricing.PricingRules;
+import com.musicshop.model.brand.Brand;
 import com.musicshop.model.cart.CartDetail;
-import com.musicshop.domain.pricing.BasePriceCalculator;
-import com.musicshop.domain.pricing.CouponDiscountDecorator;
-import com.musicshop.domain.pricing.PriceCalculator;
-import com.musicshop.domain.pricing.ShippingFeeDecorator;
-import com.musicshop.domain.pricing.TaxDecorator;
+import com.musicshop.model.category.Category;
+import com.musicshop.model.product.Product;
+import com.musicshop.service.category.CategoryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
+/**
+ * Prices carts with a {@link PricingPlan} compiled from the {@code pricing.*}
+ * properties and the coupons resolved for the checkout. Category rules name a
+ * category slug and cover its whole subtree; where subtrees nest, the rule of
+ * the nearest category wins. The plan is compiled at startup, so a bad rule
+ * fails the boot, and is tagged with the category tree version it was resolved
+ * against; it is compiled again on first use once the category snapshot has
+ * moved to another version.
+ */
 @Service
 public class CheckoutPricingService {
 
-    private static final BigDecimal TAX_RATE = new BigDecimal("0.21");
-    private static final BigDecimal SHIPPING_FEE = new BigDecimal("5.99");
+    private static final Logger logger = LoggerFactory.getLogger(CheckoutPricingService.class);
+    private static final String ANY_CATEGORY = "*";
 
-    public BigDecimal calculateTotal(List<CartDetail> cartDetails, String couponCode, BigDecimal couponAmount) {
-        BigDecimal subtotal = cartDetails.stream()
-                .map(cd -> cd.getProduct().getPrice().multiply(BigDecimal.valueOf(cd.getQuantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    private final CategoryService categoryService;
+    private final BigDecimal defaultTaxRate;
+    private final List<String[]> categoryTaxRates;
+    private final List<String[]> shippingTiers;
+    private final List<String[]> lineDiscounts;
 
-        PriceCalculator calculator = new BasePriceCalculator(subtotal);
-        if (couponCode != null && !couponCode.isBlank()) {
-            calculator = new CouponDiscountDecorator(calculator, couponAmount);
+    private volatile VersionedPlan plan;
+
+    @Autowired
+    public CheckoutPricingService(CategoryService categoryService,
+            @Value("${pricing.tax.default-rate:0.21}") BigDecimal defaultTaxRate,
+            @Value("${pricing.tax.category-rates:}") String categoryTaxRates,
+            @Value("${pricing.shipping.tiers:0:5.99}") String shippingTiers,
+            @Value("${pricing.line-discounts:}") String lineDiscounts) {
+        this.categoryService = categoryService;
+        this.defaultTaxRate = defaultTaxRate;
+        this.categoryTaxRates = entries("pricing.tax.category-rates", categoryTaxRates, 2, 2);
+        this.shippingTiers = entries("pricing.shipping.tiers", shippingTiers, 2, 2);
+        this.lineDiscounts = entries("pricing.line-discounts", lineDiscounts, 3, 3);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    public PriceBreakdown price(List<CartDetail> cartDetails, List<PricingCoupon> coupons) {
+        List<PricingLine> lines = new ArrayList<>(cartDetails.size());
+        for (CartDetail detail : cartDetails) {
+            Product product = detail.getProduct();
+            Category category = product.getCategory();
+            Brand brand = product.getBrand();
+            lines.add(PricingLine.of(product.getId(), category != null ? category.getId() : null,
+                    brand != null ? brand.getId() : null, product.getPrice(), detail.getQuantity()));
+        }
+        return currentPlan().evaluate(lines, coupons);
+    }
+
+    public BigDecimal calculateTotal(List<CartDetail> cartDetails, List<PricingCoupon> coupons) {
+        return price(cartDetails, coupons).getTotal();
+    }
+
+    private PricingPlan currentPlan() {
+        VersionedPlan current = plan;
+        if (current == null || current.treeVersion() != categoryService.findTreeVersion()) {
+            return rebuild();
+        }
+        return current.plan();
+    }
+
+    /**
+     * Resolve category slugs against the current tree, compile the rules and
+     * swap the plan in. The plan is tagged with the tree version read before
+     * the first lookup, so a snapshot swapped in during the build is picked up
+     * by the next use.
+     */
+    public synchronized PricingPlan rebuild() {
+        long treeVersion = categoryService.findTreeVersion();
+        PricingRules.Builder rules = PricingRules.builder().defaultTaxRate(defaultTaxRate);
+        for (String[] entry : bySubtreeSize(categoryTaxRates)) {
+            BigDecimal rate = decimal("pricing.tax.category-rates", entry[1]);
+            for (Long categoryId : subtreeIds(entry[0])) {
+                rules.taxRate(categoryId, rate);
+            }
+        }
+        for (String[] entry : shippingTiers) {
+            rules.shippingTier(decimal("pricing.shipping.tiers", entry[0]), decimal("pricing.shipping.tiers", entry[1]));
         }
-        calculator = new TaxDecorator(calculator, TAX_RATE);
-        calculator = new ShippingFeeDecorator(calculator, SHIPPING_FEE);
+        for (String[] entry : lineDiscounts) {
+            int minimumQuantity = Integer.parseInt(entry[1]);
+            BigDecimal percentage = decimal("pricing.line-discounts", entry[2]);
+            if (ANY_CATEGORY.equals(entry[0])) {
+                rules.lineDiscount(null, minimumQuantity, percentage);
+                continue;
+            }
+            for (Long categoryId : subtreeIds(entry[0])) {
+                rules.lineDiscount(categoryId, minimumQuantity, percentage);
+            }
+        }
+        PricingPlan compiled = PricingPlan.compile(rules.build());
+        plan = new VersionedPlan(treeVersion, compiled);
+        return compiled;
+    }
+
+    /**
+     * Category entries ordered from the largest subtree to the smallest, so a
+     * nested category's rule is applied after, and replaces, its ancestor's.
+     */
+    private List<String[]> bySubtreeSize(List<String[]> entries) {
+        List<String[]> ordered = new ArrayList<>(entries);
+        ordered.sort(Comparator.comparingInt((String[] entry) -> subtreeIds(entry[0]).size()).reversed());
+        return ordered;
+    }
+
+    private List<Long> subtreeIds(String slug) {
+        List<Long> ids = categoryService.findSubtreeIds(slug);
+        if (ids.isEmpty()) {
+            logger.warn("Pricing rule for unknown category '{}' applies to nothing", slug);
+        }
+        return ids;
+    }
+
+    /**
+     * Split a {@code a:b,c:d} property into its entries' fields.
+     */
+    private static List<String[]> entries(String property, String value, int minFields, int maxFields) {
+        List<String[]> entries = new ArrayList<>();
+        for (String entry : value.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] fields = entry.trim().split(":");
+            if (fields.length < minFields || fields.length > maxFields) {
+                throw new IllegalArgumentException("Malformed " + property + " entry: " + entry.trim());
+            }
+            for (int i = 0; i < fields.length; i++) {
+                fields[i] = fields[i].trim();
+            }
+            entries.add(fields);
+        }
+        return List.copyOf(entries);
+    }
+
+    private static BigDecimal decimal(String property, String value) {
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed number in " + property + ": " + value, e);
+        }
+    }
 
-        return calculator.calculate();
+    private record VersionedPlan(long treeVersion, PricingPlan plan) {
     }
 }
@@ -0,0 +1,75 @@
+package com.musicshop.service.checkout;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.musicshop.model.outbox.OutboxMessage;
+import com.musicshop.service.outbox.OutboxConsumer;
+import com.musicshop.service.outbox.OutboxService;
+import com.musicshop.service.payment.PaymentGatewayProvider;
+import com.musicshop.service.payment.PaymentResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+
+/**
+ * Refunds payments that were captured for an order which can no longer take
+ * them, e.g. one the pending order sweeper cancelled while its payment was
+ * still running. {@link #enqueue} records the refund in the transaction that
+ * found the order completed, and the dispatcher asks the gateway for it after
+ * commit, retrying a refund the gateway fails or declines.
+ */
+@Service
+public class PaymentRefundOutbox implements OutboxConsumer {
+
+    public static final String TOPIC = "PAYMENT_REFUND";
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentRefundOutbox.class);
+
+    private final OutboxService outboxService;
+    private final PaymentGatewayProvider paymentGatewayProvider;
+    private final ObjectMapper objectMapper;
+
+    public PaymentRefundOutbox(OutboxService outboxService, PaymentGatewayProvider paymentGatewayProvider,
+            ObjectMapper objectMapper) {
+        this.outboxService = outboxService;
+        this.paymentGatewayProvider = paymentGatewayProvider;
+        this.objectMapper = objectMapper;
+    }
+
+    public void enqueue(Long orderId, String paymentMethod, BigDecimal amount, String transactionId) {
+        try {
+            outboxService.publish(TOPIC, orderId, orderId, objectMapper.writeValueAsString(
+                    new Refund(paymentMethod, amount, transactionId)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Refund of payment " + transactionId + " cannot be serialized", e);
+        }
+    }
+
+    @Override
+    public String topic() {
+        return TOPIC;
+    }
+
+    @Override
+    public void consume(OutboxMessage message) {
+        Refund refund;
+        try {
+            refund = objectMapper.readValue(message.getPayload(), Refund.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Outbox message " + message.getId() + " is not a refund", e);
+        }
+        PaymentResult result = paymentGatewayProvider.getGateway(refund.paymentMethod())
+                .refundPayment(refund.transactionId(), refund.amount());
+        if (!result.isSuccess()) {
+            throw new IllegalStateException("Refund of payment " + refund.transactionId() + " for order "
+                    + message.getAggregateId() + " failed: " + result.getMessage());
+        }
+        logger.info("Payment {} for order {} refunded as {}", refund.transactionId(), message.getAggregateId(),
+                result.getTransactionId());
+    }
+
+    record Refund(String paymentMethod, BigDecimal amount, String transactionId) {
+    }
+}
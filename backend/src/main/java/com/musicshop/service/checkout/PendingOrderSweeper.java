@@ -0,0 +1,84 @@
+package com.musicshop.service.checkout;
+
+import com.musicshop.repository.order.OrderRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Cancels orders left PENDING longer than {@code checkout.payment.pending-timeout}:
+ * their payment was never queued, the instance died before paying, or the result
+ * could not be recorded. Each is compensated like a declined payment, so its
+ * stock and coupons go back. Orders whose payment is still queued or running on
+ * this instance are left alone. Metric: {@code checkout.payment.expired}.
+ */
+@Service
+public class PendingOrderSweeper {
+
+    private static final Logger logger = LoggerFactory.getLogger(PendingOrderSweeper.class);
+    private static final int SWEEP_BATCH_SIZE = 500;
+    static final String EXPIRED_REASON = "Payment did not complete in time";
+
+    private final OrderRepository orderRepository;
+    private final CheckoutCompletionService checkoutCompletionService;
+    private final CheckoutPaymentProcessor checkoutPaymentProcessor;
+    private final Duration timeout;
+    private final Counter expired;
+
+    @Autowired
+    public PendingOrderSweeper(OrderRepository orderRepository,
+            CheckoutCompletionService checkoutCompletionService,
+            CheckoutPaymentProcessor checkoutPaymentProcessor,
+            @Value("${checkout.payment.pending-timeout:30m}") Duration timeout,
+            MeterRegistry meterRegistry) {
+        this.orderRepository = orderRepository;
+        this.checkoutCompletionService = checkoutCompletionService;
+        this.checkoutPaymentProcessor = checkoutPaymentProcessor;
+        this.timeout = timeout;
+        this.expired = Counter.builder("checkout.payment.expired")
+                .description("PENDING orders cancelled by the pending-order sweeper")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${checkout.payment.sweep-interval-ms:60000}")
+    public void sweep() {
+        int count = sweep(LocalDateTime.now().minus(timeout));
+        if (count > 0) {
+            logger.warn("PENDING orders cancelled after {}: {}", timeout, count);
+        }
+    }
+
+    /**
+     * Cancel up to one batch of the orders placed before {@code cutoff} that are
+     * still PENDING.
+     */
+    int sweep(LocalDateTime cutoff) {
+        List<Long> orderIds = orderRepository.findPendingIdsPlacedBefore(cutoff,
+                PageRequest.of(0, SWEEP_BATCH_SIZE));
+        int count = 0;
+        for (Long orderId : orderIds) {
+            if (checkoutPaymentProcessor.isInFlight(orderId)) {
+                continue;
+            }
+            try {
+                if (checkoutCompletionService.compensate(orderId, EXPIRED_REASON)) {
+                    count++;
+                }
+            } catch (RuntimeException e) {
+                logger.error("PENDING order {} could not be cancelled", orderId, e);
+            }
+        }
+        expired.increment(count);
+        return count;
+    }
+}
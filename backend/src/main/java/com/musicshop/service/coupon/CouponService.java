@@ -0,0 +1,435 @@
+package com.musicshop.service.coupon;
+
+import com.musicshop.domain.pricing.PricingCoupon;
+import com.musicshop.dto.coupon.CouponDTO;
+import com.musicshop.dto.coupon.CreateCouponRequest;
+import com.musicshop.event.coupon.CouponChangeEvent;
+import com.musicshop.exception.DuplicateResourceException;
+import com.musicshop.exception.ResourceNotFoundException;
+import com.musicshop.mapper.CouponMapper;
+import com.musicshop.model.coupon.Coupon;
+import com.musicshop.model.coupon.CouponRedemption;
+import com.musicshop.repository.brand.BrandRepository;
+import com.musicshop.repository.category.CategoryRepository;
+import com.musicshop.repository.coupon.CouponRedemptionRepository;
+import com.musicshop.repository.coupon.CouponRepository;
+import com.musicshop.service.category.CategoryService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Coupon codes for checkout.
+ *
+ * Codes are looked up in an in-memory snapshot holding each coupon ready for
+ * the pricing plan, with its category scope already expanded to the category's
+ * subtree. It is built at startup and tagged with the coupon version (bumped
+ * after each committed coupon change) and the category tree version it was
+ * built from; it is built again on first use once either has moved on. Only the
+ * per-user cap needs the database, as an indexed count of the user's
+ * redemptions.
+ *
+ * A coupon with a global cap gets a {@link StripedBudget} of the redemptions it
+ * has left, loaded on first redemption, so concurrent checkouts of one hot
+ * coupon take units from different stripes instead of queueing on its row. A
+ * redemption inserts its own row; the coupon's total is counted in memory after
+ * commit and written back every {@code coupon.redemption.flush-interval-ms} as
+ * one relative update per coupon. The cap is exact for one instance; instances
+ * sharing a database each admit up to the stored remainder.
+ */
+@Service
+public class CouponService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CouponService.class);
+
+    private final CouponRepository couponRepository;
+    private final CouponRedemptionRepository redemptionRepository;
+    private final CategoryRepository categoryRepository;
+    private final BrandRepository brandRepository;
+    private final CategoryService categoryService;
+    private final CouponMapper couponMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int stripes;
+
+    private final ConcurrentMap<Long, Redemptions> redemptions = new ConcurrentHashMap<>();
+    private final LongAdder redeemed = new LongAdder();
+    private final LongAdder refused = new LongAdder();
+
+    private final AtomicLong couponVersion = new AtomicLong();
+
+    private volatile CouponSnapshot coupons;
+
+    @Autowired
+    public CouponService(CouponRepository couponRepository,
+            CouponRedemptionRepository redemptionRepository,
+            CategoryRepository categoryRepository,
+            BrandRepository brandRepository,
+            CategoryService categoryService,
+            CouponMapper couponMapper,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${coupon.redemption.stripes:0}") int stripes,
+            MeterRegistry meterRegistry) {
+        this.couponRepository = couponRepository;
+        this.redemptionRepository = redemptionRepository;
+        this.categoryRepository = categoryRepository;
+        this.brandRepository = brandRepository;
+        this.categoryService = categoryService;
+        this.couponMapper = couponMapper;
+        this.eventPublisher = eventPublisher;
+        this.stripes = stripes > 0 ? stripes : Runtime.getRuntime().availableProcessors() * 2;
+        registerMetrics(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @TransactionalEventListener
+    public void onCouponChange(CouponChangeEvent event) {
+        couponVersion.incrementAndGet();
+    }
+
+    @Transactional
+    public CouponDTO createCoupon(CreateCouponRequest request) {
+        String code = normalize(request.getCode());
+        if (couponRepository.existsByCode(code)) {
+            throw new DuplicateResourceException("Coupon code already exists: " + code);
+        }
+        if (request.getValidFrom() != null && request.getValidUntil() != null
+                && !request.getValidUntil().isAfter(request.getValidFrom())) {
+            throw new IllegalArgumentException("Coupon validity must end after it starts");
+        }
+        // Fails on a value the pricing plan cannot represent
+        toPricingCoupon(code, request.getKind(), request.getValue(), request.isStackable(), Set.of(), null);
+
+        Coupon coupon = new Coupon();
+        coupon.setCode(code);
+        coupon.setKind(request.getKind());
+        coupon.setValue(request.getValue());
+        coupon.setStackable(request.isStackable());
+        coupon.setValidFrom(request.getValidFrom());
+        coupon.setValidUntil(request.getValidUntil());
+        coupon.setMaxRedemptions(request.getMaxRedemptions());
+        coupon.setMaxRedemptionsPerUser(request.getMaxRedemptionsPerUser());
+        if (request.getCategoryId() != null) {
+            coupon.setCategory(categoryRepository.findById(request.getCategoryId())
+                    .orElseThrow(() -> new ResourceNotFoundException("Category not found")));
+        }
+        if (request.getBrandId() != null) {
+            coupon.setBrand(brandRepository.findById(request.getBrandId())
+                    .orElseThrow(() -> new ResourceNotFoundException("Brand not found")));
+        }
+        Coupon saved = couponRepository.save(coupon);
+        eventPublisher.publishEvent(new CouponChangeEvent(this, saved.getId()));
+        return couponMapper.toCouponDTO(saved, 0);
+    }
+
+    @Transactional(readOnly = true)
+    public List<CouponDTO> findAll() {
+        List<CouponDTO> result = new ArrayList<>();
+        for (Coupon coupon : couponRepository.findAllWithScope()) {
+            result.add(couponMapper.toCouponDTO(coupon, coupon.getRedemptionCount() + unflushed(coupon.getId())));
+        }
+        return result;
+    }
+
+    /**
+     * Look the codes up for the user's checkout; blank and repeated codes are
+     * skipped.
+     *
+     * @throws IllegalArgumentException if a code is unknown, outside its validity
+     *         window, fully redeemed or used up by the user
+     */
+    public List<PricingCoupon> resolve(Long userId, Collection<String> codes) {
+        if (codes == null || codes.isEmpty()) {
+            return List.of();
+        }
+        Map<String, CouponEntry> current = current();
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, PricingCoupon> resolved = new LinkedHashMap<>();
+        for (String code : codes) {
+            if (code == null || code.isBlank() || resolved.containsKey(normalize(code))) {
+                continue;
+            }
+            CouponEntry entry = entryOf(current, normalize(code));
+            if ((entry.validFrom() != null && now.isBefore(entry.validFrom()))
+                    || (entry.validUntil() != null && !now.isBefore(entry.validUntil()))) {
+                throw new IllegalArgumentException("Coupon " + entry.code() + " is not valid at this time");
+            }
+            if (entry.maxRedemptions() != null && redemptionsOf(entry).budget().remaining() == 0) {
+                throw new IllegalArgumentException("Coupon " + entry.code() + " has been fully redeemed");
+            }
+            if (entry.maxRedemptionsPerUser() != null && userId != null
+                    && redemptionRepository.countByCouponIdAndUserId(entry.id(), userId)
+                            >= entry.maxRedemptionsPerUser()) {
+                throw new IllegalArgumentException("Coupon " + entry.code() + " has already been used");
+            }
+            resolved.put(entry.code(), entry.coupon());
+        }
+        return List.copyOf(resolved.values());
+    }
+
+    /**
+     * Record the coupons as used by the order in the current transaction. Each
+     * capped coupon takes one redemption from its budget, returned if the
+     * transaction rolls back.
+     *
+     * @throws IllegalArgumentException if a capped coupon has none left
+     */
+    public void redeem(Long userId, Long orderId, List<PricingCoupon> applied) {
+        if (applied.isEmpty()) {
+            return;
+        }
+        Map<String, CouponEntry> current = current();
+        for (PricingCoupon coupon : applied) {
+            CouponEntry entry = entryOf(current, coupon.getCode());
+            Redemptions counter = redemptionsOf(entry);
+            if (counter.budget() != null && !counter.budget().take()) {
+                refused.increment();
+                throw new IllegalArgumentException("Coupon " + entry.code() + " has been fully redeemed");
+            }
+            afterCompletion(committed -> {
+                if (committed) {
+                    counter.committed().increment();
+                    redeemed.increment();
+                } else if (counter.budget() != null) {
+                    counter.budget().give(1);
+                }
+            });
+
+            CouponRedemption redemption = new CouponRedemption();
+            redemption.setCouponId(entry.id());
+            redemption.setUserId(userId);
+            redemption.setOrderId(orderId);
+            redemptionRepository.save(redemption);
+        }
+    }
+
+    /**
+     * Give back the coupons used by an order that did not go through. The stored
+     * totals are updated in the current transaction and the budgets after commit.
+     */
+    public void release(Long orderId) {
+        List<Long> couponIds = redemptionRepository.findCouponIdsByOrderId(orderId);
+        if (couponIds.isEmpty()) {
+            return;
+        }
+        redemptionRepository.deleteByOrderId(orderId);
+        SortedMap<Long, Long> credits = new TreeMap<>();
+        for (Long couponId : couponIds) {
+            credits.merge(couponId, 1L, Long::sum);
+        }
+        credits.forEach((couponId, count) -> couponRepository.addRedemptions(couponId, -count));
+        afterCompletion(committed -> {
+            if (committed) {
+                credits.forEach((couponId, count) -> {
+                    Redemptions counter = redemptions.get(couponId);
+                    if (counter != null && counter.budget() != null) {
+                        counter.budget().give(count);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Write counted redemptions back, one relative update per coupon in ID order.
+     * Counts of a failed write-back are written on the next flush.
+     */
+    @Transactional
+    @Scheduled(fixedDelayString = "${coupon.redemption.flush-interval-ms:1000}")
+    public void flush() {
+        SortedMap<Long, Long> deltas = new TreeMap<>();
+        for (Map.Entry<Long, Redemptions> entry : redemptions.entrySet()) {
+            Redemptions counter = entry.getValue();
+            long delta = counter.committed().sum() - counter.flushed().get();
+            if (delta != 0) {
+                counter.flushed().addAndGet(delta);
+                deltas.put(entry.getKey(), delta);
+            }
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+        afterCompletion(committed -> {
+            if (!committed) {
+                deltas.forEach((couponId, delta) -> redemptions.get(couponId).flushed().addAndGet(-delta));
+            }
+        });
+        deltas.forEach(couponRepository::addRedemptions);
+    }
+
+    /**
+     * Load the coupons and expand their category scopes against the current tree,
+     * then swap the snapshot in.
+     */
+    public synchronized Map<String, CouponEntry> rebuild() {
+        // Read before the rules and the tree, so changes made during the build are picked up by the next use
+        long builtCouponVersion = couponVersion.get();
+        long builtTreeVersion = categoryService.findTreeVersion();
+        Map<String, CouponEntry> byCode = new HashMap<>();
+        for (CouponRepository.CouponRule rule : couponRepository.findAllRules()) {
+            Set<Long> categoryIds = Set.of();
+            if (rule.getCategorySlug() != null) {
+                categoryIds = Set.copyOf(categoryService.findSubtreeIds(rule.getCategorySlug()));
+                if (categoryIds.isEmpty()) {
+                    logger.warn("Coupon {} is scoped to missing category '{}'; skipped",
+                            rule.getCode(), rule.getCategorySlug());
+                    continue;
+                }
+            }
+            PricingCoupon coupon = toPricingCoupon(rule.getCode(), rule.getKind(), rule.getValue(),
+                    rule.isStackable(), categoryIds, rule.getBrandId());
+            byCode.put(coupon.getCode(), new CouponEntry(rule.getId(), coupon, rule.getValidFrom(),
+                    rule.getValidUntil(), rule.getMaxRedemptions(), rule.getMaxRedemptionsPerUser()));
+        }
+        Map<String, CouponEntry> snapshot = Map.copyOf(byCode);
+        coupons = new CouponSnapshot(builtCouponVersion, builtTreeVersion, snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Redemptions the coupon has left in this instance, or -1 if it is uncapped or
+     * its budget is not loaded.
+     */
+    long remainingRedemptions(Long couponId) {
+        Redemptions counter = redemptions.get(couponId);
+        return counter != null && counter.budget() != null ? counter.budget().remaining() : -1;
+    }
+
+    private Map<String, CouponEntry> current() {
+        CouponSnapshot current = coupons;
+        if (current == null || current.couponVersion() != couponVersion.get()
+                || current.treeVersion() != categoryService.findTreeVersion()) {
+            return rebuild();
+        }
+        return current.byCode();
+    }
+
+    private static CouponEntry entryOf(Map<String, CouponEntry> current, String code) {
+        CouponEntry entry = current.get(code);
+        if (entry == null) {
+            throw new IllegalArgumentException("Unknown coupon code: " + code);
+        }
+        return entry;
+    }
+
+    private Redemptions redemptionsOf(CouponEntry entry) {
+        Redemptions counter = redemptions.get(entry.id());
+        if (counter != null) {
+            return counter;
+        }
+        return redemptions.computeIfAbsent(entry.id(), id -> {
+            StripedBudget budget = null;
+            if (entry.maxRedemptions() != null) {
+                long stored = couponRepository.findRedemptionCountById(id)
+                        .orElseThrow(() -> new ResourceNotFoundException("Coupon not found"));
+                budget = new StripedBudget(Math.max(0, entry.maxRedemptions() - stored), stripes);
+            }
+            return new Redemptions(budget, new LongAdder(), new AtomicLong());
+        });
+    }
+
+    private long unflushed(Long couponId) {
+        Redemptions counter = redemptions.get(couponId);
+        return counter != null ? counter.committed().sum() - counter.flushed().get() : 0;
+    }
+
+    private long unflushedTotal() {
+        long total = 0;
+        for (Long couponId : redemptions.keySet()) {
+            total += unflushed(couponId);
+        }
+        return total;
+    }
+
+    private static PricingCoupon toPricingCoupon(String code, Coupon.Kind kind, BigDecimal value, boolean stackable,
+            Set<Long> categoryIds, Long brandId) {
+        return kind == Coupon.Kind.PERCENTAGE
+                ? PricingCoupon.percentage(code, value, stackable, categoryIds, brandId)
+                : PricingCoupon.fixedAmount(code, value, stackable, categoryIds, brandId);
+    }
+
+    private static String normalize(String code) {
+        return code.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Run {@code callback} with the outcome once the current transaction completes,
+     * or immediately as committed when there is none.
+     */
+    private static void afterCompletion(Consumer<Boolean> callback) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            callback.accept(true);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                callback.accept(status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    private void registerMetrics(MeterRegistry meterRegistry) {
+        FunctionCounter.builder("coupon.redemptions.redeemed", redeemed, LongAdder::sum)
+                .description("Coupon redemptions committed")
+                .register(meterRegistry);
+        FunctionCounter.builder("coupon.redemptions.refused", refused, LongAdder::sum)
+                .description("Coupon redemptions refused for an exhausted cap")
+                .register(meterRegistry);
+        Gauge.builder("coupon.redemptions.pending", this, CouponService::unflushedTotal)
+                .description("Coupon redemptions counted but not yet written back")
+                .register(meterRegistry);
+    }
+
+    private record CouponSnapshot(long couponVersion, long treeVersion, Map<String, CouponEntry> byCode) {
+    }
+
+    public record CouponEntry(Long id, PricingCoupon coupon, LocalDateTime validFrom, LocalDateTime validUntil,
+            Integer maxRedemptions, Integer maxRedemptionsPerUser) {
+
+        String code() {
+            return coupon.getCode();
+        }
+    }
+
+    /**
+     * Redemptions of one coupon: the budget left under its cap, if any, and the
+     * committed count against what has been written back.
+     */
+    private record Redemptions(StripedBudget budget, LongAdder committed, AtomicLong flushed) {
+    }
+}
@@ -0,0 +1,69 @@
+package com.musicshop.service.coupon;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed number of units split over several counters, so threads taking units
+ * concurrently mostly compare-and-set different cache lines instead of all
+ * retrying on one. A thread starts at its own stripe and moves on to the others
+ * once that is empty; units are never created, so no more are handed out than
+ * the budget started with.
+ *
+ * A take may be refused while a unit is being given back to a stripe it has
+ * already passed; callers treat that like any other exhausted budget.
+ */
+final class StripedBudget {
+
+    // Stripes sit a cache line apart
+    private static final int PADDING = 8;
+
+    private final AtomicLongArray cells;
+    private final int stripes;
+
+    StripedBudget(long units, int stripes) {
+        if (units < 0 || stripes <= 0) {
+            throw new IllegalArgumentException("Units must not be negative and stripes must be positive");
+        }
+        this.stripes = stripes;
+        this.cells = new AtomicLongArray(stripes * PADDING);
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            cells.set(stripe * PADDING, units / stripes + (stripe < units % stripes ? 1 : 0));
+        }
+    }
+
+    /**
+     * Take one unit.
+     *
+     * @return false if every stripe is empty
+     */
+    boolean take() {
+        int home = homeStripe();
+        for (int i = 0; i < stripes; i++) {
+            int cell = ((home + i) % stripes) * PADDING;
+            long current;
+            while ((current = cells.get(cell)) > 0) {
+                if (cells.compareAndSet(cell, current, current - 1)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    void give(long units) {
+        cells.addAndGet(homeStripe() * PADDING, units);
+    }
+
+    long remaining() {
+        long total = 0;
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            total += cells.get(stripe * PADDING);
+        }
+        return total;
+    }
+
+    private int homeStripe() {
+        long mixed = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return (int) ((mixed >>> 32) % stripes);
+    }
+}
@@ -0,0 +1,384 @@
+package com.musicshop.service.inventory;
+
+import com.musicshop.event.product.ProductDeletionEvent;
+import com.musicshop.event.product.ProductStockChangedEvent;
+import com.musicshop.event.product.ProductUpdateEvent;
+import com.musicshop.exception.InsufficientStockException;
+import com.musicshop.exception.ResourceNotFoundException;
+import com.musicshop.model.inventory.StockDebit;
+import com.musicshop.repository.inventory.StockDebitRepository;
+import com.musicshop.repository.product.ProductRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory admission control for product stock taken by carts.
+ *
+ * Each product touched by a cart gets an available-units counter, loaded from
+ * the database on first use and decremented with a compare-and-set, so
+ * concurrent adds of one hot product never wait on its row. A reservation is
+ * held until its transaction completes: on rollback it goes back to the
+ * counter, and one left behind by a lost transaction is released after
+ * {@code inventory.reservation.ttl}.
+ *
+ * The debit itself is journaled as a {@link StockDebit} row in the reserving
+ * transaction, so it commits or rolls back with the cart line. Every
+ * {@code inventory.reservation.flush-interval-ms} the oldest rows are summed per
+ * product, written back as one batch of conditional updates
+ * ({@code quantity_available >= ?}) in product ID order, and deleted in the same
+ * transaction. A rejected debit means the stored stock was lowered behind the
+ * ledger's back; its rows stay journaled and are retried until stock comes back,
+ * and the product's counter is reloaded as stored stock less journaled debits.
+ * Stock returned by carts is written straight through with a relative update.
+ */
+@Service
+public class StockReservationLedger {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationLedger.class);
+    private static final int FLUSH_BATCH_SIZE = 1000;
+
+    private final ProductRepository productRepository;
+    private final StockDebitRepository stockDebitRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+
+    private final ConcurrentMap<Long, AtomicInteger> available = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Reservation> held = new ConcurrentHashMap<>();
+    private final Set<Long> blocked = ConcurrentHashMap.newKeySet();
+    private final AtomicLong blockedUnits = new AtomicLong();
+    private final AtomicLong reservationIds = new AtomicLong();
+    private final LongAdder reserved = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+
+    @Autowired
+    public StockReservationLedger(ProductRepository productRepository,
+            StockDebitRepository stockDebitRepository,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${inventory.reservation.ttl:2m}") Duration ttl,
+            MeterRegistry meterRegistry) {
+        this(productRepository, stockDebitRepository, eventPublisher, ttl, System::nanoTime);
+        registerMetrics(meterRegistry);
+    }
+
+    StockReservationLedger(ProductRepository productRepository, StockDebitRepository stockDebitRepository,
+            ApplicationEventPublisher eventPublisher, Duration ttl, LongSupplier clock) {
+        this.productRepository = productRepository;
+        this.stockDebitRepository = stockDebitRepository;
+        this.eventPublisher = eventPublisher;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+    }
+
+    /**
+     * Take {@code quantity} units of the product for the current transaction and
+     * journal their debit in it. The units are returned on rollback.
+     *
+     * @throws InsufficientStockException if fewer units are available
+     */
+    public void reserve(Long productId, int quantity) {
+        Reservation reservation = hold(productId, quantity);
+        StockDebit debit = new StockDebit();
+        debit.setProductId(productId);
+        debit.setQuantity(quantity);
+        try {
+            stockDebitRepository.save(debit);
+        } catch (RuntimeException e) {
+            // Not yet tied to the transaction, so nothing else would give the units back
+            release(reservation);
+            throw e;
+        }
+        afterCompletion(committed -> {
+            if (committed) {
+                confirm(reservation);
+            } else {
+                release(reservation);
+            }
+        });
+    }
+
+    /**
+     * Give {@code quantity} units back to the product, e.g. when a cart line is
+     * removed. The stored stock is updated in the current transaction and the
+     * counter after commit.
+     */
+    public void restock(Long productId, int quantity) {
+        restock(Map.of(productId, quantity));
+    }
+
+    /**
+     * Give units back to several products with one relative update each, taken in
+     * product ID order so concurrent restocks cannot deadlock.
+     */
+    public void restock(Map<Long, Integer> quantities) {
+        SortedMap<Long, Integer> credits = new TreeMap<>();
+        quantities.forEach((productId, quantity) -> {
+            if (quantity > 0) {
+                credits.put(productId, quantity);
+            }
+        });
+        if (credits.isEmpty()) {
+            return;
+        }
+        credits.forEach(productRepository::restock);
+        eventPublisher.publishEvent(new ProductStockChangedEvent(this, List.copyOf(credits.keySet())));
+        afterCompletion(committed -> {
+            if (committed) {
+                credits.forEach((productId, quantity) -> {
+                    AtomicInteger stock = available.get(productId);
+                    if (stock != null) {
+                        stock.addAndGet(quantity);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Write the oldest journaled debits back in one batch and delete them. Rows
+     * locked by a concurrent write-back are skipped, and the rows of a rejected
+     * debit are kept for the next run.
+     */
+    @Transactional
+    @Scheduled(fixedDelayString = "${inventory.reservation.flush-interval-ms:200}")
+    public void flush() {
+        List<StockDebitRepository.Debit> rows = stockDebitRepository.findOldestForUpdate(
+                PageRequest.of(0, FLUSH_BATCH_SIZE));
+        if (rows.isEmpty()) {
+            return;
+        }
+        SortedMap<Long, Integer> debits = new TreeMap<>();
+        for (StockDebitRepository.Debit row : rows) {
+            debits.merge(row.getProductId(), row.getQuantity(), Integer::sum);
+        }
+
+        Set<Long> rejectedIds = productRepository.debitStock(debits);
+        Set<Long> kept = new HashSet<>();
+        long keptUnits = 0;
+        for (Long productId : rejectedIds) {
+            available.remove(productId);
+            if (!productRepository.existsById(productId)) {
+                // Nothing left to debit
+                continue;
+            }
+            kept.add(productId);
+            keptUnits += debits.get(productId);
+            conflicts.increment();
+            if (blocked.add(productId)) {
+                logger.warn("Stock write-back of {} units rejected for product {}; kept for retry, counter reloaded",
+                        debits.get(productId), productId);
+            }
+        }
+        blockedUnits.set(keptUnits);
+
+        List<Long> settled = new ArrayList<>();
+        for (StockDebitRepository.Debit row : rows) {
+            if (!kept.contains(row.getProductId())) {
+                settled.add(row.getId());
+            }
+        }
+        stockDebitRepository.deleteByIdIn(settled);
+
+        List<Long> written = new ArrayList<>(debits.keySet());
+        written.removeAll(rejectedIds);
+        if (!written.isEmpty()) {
+            for (Long productId : written) {
+                if (blocked.remove(productId)) {
+                    logger.info("Held-back stock write-back applied for product {}", productId);
+                }
+            }
+            eventPublisher.publishEvent(new ProductStockChangedEvent(this, written));
+        }
+    }
+
+    /**
+     * Release reservations held longer than the TTL.
+     */
+    @Scheduled(fixedDelayString = "${inventory.reservation.expiry-interval-ms:30000}")
+    public void expireReservations() {
+        int count = expireReservations(clock.getAsLong());
+        if (count > 0) {
+            logger.info("Stock reservations expired: {}", count);
+        }
+    }
+
+    @TransactionalEventListener
+    public void onProductUpdate(ProductUpdateEvent event) {
+        available.remove(event.getUpdatedProduct().getId());
+    }
+
+    @TransactionalEventListener
+    public void onProductDeletion(ProductDeletionEvent event) {
+        available.remove(event.getDeletedProduct().getId());
+    }
+
+    Reservation hold(Long productId, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        AtomicInteger stock = stockOf(productId);
+        int current;
+        do {
+            current = stock.get();
+            if (current < quantity) {
+                rejected.increment();
+                throw new InsufficientStockException("Not enough quantity available");
+            }
+        } while (!stock.compareAndSet(current, current - quantity));
+
+        Reservation reservation = new Reservation(reservationIds.incrementAndGet(), productId, quantity,
+                clock.getAsLong() + ttlNanos);
+        held.put(reservation.id(), reservation);
+        reserved.increment();
+        return reservation;
+    }
+
+    void confirm(Reservation reservation) {
+        if (held.remove(reservation.id()) == null) {
+            // Expired and released meanwhile, but its cart line did commit: take the units again
+            AtomicInteger stock = available.get(reservation.productId());
+            if (stock != null) {
+                stock.addAndGet(-reservation.quantity());
+            }
+        }
+    }
+
+    void release(Reservation reservation) {
+        if (held.remove(reservation.id()) != null) {
+            AtomicInteger stock = available.get(reservation.productId());
+            if (stock != null) {
+                stock.addAndGet(reservation.quantity());
+            }
+        }
+    }
+
+    int expireReservations(long now) {
+        int count = 0;
+        for (Reservation reservation : held.values()) {
+            if (reservation.expiresAt() - now <= 0 && held.remove(reservation.id(), reservation)) {
+                AtomicInteger stock = available.get(reservation.productId());
+                if (stock != null) {
+                    stock.addAndGet(reservation.quantity());
+                }
+                count++;
+            }
+        }
+        expired.add(count);
+        return count;
+    }
+
+    /**
+     * Units the ledger will currently admit for the product, or -1 if its counter
+     * is not loaded.
+     */
+    int availableUnits(Long productId) {
+        AtomicInteger stock = available.get(productId);
+        return stock != null ? stock.get() : -1;
+    }
+
+    int pendingUnits(Long productId) {
+        return stockDebitRepository.sumQuantityByProductId(productId);
+    }
+
+    private AtomicInteger stockOf(Long productId) {
+        AtomicInteger stock = available.get(productId);
+        if (stock != null) {
+            return stock;
+        }
+        return available.computeIfAbsent(productId, id -> {
+            long stored = productRepository.findQuantityLessPendingDebitsById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
+            return new AtomicInteger(Math.toIntExact(stored - heldUnits(id)));
+        });
+    }
+
+    private int heldUnits(Long productId) {
+        int units = 0;
+        for (Reservation reservation : held.values()) {
+            if (reservation.productId().equals(productId)) {
+                units += reservation.quantity();
+            }
+        }
+        return units;
+    }
+
+    /**
+     * Run {@code callback} with the outcome once the current transaction completes,
+     * or immediately as committed when there is none.
+     */
+    private static void afterCompletion(Consumer<Boolean> callback) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            callback.accept(true);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                callback.accept(status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    private long heldCount() {
+        return held.size();
+    }
+
+    private long blockedTotal() {
+        return blockedUnits.get();
+    }
+
+    private void registerMetrics(MeterRegistry meterRegistry) {
+        FunctionCounter.builder("inventory.reservations.reserved", reserved, LongAdder::sum)
+                .description("Stock reservations taken")
+                .register(meterRegistry);
+        FunctionCounter.builder("inventory.reservations.rejected", rejected, LongAdder::sum)
+                .description("Stock reservations refused for insufficient stock")
+                .register(meterRegistry);
+        FunctionCounter.builder("inventory.reservations.expired", expired, LongAdder::sum)
+                .description("Stock reservations released after the TTL")
+                .register(meterRegistry);
+        FunctionCounter.builder("inventory.writeback.conflicts", conflicts, LongAdder::sum)
+                .description("Stock write-backs rejected by the database")
+                .register(meterRegistry);
+        Gauge.builder("inventory.reservations.held", this, StockReservationLedger::heldCount)
+                .description("Stock reservations awaiting their transaction")
+                .register(meterRegistry);
+        Gauge.builder("inventory.writeback.blocked", this, StockReservationLedger::blockedTotal)
+                .description("Units of rejected write-backs kept for retry by the last flush")
+                .register(meterRegistry);
+    }
+
+    record Reservation(long id, Long productId, int quantity, long expiresAt) {
+    }
+}
@@ -0,0 +1,55 @@
+package com.musicshop.service.notification;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.musicshop.model.outbox.OutboxMessage;
+import com.musicshop.model.user.Notification;
+import com.musicshop.service.outbox.OutboxConsumer;
+import com.musicshop.service.outbox.OutboxService;
+import org.springframework.stereotype.Service;
+
+/**
+ * Pushes saved notifications to {@link NotificationBroker} through the outbox:
+ * {@link #enqueue} records the push in the transaction that saved the
+ * notification, and the dispatcher delivers it after commit, in order per user.
+ * The message carries the notification itself, so delivery reads nothing back.
+ */
+@Service
+public class NotificationOutbox implements OutboxConsumer {
+
+    public static final String TOPIC = "NOTIFICATION";
+
+    private final OutboxService outboxService;
+    private final NotificationBroker notificationBroker;
+    private final ObjectMapper objectMapper;
+
+    public NotificationOutbox(OutboxService outboxService, NotificationBroker notificationBroker,
+            ObjectMapper objectMapper) {
+        this.outboxService = outboxService;
+        this.notificationBroker = notificationBroker;
+        this.objectMapper = objectMapper;
+    }
+
+    public void enqueue(Long userId, Notification notification) {
+        try {
+            outboxService.publish(TOPIC, userId, notification.getId(), objectMapper.writeValueAsString(notification));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Notification " + notification.getId() + " cannot be serialized", e);
+        }
+    }
+
+    @Override
+    public String topic() {
+        return TOPIC;
+    }
+
+    @Override
+    public void consume(OutboxMessage message) {
+        try {
+            notificationBroker.sendToUser(message.getPartitionKey(),
+                    objectMapper.readValue(message.getPayload(), Notification.class));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Outbox message " + message.getId() + " is not a notification", e);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.musicshop.service.outbox;
+
+import com.musicshop.model.outbox.OutboxMessage;
+
+/**
+ * Receives the outbox messages of one topic. Delivery is at least once and in
+ * order per partition key; a message whose delivery throws is retried, holding
+ * back the later messages of its key.
+ */
+public interface OutboxConsumer {
+
+    String topic();
+
+    void consume(OutboxMessage message);
+}
@@ -0,0 +1,225 @@
+package com.musicshop.service.outbox;
+
+import com.musicshop.model.outbox.OutboxMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the outbox in ID-ordered batches and hands each message to the
+ * {@link OutboxConsumer} of its topic.
+ *
+ * Every {@code outbox.dispatch-interval-ms} the dispatcher drains the table if
+ * this instance committed messages or has a retry due; otherwise it reads it
+ * only every {@code outbox.poll-interval-ms}, to pick up messages left by
+ * another instance or before a restart. Batches are claimed with a lease (see
+ * {@link OutboxService#claimBatch}), so instances never deliver the same
+ * message concurrently.
+ *
+ * A batch is split by partition key over {@code outbox.workers} threads, so the
+ * messages of one key (a user) are delivered in order while different keys are
+ * delivered in parallel. Delivered messages are deleted in one statement per
+ * batch. A failed delivery holds back the later messages of its key and is
+ * retried after an exponential backoff, from {@code outbox.retry.initial-backoff}
+ * doubling up to {@code outbox.retry.max-backoff}; it is dropped, with an error,
+ * after {@code outbox.max-attempts}.
+ * Metrics: {@code outbox.dispatch.lag}, {@code outbox.dispatch.batch.size},
+ * {@code outbox.dispatch.messages} and {@code outbox.dispatch.failures}.
+ */
+@Service
+public class OutboxDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxDispatcher.class);
+    private static final int DISPATCH_BATCH_SIZE = 500;
+
+    private final OutboxService outboxService;
+    private final Map<String, OutboxConsumer> consumers = new HashMap<>();
+    private final int workerCount;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final long pollIntervalNanos;
+    private final ExecutorService workers;
+    private final Timer lag;
+    private final DistributionSummary batchSize;
+    private final Counter dispatched;
+    private final Counter failures;
+    private volatile long lastPoll = System.nanoTime();
+    private final AtomicLong nextRetry = new AtomicLong(Long.MAX_VALUE);
+
+    @Autowired
+    public OutboxDispatcher(OutboxService outboxService,
+            List<OutboxConsumer> consumers,
+            @Value("${outbox.workers:4}") int workerCount,
+            @Value("${outbox.max-attempts:10}") int maxAttempts,
+            @Value("${outbox.retry.initial-backoff:1s}") Duration initialBackoff,
+            @Value("${outbox.retry.max-backoff:5m}") Duration maxBackoff,
+            @Value("${outbox.poll-interval-ms:10000}") long pollIntervalMs,
+            MeterRegistry meterRegistry) {
+        this.outboxService = outboxService;
+        for (OutboxConsumer consumer : consumers) {
+            this.consumers.put(consumer.topic(), consumer);
+        }
+        this.workerCount = workerCount;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.pollIntervalNanos = TimeUnit.MILLISECONDS.toNanos(pollIntervalMs);
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerCount,
+                runnable -> new Thread(runnable, "outbox-dispatch-" + threads.incrementAndGet()));
+        this.lag = Timer.builder("outbox.dispatch.lag")
+                .description("Time from an outbox message's commit to its delivery")
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("outbox.dispatch.batch.size")
+                .description("Outbox messages read per dispatch batch")
+                .register(meterRegistry);
+        this.dispatched = Counter.builder("outbox.dispatch.messages")
+                .description("Outbox messages delivered")
+                .register(meterRegistry);
+        this.failures = Counter.builder("outbox.dispatch.failures")
+                .description("Outbox deliveries that threw")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.dispatch-interval-ms:200}")
+    public void dispatch() {
+        long now = System.nanoTime();
+        boolean committed = outboxService.takeCommitted();
+        long retryAt = nextRetry.get();
+        boolean retryDue = retryAt != Long.MAX_VALUE && now - retryAt >= 0;
+        if (!committed && !retryDue && now - lastPoll < pollIntervalNanos) {
+            return;
+        }
+        lastPoll = now;
+        if (retryDue) {
+            nextRetry.compareAndSet(retryAt, Long.MAX_VALUE);
+        }
+        drain();
+    }
+
+    /**
+     * Claim and deliver batches until the outbox has nothing due.
+     */
+    void drain() {
+        List<OutboxMessage> batch;
+        int completed;
+        do {
+            batch = outboxService.claimBatch(DISPATCH_BATCH_SIZE);
+            if (batch.isEmpty()) {
+                return;
+            }
+            batchSize.record(batch.size());
+            completed = dispatchBatch(batch);
+        } while (batch.size() == DISPATCH_BATCH_SIZE && completed > 0);
+    }
+
+    private int dispatchBatch(List<OutboxMessage> batch) {
+        List<List<OutboxMessage>> partitions = new ArrayList<>();
+        for (int i = 0; i < workerCount; i++) {
+            partitions.add(new ArrayList<>());
+        }
+        for (OutboxMessage message : batch) {
+            partitions.get(Math.floorMod(Long.hashCode(message.getPartitionKey()), workerCount)).add(message);
+        }
+        List<Callable<List<Long>>> tasks = new ArrayList<>();
+        for (List<OutboxMessage> partition : partitions) {
+            if (!partition.isEmpty()) {
+                tasks.add(() -> deliver(partition));
+            }
+        }
+
+        List<Long> completed = new ArrayList<>();
+        try {
+            for (Future<List<Long>> result : workers.invokeAll(tasks)) {
+                completed.addAll(result.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.error("Outbox dispatch worker failed", e.getCause());
+        }
+        outboxService.acknowledge(completed);
+        return completed.size();
+    }
+
+    /**
+     * Deliver one partition in ID order and return the IDs that are done with:
+     * delivered, or dropped after too many attempts.
+     */
+    private List<Long> deliver(List<OutboxMessage> messages) {
+        List<Long> completed = new ArrayList<>();
+        Set<Long> blockedKeys = new HashSet<>();
+        for (OutboxMessage message : messages) {
+            if (blockedKeys.contains(message.getPartitionKey())) {
+                continue;
+            }
+            try {
+                OutboxConsumer consumer = consumers.get(message.getTopic());
+                if (consumer == null) {
+                    throw new IllegalStateException("No outbox consumer for topic " + message.getTopic());
+                }
+                consumer.consume(message);
+                completed.add(message.getId());
+                dispatched.increment();
+                lag.record(Duration.between(message.getCreatedAt(), LocalDateTime.now()));
+            } catch (RuntimeException e) {
+                failures.increment();
+                blockedKeys.add(message.getPartitionKey());
+                if (message.getAttempts() + 1 >= maxAttempts) {
+                    logger.error("Outbox message {} ({}) dropped after {} attempts", message.getId(),
+                            message.getTopic(), maxAttempts, e);
+                    completed.add(message.getId());
+                } else {
+                    Duration backoff = backoff(message.getAttempts());
+                    logger.warn("Outbox message {} ({}) failed, will retry in {}: {}", message.getId(),
+                            message.getTopic(), backoff, e.getMessage());
+                    outboxService.recordFailure(message.getId(), LocalDateTime.now().plus(backoff));
+                    scheduleRetry(backoff);
+                }
+            }
+        }
+        return completed;
+    }
+
+    Duration backoff(int attempts) {
+        Duration backoff = initialBackoff.multipliedBy(1L << Math.min(attempts, 30));
+        return backoff.compareTo(maxBackoff) < 0 ? backoff : maxBackoff;
+    }
+
+    private void scheduleRetry(Duration backoff) {
+        long retryAt = System.nanoTime() + backoff.toNanos();
+        nextRetry.accumulateAndGet(retryAt, (current, next) ->
+                current == Long.MAX_VALUE || next - current < 0 ? next : current);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdown();
+    }
+}
@@ -0,0 +1,97 @@
+package com.musicshop.service.outbox;
+
+import com.musicshop.model.outbox.OutboxMessage;
+import com.musicshop.repository.outbox.OutboxMessageRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+@Service
+public class OutboxService {
+
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final Duration lease;
+    private final AtomicBoolean committed = new AtomicBoolean();
+
+    public OutboxService(OutboxMessageRepository outboxMessageRepository,
+            @Value("${outbox.lease:2m}") Duration lease) {
+        this.outboxMessageRepository = outboxMessageRepository;
+        this.lease = lease;
+    }
+
+    /**
+     * Record a message in the current transaction, so it is dispatched if and
+     * only if the business change it describes commits.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(String topic, Long partitionKey, Long aggregateId, String payload) {
+        OutboxMessage message = new OutboxMessage();
+        message.setTopic(topic);
+        message.setPartitionKey(partitionKey);
+        message.setAggregateId(aggregateId);
+        message.setPayload(payload);
+        outboxMessageRepository.save(message);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                committed.set(true);
+            }
+        });
+    }
+
+    /**
+     * Whether messages were committed by this instance since the last call.
+     */
+    public boolean takeCommitted() {
+        return committed.getAndSet(false);
+    }
+
+    /**
+     * Claim up to {@code limit} messages for this dispatcher, in ID order: the due
+     * head of each partition key this transaction could lock, followed by the
+     * key's later messages. The claimed messages are leased for
+     * {@code outbox.lease}, so other dispatchers skip them until they are
+     * acknowledged, retried or the lease runs out.
+     */
+    @Transactional
+    public List<OutboxMessage> claimBatch(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxMessage> heads = outboxMessageRepository.findDueHeadsForUpdate(now, PageRequest.of(0, limit));
+        if (heads.isEmpty()) {
+            return heads;
+        }
+        List<OutboxMessage> batch = outboxMessageRepository.findByPartitionKeyIn(
+                heads.stream().map(OutboxMessage::getPartitionKey).collect(Collectors.toSet()),
+                PageRequest.of(0, limit));
+        outboxMessageRepository.updateAvailableAt(batch.stream().map(OutboxMessage::getId).toList(),
+                now.plus(lease));
+        return batch;
+    }
+
+    @Transactional
+    public void acknowledge(Collection<Long> ids) {
+        if (!ids.isEmpty()) {
+            outboxMessageRepository.deleteByIdIn(ids);
+        }
+    }
+
+    /**
+     * Count a failed delivery and hold the message, and with it the later
+     * messages of its key, back until {@code retryAt}.
+     */
+    @Transactional
+    public void recordFailure(Long id, LocalDateTime retryAt) {
+        outboxMessageRepository.recordFailedAttempt(id, retryAt);
+    }
+}
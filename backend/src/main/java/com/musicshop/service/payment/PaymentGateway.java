@@ -1,7 +1,11 @@
 package com.musicshop.service.payment;
 
+import java.math.BigDecimal;
+
 public interface PaymentGateway {
     boolean supports(String paymentMethod);
 
     PaymentResult processPayment(PaymentRequest request);
+
+    PaymentResult refundPayment(String transactionId, BigDecimal amount);
 }
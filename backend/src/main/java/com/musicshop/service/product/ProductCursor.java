@@ -0,0 +1,62 @@
+package com.musicshop.service.product;
+
+import com.musicshop.model.product.Product;
+import com.musicshop.model.product.ProductSortType;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor for product listings: the sort key of the last row
+ * returned plus its ID as a tie-breaker.
+ *
+ * Only the fields used by the cursor's sort type are populated; the token is
+ * bound to that sort type so it cannot be replayed against another ordering.
+ */
+public record ProductCursor(
+        ProductSortType sortType,
+        BigDecimal price,
+        LocalDateTime createdAt,
+        double recommendedScore,
+        Long id) {
+
+    private static final String VERSION = "v2";
+    private static final String SEPARATOR = "|";
+
+    public static ProductCursor of(ProductSortType sortType, Product last) {
+        return new ProductCursor(sortType, last.getPrice(), last.getCreatedAt(), last.getRecommendedScore(),
+                last.getId());
+    }
+
+    public String encode() {
+        String key = switch (sortType) {
+            case PRICE_ASC, PRICE_DESC -> price.toPlainString();
+            case NEWEST -> createdAt.toString();
+            case RECOMMENDED -> Double.toString(recommendedScore);
+        };
+        String raw = String.join(SEPARATOR, VERSION, sortType.name(), key, id.toString());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ProductCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 4 || !VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            ProductSortType sortType = ProductSortType.valueOf(parts[1]);
+            Long id = Long.valueOf(parts[parts.length - 1]);
+            return switch (sortType) {
+                case PRICE_ASC, PRICE_DESC -> new ProductCursor(sortType, new BigDecimal(parts[2]), null, 0, id);
+                case NEWEST -> new ProductCursor(sortType, null, LocalDateTime.parse(parts[2]), 0, id);
+                case RECOMMENDED -> new ProductCursor(sortType, null, null, Double.parseDouble(parts[2]), id);
+            };
+        } catch (IllegalArgumentException | DateTimeParseException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.musicshop.service.product;
+
+import com.musicshop.dto.product.DetailedProductDTO;
+import com.musicshop.event.product.ProductDeletionEvent;
+import com.musicshop.event.product.ProductDiscountEvent;
+import com.musicshop.event.product.ProductImagesChangedEvent;
+import com.musicshop.event.product.ProductStockChangedEvent;
+import com.musicshop.event.product.ProductUpdateEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded, TTL-evicting cache of {@link DetailedProductDTO} by product ID.
+ *
+ * Entries are evicted least-recently-used once {@code maxSize} is reached, and
+ * are dropped after commit of any product update, discount, deletion, image
+ * change or stock movement. A load that races with an invalidation is returned
+ * but not cached, so a reader that started before a commit cannot re-populate
+ * the old state.
+ */
+@Service
+public class ProductDetailCache {
+
+    private final boolean enabled;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+
+    private final Map<Long, Entry> entries;
+    private final AtomicLong invalidations = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Autowired
+    public ProductDetailCache(
+            @Value("${product.detail-cache.enabled:true}") boolean enabled,
+            @Value("${product.detail-cache.max-size:10000}") int maxSize,
+            @Value("${product.detail-cache.ttl:10m}") Duration ttl,
+            MeterRegistry meterRegistry) {
+        this(enabled, maxSize, ttl, System::nanoTime);
+        registerMetrics(meterRegistry);
+    }
+
+    ProductDetailCache(boolean enabled, int maxSize, Duration ttl, LongSupplier clock) {
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                if (size() > ProductDetailCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Return the cached detail for {@code productId}, loading and caching it on a
+     * miss. Absent products are not cached.
+     */
+    public Optional<DetailedProductDTO> get(Long productId,
+            Function<Long, Optional<DetailedProductDTO>> loader) {
+        if (!enabled) {
+            return loader.apply(productId);
+        }
+
+        long now = clock.getAsLong();
+        synchronized (entries) {
+            Entry entry = entries.get(productId);
+            if (entry != null) {
+                if (now - entry.loadedAt() < ttlNanos) {
+                    hits.increment();
+                    return Optional.of(entry.value());
+                }
+                entries.remove(productId);
+                evictions.increment();
+            }
+        }
+
+        misses.increment();
+        long generation = invalidations.get();
+        Optional<DetailedProductDTO> loaded = loader.apply(productId);
+        loaded.ifPresent(value -> {
+            synchronized (entries) {
+                if (invalidations.get() == generation) {
+                    entries.put(productId, new Entry(value, now));
+                }
+            }
+        });
+        return loaded;
+    }
+
+    public void invalidate(Long productId) {
+        synchronized (entries) {
+            invalidations.incrementAndGet();
+            entries.remove(productId);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            invalidations.incrementAndGet();
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    @TransactionalEventListener
+    public void onProductUpdate(ProductUpdateEvent event) {
+        invalidate(event.getUpdatedProduct().getId());
+    }
+
+    @TransactionalEventListener
+    public void onProductDiscount(ProductDiscountEvent event) {
+        invalidate(event.getDiscountedProduct().getId());
+    }
+
+    @TransactionalEventListener
+    public void onProductDeletion(ProductDeletionEvent event) {
+        invalidate(event.getDeletedProduct().getId());
+    }
+
+    @TransactionalEventListener
+    public void onProductImagesChanged(ProductImagesChangedEvent event) {
+        invalidate(event.getProductId());
+    }
+
+    @TransactionalEventListener
+    public void onProductStockChanged(ProductStockChangedEvent event) {
+        event.getProductIds().forEach(this::invalidate);
+    }
+
+    private void registerMetrics(MeterRegistry meterRegistry) {
+        FunctionCounter.builder("product.detail.cache.hits", this, ProductDetailCache::hitCount)
+                .description("Product detail cache hits")
+                .register(meterRegistry);
+        FunctionCounter.builder("product.detail.cache.misses", this, ProductDetailCache::missCount)
+                .description("Product detail cache misses")
+                .register(meterRegistry);
+        FunctionCounter.builder("product.detail.cache.evictions", this, ProductDetailCache::evictionCount)
+                .description("Product detail cache entries evicted by size or TTL")
+                .register(meterRegistry);
+        Gauge.builder("product.detail.cache.size", this, ProductDetailCache::size)
+                .description("Product detail cache entries")
+                .register(meterRegistry);
+    }
+
+    private record Entry(DetailedProductDTO value, long loadedAt) {
+    }
+}
@@ -0,0 +1,199 @@
+package com.musicshop.service.product;
+
+import com.musicshop.event.order.OrderConfirmedEvent;
+import com.musicshop.event.product.ProductCreationEvent;
+import com.musicshop.event.product.ProductRankingChangedEvent;
+import com.musicshop.event.product.ProductStockChangedEvent;
+import com.musicshop.event.product.ProductUpdateEvent;
+import com.musicshop.event.review.ReviewCreatedEvent;
+import com.musicshop.repository.order.OrderDetailRepository;
+import com.musicshop.repository.product.ProductRepository;
+import com.musicshop.repository.review.ReviewRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains {@code Product.recommendedScore}, the key of the RECOMMENDED sort.
+ *
+ * The score blends promotion, a smoothed average rating, units sold in the
+ * recent sales window, a recency decay and an out-of-stock penalty. It is
+ * recomputed for the affected products after commit of review creation, order
+ * confirmation, stock movements and product writes, and for the whole catalog
+ * on startup and nightly (so recency keeps decaying). Only changed scores are
+ * written, and a {@link ProductRankingChangedEvent} is published for them.
+ */
+@Service
+public class ProductRankingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductRankingService.class);
+    private static final int REFRESH_BATCH_SIZE = 500;
+
+    static final double PROMOTION_WEIGHT = 3.0;
+    static final double RATING_WEIGHT = 2.0;
+    static final double SALES_WEIGHT = 1.0;
+    static final double RECENCY_WEIGHT = 1.5;
+    /** Larger than any reachable in-stock score, so sold-out products always sort last. */
+    static final double OUT_OF_STOCK_PENALTY = 100.0;
+    /** Pseudo-reviews at the neutral rating, so one 5-star review cannot top the list. */
+    static final double RATING_PRIOR_COUNT = 2.0;
+    static final double RATING_PRIOR_MEAN = 3.0;
+    static final double RECENCY_HALF_LIFE_DAYS = 30.0;
+    private static final double SCORE_EPSILON = 1e-9;
+
+    private final ProductRepository productRepository;
+    private final ReviewRepository reviewRepository;
+    private final OrderDetailRepository orderDetailRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Duration salesWindow;
+
+    @Autowired
+    public ProductRankingService(ProductRepository productRepository,
+            ReviewRepository reviewRepository,
+            OrderDetailRepository orderDetailRepository,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${product.ranking.sales-window:30d}") Duration salesWindow) {
+        this.productRepository = productRepository;
+        this.reviewRepository = reviewRepository;
+        this.orderDetailRepository = orderDetailRepository;
+        this.eventPublisher = eventPublisher;
+        this.salesWindow = salesWindow;
+    }
+
+    /**
+     * Recompute the scores of the given products, writing only those that changed.
+     */
+    @Transactional
+    public void refreshScores(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        List<Long> changed = refreshBatch(productIds, LocalDateTime.now());
+        if (!changed.isEmpty()) {
+            eventPublisher.publishEvent(new ProductRankingChangedEvent(this, changed));
+        }
+    }
+
+    /**
+     * Recompute every product's score in ID-ordered batches.
+     */
+    @Transactional
+    @Scheduled(cron = "${product.ranking.refresh-cron:0 30 3 * * *}")
+    public void refreshAllScores() {
+        long start = System.currentTimeMillis();
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> changed = new ArrayList<>();
+        Long lastId = 0L;
+        List<Long> batch;
+        do {
+            batch = productRepository.findIdBatch(lastId, PageRequest.of(0, REFRESH_BATCH_SIZE));
+            if (!batch.isEmpty()) {
+                changed.addAll(refreshBatch(batch, now));
+                lastId = batch.get(batch.size() - 1);
+            }
+        } while (batch.size() == REFRESH_BATCH_SIZE);
+
+        if (!changed.isEmpty()) {
+            eventPublisher.publishEvent(new ProductRankingChangedEvent(this, changed));
+        }
+        logger.info("Recommended scores refreshed: {} changed in {} ms",
+                changed.size(), System.currentTimeMillis() - start);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void onApplicationReady() {
+        refreshAllScores();
+    }
+
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onReviewCreated(ReviewCreatedEvent event) {
+        refreshScores(List.of(event.getProductId()));
+    }
+
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onOrderConfirmed(OrderConfirmedEvent event) {
+        refreshScores(event.getProductIds());
+    }
+
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onProductStockChanged(ProductStockChangedEvent event) {
+        refreshScores(event.getProductIds());
+    }
+
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onProductCreation(ProductCreationEvent event) {
+        refreshScores(List.of(event.getCreatedProduct().getId()));
+    }
+
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onProductUpdate(ProductUpdateEvent event) {
+        refreshScores(List.of(event.getUpdatedProduct().getId()));
+    }
+
+    private List<Long> refreshBatch(Collection<Long> productIds, LocalDateTime now) {
+        Map<Long, ReviewRepository.ProductRatingSummary> ratings = new HashMap<>();
+        for (ReviewRepository.ProductRatingSummary summary : reviewRepository.summarizeRatingsByProductIdIn(productIds)) {
+            ratings.put(summary.getProductId(), summary);
+        }
+        Map<Long, Long> unitsSold = new HashMap<>();
+        for (OrderDetailRepository.ProductUnitsSold row
+                : orderDetailRepository.sumUnitsSoldSince(productIds, now.minus(salesWindow))) {
+            unitsSold.put(row.getProductId(), row.getUnitsSold());
+        }
+
+        List<Long> changed = new ArrayList<>();
+        for (ProductRepository.RankingInput input : productRepository.findRankingInputs(productIds)) {
+            ReviewRepository.ProductRatingSummary rating = ratings.get(input.getId());
+            double score = score(
+                    Boolean.TRUE.equals(input.getPromoted()),
+                    rating != null ? rating.getAverageRating() : null,
+                    rating != null ? rating.getReviewCount() : 0,
+                    unitsSold.getOrDefault(input.getId(), 0L),
+                    Duration.between(input.getCreatedAt(), now),
+                    input.getQuantityAvailable() != null && input.getQuantityAvailable() > 0);
+            if (Math.abs(score - input.getRecommendedScore()) > SCORE_EPSILON) {
+                productRepository.updateRecommendedScore(input.getId(), score);
+                changed.add(input.getId());
+            }
+        }
+        return changed;
+    }
+
+    static double score(boolean promoted, Double averageRating, long reviewCount, long recentUnitsSold,
+            Duration age, boolean inStock) {
+        double ratingSum = (averageRating != null ? averageRating * reviewCount : 0)
+                + RATING_PRIOR_MEAN * RATING_PRIOR_COUNT;
+        double smoothedRating = ratingSum / (reviewCount + RATING_PRIOR_COUNT);
+        double ageDays = Math.max(0, age.toHours() / 24.0);
+
+        double score = (promoted ? PROMOTION_WEIGHT : 0)
+                + RATING_WEIGHT * (smoothedRating - 1) / 4
+                + SALES_WEIGHT * Math.log1p(recentUnitsSold)
+                + RECENCY_WEIGHT * Math.pow(0.5, ageDays / RECENCY_HALF_LIFE_DAYS);
+        return inStock ? score : score - OUT_OF_STOCK_PENALTY;
+    }
+}
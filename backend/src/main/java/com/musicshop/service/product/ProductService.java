@@ -3,14 +3,17 @@ package com.musicshop.service.product;
 import com.musicshop.domain.discount.DiscountStrategy;
 import com.musicshop.domain.discount.DiscountStrategyFactory;
 import com.musicshop.domain.discount.DiscountType;
+import com.musicshop.domain.search.SearchText;
 import com.musicshop.exception.ResourceNotFoundException;
 import com.musicshop.exception.ResourceInUseException;
 import com.musicshop.mapper.ProductMapper;
 import com.musicshop.dto.product.ProductUpsertRequest;
 import com.musicshop.dto.product.ProductPatchRequest;
+import com.musicshop.dto.product.ProductSliceDTO;
 import com.musicshop.dto.product.SimpleProductDTO;
 import com.musicshop.dto.product.DetailedProductDTO;
 import com.musicshop.model.product.ProductSortType;
+import com.musicshop.event.product.ProductCreationEvent;
 import com.musicshop.event.product.ProductDeletionEvent;
 import com.musicshop.event.product.ProductDiscountEvent;
 import com.musicshop.model.cart.CartDetail;
@@ -23,9 +26,13 @@ import com.musicshop.repository.order.OrderDetailRepository;
 import com.musicshop.repository.product.ProductRepository;
 import com.musicshop.repository.review.ReviewRepository;
 import com.musicshop.repository.product.specification.ProductSpecification;
+import com.musicshop.service.catalog.CatalogCountService;
+import com.musicshop.service.category.CategoryService;
+import com.musicshop.service.search.ProductSearchService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -36,8 +43,11 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.LongPredicate;
 import java.util.stream.Collectors;
 
 @Service
@@ -52,6 +62,9 @@ public class ProductService {
     private final OrderDetailRepository orderDetailRepository;
     private final ReviewRepository reviewRepository;
     private final ProductMapper productMapper;
+    private final ProductSearchService productSearchService;
+    private final CategoryService categoryService;
+    private final CatalogCountService catalogCountService;
 
     @Autowired
     public ProductService(ProductRepository productRepository, CategoryRepository categoryRepository,
@@ -60,7 +73,10 @@ public class ProductService {
             CartDetailRepository cartDetailRepository,
             OrderDetailRepository orderDetailRepository,
             ReviewRepository reviewRepository,
-            ProductMapper productMapper) {
+            ProductMapper productMapper,
+            ProductSearchService productSearchService,
+            CategoryService categoryService,
+            CatalogCountService catalogCountService) {
         this.productRepository = productRepository;
         this.categoryRepository = categoryRepository;
         this.eventPublisher = eventPublisher;
@@ -69,37 +85,129 @@ public class ProductService {
         this.orderDetailRepository = orderDetailRepository;
         this.reviewRepository = reviewRepository;
         this.productMapper = productMapper;
+        this.productSearchService = productSearchService;
+        this.categoryService = categoryService;
+        this.catalogCountService = catalogCountService;
     }
 
     /**
-     * List products with filtering, sorting, and pagination.
+     * List products with filtering, sorting, and pagination. With {@code fuzzy}
+     * set and a non-blank query, the query tolerates typos and results are ranked
+     * by match quality instead of {@code sort}.
      */
+    public Page<SimpleProductDTO> listProducts(String query, String categorySlug, List<String> brandSlugs,
+            BigDecimal minPrice, BigDecimal maxPrice,
+            String condition,
+            String sort, boolean fuzzy, int page, int size) {
+        if (fuzzy && query != null && !query.isBlank()) {
+            return listFuzzyProducts(query, categorySlug, brandSlugs, minPrice, maxPrice, condition, page, size);
+        }
+        Specification<Product> spec = buildSpecification(query, categorySlug, brandSlugs, minPrice, maxPrice,
+                condition);
 
-    // ... existing imports
+        ProductSortType sortType = ProductSortType.fromValue(sort).orElse(ProductSortType.RECOMMENDED);
+        Sort sorting = resolveSort(sortType);
+        Pageable pageable = PageRequest.of(page, size, sorting);
 
-    public Page<SimpleProductDTO> listProducts(String query, String categorySlug, List<String> brandSlugs,
+        return productRepository.findSimplePage(spec, pageable);
+    }
+
+    /**
+     * Rank the fuzzy matches in memory among the products that pass the remaining
+     * filters (one ID query, skipped without filters), and project only the
+     * requested page. Until the search index is built the query is matched
+     * without typo tolerance, through the database-side token filter.
+     */
+    private Page<SimpleProductDTO> listFuzzyProducts(String query, String categorySlug, List<String> brandSlugs,
+            BigDecimal minPrice, BigDecimal maxPrice, String condition, int page, int size) {
+        boolean filtered = (categorySlug != null && !categorySlug.isBlank())
+                || (brandSlugs != null && !brandSlugs.isEmpty())
+                || minPrice != null || maxPrice != null || condition != null;
+        LongPredicate allowed = productId -> true;
+        if (filtered) {
+            Set<Long> allowedIds = new HashSet<>(productRepository.findIds(
+                    buildSpecification(null, categorySlug, brandSlugs, minPrice, maxPrice, condition)));
+            allowed = allowedIds::contains;
+        }
+
+        Optional<List<Long>> ranked = productSearchService.findFuzzyMatches(query, allowed);
+        if (ranked.isEmpty()) {
+            Specification<Product> spec = buildSpecification(query, categorySlug, brandSlugs, minPrice, maxPrice,
+                    condition);
+            return productRepository.findSimplePage(spec,
+                    PageRequest.of(page, size, resolveSort(ProductSortType.RECOMMENDED)));
+        }
+
+        List<Long> matching = ranked.get();
+        Pageable pageable = PageRequest.of(page, size);
+        int from = (int) Math.min(pageable.getOffset(), matching.size());
+        int to = Math.min(from + size, matching.size());
+        List<SimpleProductDTO> content = productRepository.findSimpleByIds(matching.subList(from, to));
+        return new PageImpl<>(content, pageable, matching.size());
+    }
+
+    /**
+     * Cursor (keyset) variant of {@link #listProducts}: seeks past the row encoded
+     * in {@code cursor} instead of using an offset, and fetches one extra row to
+     * detect the next slice rather than running a count query.
+     */
+    public ProductSliceDTO scrollProducts(String query, String categorySlug, List<String> brandSlugs,
             BigDecimal minPrice, BigDecimal maxPrice,
             String condition,
-            String sort, int page, int size) {
+            String sort, String cursor, int size) {
+        ProductSortType sortType = ProductSortType.fromValue(sort).orElse(ProductSortType.RECOMMENDED);
+        Specification<Product> spec = buildSpecification(query, categorySlug, brandSlugs, minPrice, maxPrice,
+                condition);
+        if (cursor != null && !cursor.isBlank()) {
+            ProductCursor after = ProductCursor.decode(cursor);
+            if (after.sortType() != sortType) {
+                throw new IllegalArgumentException("Cursor does not match sort order: " + sortType.getValue());
+            }
+            spec = spec.and(resolveKeyset(after));
+        }
+
+        List<Product> products = productRepository.findSlice(spec, resolveSeekSort(sortType), size + 1);
+        boolean hasNext = products.size() > size;
+        List<Product> slice = hasNext ? products.subList(0, size) : products;
+        String nextCursor = hasNext
+                ? ProductCursor.of(sortType, slice.get(slice.size() - 1)).encode()
+                : null;
+
+        List<SimpleProductDTO> content = slice.stream()
+                .map(productMapper::toSimpleProductDTO)
+                .toList();
+        return productMapper.toProductSliceDTO(content, content.size(), hasNext, nextCursor);
+    }
+
+    private Specification<Product> buildSpecification(String query, String categorySlug, List<String> brandSlugs,
+            BigDecimal minPrice, BigDecimal maxPrice, String condition) {
         List<ProductCondition> conditions = condition != null
                 ? Arrays.stream(condition.split(","))
                         .map(ProductCondition::valueOf)
                         .collect(Collectors.toList())
                 : Collections.emptyList();
 
-        Specification<Product> spec = Specification.where(ProductSpecification.hasQuery(query))
-                .and(ProductSpecification.hasCategory(categorySlug))
+        return Specification.where(resolveQuery(query))
+                .and(ProductSpecification.hasCategory(categorySlug != null && !categorySlug.isBlank()
+                        ? categoryService.findSubtreeIds(categorySlug)
+                        : null))
                 .and(ProductSpecification.hasBrands(brandSlugs))
                 .and(ProductSpecification.hasMinPrice(minPrice))
                 .and(ProductSpecification.hasMaxPrice(maxPrice))
                 .and(ProductSpecification.hasConditions(conditions));
+    }
 
-        ProductSortType sortType = ProductSortType.fromValue(sort).orElse(ProductSortType.RECOMMENDED);
-        Sort sorting = resolveSort(sortType);
-        Pageable pageable = PageRequest.of(page, size, sorting);
-
-        return productRepository.findAll(spec, pageable)
-                .map(productMapper::toSimpleProductDTO);
+    /**
+     * Resolve the free-text query through the in-memory search index, falling back
+     * to the equivalent token-prefix specification when the index cannot answer.
+     */
+    private Specification<Product> resolveQuery(String query) {
+        if (query == null || query.isBlank()) {
+            return null;
+        }
+        return productSearchService.findCandidateIds(query)
+                .map(ProductSpecification::hasIdIn)
+                .orElseGet(() -> ProductSpecification.hasTokenPrefixes(SearchText.tokenize(query)));
     }
 
     private Sort resolveSort(ProductSortType sortType) {
@@ -112,9 +220,32 @@ public class ProductService {
                 return Sort.by(Sort.Direction.DESC, "createdAt");
             case RECOMMENDED:
             default:
-                return Sort.by(
-                        Sort.Order.desc("isPromoted"),
-                        Sort.Order.desc("createdAt"));
+                return Sort.by(Sort.Direction.DESC, "recommendedScore");
+        }
+    }
+
+    /**
+     * The listing sort with the ID appended as a unique tie-breaker, so that every
+     * row has a distinct position a cursor can seek past.
+     */
+    private Sort resolveSeekSort(ProductSortType sortType) {
+        Sort.Direction idDirection = sortType == ProductSortType.PRICE_ASC
+                ? Sort.Direction.ASC
+                : Sort.Direction.DESC;
+        return resolveSort(sortType).and(Sort.by(idDirection, "id"));
+    }
+
+    private Specification<Product> resolveKeyset(ProductCursor cursor) {
+        switch (cursor.sortType()) {
+            case PRICE_ASC:
+                return ProductSpecification.isAfterPrice(cursor.price(), cursor.id(), true);
+            case PRICE_DESC:
+                return ProductSpecification.isAfterPrice(cursor.price(), cursor.id(), false);
+            case NEWEST:
+                return ProductSpecification.isCreatedBefore(cursor.createdAt(), cursor.id());
+            case RECOMMENDED:
+            default:
+                return ProductSpecification.isAfterRecommended(cursor.recommendedScore(), cursor.id());
         }
     }
 
@@ -137,6 +268,8 @@ public class ProductService {
                 .orElseThrow(() -> new ResourceNotFoundException("Category not found")));
 
         Product savedProduct = productRepository.save(product);
+        catalogCountService.productAdded(savedProduct);
+        eventPublisher.publishEvent(new ProductCreationEvent(this, savedProduct));
         return productMapper.toDetailedProductDTO(savedProduct);
     }
 
@@ -155,6 +288,8 @@ public class ProductService {
     @Transactional
     public Optional<DetailedProductDTO> updateProduct(Long id, ProductUpsertRequest request) {
         return productRepository.findById(id).map(product -> {
+            Long previousCategoryId = categoryIdOf(product);
+            Long previousBrandId = brandIdOf(product);
             product.setName(request.getName());
             product.setDescription(request.getDescription());
             product.setPrice(request.getPrice());
@@ -165,6 +300,7 @@ public class ProductService {
             product.setConditionNotes(request.getConditionNotes());
 
             Product updatedProduct = productRepository.save(product);
+            catalogCountService.productMoved(previousCategoryId, previousBrandId, updatedProduct);
             eventPublisher.publishEvent(new ProductUpdateEvent(this, updatedProduct));
             return productMapper.toDetailedProductDTO(updatedProduct);
         });
@@ -173,14 +309,25 @@ public class ProductService {
     @Transactional
     public Optional<DetailedProductDTO> partialUpdateProduct(Long id, ProductPatchRequest request) {
         return productRepository.findById(id).map(product -> {
+            Long previousCategoryId = categoryIdOf(product);
+            Long previousBrandId = brandIdOf(product);
             applyPartialUpdates(product, request);
 
             Product updatedProduct = productRepository.save(product);
+            catalogCountService.productMoved(previousCategoryId, previousBrandId, updatedProduct);
             eventPublisher.publishEvent(new ProductUpdateEvent(this, updatedProduct));
             return productMapper.toDetailedProductDTO(updatedProduct);
         });
     }
 
+    private static Long categoryIdOf(Product product) {
+        return product.getCategory() != null ? product.getCategory().getId() : null;
+    }
+
+    private static Long brandIdOf(Product product) {
+        return product.getBrand() != null ? product.getBrand().getId() : null;
+    }
+
     private void applyPartialUpdates(Product product, ProductPatchRequest request) {
         if (request.getName() != null) {
             product.setName(request.getName());
@@ -220,6 +367,7 @@ public class ProductService {
             List<CartDetail> cartDetails = cartDetailRepository.findByProductId(id);
             cartDetailRepository.deleteAll(cartDetails);
             productRepository.delete(product);
+            catalogCountService.productRemoved(product);
             eventPublisher.publishEvent(new ProductDeletionEvent(this, product, cartDetails));
         } else {
             throw new ResourceNotFoundException("Product not found");
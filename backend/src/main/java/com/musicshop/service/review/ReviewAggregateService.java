@@ -0,0 +1,127 @@
+package com.musicshop.service.review;
+
+import com.musicshop.model.product.Review;
+import com.musicshop.repository.category.CategoryRepository;
+import com.musicshop.repository.product.ProductRepository;
+import com.musicshop.repository.review.ReviewRepository;
+import com.musicshop.service.category.CategoryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains the rating aggregates (count, sum, 1-5 histogram) embedded in
+ * products and categories.
+ *
+ * Each new review is added to its product and to its category and every
+ * ancestor with relative bulk updates inside the creating transaction, so
+ * averages, counts and histograms are read without scanning reviews. On
+ * startup the aggregates are rebuilt from the reviews table, which also covers
+ * reviews written outside {@link ReviewService} (e.g. seed data).
+ */
+@Service
+public class ReviewAggregateService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReviewAggregateService.class);
+
+    private final ReviewRepository reviewRepository;
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final CategoryService categoryService;
+
+    @Autowired
+    public ReviewAggregateService(ReviewRepository reviewRepository,
+            ProductRepository productRepository,
+            CategoryRepository categoryRepository,
+            CategoryService categoryService) {
+        this.reviewRepository = reviewRepository;
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.categoryService = categoryService;
+    }
+
+    @Transactional
+    public void reviewAdded(Review review) {
+        productRepository.addRating(review.getProduct().getId(), review.getRating());
+        if (review.getCategory() != null) {
+            categoryRepository.addRating(ancestorsOf(review.getCategory().getId()), review.getRating());
+        }
+    }
+
+    /**
+     * Recompute every product and category aggregate from the reviews table.
+     */
+    @Transactional
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+
+        Map<Long, long[]> byProduct = histograms(reviewRepository.countByProductAndRating());
+        productRepository.clearRatings();
+        byProduct.forEach((productId, histogram) -> productRepository.setRatings(productId,
+                countOf(histogram), sumOf(histogram),
+                histogram[0], histogram[1], histogram[2], histogram[3], histogram[4]));
+
+        Map<Long, long[]> byCategory = new HashMap<>();
+        histograms(reviewRepository.countByCategoryAndRating()).forEach((categoryId, histogram) -> {
+            for (Long ancestorId : ancestorsOf(categoryId)) {
+                long[] total = byCategory.computeIfAbsent(ancestorId, id -> new long[5]);
+                for (int star = 0; star < 5; star++) {
+                    total[star] += histogram[star];
+                }
+            }
+        });
+        categoryRepository.clearRatings();
+        byCategory.forEach((categoryId, histogram) -> categoryRepository.setRatings(categoryId,
+                countOf(histogram), sumOf(histogram),
+                histogram[0], histogram[1], histogram[2], histogram[3], histogram[4]));
+
+        logger.info("Review aggregates rebuilt: {} products and {} categories in {} ms",
+                byProduct.size(), byCategory.size(), System.currentTimeMillis() - start);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    private List<Long> ancestorsOf(Long categoryId) {
+        List<Long> ancestors = categoryService.findAncestorIds(categoryId);
+        return ancestors.isEmpty() ? List.of(categoryId) : ancestors;
+    }
+
+    private static Map<Long, long[]> histograms(List<ReviewRepository.RatingBucket> buckets) {
+        Map<Long, long[]> histograms = new HashMap<>();
+        for (ReviewRepository.RatingBucket bucket : buckets) {
+            int rating = bucket.getRating();
+            if (bucket.getGroupId() != null && rating >= 1 && rating <= 5) {
+                histograms.computeIfAbsent(bucket.getGroupId(), id -> new long[5])[rating - 1] += bucket.getReviewCount();
+            }
+        }
+        return histograms;
+    }
+
+    private static long countOf(long[] histogram) {
+        long count = 0;
+        for (long stars : histogram) {
+            count += stars;
+        }
+        return count;
+    }
+
+    private static long sumOf(long[] histogram) {
+        long sum = 0;
+        for (int star = 0; star < 5; star++) {
+            sum += (star + 1) * histogram[star];
+        }
+        return sum;
+    }
+}
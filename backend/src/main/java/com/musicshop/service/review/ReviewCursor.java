@@ -0,0 +1,41 @@
+package com.musicshop.service.review;
+
+import com.musicshop.model.product.Review;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor for a product's review feed: the posting date of the
+ * last review returned plus its ID as a tie-breaker. The token is bound to the
+ * product so it cannot be replayed against another feed.
+ */
+public record ReviewCursor(Long productId, LocalDateTime datePosted, Long id) {
+
+    private static final String VERSION = "v1";
+    private static final String SEPARATOR = "|";
+
+    public static ReviewCursor of(Long productId, Review last) {
+        return new ReviewCursor(productId, last.getDatePosted(), last.getId());
+    }
+
+    public String encode() {
+        String raw = String.join(SEPARATOR, VERSION, productId.toString(), datePosted.toString(), id.toString());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ReviewCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 4 || !VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new ReviewCursor(Long.valueOf(parts[1]), LocalDateTime.parse(parts[2]), Long.valueOf(parts[3]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -1,74 +1,130 @@
 package com.musicshop.service.review;
 
 import com.musicshop.dto.review.CategoryReviewsDTO;
+import com.musicshop.dto.review.ProductReviewsDTO;
+import com.musicshop.event.review.ReviewCreatedEvent;
 
 import com.musicshop.exception.ResourceNotFoundException;
 import com.musicshop.mapper.ReviewMapper;
 import com.musicshop.model.category.Category;
+import com.musicshop.model.product.Product;
 import com.musicshop.model.product.Review;
 import com.musicshop.repository.category.CategoryRepository;
+import com.musicshop.repository.product.ProductRepository;
 import com.musicshop.repository.review.ReviewRepository;
+import com.musicshop.repository.review.specification.ReviewSpecification;
+import com.musicshop.service.category.CategoryService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.ArrayList;
 import java.util.List;
 
 @Service
 @Transactional(readOnly = true)
 public class ReviewService {
 
+    private static final Sort FEED_ORDER = Sort.by(Sort.Direction.DESC, "datePosted", "id");
+
     private final ReviewRepository reviewRepository;
+    private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
+    private final CategoryService categoryService;
+    private final ReviewAggregateService reviewAggregateService;
     private final ReviewMapper reviewMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public ReviewService(ReviewRepository reviewRepository, CategoryRepository categoryRepository,
-            ReviewMapper reviewMapper) {
+    public ReviewService(ReviewRepository reviewRepository, ProductRepository productRepository,
+            CategoryRepository categoryRepository,
+            CategoryService categoryService, ReviewAggregateService reviewAggregateService,
+            ReviewMapper reviewMapper, ApplicationEventPublisher eventPublisher) {
         this.reviewRepository = reviewRepository;
+        this.productRepository = productRepository;
         this.categoryRepository = categoryRepository;
+        this.categoryService = categoryService;
+        this.reviewAggregateService = reviewAggregateService;
         this.reviewMapper = reviewMapper;
+        this.eventPublisher = eventPublisher;
     }
 
     public CategoryReviewsDTO getReviewsByCategory(String categorySlug, int page, int size) {
         Category category = categoryRepository.findBySlug(categorySlug)
                 .orElseThrow(() -> new ResourceNotFoundException("Category not found: " + categorySlug));
 
-        // Collect IDs: current category + all unique subcategory IDs
-        List<Long> categoryIds = new ArrayList<>();
-        categoryIds.add(category.getId());
-        if (category.getSubCategories() != null) {
-            for (Category sub : category.getSubCategories()) {
-                categoryIds.add(sub.getId());
-            }
+        // The category and its whole subtree, at any depth
+        List<Long> categoryIds = categoryService.findSubtreeIds(categorySlug);
+        if (categoryIds.isEmpty()) {
+            categoryIds = List.of(category.getId());
         }
 
-        Page<Review> reviewPage = reviewRepository.findByCategoryIdIn(
+        List<Review> reviews = reviewRepository.findByCategoryIdIn(
                 categoryIds,
                 PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "datePosted")));
 
-        Double avgRating = reviewRepository.findAverageRatingByCategoryIdIn(categoryIds);
-        long totalCount = reviewRepository.countByCategoryIdIn(categoryIds);
-
         return reviewMapper.toCategoryReviewsDTO(
                 category.getCategoryName(),
-                avgRating != null ? Math.round(avgRating * 10.0) / 10.0 : null,
-                totalCount,
-                reviewPage.getContent().stream()
+                category.getRatings(),
+                reviews.stream()
                         .map(reviewMapper::toReviewDTO)
                         .toList());
     }
 
+    /**
+     * One slice of a product's reviews, newest first, seeking past the review
+     * encoded in {@code cursor}. One extra row is fetched to detect the next
+     * slice. The summary block (average, count, histogram) covers all of the
+     * product's reviews regardless of the filters.
+     */
+    public ProductReviewsDTO getProductReviews(Long productId, Integer rating, Boolean verifiedPurchase,
+            String cursor, int size) {
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found: " + productId));
+
+        Specification<Review> spec = Specification.where(ReviewSpecification.forProduct(productId))
+                .and(ReviewSpecification.hasRating(rating))
+                .and(ReviewSpecification.isVerifiedPurchase(verifiedPurchase));
+        if (cursor != null && !cursor.isBlank()) {
+            ReviewCursor after = ReviewCursor.decode(cursor);
+            if (!after.productId().equals(productId)) {
+                throw new IllegalArgumentException("Cursor does not belong to product " + productId);
+            }
+            spec = spec.and(ReviewSpecification.isPostedBefore(after.datePosted(), after.id()));
+        }
+
+        List<Review> reviews = reviewRepository.findSlice(spec, FEED_ORDER, size + 1);
+        boolean hasNext = reviews.size() > size;
+        List<Review> slice = hasNext ? reviews.subList(0, size) : reviews;
+        String nextCursor = hasNext
+                ? ReviewCursor.of(productId, slice.get(slice.size() - 1)).encode()
+                : null;
+
+        return reviewMapper.toProductReviewsDTO(
+                productId,
+                product.getRatings(),
+                slice.stream()
+                        .map(reviewMapper::toReviewDTO)
+                        .toList(),
+                hasNext,
+                nextCursor);
+    }
+
     @Transactional
     public Review createReview(Review review) {
+        if (review.getRating() < 1 || review.getRating() > 5) {
+            throw new IllegalArgumentException("Rating must be between 1 and 5");
+        }
         // Auto-set the category from the product
         if (review.getProduct() != null && review.getProduct().getCategory() != null) {
             review.setCategory(review.getProduct().getCategory());
         }
-        return reviewRepository.save(review);
+        Review saved = reviewRepository.save(review);
+        reviewAggregateService.reviewAdded(saved);
+        eventPublisher.publishEvent(new ReviewCreatedEvent(this, saved.getId(), saved.getProduct().getId()));
+        return saved;
     }
 }
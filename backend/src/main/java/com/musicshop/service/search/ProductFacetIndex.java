@@ -0,0 +1,289 @@
+package com.musicshop.service.search;
+
+import com.musicshop.model.product.ProductCondition;
+
+import java.math.BigDecimal;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory facet index: one bitset (indexed by product ID) per brand slug,
+ * category ID, {@link ProductCondition} and price bucket.
+ *
+ * Category bitsets hold only the products filed directly under the category.
+ * A category filter is given as the IDs of the whole subtree, and category
+ * counts are reported per own category, for the caller to roll up the tree.
+ * Counts are disjunctive: each facet is counted against every active filter
+ * except its own, so the sidebar keeps showing alternatives for a selected
+ * dimension.
+ */
+public class ProductFacetIndex {
+
+    public static final List<BigDecimal> PRICE_BUCKET_BOUNDS = List.of(
+            new BigDecimal("100"),
+            new BigDecimal("250"),
+            new BigDecimal("500"),
+            new BigDecimal("1000"),
+            new BigDecimal("2500"));
+
+    private final BitSet all = new BitSet();
+    private final Map<String, BitSet> byBrand = new HashMap<>();
+    private final Map<Long, BitSet> byCategory = new HashMap<>();
+    private final Map<ProductCondition, BitSet> byCondition = new EnumMap<>(ProductCondition.class);
+    private final BitSet[] byPriceBucket = new BitSet[PRICE_BUCKET_BOUNDS.size() + 1];
+    private final Map<Integer, Document> documents = new HashMap<>();
+    private final Map<String, String> brandNames = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public ProductFacetIndex() {
+        for (ProductCondition condition : ProductCondition.values()) {
+            byCondition.put(condition, new BitSet());
+        }
+        for (int i = 0; i < byPriceBucket.length; i++) {
+            byPriceBucket[i] = new BitSet();
+        }
+    }
+
+    public void put(Document document) {
+        lock.writeLock().lock();
+        try {
+            int bit = bitOf(document.productId());
+            Document previous = documents.put(bit, document);
+            if (previous != null) {
+                clear(bit, previous);
+            }
+            all.set(bit);
+            if (document.brandSlug() != null) {
+                byBrand.computeIfAbsent(document.brandSlug(), key -> new BitSet()).set(bit);
+                brandNames.put(document.brandSlug(), document.brandName());
+            }
+            if (document.categoryId() != null) {
+                byCategory.computeIfAbsent(document.categoryId(), key -> new BitSet()).set(bit);
+            }
+            if (document.condition() != null) {
+                byCondition.get(document.condition()).set(bit);
+            }
+            if (document.price() != null) {
+                byPriceBucket[priceBucketOf(document.price())].set(bit);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            int bit = bitOf(productId);
+            Document previous = documents.remove(bit);
+            if (previous != null) {
+                clear(bit, previous);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Counts count(Filter filter) {
+        lock.readLock().lock();
+        try {
+            BitSet base = (BitSet) all.clone();
+            if (filter.candidateIds() != null) {
+                base.and(toBitSet(filter.candidateIds()));
+            }
+
+            BitSet brandMask = union(byBrand, filter.brandSlugs());
+            BitSet categoryMask = filter.categoryIds() == null ? null : unionOrEmpty(byCategory, filter.categoryIds());
+            BitSet conditionMask = union(byCondition, filter.conditions());
+            BitSet priceMask = priceMask(base, filter.minPrice(), filter.maxPrice());
+
+            BitSet matching = intersect(base, brandMask, categoryMask, conditionMask, priceMask);
+
+            Map<String, Long> brandCounts = new LinkedHashMap<>();
+            BitSet brandScope = intersect(base, categoryMask, conditionMask, priceMask);
+            byBrand.forEach((slug, bits) -> brandCounts.put(slug, andCardinality(brandScope, bits)));
+
+            Map<Long, Long> categoryCounts = new LinkedHashMap<>();
+            BitSet categoryScope = intersect(base, brandMask, conditionMask, priceMask);
+            byCategory.forEach((categoryId, bits) -> categoryCounts.put(categoryId,
+                    andCardinality(categoryScope, bits)));
+
+            Map<ProductCondition, Long> conditionCounts = new EnumMap<>(ProductCondition.class);
+            BitSet conditionScope = intersect(base, brandMask, categoryMask, priceMask);
+            byCondition.forEach((condition, bits) -> conditionCounts.put(condition,
+                    andCardinality(conditionScope, bits)));
+
+            long[] priceBucketCounts = new long[byPriceBucket.length];
+            BitSet priceScope = intersect(base, brandMask, categoryMask, conditionMask);
+            for (int i = 0; i < byPriceBucket.length; i++) {
+                priceBucketCounts[i] = andCardinality(priceScope, byPriceBucket[i]);
+            }
+
+            return new Counts(matching.cardinality(), brandCounts, categoryCounts, conditionCounts,
+                    priceBucketCounts, new HashMap<>(brandNames));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static int priceBucketOf(BigDecimal price) {
+        for (int i = 0; i < PRICE_BUCKET_BOUNDS.size(); i++) {
+            if (price.compareTo(PRICE_BUCKET_BOUNDS.get(i)) < 0) {
+                return i;
+            }
+        }
+        return PRICE_BUCKET_BOUNDS.size();
+    }
+
+    private void clear(int bit, Document document) {
+        all.clear(bit);
+        clearBit(byBrand, document.brandSlug(), bit);
+        clearBit(byCategory, document.categoryId(), bit);
+        if (document.condition() != null) {
+            byCondition.get(document.condition()).clear(bit);
+        }
+        if (document.price() != null) {
+            byPriceBucket[priceBucketOf(document.price())].clear(bit);
+        }
+    }
+
+    private static <K> void clearBit(Map<K, BitSet> bitsets, K key, int bit) {
+        if (key == null) {
+            return;
+        }
+        BitSet bits = bitsets.get(key);
+        if (bits != null) {
+            bits.clear(bit);
+            if (bits.isEmpty()) {
+                bitsets.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Products priced within {@code [minPrice, maxPrice]}. Buckets that lie wholly
+     * inside the range are taken whole and buckets wholly outside are skipped, so
+     * only the products of the (at most two) buckets a bound falls into are
+     * compared one by one.
+     */
+    private BitSet priceMask(BitSet base, BigDecimal minPrice, BigDecimal maxPrice) {
+        if (minPrice == null && maxPrice == null) {
+            return null;
+        }
+        BitSet mask = new BitSet();
+        for (int i = 0; i < byPriceBucket.length; i++) {
+            BigDecimal lower = i == 0 ? null : PRICE_BUCKET_BOUNDS.get(i - 1);
+            BigDecimal upper = i < PRICE_BUCKET_BOUNDS.size() ? PRICE_BUCKET_BOUNDS.get(i) : null;
+            // Bucket i holds prices in [lower, upper)
+            boolean belowRange = minPrice != null && upper != null && upper.compareTo(minPrice) <= 0;
+            boolean aboveRange = maxPrice != null && lower != null && lower.compareTo(maxPrice) > 0;
+            if (belowRange || aboveRange) {
+                continue;
+            }
+            boolean fromMin = minPrice == null || lower != null && lower.compareTo(minPrice) >= 0;
+            boolean toMax = maxPrice == null || upper != null && upper.compareTo(maxPrice) <= 0;
+            if (fromMin && toMax) {
+                mask.or(byPriceBucket[i]);
+                continue;
+            }
+            BitSet boundary = (BitSet) byPriceBucket[i].clone();
+            boundary.and(base);
+            for (int bit = boundary.nextSetBit(0); bit >= 0; bit = boundary.nextSetBit(bit + 1)) {
+                BigDecimal price = documents.get(bit).price();
+                if ((minPrice == null || price.compareTo(minPrice) >= 0)
+                        && (maxPrice == null || price.compareTo(maxPrice) <= 0)) {
+                    mask.set(bit);
+                }
+            }
+        }
+        return mask;
+    }
+
+    private static <K> BitSet union(Map<K, BitSet> bitsets, Collection<K> keys) {
+        if (keys == null || keys.isEmpty()) {
+            return null;
+        }
+        return unionOrEmpty(bitsets, keys);
+    }
+
+    private static <K> BitSet unionOrEmpty(Map<K, BitSet> bitsets, Collection<K> keys) {
+        BitSet union = new BitSet();
+        for (K key : keys) {
+            BitSet bits = bitsets.get(key);
+            if (bits != null) {
+                union.or(bits);
+            }
+        }
+        return union;
+    }
+
+    private static BitSet intersect(BitSet base, BitSet... masks) {
+        BitSet result = (BitSet) base.clone();
+        for (BitSet mask : masks) {
+            if (mask != null) {
+                result.and(mask);
+            }
+        }
+        return result;
+    }
+
+    private static long andCardinality(BitSet scope, BitSet bits) {
+        BitSet result = (BitSet) bits.clone();
+        result.and(scope);
+        return result.cardinality();
+    }
+
+    private static BitSet toBitSet(Set<Long> productIds) {
+        BitSet bits = new BitSet();
+        productIds.forEach(id -> bits.set(bitOf(id)));
+        return bits;
+    }
+
+    private static int bitOf(Long productId) {
+        return Math.toIntExact(productId);
+    }
+
+    public record Document(
+            Long productId,
+            String brandSlug,
+            String brandName,
+            Long categoryId,
+            ProductCondition condition,
+            BigDecimal price) {
+    }
+
+    public record Filter(
+            Set<Long> candidateIds,
+            Collection<Long> categoryIds,
+            List<String> brandSlugs,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            List<ProductCondition> conditions) {
+    }
+
+    public record Counts(
+            long total,
+            Map<String, Long> brands,
+            Map<Long, Long> categories,
+            Map<ProductCondition, Long> conditions,
+            long[] priceBuckets,
+            Map<String, String> brandNames) {
+    }
+}
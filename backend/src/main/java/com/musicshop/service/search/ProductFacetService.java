@@ -0,0 +1,229 @@
+package com.musicshop.service.search;
+
+import com.musicshop.dto.category.CategoryDTO;
+import com.musicshop.dto.product.FacetCountDTO;
+import com.musicshop.dto.product.PriceBucketDTO;
+import com.musicshop.dto.product.ProductFacetsDTO;
+import com.musicshop.event.product.ProductCreationEvent;
+import com.musicshop.event.product.ProductDeletionEvent;
+import com.musicshop.event.product.ProductDiscountEvent;
+import com.musicshop.event.product.ProductUpdateEvent;
+import com.musicshop.exception.ServiceUnavailableException;
+import com.musicshop.mapper.ProductFacetMapper;
+import com.musicshop.model.product.Product;
+import com.musicshop.model.product.ProductCondition;
+import com.musicshop.repository.product.ProductRepository;
+import com.musicshop.service.category.CategoryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Serves filter-sidebar facet counts from an in-memory {@link ProductFacetIndex},
+ * built once the application is ready and maintained from committed product events.
+ * Until both it and the search index are built, requests are refused with
+ * {@link ServiceUnavailableException} rather than building them on the request
+ * thread.
+ *
+ * Category filters and counts go through the category tree snapshot, as the
+ * listing and the denormalized category counters do: a category matches the
+ * products of its whole subtree, and each product counts towards its own
+ * category and every ancestor.
+ */
+@Service
+public class ProductFacetService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductFacetService.class);
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    private static final Comparator<FacetCountDTO> FACET_ORDER = Comparator
+            .comparingLong(FacetCountDTO::getCount).reversed()
+            .thenComparing(FacetCountDTO::getLabel, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final ProductRepository productRepository;
+    private final ProductSearchService productSearchService;
+    private final ProductFacetMapper productFacetMapper;
+    private final CategoryService categoryService;
+
+    private volatile ProductFacetIndex index = new ProductFacetIndex();
+    private volatile boolean ready;
+
+    @Autowired
+    public ProductFacetService(ProductRepository productRepository,
+            ProductSearchService productSearchService,
+            ProductFacetMapper productFacetMapper,
+            CategoryService categoryService) {
+        this.productRepository = productRepository;
+        this.productSearchService = productSearchService;
+        this.productFacetMapper = productFacetMapper;
+        this.categoryService = categoryService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Rebuild all bitsets in ID-ordered batches and swap the index in atomically.
+     */
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        ProductFacetIndex rebuilt = new ProductFacetIndex();
+        Long lastId = 0L;
+        List<Product> batch;
+        do {
+            batch = productRepository.findBatchWithBrandAndCategory(lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+            for (Product product : batch) {
+                rebuilt.put(toDocument(product));
+                lastId = product.getId();
+            }
+        } while (batch.size() == REBUILD_BATCH_SIZE);
+
+        index = rebuilt;
+        ready = true;
+        logger.info("Product facet index built: {} products in {} ms",
+                rebuilt.size(), System.currentTimeMillis() - start);
+    }
+
+    public ProductFacetsDTO getFacets(String query, String categorySlug, List<String> brandSlugs,
+            BigDecimal minPrice, BigDecimal maxPrice, String condition) {
+        if (!ready) {
+            throw notReady();
+        }
+
+        List<ProductCondition> conditions = condition != null
+                ? Arrays.stream(condition.split(","))
+                        .map(ProductCondition::valueOf)
+                        .collect(Collectors.toList())
+                : Collections.emptyList();
+        Set<Long> candidateIds = query == null || query.isBlank()
+                ? null
+                : productSearchService.findAllMatchingIds(query).orElseThrow(ProductFacetService::notReady);
+        Collection<Long> categoryIds = categorySlug == null || categorySlug.isBlank()
+                ? null
+                : categoryService.findSubtreeIds(categorySlug);
+
+        ProductFacetIndex.Counts counts = index.count(new ProductFacetIndex.Filter(
+                candidateIds, categoryIds, brandSlugs, minPrice, maxPrice, conditions));
+        return toProductFacetsDTO(counts);
+    }
+
+    private static ServiceUnavailableException notReady() {
+        return new ServiceUnavailableException("Product facets are not available yet, try again shortly");
+    }
+
+    private ProductFacetsDTO toProductFacetsDTO(ProductFacetIndex.Counts counts) {
+        List<FacetCountDTO> brands = counts.brands().entrySet().stream()
+                .map(entry -> productFacetMapper.toFacetCountDTO(
+                        entry.getKey(), counts.brandNames().get(entry.getKey()), entry.getValue()))
+                .sorted(FACET_ORDER)
+                .toList();
+        List<FacetCountDTO> categories = toCategoryFacets(counts.categories());
+        List<FacetCountDTO> conditions = counts.conditions().entrySet().stream()
+                .map(entry -> productFacetMapper.toFacetCountDTO(
+                        entry.getKey().name(), entry.getKey().name(), entry.getValue()))
+                .toList();
+
+        List<BigDecimal> bounds = ProductFacetIndex.PRICE_BUCKET_BOUNDS;
+        List<PriceBucketDTO> priceBuckets = new ArrayList<>(counts.priceBuckets().length);
+        for (int i = 0; i < counts.priceBuckets().length; i++) {
+            BigDecimal min = i == 0 ? BigDecimal.ZERO : bounds.get(i - 1);
+            BigDecimal max = i < bounds.size() ? bounds.get(i) : null;
+            priceBuckets.add(productFacetMapper.toPriceBucketDTO(min, max, counts.priceBuckets()[i]));
+        }
+
+        return productFacetMapper.toProductFacetsDTO(counts.total(), brands, categories, conditions, priceBuckets);
+    }
+
+    /**
+     * Roll the per-category counts up to every ancestor and label them from the
+     * same snapshot. Categories no longer in the tree are skipped.
+     */
+    private List<FacetCountDTO> toCategoryFacets(Map<Long, Long> ownCounts) {
+        Map<Long, Long> rolledUp = new HashMap<>();
+        ownCounts.forEach((categoryId, count) -> {
+            for (Long ancestorId : categoryService.findAncestorIds(categoryId)) {
+                rolledUp.merge(ancestorId, count, Long::sum);
+            }
+        });
+
+        Map<Long, CategoryDTO> categories = new HashMap<>();
+        Deque<CategoryDTO> pending = new ArrayDeque<>(categoryService.findAllProperties());
+        while (!pending.isEmpty()) {
+            CategoryDTO category = pending.pop();
+            categories.put(category.getId(), category);
+            if (category.getSubCategories() != null) {
+                pending.addAll(category.getSubCategories());
+            }
+        }
+
+        return rolledUp.entrySet().stream()
+                .filter(entry -> categories.containsKey(entry.getKey()))
+                .map(entry -> {
+                    CategoryDTO category = categories.get(entry.getKey());
+                    return productFacetMapper.toFacetCountDTO(
+                            category.getSlug(), category.getName(), entry.getValue());
+                })
+                .sorted(FACET_ORDER)
+                .toList();
+    }
+
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public synchronized void onProductCreation(ProductCreationEvent event) {
+        reindex(event.getCreatedProduct().getId());
+    }
+
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public synchronized void onProductUpdate(ProductUpdateEvent event) {
+        reindex(event.getUpdatedProduct().getId());
+    }
+
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public synchronized void onProductDiscount(ProductDiscountEvent event) {
+        reindex(event.getDiscountedProduct().getId());
+    }
+
+    @TransactionalEventListener
+    public synchronized void onProductDeletion(ProductDeletionEvent event) {
+        index.remove(event.getDeletedProduct().getId());
+    }
+
+    private void reindex(Long productId) {
+        productRepository.findByIdWithBrandAndCategory(productId)
+                .ifPresentOrElse(product -> index.put(toDocument(product)), () -> index.remove(productId));
+    }
+
+    private static ProductFacetIndex.Document toDocument(Product product) {
+        return new ProductFacetIndex.Document(
+                product.getId(),
+                product.getBrand() != null ? product.getBrand().getSlug() : null,
+                product.getBrand() != null ? product.getBrand().getName() : null,
+                product.getCategory() != null ? product.getCategory().getId() : null,
+                product.getCondition(),
+                product.getPrice());
+    }
+}
@@ -0,0 +1,349 @@
+package com.musicshop.service.search;
+
+import com.musicshop.domain.search.SearchText;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongPredicate;
+
+/**
+ * In-memory inverted index from normalized terms to product IDs.
+ *
+ * Terms and query tokens follow the {@link SearchText} rules: every query token is
+ * matched as a prefix of an indexed term, and a product matches when all query
+ * tokens match. For typo-tolerant lookups the term
+ * dictionary is additionally indexed by trigram: candidate terms sharing enough
+ * trigrams with a query token are verified with a bounded edit distance.
+ * Reads are lock-free; writers are expected to be serialized by the owner.
+ */
+public class ProductSearchIndex {
+
+    static final double PREFIX_SCORE = 0.9;
+    static final double EDIT_PENALTY = 0.25;
+    private static final int TERMS_PER_PRODUCT_ESTIMATE = 12;
+    private static final int ID_BITS = 40;
+    private static final long ID_MASK = (1L << ID_BITS) - 1;
+    private static final double SCORE_SCALE = 1000;
+    private static final long MAX_PACKED_SCORE = (1L << (63 - ID_BITS)) - 1;
+
+    private final ConcurrentNavigableMap<String, Set<Long>> postings = new ConcurrentSkipListMap<>();
+    private final Map<Long, Set<String>> termsByProduct = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> termsByTrigram = new ConcurrentHashMap<>();
+
+    /**
+     * (Re)index a product from its searchable fields, replacing any previous terms.
+     */
+    public void index(Long productId, String... fields) {
+        Set<String> terms = new HashSet<>();
+        for (String field : fields) {
+            terms.addAll(tokenize(field));
+        }
+
+        Set<String> previous = termsByProduct.put(productId, terms);
+        if (previous != null) {
+            for (String term : previous) {
+                if (!terms.contains(term)) {
+                    removePosting(term, productId);
+                }
+            }
+        }
+        for (String term : terms) {
+            postings.computeIfAbsent(term, key -> {
+                trigrams(key).forEach(gram -> termsByTrigram
+                        .computeIfAbsent(gram, g -> ConcurrentHashMap.newKeySet())
+                        .add(key));
+                return ConcurrentHashMap.newKeySet();
+            }).add(productId);
+        }
+    }
+
+    public void remove(Long productId) {
+        Set<String> previous = termsByProduct.remove(productId);
+        if (previous != null) {
+            previous.forEach(term -> removePosting(term, productId));
+        }
+    }
+
+    /**
+     * Resolve a free-text query to the IDs of all products matching every token.
+     */
+    public Set<Long> search(String query) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        // Start from the most selective token to keep intersections small
+        List<Set<Long>> matches = new ArrayList<>(tokens.size());
+        for (String token : new LinkedHashSet<>(tokens)) {
+            Set<Long> tokenMatches = prefixMatches(token);
+            if (tokenMatches.isEmpty()) {
+                return Collections.emptySet();
+            }
+            matches.add(tokenMatches);
+        }
+        matches.sort((a, b) -> Integer.compare(a.size(), b.size()));
+
+        Set<Long> result = new HashSet<>(matches.get(0));
+        for (int i = 1; i < matches.size() && !result.isEmpty(); i++) {
+            result.retainAll(matches.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Resolve a query allowing typos, ranked by match quality (best first) and
+     * truncated to {@code limit} IDs.
+     *
+     * Each query token scores a term 1.0 on an exact match, {@value #PREFIX_SCORE}
+     * when it is a prefix of the term, and {@value #EDIT_PENALTY} less per edit
+     * otherwise; a product keeps its best term per token and must match every
+     * token. Ties are broken by ascending ID.
+     */
+    public List<Long> fuzzySearch(String query, int limit) {
+        return fuzzySearch(query, limit, productId -> true);
+    }
+
+    /**
+     * {@link #fuzzySearch(String, int)} over the products accepted by
+     * {@code allowed} only, so the limit applies after filtering.
+     */
+    public List<Long> fuzzySearch(String query, int limit, LongPredicate allowed) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Map<String, Double>> tokenTerms = new ArrayList<>(tokens.size());
+        for (String token : new LinkedHashSet<>(tokens)) {
+            Map<String, Double> termScores = fuzzyTermScores(token);
+            if (termScores.isEmpty()) {
+                return Collections.emptyList();
+            }
+            tokenTerms.add(termScores);
+        }
+        // Expand the most selective token, then narrow by each further token, either
+        // through its postings or by looking up each surviving candidate's terms
+        tokenTerms.sort(Comparator.comparingLong(this::postingCount));
+        Map<Long, Double> scores = new HashMap<>();
+        tokenTerms.get(0).forEach((term, termScore) -> {
+            for (Long productId : postings.getOrDefault(term, Collections.emptySet())) {
+                if (allowed.test(productId)) {
+                    scores.merge(productId, termScore, Math::max);
+                }
+            }
+        });
+        for (int i = 1; i < tokenTerms.size() && !scores.isEmpty(); i++) {
+            Map<String, Double> termScores = tokenTerms.get(i);
+            if ((long) scores.size() * TERMS_PER_PRODUCT_ESTIMATE < postingCount(termScores)) {
+                narrowByCandidateTerms(scores, termScores);
+            } else {
+                narrowByPostings(scores, termScores);
+            }
+        }
+        return topRanked(scores, limit);
+    }
+
+    public int size() {
+        return termsByProduct.size();
+    }
+
+    public int termCount() {
+        return postings.size();
+    }
+
+    public static List<String> tokenize(String text) {
+        return SearchText.tokenize(text);
+    }
+
+    private Set<Long> prefixMatches(String token) {
+        Collection<Set<Long>> hits = postings.subMap(token, true, token + Character.MAX_VALUE, false).values();
+        if (hits.size() == 1) {
+            return hits.iterator().next();
+        }
+        Set<Long> union = new HashSet<>();
+        hits.forEach(union::addAll);
+        return union;
+    }
+
+    /**
+     * Score every indexed term the token could stand for: prefix matches from the
+     * sorted dictionary, plus terms within the token's edit budget found through
+     * shared trigrams.
+     */
+    private Map<String, Double> fuzzyTermScores(String token) {
+        Map<String, Double> termScores = new HashMap<>();
+        for (String term : postings.subMap(token, true, token + Character.MAX_VALUE, false).keySet()) {
+            termScores.put(term, term.equals(token) ? 1.0 : PREFIX_SCORE);
+        }
+
+        int maxEdits = maxEdits(token);
+        if (maxEdits == 0) {
+            return termScores;
+        }
+        Map<String, Integer> sharedTrigrams = new HashMap<>();
+        for (String gram : trigrams(token)) {
+            for (String term : termsByTrigram.getOrDefault(gram, Collections.emptySet())) {
+                if (Math.abs(term.length() - token.length()) <= maxEdits) {
+                    sharedTrigrams.merge(term, 1, Integer::sum);
+                }
+            }
+        }
+        // Each edit changes at most four trigrams of the padded token (a transposition)
+        int minShared = Math.max(1, token.length() - 4 * maxEdits);
+        sharedTrigrams.forEach((term, shared) -> {
+            if (shared >= minShared && !termScores.containsKey(term)) {
+                int distance = boundedEditDistance(token, term, maxEdits);
+                if (distance <= maxEdits) {
+                    termScores.put(term, 1.0 - EDIT_PENALTY * distance);
+                }
+            }
+        });
+        return termScores;
+    }
+
+    private void narrowByCandidateTerms(Map<Long, Double> scores, Map<String, Double> termScores) {
+        scores.entrySet().removeIf(entry -> {
+            double best = 0;
+            for (String term : termsByProduct.getOrDefault(entry.getKey(), Collections.emptySet())) {
+                best = Math.max(best, termScores.getOrDefault(term, 0.0));
+            }
+            entry.setValue(entry.getValue() + best);
+            return best == 0;
+        });
+    }
+
+    private void narrowByPostings(Map<Long, Double> scores, Map<String, Double> termScores) {
+        Map<Long, Double> best = new HashMap<>();
+        termScores.forEach((term, termScore) -> {
+            for (Long productId : postings.getOrDefault(term, Collections.emptySet())) {
+                if (scores.containsKey(productId)) {
+                    best.merge(productId, termScore, Math::max);
+                }
+            }
+        });
+        scores.keySet().retainAll(best.keySet());
+        best.forEach((productId, termScore) -> scores.merge(productId, termScore, Double::sum));
+    }
+
+    /**
+     * Order by descending score, then ascending ID. Scores are quantized and
+     * packed with the ID into one long so the sort runs on primitives.
+     */
+    private static List<Long> topRanked(Map<Long, Double> scores, int limit) {
+        long[] keys = new long[scores.size()];
+        int n = 0;
+        for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+            long rank = MAX_PACKED_SCORE - Math.round(entry.getValue() * SCORE_SCALE);
+            keys[n++] = (rank << ID_BITS) | entry.getKey();
+        }
+        Arrays.sort(keys);
+        List<Long> ranked = new ArrayList<>(Math.min(limit, n));
+        for (int i = 0; i < n && i < limit; i++) {
+            ranked.add(keys[i] & ID_MASK);
+        }
+        return ranked;
+    }
+
+    private long postingCount(Map<String, Double> termScores) {
+        long count = 0;
+        for (String term : termScores.keySet()) {
+            count += postings.getOrDefault(term, Collections.emptySet()).size();
+        }
+        return count;
+    }
+
+    static int maxEdits(String token) {
+        if (token.length() <= 2) {
+            return 0;
+        }
+        return token.length() <= 5 ? 1 : 2;
+    }
+
+    /**
+     * Trigrams of the token padded with a boundary marker, so a token of length n
+     * yields n trigrams and short tokens still produce some.
+     */
+    static List<String> trigrams(String term) {
+        String padded = "$" + term + "$";
+        List<String> grams = new ArrayList<>(Math.max(0, padded.length() - 2));
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    /**
+     * Edit distance counting insertions, deletions, substitutions and adjacent
+     * transpositions ("pual" vs "paul" is one edit), restricted to a diagonal band
+     * of width {@code max}; returns {@code max + 1} as soon as the distance is
+     * known to exceed it.
+     */
+    static int boundedEditDistance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int over = max + 1;
+        int[] beforePrevious = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j <= max ? j : over;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            int from = Math.max(1, i - max);
+            int to = Math.min(b.length(), i + max);
+            current[0] = i <= max ? i : over;
+            if (from > 1) {
+                current[from - 1] = over;
+            }
+            int rowMin = current[0];
+            for (int j = from; j <= to; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, beforePrevious[j - 2] + 1);
+                }
+                current[j] = Math.min(value, over);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (to < b.length()) {
+                current[to + 1] = over;
+            }
+            if (rowMin > max) {
+                return over;
+            }
+            int[] recycled = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[b.length()], over);
+    }
+
+    private void removePosting(String term, Long productId) {
+        postings.computeIfPresent(term, (key, ids) -> {
+            ids.remove(productId);
+            if (ids.isEmpty()) {
+                trigrams(key).forEach(gram -> termsByTrigram.computeIfPresent(gram, (g, terms) -> {
+                    terms.remove(key);
+                    return terms.isEmpty() ? null : terms;
+                }));
+                return null;
+            }
+            return ids;
+        });
+    }
+}
@@ -0,0 +1,139 @@
+package com.musicshop.service.search;
+
+import com.musicshop.event.product.ProductCreationEvent;
+import com.musicshop.event.product.ProductDeletionEvent;
+import com.musicshop.event.product.ProductUpdateEvent;
+import com.musicshop.model.product.Product;
+import com.musicshop.repository.product.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.LongPredicate;
+
+/**
+ * Keeps the {@link ProductSearchIndex} in sync with the catalog and resolves
+ * free-text queries to candidate product IDs.
+ *
+ * The index is built once the application is ready (after seeding) and then
+ * maintained from committed product events.
+ */
+@Service
+public class ProductSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchService.class);
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private final ProductRepository productRepository;
+    private final int maxCandidates;
+
+    private volatile ProductSearchIndex index = new ProductSearchIndex();
+    private volatile boolean ready;
+
+    @Autowired
+    public ProductSearchService(ProductRepository productRepository,
+            @Value("${search.index.max-candidates:5000}") int maxCandidates) {
+        this.productRepository = productRepository;
+        this.maxCandidates = maxCandidates;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Rebuild the whole index in ID-ordered batches and swap it in atomically.
+     */
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        ProductSearchIndex rebuilt = new ProductSearchIndex();
+        Long lastId = 0L;
+        List<Product> batch;
+        do {
+            batch = productRepository.findBatchWithBrandAndCategory(lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+            for (Product product : batch) {
+                indexProduct(rebuilt, product);
+                lastId = product.getId();
+            }
+        } while (batch.size() == REBUILD_BATCH_SIZE);
+
+        index = rebuilt;
+        ready = true;
+        logger.info("Product search index built: {} products, {} terms in {} ms",
+                rebuilt.size(), rebuilt.termCount(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Resolve a query to the set of matching product IDs.
+     *
+     * Returns empty when the index cannot answer (not built yet, or the match set
+     * is too large to pass as an ID predicate), in which case callers should fall
+     * back to the database-side filter.
+     */
+    public Optional<Set<Long>> findCandidateIds(String query) {
+        if (!ready) {
+            return Optional.empty();
+        }
+        Set<Long> candidates = index.search(query);
+        return candidates.size() > maxCandidates ? Optional.empty() : Optional.of(candidates);
+    }
+
+    /**
+     * Resolve a query to every matching product ID, or empty while the index is
+     * not built yet.
+     */
+    public Optional<Set<Long>> findAllMatchingIds(String query) {
+        return ready ? Optional.of(index.search(query)) : Optional.empty();
+    }
+
+    /**
+     * Resolve a query with typo tolerance to at most {@code max-candidates} of the
+     * products accepted by {@code allowed}, best match first, or empty while the
+     * index is not built yet.
+     */
+    public Optional<List<Long>> findFuzzyMatches(String query, LongPredicate allowed) {
+        return ready ? Optional.of(index.fuzzySearch(query, maxCandidates, allowed)) : Optional.empty();
+    }
+
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public synchronized void onProductCreation(ProductCreationEvent event) {
+        reindex(event.getCreatedProduct().getId());
+    }
+
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public synchronized void onProductUpdate(ProductUpdateEvent event) {
+        reindex(event.getUpdatedProduct().getId());
+    }
+
+    @TransactionalEventListener
+    public synchronized void onProductDeletion(ProductDeletionEvent event) {
+        index.remove(event.getDeletedProduct().getId());
+    }
+
+    private void reindex(Long productId) {
+        productRepository.findByIdWithBrandAndCategory(productId)
+                .ifPresentOrElse(product -> indexProduct(index, product), () -> index.remove(productId));
+    }
+
+    private static void indexProduct(ProductSearchIndex target, Product product) {
+        target.index(product.getId(),
+                product.getName(),
+                product.getDescription(),
+                product.getBrand() != null ? product.getBrand().getName() : null,
+                product.getCategory() != null ? product.getCategory().getCategoryName() : null);
+    }
+}
@@ -0,0 +1,199 @@
+package com.musicshop.service.search;
+
+import com.musicshop.dto.search.SuggestionDTO;
+import com.musicshop.event.product.ProductCreationEvent;
+import com.musicshop.event.product.ProductDeletionEvent;
+import com.musicshop.event.product.ProductUpdateEvent;
+import com.musicshop.mapper.SearchMapper;
+import com.musicshop.model.category.Category;
+import com.musicshop.model.product.Product;
+import com.musicshop.repository.order.OrderDetailRepository;
+import com.musicshop.repository.product.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Type-ahead suggestions over product, brand and category names, served from a
+ * {@link SuggestionTrie}.
+ *
+ * Products are weighted by units sold in confirmed orders plus a boost when
+ * promoted; brands and categories by how many products they hold (a parent
+ * category counts the products of its subcategories). The trie is built once
+ * the application is ready and then maintained from committed product events.
+ */
+@Service
+public class SuggestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SuggestionService.class);
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    static final long PROMOTION_BOOST = 50;
+    static final long WEIGHT_PER_PRODUCT = 20;
+
+    private final ProductRepository productRepository;
+    private final OrderDetailRepository orderDetailRepository;
+    private final SearchMapper searchMapper;
+    private final int maxEntries;
+
+    private volatile State state;
+
+    @Autowired
+    public SuggestionService(ProductRepository productRepository,
+            OrderDetailRepository orderDetailRepository,
+            SearchMapper searchMapper,
+            @Value("${search.suggest.max-entries:100000}") int maxEntries) {
+        this.productRepository = productRepository;
+        this.orderDetailRepository = orderDetailRepository;
+        this.searchMapper = searchMapper;
+        this.maxEntries = maxEntries;
+        this.state = new State(new SuggestionTrie(maxEntries), Map.of());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Rebuild the whole trie in ID-ordered batches and swap it in atomically.
+     */
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        Map<Long, Long> unitsSold = new HashMap<>();
+        for (OrderDetailRepository.ProductUnitsSold row : orderDetailRepository.sumUnitsSoldByProduct()) {
+            unitsSold.put(row.getProductId(), row.getUnitsSold());
+        }
+
+        State rebuilt = new State(new SuggestionTrie(maxEntries), unitsSold);
+        Long lastId = 0L;
+        List<Product> batch;
+        do {
+            batch = productRepository.findBatchWithBrandAndCategory(lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+            for (Product product : batch) {
+                rebuilt.put(product);
+                lastId = product.getId();
+            }
+        } while (batch.size() == REBUILD_BATCH_SIZE);
+
+        state = rebuilt;
+        logger.info("Suggestion trie built: {} entries in {} ms",
+                rebuilt.trie.size(), System.currentTimeMillis() - start);
+    }
+
+    public List<SuggestionDTO> suggest(String prefix, int limit) {
+        return state.trie.suggest(prefix, limit).stream()
+                .map(entry -> searchMapper.toSuggestionDTO(entry.kind().name(), entry.text(), entry.slug(),
+                        entry.kind() == SuggestionTrie.Kind.PRODUCT ? Long.valueOf(entry.id()) : null))
+                .toList();
+    }
+
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public synchronized void onProductCreation(ProductCreationEvent event) {
+        reindex(event.getCreatedProduct().getId());
+    }
+
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public synchronized void onProductUpdate(ProductUpdateEvent event) {
+        reindex(event.getUpdatedProduct().getId());
+    }
+
+    @TransactionalEventListener
+    public synchronized void onProductDeletion(ProductDeletionEvent event) {
+        state.remove(event.getDeletedProduct().getId());
+    }
+
+    private void reindex(Long productId) {
+        State current = state;
+        productRepository.findByIdWithBrandAndCategory(productId)
+                .ifPresentOrElse(current::put, () -> current.remove(productId));
+    }
+
+    /**
+     * The trie plus the bookkeeping needed to keep brand and category weights in
+     * step with product changes. Only mutated under the service monitor.
+     */
+    private static final class State {
+        private final SuggestionTrie trie;
+        private final Map<Long, Long> unitsSold;
+        private final Map<Long, ProductRef> products = new HashMap<>();
+        private final Map<String, Group> brands = new HashMap<>();
+        private final Map<String, Group> categories = new HashMap<>();
+
+        private State(SuggestionTrie trie, Map<Long, Long> unitsSold) {
+            this.trie = trie;
+            this.unitsSold = new HashMap<>(unitsSold);
+        }
+
+        private void put(Product product) {
+            remove(product.getId());
+
+            long weight = 1 + unitsSold.getOrDefault(product.getId(), 0L)
+                    + (product.isPromoted() ? PROMOTION_BOOST : 0);
+            if (!trie.put(SuggestionTrie.Kind.PRODUCT, product.getId().toString(),
+                    product.getName(), product.getSlug(), weight)) {
+                logger.warn("Suggestion trie full ({} entries); skipping product {}", trie.size(), product.getId());
+                return;
+            }
+
+            String brandSlug = null;
+            if (product.getBrand() != null) {
+                brandSlug = product.getBrand().getSlug();
+                adjust(brands, SuggestionTrie.Kind.BRAND, brandSlug, product.getBrand().getName(), 1);
+            }
+            List<String> categorySlugs = new ArrayList<>(2);
+            for (Category category = product.getCategory(); category != null; category = category.getParentCategory()) {
+                categorySlugs.add(category.getSlug());
+                adjust(categories, SuggestionTrie.Kind.CATEGORY, category.getSlug(), category.getCategoryName(), 1);
+            }
+            products.put(product.getId(), new ProductRef(brandSlug, categorySlugs));
+        }
+
+        private void remove(Long productId) {
+            ProductRef previous = products.remove(productId);
+            if (previous == null) {
+                return;
+            }
+            trie.remove(SuggestionTrie.Kind.PRODUCT, productId.toString());
+            if (previous.brandSlug() != null) {
+                adjust(brands, SuggestionTrie.Kind.BRAND, previous.brandSlug(), null, -1);
+            }
+            for (String categorySlug : previous.categorySlugs()) {
+                adjust(categories, SuggestionTrie.Kind.CATEGORY, categorySlug, null, -1);
+            }
+        }
+
+        private void adjust(Map<String, Group> groups, SuggestionTrie.Kind kind, String slug, String name, int delta) {
+            Group group = groups.get(slug);
+            int count = (group != null ? group.productCount() : 0) + delta;
+            String label = name != null ? name : group != null ? group.name() : slug;
+            if (count <= 0) {
+                groups.remove(slug);
+                trie.remove(kind, slug);
+                return;
+            }
+            groups.put(slug, new Group(label, count));
+            trie.put(kind, slug, label, slug, count * WEIGHT_PER_PRODUCT);
+        }
+    }
+
+    private record ProductRef(String brandSlug, List<String> categorySlugs) {
+    }
+
+    private record Group(String name, int productCount) {
+    }
+}
@@ -0,0 +1,370 @@
+package com.musicshop.service.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Weighted top-k autocomplete over short names (products, brands, categories).
+ *
+ * A path-compressed trie keyed by normalized text, indexed from each of the
+ * first few word starts so that "strat" also completes "Fender Player
+ * Stratocaster". Every node caches the best {@link #TOP_K} entries of its
+ * subtree, so a lookup costs one walk down the prefix and no subtree scan.
+ * Updates recompute those caches along the touched path only.
+ *
+ * The number of entries is capped to bound heap usage; inserts of new entries
+ * beyond the cap are rejected.
+ */
+public class SuggestionTrie {
+
+    public static final int TOP_K = 10;
+    static final int MAX_WORD_STARTS = 3;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+    private static final Node[] NO_NODES = new Node[0];
+    private static final Comparator<Entry> RANKING = Comparator
+            .comparingLong(Entry::weight).reversed()
+            .thenComparing(Entry::text)
+            .thenComparing(Entry::id);
+
+    private final int maxEntries;
+    private final Node root = new Node("");
+    private final Map<String, Entry> entriesById = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public SuggestionTrie(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Insert or replace an entry. Returns false if the entry is new and the trie
+     * is already at capacity.
+     */
+    public boolean put(Kind kind, String id, String text, String slug, long weight) {
+        String key = kind + ":" + id;
+        lock.writeLock().lock();
+        try {
+            Entry previous = entriesById.get(key);
+            if (previous == null && entriesById.size() >= maxEntries) {
+                return false;
+            }
+            if (previous != null) {
+                removeKeys(previous);
+            }
+            Entry entry = new Entry(kind, id, text, slug, weight);
+            entriesById.put(key, entry);
+            for (String indexKey : keysOf(text)) {
+                insert(indexKey, entry);
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Kind kind, String id) {
+        lock.writeLock().lock();
+        try {
+            Entry previous = entriesById.remove(kind + ":" + id);
+            if (previous != null) {
+                removeKeys(previous);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Entry> suggest(String prefix, int limit) {
+        String normalized = normalize(prefix);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            int i = 0;
+            while (i < normalized.length()) {
+                Node child = node.child(normalized.charAt(i));
+                if (child == null) {
+                    return List.of();
+                }
+                int remaining = normalized.length() - i;
+                if (remaining <= child.edge.length()) {
+                    if (!child.edge.startsWith(normalized.substring(i))) {
+                        return List.of();
+                    }
+                    return head(child.top, limit);
+                }
+                if (!normalized.startsWith(child.edge, i)) {
+                    return List.of();
+                }
+                i += child.edge.length();
+                node = child;
+            }
+            return head(node.top, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entriesById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lowercase, strip diacritics and collapse every run of non-alphanumerics into
+     * a single space.
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String folded = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARATORS.matcher(folded.toLowerCase()).replaceAll(" ").strip();
+    }
+
+    static List<String> keysOf(String text) {
+        String normalized = normalize(text);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        List<String> keys = new ArrayList<>(MAX_WORD_STARTS);
+        keys.add(normalized);
+        int from = 0;
+        while (keys.size() < MAX_WORD_STARTS) {
+            int space = normalized.indexOf(' ', from);
+            if (space < 0) {
+                break;
+            }
+            keys.add(normalized.substring(space + 1));
+            from = space + 1;
+        }
+        return keys;
+    }
+
+    private void removeKeys(Entry entry) {
+        for (String indexKey : keysOf(entry.text())) {
+            delete(indexKey, entry);
+        }
+    }
+
+    private void insert(String key, Entry entry) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int i = 0;
+        while (i < key.length()) {
+            int index = node.indexOf(key.charAt(i));
+            if (index < 0) {
+                Node leaf = new Node(key.substring(i));
+                node.addChild(leaf);
+                node = leaf;
+                path.add(node);
+                break;
+            }
+            Node child = node.children[index];
+            int common = commonPrefixLength(child.edge, key, i);
+            if (common < child.edge.length()) {
+                Node split = new Node(child.edge.substring(0, common));
+                child.edge = child.edge.substring(common);
+                split.children = new Node[] { child };
+                split.top = child.top;
+                node.children[index] = split;
+                child = split;
+            }
+            node = child;
+            path.add(node);
+            i += common;
+        }
+        node.terminals = append(node.terminals, entry);
+        for (Node onPath : path) {
+            onPath.top = offer(onPath.top, entry);
+        }
+    }
+
+    private void delete(String key, Entry entry) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int i = 0;
+        while (i < key.length()) {
+            Node child = node.child(key.charAt(i));
+            if (child == null || !key.startsWith(child.edge, i)) {
+                return;
+            }
+            node = child;
+            path.add(node);
+            i += child.edge.length();
+        }
+        node.terminals = without(node.terminals, entry);
+
+        for (int depth = path.size() - 1; depth > 0; depth--) {
+            Node current = path.get(depth);
+            if (current.terminals.length == 0 && current.children.length == 0) {
+                path.get(depth - 1).removeChild(current);
+                path.remove(depth);
+            } else {
+                break;
+            }
+        }
+        for (int depth = path.size() - 1; depth >= 0; depth--) {
+            Node onPath = path.get(depth);
+            if (contains(onPath.top, entry)) {
+                onPath.top = recomputeTop(onPath);
+            }
+        }
+    }
+
+    /**
+     * Merge an entry into a sorted top-k array, returning a new array (or the
+     * same one if the entry does not make the cut).
+     */
+    private static Entry[] offer(Entry[] top, Entry entry) {
+        if (contains(top, entry)) {
+            return top;
+        }
+        int position = 0;
+        while (position < top.length && RANKING.compare(top[position], entry) <= 0) {
+            position++;
+        }
+        if (position >= TOP_K) {
+            return top;
+        }
+        Entry[] merged = new Entry[Math.min(top.length + 1, TOP_K)];
+        System.arraycopy(top, 0, merged, 0, position);
+        merged[position] = entry;
+        System.arraycopy(top, position, merged, position + 1, merged.length - position - 1);
+        return merged;
+    }
+
+    private static Entry[] recomputeTop(Node node) {
+        Entry[] top = NO_ENTRIES;
+        for (Entry terminal : node.terminals) {
+            top = offer(top, terminal);
+        }
+        for (Node child : node.children) {
+            for (Entry entry : child.top) {
+                top = offer(top, entry);
+            }
+        }
+        return top;
+    }
+
+    private static boolean contains(Entry[] entries, Entry entry) {
+        for (Entry existing : entries) {
+            if (existing == entry) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<Entry> head(Entry[] entries, int limit) {
+        return List.of(Arrays.copyOf(entries, Math.min(limit, entries.length)));
+    }
+
+    private static int commonPrefixLength(String edge, String key, int offset) {
+        int max = Math.min(edge.length(), key.length() - offset);
+        int n = 0;
+        while (n < max && edge.charAt(n) == key.charAt(offset + n)) {
+            n++;
+        }
+        return n;
+    }
+
+    private static Entry[] append(Entry[] entries, Entry entry) {
+        Entry[] result = Arrays.copyOf(entries, entries.length + 1);
+        result[entries.length] = entry;
+        return result;
+    }
+
+    private static Entry[] without(Entry[] entries, Entry entry) {
+        Entry[] result = Arrays.stream(entries).filter(existing -> existing != entry).toArray(Entry[]::new);
+        return result.length == 0 ? NO_ENTRIES : result;
+    }
+
+    public enum Kind {
+        PRODUCT,
+        BRAND,
+        CATEGORY
+    }
+
+    /**
+     * A suggestion. Compared by identity so equal texts from different sources
+     * stay distinct.
+     */
+    public record Entry(Kind kind, String id, String text, String slug, long weight) {
+
+        @Override
+        public boolean equals(Object other) {
+            return this == other;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+
+    private static final class Node {
+        private String edge;
+        private Node[] children = NO_NODES;
+        private Entry[] terminals = NO_ENTRIES;
+        private Entry[] top = NO_ENTRIES;
+
+        private Node(String edge) {
+            this.edge = edge;
+        }
+
+        private int indexOf(char first) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char c = children[mid].edge.charAt(0);
+                if (c < first) {
+                    low = mid + 1;
+                } else if (c > first) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        private Node child(char first) {
+            int index = indexOf(first);
+            return index < 0 ? null : children[index];
+        }
+
+        private void addChild(Node child) {
+            int insertAt = -(indexOf(child.edge.charAt(0)) + 1);
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, insertAt);
+            grown[insertAt] = child;
+            System.arraycopy(children, insertAt, grown, insertAt + 1, children.length - insertAt);
+            children = grown;
+        }
+
+        private void removeChild(Node child) {
+            Node[] remaining = Arrays.stream(children).filter(existing -> existing != child).toArray(Node[]::new);
+            children = remaining.length == 0 ? NO_NODES : remaining;
+        }
+    }
+}
@@ -4,7 +4,7 @@ import com.musicshop.event.product.ProductDeletionEvent;
 import com.musicshop.event.product.ProductDiscountEvent;
 import com.musicshop.dto.user.NotificationDTO;
 import com.musicshop.exception.ResourceNotFoundException;
-import com.musicshop.service.notification.NotificationBroker;
+import com.musicshop.service.notification.NotificationOutbox;
 import com.musicshop.mapper.NotificationMapper;
 import com.musicshop.model.product.Product;
 import com.musicshop.event.product.ProductUpdateEvent;
@@ -15,12 +15,10 @@ import com.musicshop.model.user.User;
 import com.musicshop.repository.cart.CartDetailRepository;
 import com.musicshop.repository.user.NotificationRepository;
 import com.musicshop.repository.user.UserRepository;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
 import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.math.BigDecimal;
@@ -28,15 +26,17 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
+/**
+ * Notifications are written in the transaction of the change they report, with
+ * an outbox message for the push, so a crash after commit cannot lose them.
+ */
 @Service
 public class NotificationService {
 
-    private static final Logger logger = LoggerFactory.getLogger(NotificationService.class);
-
     private final CartDetailRepository cartDetailRepository;
     private final NotificationRepository notificationRepository;
     private final UserRepository userRepository;
-    private final NotificationBroker sseBroker;
+    private final NotificationOutbox notificationOutbox;
     private final NotificationMapper notificationMapper;
 
     @Autowired
@@ -44,17 +44,16 @@ public class NotificationService {
             CartDetailRepository cartDetailRepository,
             NotificationRepository notificationRepository,
             UserRepository userRepository,
-            NotificationBroker sseBroker,
+            NotificationOutbox notificationOutbox,
             NotificationMapper notificationMapper) {
         this.cartDetailRepository = cartDetailRepository;
         this.notificationRepository = notificationRepository;
         this.userRepository = userRepository;
-        this.sseBroker = sseBroker;
+        this.notificationOutbox = notificationOutbox;
         this.notificationMapper = notificationMapper;
     }
 
-    @TransactionalEventListener
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
     public void onProductUpdate(ProductUpdateEvent event) {
         Product updatedProduct = event.getUpdatedProduct();
         List<CartDetail> affectedCartDetails = cartDetailRepository.findByProductId(updatedProduct.getId());
@@ -66,7 +65,7 @@ public class NotificationService {
                     updatedProduct.getName(),
                     updatedProduct.getPrice());
 
-            createAndSendNotification(
+            createNotification(
                     affectedUser,
                     message,
                     NotificationType.PRODUCT_UPDATE,
@@ -74,8 +73,7 @@ public class NotificationService {
         });
     }
 
-    @TransactionalEventListener
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
     public void onProductDeletion(ProductDeletionEvent event) {
         Product deletedProduct = event.getDeletedProduct();
         List<CartDetail> affectedCartDetails = event.getAffectedCartDetails();
@@ -86,7 +84,7 @@ public class NotificationService {
                     "The product '%s' has been removed from your cart (no longer available).",
                     deletedProduct.getName());
 
-            createAndSendNotification(
+            createNotification(
                     affectedUser,
                     message,
                     NotificationType.PRODUCT_UPDATE,
@@ -94,8 +92,7 @@ public class NotificationService {
         });
     }
 
-    @TransactionalEventListener
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
     public void onProductDiscount(ProductDiscountEvent event) {
         Product discountedProduct = event.getDiscountedProduct();
         BigDecimal originalPrice = event.getOriginalPrice();
@@ -111,7 +108,7 @@ public class NotificationService {
                     discountedProduct.getPrice(),
                     savedAmount);
 
-            createAndSendNotification(
+            createNotification(
                     affectedUser,
                     message,
                     NotificationType.PRICE_DROP,
@@ -119,26 +116,22 @@ public class NotificationService {
         });
     }
 
-    private void createAndSendNotification(
+    private void createNotification(
             User user,
             String message,
             NotificationType type,
             Long relatedEntityId) {
 
-        try {
-            Notification notification = new Notification();
-            notification.setTimestamp(LocalDateTime.now());
-            notification.setMessage(message);
-            notification.setType(type);
-            notification.setUser(user);
-            notification.setRelatedEntityId(relatedEntityId);
-            notification.setRead(false);
-
-            Notification saved = notificationRepository.save(notification);
-            sseBroker.sendToUser(user.getId(), saved);
-        } catch (Exception e) {
-            logger.error("Failed to send notification to user {}: {}", user.getId(), e.getMessage());
-        }
+        Notification notification = new Notification();
+        notification.setTimestamp(LocalDateTime.now());
+        notification.setMessage(message);
+        notification.setType(type);
+        notification.setUser(user);
+        notification.setRelatedEntityId(relatedEntityId);
+        notification.setRead(false);
+
+        Notification saved = notificationRepository.save(notification);
+        notificationOutbox.enqueue(user.getId(), saved);
     }
 
     @Transactional(readOnly = true)
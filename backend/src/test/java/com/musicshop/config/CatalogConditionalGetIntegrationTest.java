@@ -0,0 +1,81 @@
+package com.musicshop.config;
+
+import com.musicshop.service.product.ProductService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+class CatalogConditionalGetIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ProductService productService;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void matchingETagIsAnsweredWith304WithoutSql() throws Exception {
+        for (String path : new String[] { "/api/products?sort=newest", "/api/products/facets",
+                "/api/products/1", "/api/categories", "/api/brands" }) {
+            String eTag = mockMvc.perform(get(path))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+            assertThat(eTag).as(path).isNotBlank();
+
+            statistics.clear();
+            mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                    .andExpect(status().isNotModified())
+                    .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                    .andExpect(header().exists(HttpHeaders.CACHE_CONTROL));
+            assertThat(statistics.getPrepareStatementCount()).as(path).isZero();
+        }
+    }
+
+    @Test
+    void cacheControlPolicyDiffersBetweenProductsAndTaxonomy() throws Exception {
+        mockMvc.perform(get("/api/products"))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, public"));
+        mockMvc.perform(get("/api/brands"))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=60, public"));
+    }
+
+    @Test
+    void productMutationChangesTheETag() throws Exception {
+        String eTag = mockMvc.perform(get("/api/products"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        productService.applyDiscount(1L, "percentage");
+
+        String refreshed = mockMvc.perform(get("/api/products").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(refreshed).isNotEqualTo(eTag);
+    }
+}
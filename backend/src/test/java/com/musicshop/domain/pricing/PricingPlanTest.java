@@ -0,0 +1,163 @@
+package com.musicshop.domain.pricing;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PricingPlanTest {
+
+    private static final Long GUITARS = 1L;
+    private static final Long BOOKS = 2L;
+    private static final Long FENDER = 7L;
+
+    private static final PricingCoupon SAVE10 = PricingCoupon.percentage("SAVE10", new BigDecimal("10"), true,
+            Set.of(), null);
+    private static final PricingCoupon FIVE = PricingCoupon.fixedAmount("five", new BigDecimal("5.00"), true,
+            Set.of(), null);
+    private static final PricingCoupon WELCOME = PricingCoupon.fixedAmount("WELCOME", new BigDecimal("15.00"), false,
+            Set.of(), null);
+
+    private final PricingPlan plan = PricingPlan.compile(PricingRules.builder()
+            .defaultTaxRate(new BigDecimal("0.21"))
+            .taxRate(BOOKS, new BigDecimal("0.06"))
+            .shippingTier(BigDecimal.ZERO, new BigDecimal("5.99"))
+            .shippingTier(new BigDecimal("50.00"), new BigDecimal("2.99"))
+            .shippingTier(new BigDecimal("100.00"), BigDecimal.ZERO)
+            .lineDiscount(null, 3, new BigDecimal("5"))
+            .lineDiscount(BOOKS, 5, new BigDecimal("10"))
+            .build());
+
+    @Test
+    void flatRulesPriceLikeTheFormerDecoratorChain() {
+        PricingPlan flat = PricingPlan.compile(PricingRules.builder()
+                .defaultTaxRate(new BigDecimal("0.21"))
+                .shippingTier(BigDecimal.ZERO, new BigDecimal("5.99"))
+                .build());
+        PricingCoupon welcome10 = PricingCoupon.fixedAmount("WELCOME10", new BigDecimal("10.00"), false,
+                Set.of(), null);
+        List<PricingLine> lines = List.of(line(GUITARS, "19.99", 2), line(BOOKS, "5.00", 1));
+
+        // (44.98 - 10.00) + 7.35 tax + 5.99 shipping
+        assertThat(flat.evaluate(lines, List.of(welcome10)).getTotal()).isEqualByComparingTo("48.32");
+        // 44.98 + 9.45 tax + 5.99 shipping
+        assertThat(flat.evaluate(lines, List.of()).getTotal()).isEqualByComparingTo("60.42");
+    }
+
+    @Test
+    void taxesEachCategoryAtItsRateAfterSpreadingTheCoupon() {
+        PriceBreakdown price = plan.evaluate(List.of(line(GUITARS, "100.00", 1), line(BOOKS, "50.00", 1)),
+                List.of(WELCOME));
+
+        assertThat(price.getSubtotal()).isEqualByComparingTo("150.00");
+        assertThat(price.getCouponDiscount()).isEqualByComparingTo("15.00");
+        // 90.00 at 21% and 45.00 at 6%
+        assertThat(price.getTax()).isEqualByComparingTo("21.60");
+        assertThat(price.getShipping()).isEqualByComparingTo("0.00");
+        assertThat(price.getTotal()).isEqualByComparingTo("156.60");
+        assertThat(price.getCouponCodes()).containsExactly("WELCOME");
+    }
+
+    @Test
+    void eachLineTakesTheLargestDiscountItQualifiesFor() {
+        PriceBreakdown price = plan.evaluate(List.of(
+                line(BOOKS, "10.00", 5),
+                line(GUITARS, "10.00", 3),
+                line(BOOKS, "10.00", 2),
+                line(null, "10.00", 4)), List.of());
+
+        assertThat(price.getLineDiscount(0)).isEqualByComparingTo("5.00");
+        assertThat(price.getLineDiscount(1)).isEqualByComparingTo("1.50");
+        assertThat(price.getLineDiscount(2)).isEqualByComparingTo("0.00");
+        assertThat(price.getLineDiscount(3)).isEqualByComparingTo("2.00");
+        assertThat(price.getLineTotal(0)).isEqualByComparingTo("45.00");
+        assertThat(price.getLineDiscount()).isEqualByComparingTo("8.50");
+        assertThat(price.getSubtotal()).isEqualByComparingTo("140.00");
+    }
+
+    @Test
+    void stackableCouponsAddUpAndAreCappedAtTheMerchandiseTotal() {
+        List<PricingLine> lines = List.of(line(GUITARS, "40.00", 1));
+
+        PriceBreakdown stacked = plan.evaluate(lines, List.of(SAVE10, FIVE, SAVE10));
+        assertThat(stacked.getCouponDiscount()).isEqualByComparingTo("9.00");
+        assertThat(stacked.getCouponCodes()).containsExactly("SAVE10", "FIVE");
+
+        PricingPlan generous = PricingPlan.compile(PricingRules.builder()
+                .shippingTier(BigDecimal.ZERO, new BigDecimal("5.99"))
+                .build());
+        PricingCoupon all = PricingCoupon.fixedAmount("ALL", new BigDecimal("500.00"), false, Set.of(), null);
+        PriceBreakdown free = generous.evaluate(lines, List.of(all));
+        assertThat(free.getCouponDiscount()).isEqualByComparingTo("40.00");
+        assertThat(free.getTotal()).isEqualByComparingTo("5.99");
+    }
+
+    @Test
+    void rejectsNonStackableCombinations() {
+        List<PricingLine> lines = List.of(line(GUITARS, "40.00", 1));
+
+        assertThatThrownBy(() -> plan.evaluate(lines, List.of(WELCOME, FIVE)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("WELCOME");
+        assertThat(plan.evaluate(lines, List.of(WELCOME, WELCOME)).getCouponDiscount())
+                .isEqualByComparingTo("15.00");
+    }
+
+    @Test
+    void scopedCouponsOnlyDiscountTheLinesTheyApplyTo() {
+        PricingCoupon books = PricingCoupon.percentage("BOOKS20", new BigDecimal("20"), true, Set.of(BOOKS), null);
+        PricingCoupon fender = PricingCoupon.fixedAmount("FENDER", new BigDecimal("500.00"), true, Set.of(), FENDER);
+        List<PricingLine> lines = List.of(
+                new PricingLine(1L, GUITARS, FENDER, 6000, 1),
+                new PricingLine(2L, GUITARS, null, 4000, 1),
+                new PricingLine(3L, BOOKS, null, 2500, 2));
+
+        PriceBreakdown price = plan.evaluate(lines, List.of(books, fender));
+
+        // 20% of the 50.00 of books, and the Fender line's 60.00 at most
+        assertThat(price.getCouponDiscount()).isEqualByComparingTo("70.00");
+        // 40.00 at 21% and 40.00 at 6%
+        assertThat(price.getTax()).isEqualByComparingTo("10.80");
+        assertThat(price.getCouponCodes()).containsExactly("BOOKS20", "FENDER");
+
+        assertThatThrownBy(() -> plan.evaluate(List.of(line(GUITARS, "10.00", 1)), List.of(books)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("BOOKS20");
+    }
+
+    @Test
+    void shipsByTheDiscountedMerchandiseTotalAndNothingForAnEmptyCart() {
+        assertThat(plan.evaluate(List.of(line(GUITARS, "49.99", 1)), null).getShipping())
+                .isEqualByComparingTo("5.99");
+        assertThat(plan.evaluate(List.of(line(GUITARS, "50.00", 1)), null).getShipping())
+                .isEqualByComparingTo("2.99");
+        assertThat(plan.evaluate(List.of(line(GUITARS, "104.00", 1)), List.of(FIVE)).getShipping())
+                .isEqualByComparingTo("2.99");
+
+        PriceBreakdown empty = plan.evaluate(List.of(), List.of());
+        assertThat(empty.getTotal()).isEqualByComparingTo("0.00");
+        assertThat(empty.getShipping()).isEqualByComparingTo("0.00");
+    }
+
+    @Test
+    void compileRejectsRulesItCannotRepresent() {
+        assertThatThrownBy(() -> PricingPlan.compile(PricingRules.builder()
+                .defaultTaxRate(new BigDecimal("0.21125")).build()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> PricingPlan.compile(PricingRules.builder()
+                .shippingTier(BigDecimal.ZERO, new BigDecimal("-1.00")).build()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> PricingCoupon.percentage("A", new BigDecimal("101"), true, Set.of(), null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> PricingCoupon.fixedAmount(" ", BigDecimal.ONE, true, Set.of(), null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static PricingLine line(Long categoryId, String unitPrice, int quantity) {
+        return PricingLine.of(null, categoryId, null, new BigDecimal(unitPrice), quantity);
+    }
+}
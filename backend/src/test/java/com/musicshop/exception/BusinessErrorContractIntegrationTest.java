@@ -72,7 +72,7 @@ class BusinessErrorContractIntegrationTest {
     @WithMockUser(username = "buyer@example.com", roles = "USER")
     void checkoutCartEmpty_isCanonical() throws Exception {
         doThrow(new CartEmptyException("Cart is empty"))
-                .when(checkoutUseCase).checkout(eq("buyer@example.com"), any(CheckoutRequest.class));
+                .when(checkoutUseCase).checkout(eq("buyer@example.com"), any(), any(CheckoutRequest.class));
 
         mockMvc.perform(post("/api/orders/checkout")
                         .principal(authPrincipal())
@@ -87,7 +87,7 @@ class BusinessErrorContractIntegrationTest {
     @WithMockUser(username = "buyer@example.com", roles = "USER")
     void checkoutPaymentFailed_isCanonical() throws Exception {
         doThrow(new PaymentFailedException("Payment failed: card declined"))
-                .when(checkoutUseCase).checkout(eq("buyer@example.com"), any(CheckoutRequest.class));
+                .when(checkoutUseCase).checkout(eq("buyer@example.com"), any(), any(CheckoutRequest.class));
 
         mockMvc.perform(post("/api/orders/checkout")
                         .principal(authPrincipal())
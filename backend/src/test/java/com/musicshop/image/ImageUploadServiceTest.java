@@ -13,6 +13,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.nio.file.Files;
@@ -20,6 +21,7 @@ import java.nio.file.Path;
 import java.util.List;
 import java.util.Optional;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -33,6 +35,9 @@ class ImageUploadServiceTest {
     @Mock
     private ProductImageRepository productImageRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private ImageUploadService imageUploadService;
 
@@ -94,5 +99,6 @@ class ImageUploadServiceTest {
         assertTrue(savedFirst.getDisplayOrder() == 0);
         assertTrue(!savedSecond.isPrimary());
         assertTrue(savedSecond.getDisplayOrder() == 1);
+        assertEquals("/uploads/next.png", product.getThumbnailUrl());
     }
 }
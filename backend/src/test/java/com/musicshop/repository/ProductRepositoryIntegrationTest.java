@@ -0,0 +1,140 @@
+package com.musicshop.repository;
+
+import com.musicshop.dto.product.SimpleProductDTO;
+import com.musicshop.model.brand.Brand;
+import com.musicshop.model.category.Category;
+import com.musicshop.model.product.Product;
+import com.musicshop.model.product.ProductCondition;
+import com.musicshop.model.product.ProductImage;
+import com.musicshop.repository.product.ProductRepository;
+import com.musicshop.repository.product.specification.ProductSpecification;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ExtendWith(OutputCaptureExtension.class)
+class ProductRepositoryIntegrationTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        Category category = new Category();
+        category.setCategoryName("Guitars");
+        category.setSlug("guitars");
+        entityManager.persist(category);
+
+        Brand brand = new Brand();
+        brand.setName("Fender");
+        brand.setSlug("fender");
+        entityManager.persist(brand);
+
+        for (int i = 1; i <= 12; i++) {
+            persistProduct("Guitar " + i, "guitar-" + i, BigDecimal.valueOf(100L * i), category, brand);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void findPage_loadsPageWithAssociationsInBoundedStatements(CapturedOutput output) {
+        Page<Product> page = productRepository.findPage(null,
+                PageRequest.of(1, 5, Sort.by(Sort.Direction.ASC, "price")));
+
+        assertThat(page.getTotalElements()).isEqualTo(12);
+        assertThat(page.getContent()).extracting(Product::getName)
+                .containsExactly("Guitar 6", "Guitar 7", "Guitar 8", "Guitar 9", "Guitar 10");
+        page.getContent().forEach(product -> {
+            assertThat(product.getBrand().getName()).isEqualTo("Fender");
+            assertThat(product.getCategory().getCategoryName()).isEqualTo("Guitars");
+            assertThat(product.getImages()).hasSize(2);
+        });
+
+        // ID page, count, then one fetch-joined load for the page
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+        assertThat(output).doesNotContain("HHH000104");
+    }
+
+    @Test
+    void findPage_skipsCountOnPartialLastPage(CapturedOutput output) {
+        Specification<Product> spec = Specification.where(ProductSpecification.hasBrands(List.of("fender")))
+                .and(ProductSpecification.hasMinPrice(BigDecimal.valueOf(100)));
+
+        Page<Product> page = productRepository.findPage(spec,
+                PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "createdAt")));
+
+        assertThat(page.getContent()).hasSize(12);
+        assertThat(page.getContent()).allSatisfy(product -> assertThat(product.getImages()).hasSize(2));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(output).doesNotContain("HHH000104");
+    }
+
+    @Test
+    void findSimplePage_projectsListingRowsWithoutLoadingEntities() {
+        Page<SimpleProductDTO> page = productRepository.findSimplePage(null,
+                PageRequest.of(0, 5, Sort.by(Sort.Direction.DESC, "price")));
+
+        assertThat(page.getTotalElements()).isEqualTo(12);
+        assertThat(page.getContent()).extracting(SimpleProductDTO::getName)
+                .containsExactly("Guitar 12", "Guitar 11", "Guitar 10", "Guitar 9", "Guitar 8");
+        assertThat(page.getContent().get(0).getBrandName()).isEqualTo("Fender");
+        assertThat(page.getContent().get(0).getCategoryName()).isEqualTo("Guitars");
+        assertThat(page.getContent().get(0).getThumbnailUrl()).isEqualTo("/uploads/guitar-12-0.jpg");
+        assertThat(page.getContent().get(0).getImages()).isEmpty();
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    private void persistProduct(String name, String slug, BigDecimal price, Category category, Brand brand) {
+        Product product = new Product();
+        product.setName(name);
+        product.setDescription("desc");
+        product.setPrice(price);
+        product.setQuantityAvailable(5);
+        product.setCategory(category);
+        product.setBrand(brand);
+        product.setCondition(ProductCondition.EXCELLENT);
+        product.setSlug(slug);
+        product.setThumbnailUrl("/uploads/" + slug + "-0.jpg");
+        entityManager.persist(product);
+
+        for (int order = 0; order < 2; order++) {
+            ProductImage image = new ProductImage();
+            image.setProduct(product);
+            image.setUrl("/uploads/" + slug + "-" + order + ".jpg");
+            image.setDisplayOrder(order);
+            entityManager.persist(image);
+        }
+    }
+}
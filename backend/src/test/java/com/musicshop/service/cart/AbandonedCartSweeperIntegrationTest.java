@@ -0,0 +1,91 @@
+package com.musicshop.service.cart;
+
+import com.musicshop.model.cart.Cart;
+import com.musicshop.repository.user.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "cart.expiry.ttl=1h")
+@ActiveProfiles("test")
+class AbandonedCartSweeperIntegrationTest {
+
+    @Autowired
+    private AbandonedCartSweeper sweeper;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void staleLinesAreRemovedInBatchesAndTheirStockRestored() {
+        Long userId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM users", Long.class);
+        Cart cart = cartService.getCartForUser(userRepository.findById(userId).orElseThrow());
+        List<Long> productIds = jdbcTemplate.queryForList("SELECT id FROM products ORDER BY id LIMIT 3", Long.class);
+        Map<Long, Integer> stockBefore = new HashMap<>();
+        for (Long productId : productIds) {
+            stockBefore.put(productId, stock(productId));
+        }
+
+        // More stale lines than one sweep batch: 550 abandoned carts with two of the three products each
+        Timestamp stale = Timestamp.valueOf(LocalDateTime.now().minusHours(2));
+        List<Object[]> carts = new ArrayList<>();
+        for (int i = 0; i < 550; i++) {
+            carts.add(new Object[] { stale });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO carts (date_created) VALUES (?)", carts);
+        List<Long> staleCartIds = jdbcTemplate.queryForList(
+                "SELECT id FROM carts WHERE user_id IS NULL ORDER BY id", Long.class);
+        List<Object[]> rows = new ArrayList<>();
+        Map<Long, Integer> staleUnits = new HashMap<>();
+        for (int i = 0; i < 1100; i++) {
+            Long productId = productIds.get((i / 2 + i % 2) % 3);
+            int quantity = i % 2 + 1;
+            rows.add(new Object[] { staleCartIds.get(i / 2), productId, quantity, stale });
+            staleUnits.merge(productId, quantity, Integer::sum);
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO cart_details (cart_id, product_id, quantity, reserved_at) "
+                + "VALUES (?, ?, ?, ?)", rows);
+        cartService.addProductToCart(userId, productIds.get(0), 1);
+        double linesBefore = meterRegistry.get("cart.expiry.lines").counter().count();
+        double unitsBefore = meterRegistry.get("cart.expiry.units").counter().count();
+
+        sweeper.sweep();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cart_details", Long.class)).isOne();
+        assertThat(jdbcTemplate.queryForList("SELECT product_id FROM cart_details WHERE cart_id = ?", Long.class,
+                cart.getId())).containsExactly(productIds.get(0));
+        for (Long productId : productIds) {
+            // The fresh line's unit is still reserved (in memory, not yet written back)
+            assertThat(stock(productId)).isEqualTo(stockBefore.get(productId) + staleUnits.get(productId));
+        }
+        assertThat(meterRegistry.get("cart.expiry.lines").counter().count() - linesBefore).isEqualTo(1100);
+        assertThat(meterRegistry.get("cart.expiry.units").counter().count() - unitsBefore).isEqualTo(1650);
+        assertThat(meterRegistry.get("cart.expiry.sweep").timer().count()).isPositive();
+    }
+
+    private int stock(Long productId) {
+        return jdbcTemplate.queryForObject("SELECT quantity_available FROM products WHERE id = ?", Integer.class,
+                productId);
+    }
+}
@@ -0,0 +1,131 @@
+package com.musicshop.service.cart;
+
+import com.musicshop.service.inventory.StockReservationLedger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+class CartBatchIntegrationTest {
+
+    private static final String USER = "john.doe@example.com";
+    private static final AtomicInteger nextProducts = new AtomicInteger();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private StockReservationLedger ledger;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long cartId;
+    private List<Long> productIds;
+
+    @BeforeEach
+    void setUp() {
+        // Three products no other test has touched, so their ledger counters start unloaded
+        productIds = jdbcTemplate.queryForList("SELECT id FROM products ORDER BY id LIMIT 3 OFFSET ?", Long.class,
+                nextProducts.getAndAdd(3));
+        for (Long productId : productIds) {
+            jdbcTemplate.update("UPDATE products SET quantity_available = 10 WHERE id = ?", productId);
+        }
+    }
+
+    @Test
+    @WithMockUser(username = USER)
+    void operationsAreFoldedPerProductAndTheCartReturnedOnce() throws Exception {
+        Long first = productIds.get(0);
+        Long second = productIds.get(1);
+        Long third = productIds.get(2);
+
+        mockMvc.perform(patch("/api/carts/my").contentType("application/json").content(operations(
+                        op("ADD", first, 2), op("ADD", second, 3), op("SET_QUANTITY", first, 5),
+                        op("REMOVE", second, null), op("ADD", third, 1))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.product.id == " + first + ")].quantity").value(5))
+                .andExpect(jsonPath("$[?(@.product.id == " + second + ")]").isEmpty())
+                .andExpect(jsonPath("$[?(@.product.id == " + third + ")].quantity").value(1));
+
+        mockMvc.perform(patch("/api/carts/my").contentType("application/json").content(operations(
+                        op("SET_QUANTITY", first, 1), op("REMOVE", third, null))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.product.id == " + first + ")].quantity").value(1))
+                .andExpect(jsonPath("$[?(@.product.id == " + third + ")]").isEmpty());
+
+        ledger.flush();
+        assertThat(stock(first)).isEqualTo(9);
+        assertThat(stock(second)).isEqualTo(10);
+        assertThat(stock(third)).isEqualTo(10);
+    }
+
+    @Test
+    @WithMockUser(username = USER)
+    void oneFailingOperationRollsBackTheBatch() throws Exception {
+        Long first = productIds.get(0);
+        Long second = productIds.get(1);
+
+        mockMvc.perform(patch("/api/carts/my").contentType("application/json").content(operations(
+                        op("ADD", first, 1), op("ADD", second, 11))))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.code").value("INSUFFICIENT_STOCK"));
+
+        assertThat(linesOf(first)).isEmpty();
+        ledger.flush();
+        assertThat(stock(first)).isEqualTo(10);
+    }
+
+    @Test
+    @WithMockUser(username = USER)
+    void addWithoutAPositiveQuantityIsRejected() throws Exception {
+        mockMvc.perform(patch("/api/carts/my").contentType("application/json").content(operations(
+                        op("ADD", productIds.get(0), 0))))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(patch("/api/carts/my").contentType("application/json").content("{\"operations\":[]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private Long cartId() {
+        if (cartId == null) {
+            cartId = jdbcTemplate.queryForObject("SELECT c.id FROM carts c JOIN users u ON u.id = c.user_id "
+                    + "WHERE u.email = ?", Long.class, USER);
+        }
+        return cartId;
+    }
+
+    private List<Integer> linesOf(Long productId) {
+        return jdbcTemplate.queryForList("SELECT quantity FROM cart_details WHERE cart_id = ? AND product_id = ?",
+                Integer.class, cartId(), productId);
+    }
+
+    private int stock(Long productId) {
+        return jdbcTemplate.queryForObject("SELECT quantity_available FROM products WHERE id = ?", Integer.class,
+                productId);
+    }
+
+    private static String op(String type, Long productId, Integer quantity) {
+        return "{\"op\":\"" + type + "\",\"productId\":" + productId
+                + (quantity != null ? ",\"quantity\":" + quantity : "") + "}";
+    }
+
+    private static String operations(String... operations) {
+        return "{\"operations\":[" + String.join(",", operations) + "]}";
+    }
+}
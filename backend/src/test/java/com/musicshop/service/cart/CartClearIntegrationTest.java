@@ -0,0 +1,84 @@
+package com.musicshop.service.cart;
+
+import com.musicshop.model.cart.Cart;
+import com.musicshop.repository.user.UserRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CartClearIntegrationTest {
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void clearingAFiftyLineCartIssuesOneStatementPerLinePlusTwo() {
+        jdbcTemplate.update("INSERT INTO users (email) VALUES ('cart.clear@example.com')");
+        Long userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = 'cart.clear@example.com'",
+                Long.class);
+        Cart cart = cartService.getCartForUser(userRepository.findById(userId).orElseThrow());
+        List<Long> productIds = jdbcTemplate.queryForList("SELECT id FROM products ORDER BY id LIMIT 50", Long.class);
+        Map<Long, Integer> stockBefore = new HashMap<>();
+        for (Long productId : productIds) {
+            stockBefore.put(productId, stock(productId));
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            rows.add(new Object[] { cart.getId(), productIds.get(i), 2, now });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO cart_details (cart_id, product_id, quantity, reserved_at) "
+                + "VALUES (?, ?, ?, ?)", rows);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        long[] statements = new long[1];
+        transactionTemplate.executeWithoutResult(status -> {
+            // Counted before commit, so after-commit listeners are not included
+            statistics.clear();
+            cartService.clearCart(cart.getId());
+            statements[0] = statistics.getPrepareStatementCount();
+        });
+
+        // One locking read, one stock update per product (one line each), one delete
+        assertThat(statements[0]).isEqualTo(1 + 50 + 1);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cart_details WHERE cart_id = ?", Long.class,
+                cart.getId())).isZero();
+        for (Long productId : productIds) {
+            assertThat(stock(productId)).isEqualTo(stockBefore.get(productId) + 2);
+        }
+    }
+
+    private int stock(Long productId) {
+        return jdbcTemplate.queryForObject("SELECT quantity_available FROM products WHERE id = ?", Integer.class,
+                productId);
+    }
+}
@@ -0,0 +1,55 @@
+package com.musicshop.service.cart;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CartLineIntegrationTest {
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void repeatedAddsIncrementOneLineInPlace() {
+        jdbcTemplate.update("INSERT INTO users (email) VALUES ('cart.lines@example.com')");
+        Long userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = 'cart.lines@example.com'",
+                Long.class);
+        Long productId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM products WHERE quantity_available >= 6",
+                Long.class);
+        cartService.addProductToCart(userId, productId, 1);
+        cartService.addProductToCart(userId, productId, 2);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        long[] statements = new long[1];
+        transactionTemplate.executeWithoutResult(status -> {
+            statistics.clear();
+            cartService.addProductToCart(userId, productId, 3);
+            statements[0] = statistics.getPrepareStatementCount();
+        });
+
+        // Cart lookup, the stock debit journal row and the increment
+        assertThat(statements[0]).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForList("SELECT d.quantity FROM cart_details d JOIN carts c ON c.id = d.cart_id "
+                + "WHERE c.user_id = ? AND d.product_id = ?", Integer.class, userId, productId)).containsExactly(6);
+    }
+}
@@ -0,0 +1,127 @@
+package com.musicshop.service.catalog;
+
+import com.musicshop.dto.brand.BrandDTO;
+import com.musicshop.dto.category.CategoryDTO;
+import com.musicshop.dto.category.CreateCategoryRequest;
+import com.musicshop.dto.product.DetailedProductDTO;
+import com.musicshop.dto.product.ProductPatchRequest;
+import com.musicshop.dto.product.ProductUpsertRequest;
+import com.musicshop.model.product.ProductCondition;
+import com.musicshop.repository.product.ProductRepository;
+import com.musicshop.service.brand.BrandService;
+import com.musicshop.service.category.CategoryService;
+import com.musicshop.service.product.ProductService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CatalogCountIntegrationTest {
+
+    @Autowired
+    private CatalogCountService catalogCountService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private BrandService brandService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void startupReconciliationMatchesActualCounts() {
+        assertThat(categoryService.findAllProperties().stream().mapToLong(CategoryDTO::getProductCount).sum())
+                .isEqualTo(productRepository.count());
+        assertThat(brandService.findAll().stream().mapToLong(BrandDTO::getProductCount).sum())
+                .isEqualTo(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM products WHERE brand_id IS NOT NULL",
+                        Long.class));
+    }
+
+    @Test
+    void productWritesAdjustTheWholeAncestorChain() {
+        CategoryDTO root = categoryService.findAllProperties().get(0);
+        CategoryDTO middle = categoryService.createCategory(request("Counted Middle", "counted-middle"), root.getId());
+        CategoryDTO leaf = categoryService.createCategory(request("Counted Leaf", "counted-leaf"), middle.getId());
+        CategoryDTO other = categoryService.findAllProperties().get(1);
+        long rootBefore = countOf(root.getSlug());
+        long otherBefore = countOf(other.getSlug());
+
+        DetailedProductDTO created = productService.createProduct(product("Counted Guitar", leaf.getId()));
+        assertThat(countOf("counted-leaf")).isEqualTo(1);
+        assertThat(countOf("counted-middle")).isEqualTo(1);
+        assertThat(countOf(root.getSlug())).isEqualTo(rootBefore + 1);
+
+        ProductPatchRequest move = new ProductPatchRequest();
+        move.setCategoryId(other.getId());
+        productService.partialUpdateProduct(created.getId(), move);
+        assertThat(countOf("counted-leaf")).isZero();
+        assertThat(countOf(root.getSlug())).isEqualTo(rootBefore);
+        assertThat(countOf(other.getSlug())).isEqualTo(otherBefore + 1);
+
+        productService.deleteProduct(created.getId());
+        assertThat(countOf(other.getSlug())).isEqualTo(otherBefore);
+
+        categoryService.deleteCategory(leaf.getId());
+        categoryService.deleteCategory(middle.getId());
+    }
+
+    @Test
+    void reconciliationRepairsDrift() {
+        CategoryDTO root = categoryService.findAllProperties().get(0);
+        long expected = root.getProductCount();
+        jdbcTemplate.update("UPDATE categories SET product_count = product_count + 7 WHERE id = ?", root.getId());
+        jdbcTemplate.update("UPDATE brands SET product_count = 0");
+
+        catalogCountService.reconcile();
+
+        assertThat(countOf(root.getSlug())).isEqualTo(expected);
+        startupReconciliationMatchesActualCounts();
+    }
+
+    private long countOf(String slug) {
+        return find(categoryService.findAllProperties(), slug).map(CategoryDTO::getProductCount).orElseThrow();
+    }
+
+    private static Optional<CategoryDTO> find(List<CategoryDTO> nodes, String slug) {
+        return nodes.stream()
+                .flatMap(node -> Stream.concat(Stream.of(node), find(node.getSubCategories(), slug).stream()))
+                .filter(node -> node.getSlug().equals(slug))
+                .findFirst();
+    }
+
+    private static CreateCategoryRequest request(String name, String slug) {
+        CreateCategoryRequest request = new CreateCategoryRequest();
+        request.setCategoryName(name);
+        request.setSlug(slug);
+        return request;
+    }
+
+    private static ProductUpsertRequest product(String name, Long categoryId) {
+        ProductUpsertRequest request = new ProductUpsertRequest();
+        request.setName(name);
+        request.setDescription("Counter test product");
+        request.setPrice(new BigDecimal("100.00"));
+        request.setQuantityAvailable(3);
+        request.setCategoryId(categoryId);
+        request.setCondition(ProductCondition.GOOD);
+        return request;
+    }
+}
@@ -0,0 +1,129 @@
+package com.musicshop.service.category;
+
+import com.musicshop.dto.category.CategoryDTO;
+import com.musicshop.dto.category.CreateCategoryRequest;
+import com.musicshop.repository.product.ProductRepository;
+import com.musicshop.service.product.ProductService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CategoryTreeIntegrationTest {
+
+    @Autowired
+    private CategoryServiceImpl categoryService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void treeIsBuiltWithOneQueryAndThenServedFromMemory() {
+        statistics.clear();
+        categoryService.rebuildSnapshot();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        statistics.clear();
+        List<CategoryDTO> tree = categoryService.findAllProperties();
+        categoryService.findAllProperties();
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+
+        assertThat(tree).isNotEmpty();
+        assertThat(tree.stream().mapToLong(CategoryDTO::getProductCount).sum())
+                .isEqualTo(productRepository.count());
+        tree.forEach(root -> assertThat(root.getProductCount())
+                .isGreaterThanOrEqualTo(root.getSubCategories().stream().mapToLong(CategoryDTO::getProductCount).sum()));
+    }
+
+    @Test
+    void categoryChangesSwapInANewSnapshotAtAnyDepth() {
+        CategoryDTO parent = categoryService.findAllProperties().get(0);
+        CategoryDTO child = parent.getSubCategories().get(0);
+        List<CategoryDTO> before = categoryService.findAllProperties();
+        long versionBefore = categoryService.findTreeVersion();
+
+        CategoryDTO created = categoryService.createCategory(
+                request("Left-Handed", "left-handed-" + child.getSlug()), child.getId());
+
+        List<CategoryDTO> after = categoryService.findAllProperties();
+        assertThat(after).isNotSameAs(before);
+        assertThat(find(after, created.getSlug())).hasValueSatisfying(node -> assertThat(node.getProductCount()).isZero());
+        assertThat(find(before, created.getSlug())).isEmpty();
+        long versionAfter = categoryService.findTreeVersion();
+        assertThat(versionAfter).isGreaterThan(versionBefore);
+
+        // Recounting products leaves the shape, and so the version, alone
+        categoryService.rebuildSnapshot();
+        assertThat(categoryService.findTreeVersion()).isEqualTo(versionAfter);
+
+        categoryService.deleteCategory(created.getId());
+        assertThat(find(categoryService.findAllProperties(), created.getSlug())).isEmpty();
+        assertThat(categoryService.findTreeVersion()).isGreaterThan(versionAfter);
+    }
+
+    @Test
+    void subtreeIdsCoverEveryDepth() {
+        CategoryDTO root = categoryService.findAllProperties().get(0);
+        List<Long> chain = new ArrayList<>();
+        Long parentId = root.getId();
+        for (int depth = 1; depth <= 5; depth++) {
+            CategoryDTO created = categoryService.createCategory(
+                    request("Level " + depth, "level-" + depth + "-" + root.getSlug()), parentId);
+            chain.add(created.getId());
+            parentId = created.getId();
+        }
+
+        assertThat(categoryService.findSubtreeIds(root.getSlug())).contains(root.getId()).containsAll(chain);
+        assertThat(categoryService.findSubtreeIds("level-3-" + root.getSlug()))
+                .containsExactlyInAnyOrderElementsOf(chain.subList(2, 5));
+        assertThat(categoryService.findSubtreeIds("no-such-category")).isEmpty();
+
+        long listed = productService.listProducts(null, root.getSlug(), null, null, null, null, null, false, 0, 1)
+                .getTotalElements();
+        assertThat(listed).isEqualTo(root.getProductCount());
+
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            categoryService.deleteCategory(chain.get(i));
+        }
+    }
+
+    private static Optional<CategoryDTO> find(List<CategoryDTO> nodes, String slug) {
+        return nodes.stream()
+                .flatMap(node -> Stream.concat(Stream.of(node), find(node.getSubCategories(), slug).stream()))
+                .filter(node -> node.getSlug().equals(slug))
+                .findFirst();
+    }
+
+    private static CreateCategoryRequest request(String name, String slug) {
+        CreateCategoryRequest request = new CreateCategoryRequest();
+        request.setCategoryName(name);
+        request.setSlug(slug);
+        return request;
+    }
+}
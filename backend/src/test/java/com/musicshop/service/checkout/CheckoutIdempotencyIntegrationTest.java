@@ -0,0 +1,220 @@
+package com.musicshop.service.checkout;
+
+import com.musicshop.dto.checkout.CheckoutRequest;
+import com.musicshop.dto.checkout.CheckoutResponse;
+import com.musicshop.exception.CartEmptyException;
+import com.musicshop.exception.DuplicateResourceException;
+import com.musicshop.infrastructure.payment.StripePaymentAdapter;
+import com.musicshop.service.cart.CartService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(properties = "checkout.idempotency.cache-ttl=0s")
+@ActiveProfiles("test")
+class CheckoutIdempotencyIntegrationTest {
+
+    @Autowired
+    private CheckoutIdempotencyService idempotencyService;
+
+    @Autowired
+    private CheckoutFacade checkoutFacade;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CheckoutIdempotencyClaimService claimService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @SpyBean
+    private StripePaymentAdapter stripePaymentAdapter;
+
+    @Test
+    void fiftyParallelDuplicatesCheckOutOnce() throws Exception {
+        String email = "john.doe@example.com";
+        Long userId = userId(email);
+        cartService.addProductToCart(userId, productId(0), 1);
+        CheckoutRequest request = request("credit_card");
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Callable<CheckoutResponse>> duplicates = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            duplicates.add(() -> {
+                start.await();
+                return idempotencyService.execute(email, "retry-1", request, claim -> {
+                    executions.incrementAndGet();
+                    return checkoutFacade.checkout(userId, request, claim);
+                });
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(50);
+        List<Future<CheckoutResponse>> futures = new ArrayList<>();
+        for (Callable<CheckoutResponse> duplicate : duplicates) {
+            futures.add(executor.submit(duplicate));
+        }
+        start.countDown();
+        List<CheckoutResponse> responses = new ArrayList<>();
+        for (Future<CheckoutResponse> future : futures) {
+            responses.add(future.get());
+        }
+        executor.shutdown();
+
+        assertThat(executions).hasValue(1);
+        Long orderId = responses.get(0).getOrderId();
+        assertThat(responses).allMatch(response -> response.getOrderId().equals(orderId));
+        assertThat(ordersOf(userId)).isOne();
+        verify(stripePaymentAdapter, timeout(5000)).processPayment(any());
+        verify(stripePaymentAdapter, times(1)).processPayment(any());
+
+        // Once the front cache has expired the stored outcome is replayed, with the order's current status
+        String status = awaitCompletion(orderId);
+        assertThat(status).isNotEqualTo("PENDING");
+        idempotencyService.purgeExpired();
+        CheckoutResponse replayed = idempotencyService.execute(email, "retry-1", request,
+                claim -> fail("A replay must not run the checkout"));
+        assertThat(replayed.getOrderId()).isEqualTo(orderId);
+        assertThat(replayed.getTotalAmount()).isEqualByComparingTo(responses.get(0).getTotalAmount());
+        assertThat(replayed.getPaymentStatus()).isEqualTo(status);
+        assertThat(ordersOf(userId)).isOne();
+
+        assertThatThrownBy(() -> idempotencyService.execute(email, "retry-1", request("stripe"),
+                claim -> fail("A reused key must not run the checkout")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void domainErrorsAreReplayedAndTransientOnesReleaseTheKey() {
+        String email = "jane.smith@example.com";
+        Long userId = userId(email);
+        CheckoutRequest request = request("credit_card");
+
+        assertThatThrownBy(() -> idempotencyService.execute(email, "empty-1", request,
+                claim -> checkoutFacade.checkout(userId, request, claim)))
+                .isInstanceOf(CartEmptyException.class);
+        cartService.addProductToCart(userId, productId(1), 1);
+        idempotencyService.purgeExpired();
+        assertThatThrownBy(() -> idempotencyService.execute(email, "empty-1", request,
+                claim -> checkoutFacade.checkout(userId, request, claim)))
+                .isInstanceOf(CartEmptyException.class)
+                .hasMessage("Cart is empty");
+        assertThat(ordersOf(userId)).isZero();
+
+        assertThatThrownBy(() -> idempotencyService.execute(email, "transient-1", request, claim -> {
+            throw new IllegalStateException("connection reset");
+        })).isInstanceOf(IllegalStateException.class);
+        CheckoutResponse response = idempotencyService.execute(email, "transient-1", request,
+                claim -> checkoutFacade.checkout(userId, request, claim));
+        assertThat(response.getPaymentStatus()).isEqualTo("PENDING");
+        assertThat(ordersOf(userId)).isOne();
+    }
+
+    @Test
+    void anAbandonedClaimIsTakenOverUnlessItPlacedAnOrder() {
+        String email = "admin@musicshop.com";
+        Long userId = userId(email);
+        cartService.addProductToCart(userId, productId(2), 1);
+        CheckoutRequest request = request("credit_card");
+        LocalDateTime abandonedAt = LocalDateTime.now().minusHours(1).truncatedTo(ChronoUnit.MILLIS);
+        Long staleId = insertClaim(email, "crashed-1", request, abandonedAt, null);
+
+        CheckoutResponse placed = idempotencyService.execute(email, "crashed-1", request,
+                claim -> checkoutFacade.checkout(userId, request, claim));
+        assertThat(ordersOf(userId)).isOne();
+
+        // The superseded claimant can no longer record an order under the key
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status ->
+                claimService.bindOrder(new CheckoutIdempotencyClaimService.Claim(staleId, abandonedAt), 42L)))
+                .isInstanceOf(DuplicateResourceException.class);
+
+        // A claimant that placed its order but died before storing the outcome is answered from the order
+        insertClaim(email, "crashed-2", request, abandonedAt, placed.getOrderId());
+        CheckoutResponse replayed = idempotencyService.execute(email, "crashed-2", request,
+                claim -> fail("An order was placed under this key"));
+        assertThat(replayed.getOrderId()).isEqualTo(placed.getOrderId());
+        assertThat(ordersOf(userId)).isOne();
+
+        // A recent claim is still refused
+        insertClaim(email, "running-1", request, LocalDateTime.now(), null);
+        assertThatThrownBy(() -> idempotencyService.execute(email, "running-1", request,
+                claim -> fail("The claim is still live")))
+                .isInstanceOf(DuplicateResourceException.class);
+    }
+
+    private Long insertClaim(String email, String key, CheckoutRequest request, LocalDateTime claimedAt,
+            Long orderId) {
+        jdbcTemplate.update("INSERT INTO checkout_idempotency_keys (principal, idempotency_key, request_hash, "
+                + "status, created_at, claimed_at, order_id) VALUES (?, ?, ?, 'IN_PROGRESS', ?, ?, ?)", email, key,
+                CheckoutIdempotencyService.fingerprint(request), claimedAt, claimedAt, orderId);
+        return jdbcTemplate.queryForObject("SELECT id FROM checkout_idempotency_keys WHERE idempotency_key = ?",
+                Long.class, key);
+    }
+
+    private String awaitCompletion(Long orderId) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        String status = orderStatus(orderId);
+        while ("PENDING".equals(status) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            status = orderStatus(orderId);
+        }
+        return status;
+    }
+
+    private String orderStatus(Long orderId) {
+        return jdbcTemplate.queryForObject("SELECT status FROM user_orders WHERE id = ?", String.class, orderId);
+    }
+
+    private Long userId(String email) {
+        return jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = ?", Long.class, email);
+    }
+
+    private Long productId(int offset) {
+        return jdbcTemplate.queryForObject("SELECT id FROM products WHERE quantity_available > 0 ORDER BY id "
+                + "LIMIT 1 OFFSET ?", Long.class, offset);
+    }
+
+    private long ordersOf(Long userId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_orders WHERE user_id = ?", Long.class, userId);
+    }
+
+    private static CheckoutRequest request(String paymentMethod) {
+        CheckoutRequest request = new CheckoutRequest();
+        request.setPaymentMethod(paymentMethod);
+        request.setStreet("Main Street");
+        request.setNumber("1");
+        request.setPostalCode("1000");
+        request.setCity("Brussels");
+        request.setCountry("Belgium");
+        return request;
+    }
+}
@@ -0,0 +1,283 @@
+package com.musicshop.service.checkout;
+
+import com.musicshop.dto.checkout.CheckoutRequest;
+import com.musicshop.dto.checkout.CheckoutResponse;
+import com.musicshop.exception.ResourceNotFoundException;
+import com.musicshop.service.cart.CartService;
+import com.musicshop.service.inventory.StockReservationLedger;
+import com.musicshop.service.outbox.OutboxDispatcher;
+import com.musicshop.service.payment.PaymentGateway;
+import com.musicshop.service.payment.PaymentRequest;
+import com.musicshop.service.payment.PaymentResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CheckoutPaymentIntegrationTest {
+
+    private static final Duration GATEWAY_LATENCY = Duration.ofMillis(500);
+    private static final CountDownLatch stalledGateway = new CountDownLatch(1);
+    private static final List<String> refunded = new CopyOnWriteArrayList<>();
+
+    @TestConfiguration
+    static class StubGateways {
+
+        @Bean
+        PaymentGateway slowGateway() {
+            return new PaymentGateway() {
+                @Override
+                public boolean supports(String paymentMethod) {
+                    return "slow_card".equals(paymentMethod);
+                }
+
+                @Override
+                public PaymentResult processPayment(PaymentRequest request) {
+                    try {
+                        Thread.sleep(GATEWAY_LATENCY.toMillis());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return PaymentResult.successful("slow_1");
+                }
+                @Override
+                public PaymentResult refundPayment(String transactionId, BigDecimal amount) {
+                    refunded.add(transactionId);
+                    return PaymentResult.successful("refund_" + transactionId);
+                }
+            };
+        }
+
+        @Bean
+        PaymentGateway stalledGateway() {
+            return new PaymentGateway() {
+                @Override
+                public boolean supports(String paymentMethod) {
+                    return "stalled_card".equals(paymentMethod);
+                }
+
+                @Override
+                public PaymentResult processPayment(PaymentRequest request) {
+                    try {
+                        stalledGateway.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return PaymentResult.successful("stalled_1");
+                }
+                @Override
+                public PaymentResult refundPayment(String transactionId, BigDecimal amount) {
+                    return PaymentResult.successful("refund_" + transactionId);
+                }
+            };
+        }
+
+        @Bean
+        PaymentGateway decliningGateway() {
+            return new PaymentGateway() {
+                @Override
+                public boolean supports(String paymentMethod) {
+                    return "declined_card".equals(paymentMethod);
+                }
+
+                @Override
+                public PaymentResult processPayment(PaymentRequest request) {
+                    return PaymentResult.failed("card declined");
+                }
+                @Override
+                public PaymentResult refundPayment(String transactionId, BigDecimal amount) {
+                    return PaymentResult.successful("refund_" + transactionId);
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private CheckoutFacade checkoutFacade;
+
+    @Autowired
+    private CheckoutOrderService checkoutOrderService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private StockReservationLedger ledger;
+
+    @Autowired
+    private PendingOrderSweeper pendingOrderSweeper;
+
+    @Autowired
+    private CheckoutCompletionService checkoutCompletionService;
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void slowPaymentCompletesAfterTheOrderIsPlaced() throws Exception {
+        Long userId = userId("john.doe@example.com");
+        Long productId = productWithStock(0);
+        cartService.addProductToCart(userId, productId, 2);
+
+        long start = System.nanoTime();
+        CheckoutResponse placed = checkoutFacade.checkout(userId, request("slow_card"));
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertThat(elapsed).isLessThan(GATEWAY_LATENCY);
+        assertThat(placed.getPaymentStatus()).isEqualTo("PENDING");
+        assertThat(placed.getTransactionId()).isNull();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cart_details d JOIN carts c ON c.id = d.cart_id "
+                + "WHERE c.user_id = ?", Long.class, userId)).isZero();
+
+        CheckoutResponse completed = awaitCompletion(userId, placed.getOrderId());
+        assertThat(completed.getPaymentStatus()).isEqualTo("CONFIRMED");
+        assertThat(completed.getTransactionId()).isEqualTo("slow_1");
+        assertThat(notifications(placed.getOrderId(), "ORDER_CONFIRMED")).isOne();
+
+        // The cart's reservation is now the order's: nothing goes back to stock
+        ledger.flush();
+        assertThat(stock(productId)).isEqualTo(8);
+
+        assertThatThrownBy(() -> checkoutOrderService.getCheckoutStatus(userId("jane.smith@example.com"),
+                placed.getOrderId())).isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    void declinedPaymentCancelsTheOrderAndReturnsItsStock() throws Exception {
+        Long userId = userId("jane.smith@example.com");
+        Long productId = productWithStock(1);
+        cartService.addProductToCart(userId, productId, 3);
+
+        CheckoutResponse placed = checkoutFacade.checkout(userId, request("declined_card"));
+
+        CheckoutResponse completed = awaitCompletion(userId, placed.getOrderId());
+        assertThat(completed.getPaymentStatus()).isEqualTo("PAYMENT_FAILED");
+        assertThat(notifications(placed.getOrderId(), "ORDER_PAYMENT_FAILED")).isOne();
+        ledger.flush();
+        assertThat(stock(productId)).isEqualTo(10);
+    }
+
+    @Test
+    void unsupportedPaymentMethodIsRejectedBeforeTheOrderIsPlaced() {
+        Long userId = userId("admin@musicshop.com");
+        cartService.addProductToCart(userId, productWithStock(2), 1);
+
+        assertThatThrownBy(() -> checkoutFacade.checkout(userId, request("cash")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_orders WHERE user_id = ?", Long.class,
+                userId)).isZero();
+    }
+
+    @Test
+    void sweepCancelsStalePendingOrdersButNotPaymentsInFlight() throws Exception {
+        Long userId = userId("admin@musicshop.com");
+        Long productId = productWithStock(3);
+        cartService.addProductToCart(userId, productId, 1);
+        CheckoutResponse paying = checkoutFacade.checkout(userId, request("stalled_card"));
+        // An order whose payment was never queued
+        jdbcTemplate.update("INSERT INTO user_orders (user_id, order_date, total_amount, status) "
+                + "VALUES (?, ?, 20.00, 'PENDING')", userId, LocalDateTime.now().minusHours(2));
+        Long orphanId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM user_orders", Long.class);
+        jdbcTemplate.update("INSERT INTO order_details (order_id, product_id, quantity, price_at_purchase) "
+                + "VALUES (?, ?, 2, ?)", orphanId, productId, new BigDecimal("10.00"));
+
+        assertThat(pendingOrderSweeper.sweep(LocalDateTime.now().plusHours(1))).isOne();
+
+        assertThat(checkoutOrderService.getCheckoutStatus(userId, orphanId).getPaymentStatus())
+                .isEqualTo("PAYMENT_FAILED");
+        assertThat(notifications(orphanId, "ORDER_PAYMENT_FAILED")).isOne();
+        assertThat(stock(productId)).isEqualTo(12);
+        assertThat(checkoutOrderService.getCheckoutStatus(userId, paying.getOrderId()).getPaymentStatus())
+                .isEqualTo("PENDING");
+
+        stalledGateway.countDown();
+        assertThat(awaitCompletion(userId, paying.getOrderId()).getPaymentStatus()).isEqualTo("CONFIRMED");
+    }
+
+    @Test
+    void paymentCapturedAfterTheSweepCancelledTheOrderIsRefunded() {
+        Long userId = userId("admin@musicshop.com");
+        Long productId = productWithStock(4);
+        jdbcTemplate.update("INSERT INTO user_orders (user_id, order_date, total_amount, status) "
+                + "VALUES (?, ?, 20.00, 'PENDING')", userId, LocalDateTime.now().minusHours(2));
+        Long orderId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM user_orders", Long.class);
+        jdbcTemplate.update("INSERT INTO order_details (order_id, product_id, quantity, price_at_purchase) "
+                + "VALUES (?, ?, 2, ?)", orderId, productId, new BigDecimal("10.00"));
+        pendingOrderSweeper.sweep(LocalDateTime.now().plusHours(1));
+
+        // The gateway answers only now, after the order was cancelled
+        checkoutCompletionService.confirm(orderId, "slow_card", new BigDecimal("20.00"), "late_1");
+
+        assertThat(checkoutOrderService.getCheckoutStatus(userId, orderId).getPaymentStatus())
+                .isEqualTo("PAYMENT_FAILED");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_messages WHERE topic = ? "
+                + "AND aggregate_id = ?", Long.class, PaymentRefundOutbox.TOPIC, orderId)).isOne();
+
+        outboxDispatcher.dispatch();
+
+        assertThat(refunded).containsExactly("late_1");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_messages WHERE topic = ? "
+                + "AND aggregate_id = ?", Long.class, PaymentRefundOutbox.TOPIC, orderId)).isZero();
+    }
+
+    private CheckoutResponse awaitCompletion(Long userId, Long orderId) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        CheckoutResponse status = checkoutOrderService.getCheckoutStatus(userId, orderId);
+        while ("PENDING".equals(status.getPaymentStatus()) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            status = checkoutOrderService.getCheckoutStatus(userId, orderId);
+        }
+        return status;
+    }
+
+    private Long userId(String email) {
+        return jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = ?", Long.class, email);
+    }
+
+    private Long productWithStock(int offset) {
+        Long productId = jdbcTemplate.queryForObject("SELECT id FROM products ORDER BY id LIMIT 1 OFFSET ?",
+                Long.class, offset);
+        jdbcTemplate.update("UPDATE products SET quantity_available = 10 WHERE id = ?", productId);
+        return productId;
+    }
+
+    private int stock(Long productId) {
+        return jdbcTemplate.queryForObject("SELECT quantity_available FROM products WHERE id = ?", Integer.class,
+                productId);
+    }
+
+    private long notifications(Long orderId, String type) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM notifications WHERE related_entity_id = ? "
+                + "AND type = ?", Long.class, orderId, type);
+    }
+
+    private static CheckoutRequest request(String paymentMethod) {
+        CheckoutRequest request = new CheckoutRequest();
+        request.setPaymentMethod(paymentMethod);
+        request.setStreet("Main Street");
+        request.setNumber("1");
+        request.setPostalCode("1000");
+        request.setCity("Brussels");
+        request.setCountry("Belgium");
+        return request;
+    }
+}
@@ -0,0 +1,212 @@
+package com.musicshop.service.checkout;
+
+import com.musicshop.dto.cart.CartPricePreviewDTO;
+import com.musicshop.dto.category.CategoryDTO;
+import com.musicshop.dto.category.CreateCategoryRequest;
+import com.musicshop.dto.checkout.CheckoutRequest;
+import com.musicshop.dto.checkout.CheckoutResponse;
+import com.musicshop.dto.coupon.CreateCouponRequest;
+import com.musicshop.dto.product.ProductUpsertRequest;
+import com.musicshop.model.coupon.Coupon;
+import com.musicshop.model.product.ProductCondition;
+import com.musicshop.repository.coupon.CouponRepository;
+import com.musicshop.service.cart.CartService;
+import com.musicshop.service.category.CategoryService;
+import com.musicshop.service.coupon.CouponService;
+import com.musicshop.service.product.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+        "pricing.tax.default-rate=0.21",
+        "pricing.tax.category-rates=guitars-plucked:0.10, ukulele:0.06",
+        "pricing.shipping.tiers=0:5.99,100:0",
+        "pricing.line-discounts=drums-percussion:2:10"
+})
+@ActiveProfiles("test")
+class CheckoutPricingIntegrationTest {
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CheckoutFacade checkoutFacade;
+
+    @Autowired
+    private CouponService couponService;
+
+    @Autowired
+    private CouponRepository couponRepository;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void createCoupons() {
+        if (couponRepository.existsByCode("SAVE10")) {
+            return;
+        }
+        couponService.createCoupon(coupon("SAVE10", Coupon.Kind.PERCENTAGE, "10", true, null));
+        couponService.createCoupon(coupon("FIVE", Coupon.Kind.FIXED_AMOUNT, "5.00", true, null));
+        couponService.createCoupon(coupon("SOLO", Coupon.Kind.FIXED_AMOUNT, "1.00", false, null));
+        couponService.createCoupon(coupon("GUITARS20", Coupon.Kind.PERCENTAGE, "20", true,
+                jdbcTemplate.queryForObject("SELECT id FROM categories WHERE slug = 'guitars-plucked'", Long.class)));
+    }
+
+    @Test
+    void previewAppliesCategoryRulesToWholeSubtreesWithTheNearestWinning() {
+        Long userId = userId("john.doe@example.com");
+        Long ukulele = productIn("ukulele", "20.00");
+        Long electric = productIn("electric-guitar", "30.00");
+        Long drums = productIn("drum-kit", "25.00");
+        cartService.addProductToCart(userId, ukulele, 1);
+        cartService.addProductToCart(userId, electric, 1);
+        cartService.addProductToCart(userId, drums, 2);
+
+        CartPricePreviewDTO preview = cartService.previewPrice(userId, List.of("save10", "FIVE"));
+
+        assertThat(preview.getSubtotal()).isEqualByComparingTo("100.00");
+        assertThat(preview.getLineDiscount()).isEqualByComparingTo("5.00");
+        assertThat(preview.getLines()).filteredOn(line -> line.getProductId().equals(drums))
+                .singleElement()
+                .satisfies(line -> assertThat(line.getTotal()).isEqualByComparingTo("45.00"));
+        // 10% of 95.00 plus 5.00
+        assertThat(preview.getCouponDiscount()).isEqualByComparingTo("14.50");
+        // 38.14 at 21%, 25.43 at 10% and 16.93 at 6% once the coupons are spread pro rata
+        assertThat(preview.getTax()).isEqualByComparingTo("11.57");
+        assertThat(preview.getShipping()).isEqualByComparingTo("5.99");
+        assertThat(preview.getTotal()).isEqualByComparingTo("98.06");
+        assertThat(preview.getCouponCodes()).containsExactly("SAVE10", "FIVE");
+    }
+
+    @Test
+    void checkoutChargesThePreviewedTotal() {
+        Long userId = userId("jane.smith@example.com");
+        cartService.addProductToCart(userId, productIn("acoustic-guitar", "120.00"), 1);
+
+        CartPricePreviewDTO preview = cartService.previewPrice(userId, List.of("SAVE10"));
+        assertThat(preview.getShipping()).isEqualByComparingTo("0.00");
+
+        CheckoutRequest request = request();
+        request.setCouponCodes(List.of("SAVE10"));
+        CheckoutResponse placed = checkoutFacade.checkout(userId, request);
+
+        assertThat(placed.getTotalAmount()).isEqualByComparingTo(preview.getTotal());
+        assertThat(placed.getTotalAmount()).isEqualByComparingTo("118.80");
+    }
+
+    @Test
+    void rejectsUnknownAndNonStackableCouponsBeforeAnOrderIsPlaced() {
+        Long userId = userId("admin@musicshop.com");
+        cartService.addProductToCart(userId, productIn("piano", "50.00"), 1);
+
+        assertThatThrownBy(() -> cartService.previewPrice(userId, List.of("SOLO", "FIVE")))
+                .isInstanceOf(IllegalArgumentException.class);
+        CheckoutRequest request = request();
+        request.setCouponCode("NOPE");
+        assertThatThrownBy(() -> checkoutFacade.checkout(userId, request))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_orders WHERE user_id = ?", Long.class,
+                userId)).isZero();
+    }
+
+    @Test
+    void categoryScopedCouponsDiscountOnlyThatSubtree() {
+        jdbcTemplate.update("INSERT INTO users (email) VALUES ('scoped.coupon@example.com')");
+        Long userId = userId("scoped.coupon@example.com");
+        Long ukulele = productIn("ukulele", "20.00");
+        Long drums = productIn("drum-kit", "25.00");
+        cartService.addProductToCart(userId, ukulele, 1);
+        cartService.addProductToCart(userId, drums, 1);
+
+        CartPricePreviewDTO preview = cartService.previewPrice(userId, List.of("guitars20"));
+
+        // 20% of the ukulele only; 16.00 at 6% and 25.00 at 21%
+        assertThat(preview.getCouponDiscount()).isEqualByComparingTo("4.00");
+        assertThat(preview.getTax()).isEqualByComparingTo("6.21");
+    }
+
+    @Test
+    void rulesAndCouponsCoverCategoriesAddedToTheirSubtree() {
+        jdbcTemplate.update("INSERT INTO users (email) VALUES ('new.subtree@example.com')");
+        Long userId = userId("new.subtree@example.com");
+        cartService.addProductToCart(userId, productIn("ukulele", "20.00"), 1);
+        // Builds the plan and the coupon snapshot against the tree as it stands
+        assertThat(cartService.previewPrice(userId, List.of("guitars20")).getCouponDiscount())
+                .isEqualByComparingTo("4.00");
+
+        CategoryDTO sopranos = categoryService.createCategory(category("Soprano Ukuleles", "soprano-ukulele"),
+                jdbcTemplate.queryForObject("SELECT id FROM categories WHERE slug = 'ukulele'", Long.class));
+        ProductUpsertRequest product = new ProductUpsertRequest();
+        product.setName("Soprano Ukulele");
+        product.setDescription("Pricing test product");
+        product.setPrice(new BigDecimal("20.00"));
+        product.setQuantityAvailable(3);
+        product.setCategoryId(sopranos.getId());
+        product.setCondition(ProductCondition.GOOD);
+        cartService.addProductToCart(userId, productService.createProduct(product).getId(), 1);
+
+        CartPricePreviewDTO preview = cartService.previewPrice(userId, List.of("guitars20"));
+
+        // Both ukuleles are part of guitars-plucked: 20% off, then 32.00 at the ukulele rate of 6%
+        assertThat(preview.getCouponDiscount()).isEqualByComparingTo("8.00");
+        assertThat(preview.getTax()).isEqualByComparingTo("1.92");
+    }
+
+    private Long userId(String email) {
+        return jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = ?", Long.class, email);
+    }
+
+    private Long productIn(String categorySlug, String price) {
+        Long productId = jdbcTemplate.queryForObject("SELECT MIN(p.id) FROM products p "
+                + "JOIN categories c ON c.id = p.category_id WHERE c.slug = ?", Long.class, categorySlug);
+        jdbcTemplate.update("UPDATE products SET price = ?, quantity_available = 10 WHERE id = ?",
+                new BigDecimal(price), productId);
+        return productId;
+    }
+
+    private static CreateCouponRequest coupon(String code, Coupon.Kind kind, String value, boolean stackable,
+            Long categoryId) {
+        CreateCouponRequest request = new CreateCouponRequest();
+        request.setCode(code);
+        request.setKind(kind);
+        request.setValue(new BigDecimal(value));
+        request.setStackable(stackable);
+        request.setCategoryId(categoryId);
+        return request;
+    }
+
+    private static CreateCategoryRequest category(String name, String slug) {
+        CreateCategoryRequest request = new CreateCategoryRequest();
+        request.setCategoryName(name);
+        request.setSlug(slug);
+        return request;
+    }
+
+    private static CheckoutRequest request() {
+        CheckoutRequest request = new CheckoutRequest();
+        request.setPaymentMethod("stripe");
+        request.setStreet("Main Street");
+        request.setNumber("1");
+        request.setPostalCode("1000");
+        request.setCity("Brussels");
+        request.setCountry("Belgium");
+        return request;
+    }
+}
@@ -0,0 +1,179 @@
+package com.musicshop.service.coupon;
+
+import com.musicshop.domain.pricing.PricingCoupon;
+import com.musicshop.dto.coupon.CouponDTO;
+import com.musicshop.dto.coupon.CreateCouponRequest;
+import com.musicshop.exception.DuplicateResourceException;
+import com.musicshop.model.coupon.Coupon;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CouponRedemptionIntegrationTest {
+
+    private static final AtomicLong nextOrder = new AtomicLong(1_000_000);
+
+    @Autowired
+    private CouponService couponService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void hotCouponAdmitsExactlyItsCapUnderConcurrentCheckouts() throws Exception {
+        CouponDTO coupon = couponService.createCoupon(request("FLASH", 25, null));
+
+        // Forty shoppers racing for the same code, five checkouts each
+        List<Callable<Integer>> shoppers = new ArrayList<>();
+        for (long shopper = 1; shopper <= 40; shopper++) {
+            Long userId = shopper;
+            shoppers.add(() -> {
+                int succeeded = 0;
+                for (int attempt = 0; attempt < 5; attempt++) {
+                    try {
+                        checkout(userId, "flash");
+                        succeeded++;
+                    } catch (IllegalArgumentException e) {
+                        // fully redeemed
+                    }
+                }
+                return succeeded;
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        int redeemed = 0;
+        for (Future<Integer> shopper : executor.invokeAll(shoppers)) {
+            redeemed += shopper.get();
+        }
+        executor.shutdown();
+
+        assertThat(redeemed).isEqualTo(25);
+        assertThat(couponService.remainingRedemptions(coupon.getId())).isZero();
+        assertThat(redemptionRows(coupon.getId())).isEqualTo(25);
+        assertThat(storedCount(coupon.getId())).isZero();
+        assertThat(listed(coupon.getId()).getRedemptionCount()).isEqualTo(25);
+
+        couponService.flush();
+
+        assertThat(storedCount(coupon.getId())).isEqualTo(25);
+        assertThat(listed(coupon.getId()).getRedemptionCount()).isEqualTo(25);
+    }
+
+    @Test
+    void enforcesThePerUserCapAndTheValidityWindow() {
+        couponService.createCoupon(request("ONCE", null, 1));
+        checkout(7L, "once");
+
+        assertThatThrownBy(() -> couponService.resolve(7L, List.of("ONCE")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("already been used");
+        assertThat(couponService.resolve(8L, List.of("ONCE"))).hasSize(1);
+
+        CreateCouponRequest expired = request("EXPIRED", null, null);
+        expired.setValidFrom(LocalDateTime.now().minusDays(2));
+        expired.setValidUntil(LocalDateTime.now().minusDays(1));
+        couponService.createCoupon(expired);
+        CreateCouponRequest upcoming = request("UPCOMING", null, null);
+        upcoming.setValidFrom(LocalDateTime.now().plusDays(1));
+        couponService.createCoupon(upcoming);
+
+        assertThatThrownBy(() -> couponService.resolve(8L, List.of("EXPIRED")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> couponService.resolve(8L, List.of("UPCOMING")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> couponService.resolve(8L, List.of("NOPE")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("NOPE");
+    }
+
+    @Test
+    void rolledBackAndReleasedRedemptionsGoBackToTheBudget() {
+        CouponDTO coupon = couponService.createCoupon(request("PAIR", 2, null));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            couponService.redeem(1L, nextOrder.incrementAndGet(), couponService.resolve(1L, List.of("PAIR")));
+            status.setRollbackOnly();
+        });
+        assertThat(couponService.remainingRedemptions(coupon.getId())).isEqualTo(2);
+
+        Long orderId = checkout(1L, "PAIR");
+        couponService.flush();
+        assertThat(couponService.remainingRedemptions(coupon.getId())).isEqualTo(1);
+        assertThat(storedCount(coupon.getId())).isEqualTo(1);
+
+        transactionTemplate.executeWithoutResult(status -> couponService.release(orderId));
+
+        assertThat(couponService.remainingRedemptions(coupon.getId())).isEqualTo(2);
+        assertThat(storedCount(coupon.getId())).isZero();
+        assertThat(redemptionRows(coupon.getId())).isZero();
+    }
+
+    @Test
+    void rejectsDuplicateCodesAndValuesThePlanCannotApply() {
+        couponService.createCoupon(request("TWICE", null, null));
+
+        assertThatThrownBy(() -> couponService.createCoupon(request(" twice ", null, null)))
+                .isInstanceOf(DuplicateResourceException.class);
+        CreateCouponRequest tooMuch = request("TOOMUCH", null, null);
+        tooMuch.setValue(new BigDecimal("150"));
+        assertThatThrownBy(() -> couponService.createCoupon(tooMuch))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private Long checkout(Long userId, String code) {
+        Long orderId = nextOrder.incrementAndGet();
+        transactionTemplate.executeWithoutResult(status -> {
+            List<PricingCoupon> coupons = couponService.resolve(userId, List.of(code));
+            couponService.redeem(userId, orderId, coupons);
+        });
+        return orderId;
+    }
+
+    private CouponDTO listed(Long couponId) {
+        return couponService.findAll().stream()
+                .filter(coupon -> coupon.getId().equals(couponId))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private long storedCount(Long couponId) {
+        return jdbcTemplate.queryForObject("SELECT redemption_count FROM coupons WHERE id = ?", Long.class,
+                couponId);
+    }
+
+    private long redemptionRows(Long couponId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM coupon_redemptions WHERE coupon_id = ?",
+                Long.class, couponId);
+    }
+
+    private static CreateCouponRequest request(String code, Integer maxRedemptions, Integer maxPerUser) {
+        CreateCouponRequest request = new CreateCouponRequest();
+        request.setCode(code);
+        request.setKind(Coupon.Kind.PERCENTAGE);
+        request.setValue(new BigDecimal("10"));
+        request.setMaxRedemptions(maxRedemptions);
+        request.setMaxRedemptionsPerUser(maxPerUser);
+        return request;
+    }
+}
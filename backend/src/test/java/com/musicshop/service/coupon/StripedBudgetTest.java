@@ -0,0 +1,63 @@
+package com.musicshop.service.coupon;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StripedBudgetTest {
+
+    @Test
+    void aThreadDrainsEveryStripeBeforeBeingRefused() {
+        StripedBudget budget = new StripedBudget(5, 4);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(budget.take()).isTrue();
+        }
+        assertThat(budget.take()).isFalse();
+        assertThat(budget.remaining()).isZero();
+
+        budget.give(2);
+        assertThat(budget.remaining()).isEqualTo(2);
+        assertThat(budget.take()).isTrue();
+    }
+
+    @Test
+    void concurrentTakesNeverExceedTheBudget() throws Exception {
+        StripedBudget budget = new StripedBudget(1000, 8);
+        List<Callable<Integer>> takers = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            takers.add(() -> {
+                int taken = 0;
+                for (int attempt = 0; attempt < 100; attempt++) {
+                    if (budget.take()) {
+                        taken++;
+                    }
+                }
+                return taken;
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        int taken = 0;
+        for (Future<Integer> taker : executor.invokeAll(takers)) {
+            taken += taker.get();
+        }
+        executor.shutdown();
+
+        assertThat(taken).isEqualTo(1000);
+        assertThat(budget.remaining()).isZero();
+    }
+
+    @Test
+    void rejectsNegativeUnitsAndNoStripes() {
+        assertThatThrownBy(() -> new StripedBudget(-1, 4)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new StripedBudget(10, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
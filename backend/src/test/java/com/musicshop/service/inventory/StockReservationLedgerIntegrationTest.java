@@ -0,0 +1,215 @@
+package com.musicshop.service.inventory;
+
+import com.musicshop.exception.InsufficientStockException;
+import com.musicshop.repository.inventory.StockDebitRepository;
+import com.musicshop.repository.product.ProductRepository;
+import com.musicshop.repository.user.UserRepository;
+import com.musicshop.service.cart.CartService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class StockReservationLedgerIntegrationTest {
+
+    private static final AtomicInteger nextProduct = new AtomicInteger();
+
+    @Autowired
+    private StockReservationLedger ledger;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StockDebitRepository stockDebitRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Long userId;
+    private Long productId;
+
+    @BeforeEach
+    void setUp() {
+        userId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM users", Long.class);
+        cartService.getCartForUser(userRepository.findById(userId).orElseThrow());
+        // A product no other test has touched, so its counter starts unloaded
+        productId = jdbcTemplate.queryForObject("SELECT id FROM products ORDER BY id LIMIT 1 OFFSET ?",
+                Long.class, nextProduct.getAndIncrement());
+        jdbcTemplate.update("UPDATE products SET quantity_available = 20 WHERE id = ?", productId);
+    }
+
+    @Test
+    void concurrentAddsNeverOversell() throws Exception {
+        // Eight shoppers with their own carts, five single-unit adds each
+        List<Callable<Integer>> shoppers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            String email = "shopper-" + productId + "-" + i + "@example.com";
+            jdbcTemplate.update("INSERT INTO users (email) VALUES (?)", email);
+            Long shopperId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = ?", Long.class, email);
+            shoppers.add(() -> {
+                int succeeded = 0;
+                for (int attempt = 0; attempt < 5; attempt++) {
+                    try {
+                        cartService.addProductToCart(shopperId, productId, 1);
+                        succeeded++;
+                    } catch (InsufficientStockException e) {
+                        // sold out
+                    }
+                }
+                return succeeded;
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        int added = 0;
+        for (Future<Integer> shopper : executor.invokeAll(shoppers)) {
+            added += shopper.get();
+        }
+        executor.shutdown();
+
+        assertThat(added).isEqualTo(20);
+        assertThat(ledger.availableUnits(productId)).isZero();
+        assertThat(storedQuantity()).isEqualTo(20);
+
+        ledger.flush();
+
+        assertThat(storedQuantity()).isZero();
+        assertThat(ledger.pendingUnits(productId)).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT SUM(quantity) FROM cart_details WHERE product_id = ?",
+                Integer.class, productId)).isEqualTo(20);
+    }
+
+    @Test
+    void rolledBackAddReturnsTheUnits() {
+        cartService.addProductToCart(userId, productId, 5);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            cartService.addProductToCart(userId, productId, 4);
+            status.setRollbackOnly();
+        });
+
+        assertThat(ledger.availableUnits(productId)).isEqualTo(15);
+        assertThat(ledger.pendingUnits(productId)).isEqualTo(5);
+    }
+
+    @Test
+    void failedJournalWriteReturnsTheUnits() {
+        StockDebitRepository failing = mock(StockDebitRepository.class);
+        when(failing.save(any())).thenThrow(new IllegalStateException("journal unavailable"));
+        StockReservationLedger broken = new StockReservationLedger(productRepository, failing,
+                eventPublisher, Duration.ofMinutes(2), System::nanoTime);
+
+        assertThatThrownBy(() -> broken.reserve(productId, 4)).isInstanceOf(IllegalStateException.class);
+
+        assertThat(broken.availableUnits(productId)).isEqualTo(20);
+    }
+
+    @Test
+    void expiredReservationsAreReleased() {
+        cartService.addProductToCart(userId, productId, 1);
+        StockReservationLedger.Reservation lost = ledger.hold(productId, 6);
+        assertThat(ledger.availableUnits(productId)).isEqualTo(13);
+
+        assertThat(ledger.expireReservations(System.nanoTime() + Duration.ofHours(1).toNanos()))
+                .isGreaterThanOrEqualTo(1);
+        assertThat(ledger.availableUnits(productId)).isEqualTo(19);
+
+        // A late commit of the expired reservation takes its units again
+        ledger.confirm(lost);
+        assertThat(ledger.availableUnits(productId)).isEqualTo(13);
+        assertThat(ledger.pendingUnits(productId)).isEqualTo(1);
+    }
+
+    @Test
+    void rejectedWriteBackIsKeptUntilStockComesBack() {
+        cartService.addProductToCart(userId, productId, 8);
+        jdbcTemplate.update("UPDATE products SET quantity_available = 3 WHERE id = ?", productId);
+
+        ledger.flush();
+
+        assertThat(storedQuantity()).isEqualTo(3);
+        assertThat(ledger.pendingUnits(productId)).isEqualTo(8);
+        assertThat(ledger.availableUnits(productId)).isEqualTo(-1);
+        assertThatThrownBy(() -> cartService.addProductToCart(userId, productId, 1))
+                .isInstanceOf(InsufficientStockException.class);
+        assertThat(ledger.availableUnits(productId)).isEqualTo(-5);
+
+        // Giving the cart's units back lets the kept debit through without inflating the stock
+        cartService.deleteCartDetail(jdbcTemplate.queryForObject(
+                "SELECT id FROM cart_details WHERE product_id = ?", Long.class, productId));
+        ledger.flush();
+
+        assertThat(storedQuantity()).isEqualTo(3);
+        assertThat(ledger.pendingUnits(productId)).isZero();
+        assertThat(ledger.availableUnits(productId)).isEqualTo(3);
+    }
+
+    @Test
+    void journaledDebitsSurviveARestart() {
+        cartService.addProductToCart(userId, productId, 5);
+
+        // A fresh ledger, as after a crash before the write-back
+        StockReservationLedger restarted = new StockReservationLedger(productRepository, stockDebitRepository,
+                eventPublisher, Duration.ofMinutes(2), System::nanoTime);
+        assertThatThrownBy(() -> restarted.hold(productId, 16))
+                .isInstanceOf(InsufficientStockException.class);
+        assertThat(restarted.availableUnits(productId)).isEqualTo(15);
+
+        transactionTemplate.executeWithoutResult(status -> restarted.flush());
+
+        assertThat(storedQuantity()).isEqualTo(15);
+        assertThat(restarted.pendingUnits(productId)).isZero();
+        assertThat(restarted.availableUnits(productId)).isEqualTo(15);
+    }
+
+    @Test
+    void removingALineRestocksThroughTheLedger() {
+        cartService.addProductToCart(userId, productId, 6);
+        ledger.flush();
+        assertThat(storedQuantity()).isEqualTo(14);
+
+        cartService.deleteCartDetail(jdbcTemplate.queryForObject(
+                "SELECT id FROM cart_details WHERE product_id = ?", Long.class, productId));
+
+        assertThat(storedQuantity()).isEqualTo(20);
+        assertThat(ledger.availableUnits(productId)).isEqualTo(20);
+    }
+
+    private int storedQuantity() {
+        return jdbcTemplate.queryForObject("SELECT quantity_available FROM products WHERE id = ?", Integer.class,
+                productId);
+    }
+}
@@ -0,0 +1,193 @@
+package com.musicshop.service.outbox;
+
+import com.musicshop.event.product.ProductUpdateEvent;
+import com.musicshop.model.user.Notification;
+import com.musicshop.repository.product.ProductRepository;
+import com.musicshop.service.cart.CartService;
+import com.musicshop.service.notification.NotificationBroker;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(properties = {
+        "outbox.retry.initial-backoff=1h",
+        "outbox.retry.max-backoff=8h"
+})
+@ActiveProfiles("test")
+class OutboxDispatcherIntegrationTest {
+
+    @Autowired
+    private OutboxDispatcher dispatcher;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private NotificationBroker notificationBroker;
+
+    private final List<Long> shoppers = new ArrayList<>();
+    private Long productId;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher.dispatch();
+        clearInvocations(notificationBroker);
+        jdbcTemplate.update("DELETE FROM outbox_messages");
+        jdbcTemplate.update("DELETE FROM notifications");
+        shoppers.clear();
+        productId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM products", Long.class);
+        jdbcTemplate.update("UPDATE products SET quantity_available = 1000 WHERE id = ?", productId);
+        for (String email : List.of("john.doe@example.com", "jane.smith@example.com", "admin@musicshop.com")) {
+            Long userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = ?", Long.class, email);
+            cartService.addProductToCart(userId, productId, 1);
+            shoppers.add(userId);
+        }
+    }
+
+    @Test
+    void notificationsArePushedOnlyAfterTheirTransactionCommits() {
+        transactionTemplate.executeWithoutResult(status -> {
+            publishProductUpdate();
+            status.setRollbackOnly();
+        });
+        assertThat(count("notifications")).isZero();
+        assertThat(count("outbox_messages")).isZero();
+
+        transactionTemplate.executeWithoutResult(status -> publishProductUpdate());
+        assertThat(count("notifications")).isEqualTo(3);
+        assertThat(count("outbox_messages")).isEqualTo(3);
+        verify(notificationBroker, never()).sendToUser(any(), any());
+        double delivered = meterRegistry.get("outbox.dispatch.messages").counter().count();
+
+        dispatcher.dispatch();
+
+        ArgumentCaptor<Notification> pushed = ArgumentCaptor.forClass(Notification.class);
+        for (Long userId : shoppers) {
+            verify(notificationBroker).sendToUser(eq(userId), pushed.capture());
+        }
+        assertThat(pushed.getAllValues()).allSatisfy(notification ->
+                assertThat(notification.getMessage()).contains("was updated"));
+        assertThat(count("outbox_messages")).isZero();
+        assertThat(meterRegistry.get("outbox.dispatch.messages").counter().count() - delivered).isEqualTo(3);
+        assertThat(meterRegistry.get("outbox.dispatch.lag").timer().count()).isPositive();
+        assertThat(meterRegistry.get("outbox.dispatch.batch.size").summary().count()).isPositive();
+    }
+
+    @Test
+    void aFailedPushHoldsBackOnlyItsUsersLaterMessages() {
+        Long failing = shoppers.get(0);
+        AtomicBoolean failOnce = new AtomicBoolean(true);
+        doAnswer(invocation -> {
+            if (failing.equals(invocation.getArgument(0)) && failOnce.compareAndSet(true, false)) {
+                throw new IllegalStateException("stream closed");
+            }
+            return null;
+        }).when(notificationBroker).sendToUser(any(), any());
+        for (int i = 0; i < 3; i++) {
+            transactionTemplate.executeWithoutResult(status -> publishProductUpdate());
+        }
+
+        dispatcher.dispatch();
+
+        for (Long userId : shoppers.subList(1, shoppers.size())) {
+            verify(notificationBroker, times(3)).sendToUser(eq(userId), any());
+        }
+        verify(notificationBroker, times(1)).sendToUser(eq(failing), any());
+        assertThat(count("outbox_messages")).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForList("SELECT attempts FROM outbox_messages ORDER BY id", Integer.class))
+                .containsExactly(1, 0, 0);
+
+        // Backing off: nothing of the user's is handed out again yet
+        dispatcher.drain();
+        verify(notificationBroker, times(1)).sendToUser(eq(failing), any());
+
+        expireHolds();
+        dispatcher.drain();
+
+        ArgumentCaptor<Notification> pushed = ArgumentCaptor.forClass(Notification.class);
+        verify(notificationBroker, times(4)).sendToUser(eq(failing), pushed.capture());
+        // The failed first attempt, then the user's three messages in commit order
+        List<Long> ids = pushed.getAllValues().stream().skip(1).map(Notification::getId).toList();
+        assertThat(ids).isSorted().doesNotHaveDuplicates();
+        assertThat(count("outbox_messages")).isZero();
+    }
+
+    @Test
+    void claimedMessagesAreLeasedToOneDispatcher() {
+        transactionTemplate.executeWithoutResult(status -> publishProductUpdate());
+
+        assertThat(outboxService.claimBatch(10)).hasSize(3);
+        assertThat(outboxService.claimBatch(10)).isEmpty();
+        dispatcher.drain();
+        verify(notificationBroker, never()).sendToUser(any(), any());
+
+        // A dispatcher that died holding the lease: its messages are handed out again
+        expireHolds();
+        dispatcher.drain();
+
+        for (Long userId : shoppers) {
+            verify(notificationBroker).sendToUser(eq(userId), any());
+        }
+        assertThat(count("outbox_messages")).isZero();
+    }
+
+    @Test
+    void retriesBackOffExponentially() {
+        assertThat(dispatcher.backoff(0)).isEqualTo(Duration.ofHours(1));
+        assertThat(dispatcher.backoff(2)).isEqualTo(Duration.ofHours(4));
+        assertThat(dispatcher.backoff(40)).isEqualTo(Duration.ofHours(8));
+    }
+
+    private void expireHolds() {
+        jdbcTemplate.update("UPDATE outbox_messages SET available_at = ?", LocalDateTime.now().minusSeconds(1));
+    }
+
+    private void publishProductUpdate() {
+        eventPublisher.publishEvent(new ProductUpdateEvent(this, productRepository.findById(productId).orElseThrow()));
+    }
+
+    private long count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    }
+}
@@ -0,0 +1,48 @@
+package com.musicshop.service.product;
+
+import com.musicshop.model.product.ProductSortType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProductCursorTest {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 3, 1, 12, 30, 15, 123_000_000);
+
+    @Test
+    void priceCursorRoundTrips() {
+        ProductCursor cursor = new ProductCursor(ProductSortType.PRICE_DESC, new BigDecimal("1299.99"), null, 0, 42L);
+
+        assertThat(ProductCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void recommendedCursorKeepsTheExactScore() {
+        ProductCursor cursor = new ProductCursor(ProductSortType.RECOMMENDED, null, null, 4.183_726_451_902_3, 7L);
+
+        ProductCursor decoded = ProductCursor.decode(cursor.encode());
+
+        assertThat(decoded.recommendedScore()).isEqualTo(4.183_726_451_902_3);
+        assertThat(decoded.id()).isEqualTo(7L);
+    }
+
+    @Test
+    void newestCursorKeepsCreationTime() {
+        ProductCursor cursor = new ProductCursor(ProductSortType.NEWEST, null, CREATED_AT, 0, 3L);
+
+        assertThat(ProductCursor.decode(cursor.encode()).createdAt()).isEqualTo(CREATED_AT);
+    }
+
+    @Test
+    void malformedTokensAreRejected() {
+        assertThatThrownBy(() -> ProductCursor.decode("not a cursor"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid cursor");
+        assertThatThrownBy(() -> ProductCursor.decode("djF8TkVXRVNUfHllc3RlcmRheXwx"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,98 @@
+package com.musicshop.service.product;
+
+import com.musicshop.dto.product.DetailedProductDTO;
+import com.musicshop.model.product.ProductCondition;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductDetailCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Function<Long, Optional<DetailedProductDTO>> loader = id -> {
+        loads.incrementAndGet();
+        return id > 0 ? Optional.of(detail(id)) : Optional.empty();
+    };
+
+    @Test
+    void servesRepeatedReadsFromCache() {
+        ProductDetailCache cache = new ProductDetailCache(true, 10, Duration.ofMinutes(1), now::get);
+
+        cache.get(1L, loader);
+        Optional<DetailedProductDTO> cached = cache.get(1L, loader);
+
+        assertThat(cached).map(DetailedProductDTO::getId).contains(1L);
+        assertThat(loads).hasValue(1);
+        assertThat(cache.hitCount()).isEqualTo(1);
+        assertThat(cache.missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedBeyondMaxSize() {
+        ProductDetailCache cache = new ProductDetailCache(true, 2, Duration.ofMinutes(1), now::get);
+
+        cache.get(1L, loader);
+        cache.get(2L, loader);
+        cache.get(1L, loader);
+        cache.get(3L, loader);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.evictionCount()).isEqualTo(1);
+        cache.get(2L, loader);
+        assertThat(loads).hasValue(4);
+    }
+
+    @Test
+    void expiresEntriesAfterTtl() {
+        ProductDetailCache cache = new ProductDetailCache(true, 10, Duration.ofSeconds(30), now::get);
+
+        cache.get(1L, loader);
+        now.addAndGet(Duration.ofSeconds(31).toNanos());
+        cache.get(1L, loader);
+
+        assertThat(loads).hasValue(2);
+        assertThat(cache.evictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidationDuringLoadPreventsCachingStaleValue() {
+        ProductDetailCache cache = new ProductDetailCache(true, 10, Duration.ofMinutes(1), now::get);
+
+        cache.get(1L, id -> {
+            cache.invalidate(id);
+            return loader.apply(id);
+        });
+        cache.get(1L, loader);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void absentProductsAndDisabledCacheAlwaysLoad() {
+        ProductDetailCache disabled = new ProductDetailCache(false, 10, Duration.ofMinutes(1), now::get);
+        ProductDetailCache enabled = new ProductDetailCache(true, 10, Duration.ofMinutes(1), now::get);
+
+        disabled.get(1L, loader);
+        disabled.get(1L, loader);
+        enabled.get(-1L, loader);
+        enabled.get(-1L, loader);
+
+        assertThat(loads).hasValue(4);
+        assertThat(disabled.size()).isZero();
+        assertThat(enabled.size()).isZero();
+    }
+
+    private static DetailedProductDTO detail(Long id) {
+        return new DetailedProductDTO(id, "Product " + id, "product-" + id, "desc", BigDecimal.TEN, 1,
+                "Guitars", "Fender", ProductCondition.GOOD, null, false, List.of());
+    }
+}
@@ -0,0 +1,74 @@
+package com.musicshop.service.product;
+
+import com.musicshop.dto.category.CategoryDTO;
+import com.musicshop.dto.product.DetailedProductDTO;
+import com.musicshop.dto.product.ProductUpsertRequest;
+import com.musicshop.dto.product.SimpleProductDTO;
+import com.musicshop.model.product.ProductCondition;
+import com.musicshop.service.category.CategoryService;
+import com.musicshop.service.search.ProductSearchService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * With {@code search.index.max-candidates=0} every listing query takes the
+ * database fallback, which must match exactly what the index matches.
+ */
+@SpringBootTest(properties = "search.index.max-candidates=0")
+@ActiveProfiles("test")
+class ProductQueryFallbackIntegrationTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Test
+    void fallbackMatchesTheSameProductsAsTheIndex() {
+        CategoryDTO category = categoryService.findAllProperties().get(0);
+        DetailedProductDTO created = productService.createProduct(
+                product("Violin Bass", "Höfner-style hollow body, 1962/Reissue", category.getId()));
+
+        for (String query : List.of("hofner", "HÖFNER violin", "style reissue", "1962", "bass", "guitar",
+                "er", "ofner", "violin nothing", "!!!")) {
+            assertThat(listed(query))
+                    .as(query)
+                    .isEqualTo(productSearchService.findAllMatchingIds(query).orElseThrow());
+        }
+        assertThat(listed("höfner style")).containsExactly(created.getId());
+        assertThat(listed("ofner")).isEmpty();
+
+        productService.deleteProduct(created.getId());
+    }
+
+    private Set<Long> listed(String query) {
+        return productService.listProducts(query, null, List.of(), null, null, null, null, false, 0, 10_000)
+                .getContent().stream()
+                .map(SimpleProductDTO::getId)
+                .collect(Collectors.toSet());
+    }
+
+    private static ProductUpsertRequest product(String name, String description, Long categoryId) {
+        ProductUpsertRequest request = new ProductUpsertRequest();
+        request.setName(name);
+        request.setDescription(description);
+        request.setPrice(new BigDecimal("100.00"));
+        request.setQuantityAvailable(3);
+        request.setCategoryId(categoryId);
+        request.setCondition(ProductCondition.GOOD);
+        return request;
+    }
+}
@@ -0,0 +1,42 @@
+package com.musicshop.service.product;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductRankingServiceTest {
+
+    private static final Duration NEW = Duration.ZERO;
+    private static final Duration OLD = Duration.ofDays(365);
+
+    @Test
+    void promotionRatingSalesAndRecencyAllRaiseTheScore() {
+        double baseline = ProductRankingService.score(false, null, 0, 0, OLD, true);
+
+        assertThat(ProductRankingService.score(true, null, 0, 0, OLD, true)).isGreaterThan(baseline);
+        assertThat(ProductRankingService.score(false, 5.0, 3, 0, OLD, true)).isGreaterThan(baseline);
+        assertThat(ProductRankingService.score(false, null, 0, 12, OLD, true)).isGreaterThan(baseline);
+        assertThat(ProductRankingService.score(false, null, 0, 0, NEW, true)).isGreaterThan(baseline);
+    }
+
+    @Test
+    void ratingsAreSmoothedTowardsNeutral() {
+        double singleFiveStar = ProductRankingService.score(false, 5.0, 1, 0, OLD, true);
+        double manyFourStars = ProductRankingService.score(false, 4.0, 40, 0, OLD, true);
+        double unrated = ProductRankingService.score(false, null, 0, 0, OLD, true);
+        double poorlyRated = ProductRankingService.score(false, 1.0, 10, 0, OLD, true);
+
+        assertThat(manyFourStars).isGreaterThan(singleFiveStar);
+        assertThat(unrated).isGreaterThan(poorlyRated);
+    }
+
+    @Test
+    void outOfStockProductsSinkBelowEveryInStockProduct() {
+        double bestOutOfStock = ProductRankingService.score(true, 5.0, 100, 500, NEW, false);
+        double worstInStock = ProductRankingService.score(false, 1.0, 100, 0, OLD, true);
+
+        assertThat(bestOutOfStock).isLessThan(worstInStock);
+    }
+}
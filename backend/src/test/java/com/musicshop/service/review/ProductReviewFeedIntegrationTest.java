@@ -0,0 +1,124 @@
+package com.musicshop.service.review;
+
+import com.musicshop.dto.review.ProductReviewsDTO;
+import com.musicshop.dto.review.ReviewDTO;
+import com.musicshop.repository.product.ProductRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.persistence.EntityManagerFactory;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductReviewFeedIntegrationTest {
+
+    private static final int REVIEWS = 40;
+
+    @Autowired
+    private ReviewService reviewService;
+
+    @Autowired
+    private ReviewAggregateService reviewAggregateService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Long productId;
+
+    @BeforeEach
+    void seedReviews() {
+        productId = jdbcTemplate.queryForObject(
+                "SELECT MIN(id) FROM products WHERE id NOT IN (SELECT product_id FROM reviews)", Long.class);
+        Long userId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM users", Long.class);
+        Long categoryId = jdbcTemplate.queryForObject("SELECT category_id FROM products WHERE id = ?", Long.class,
+                productId);
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 12, 0);
+        for (int i = 0; i < REVIEWS; i++) {
+            // Pairs share a timestamp so the ID tie-breaker is exercised
+            jdbcTemplate.update("INSERT INTO reviews (user_id, product_id, category_id, rating, comment, date_posted, "
+                    + "verified_purchase) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                    userId, productId, categoryId, i % 5 + 1, "Feed review " + i,
+                    Timestamp.valueOf(base.plusHours(i / 2)), i % 3 == 0);
+        }
+        reviewAggregateService.rebuild();
+    }
+
+    @Test
+    void pagesThroughTheWholeFeedNewestFirstWithoutGapsOrDuplicates() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        List<ReviewDTO> seen = new ArrayList<>();
+        String cursor = null;
+        ProductReviewsDTO page;
+        do {
+            statistics.clear();
+            page = reviewService.getProductReviews(productId, null, null, cursor, 7);
+            assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(3);
+            seen.addAll(page.getReviews());
+            cursor = page.getNextCursor();
+        } while (page.isHasNext());
+
+        assertThat(seen).hasSize(REVIEWS);
+        assertThat(seen).extracting(ReviewDTO::getId).doesNotHaveDuplicates();
+        assertThat(seen).isSortedAccordingTo(Comparator.comparing(ReviewDTO::getDatePosted)
+                .thenComparing(ReviewDTO::getId).reversed());
+        assertThat(page.getReviewCount()).isEqualTo(REVIEWS);
+        assertThat(page.getRatingHistogram().getFiveStars()).isEqualTo(REVIEWS / 5);
+    }
+
+    @Test
+    void filtersApplyAcrossPages() {
+        assertThat(collect(5, null)).hasSize(REVIEWS / 5).allMatch(review -> review.getRating() == 5);
+
+        List<ReviewDTO> verified = collect(null, true);
+        assertThat(verified).allMatch(ReviewDTO::isVerifiedPurchase);
+        assertThat(verified).hasSize((REVIEWS + 2) / 3);
+
+        Predicate<ReviewDTO> fiveStarVerified = review -> review.getRating() == 5 && review.isVerifiedPurchase();
+        assertThat(collect(5, true)).allMatch(fiveStarVerified).isNotEmpty();
+    }
+
+    @Test
+    void cursorFromAnotherProductIsRejected() {
+        String cursor = reviewService.getProductReviews(productId, null, null, null, 1).getNextCursor();
+        Long otherProduct = productRepository.findAll().stream()
+                .map(product -> product.getId())
+                .filter(id -> !id.equals(productId))
+                .findFirst().orElseThrow();
+
+        assertThatThrownBy(() -> reviewService.getProductReviews(otherProduct, null, null, cursor, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private List<ReviewDTO> collect(Integer rating, Boolean verified) {
+        List<ReviewDTO> reviews = new ArrayList<>();
+        String cursor = null;
+        ProductReviewsDTO page;
+        do {
+            page = reviewService.getProductReviews(productId, rating, verified, cursor, 3);
+            reviews.addAll(page.getReviews());
+            cursor = page.getNextCursor();
+        } while (page.isHasNext());
+        return reviews;
+    }
+}
@@ -0,0 +1,115 @@
+package com.musicshop.service.review;
+
+import com.musicshop.dto.product.SimpleProductDTO;
+import com.musicshop.dto.review.CategoryReviewsDTO;
+import com.musicshop.model.product.Product;
+import com.musicshop.model.product.Review;
+import com.musicshop.repository.product.ProductRepository;
+import com.musicshop.repository.user.UserRepository;
+import com.musicshop.service.category.CategoryService;
+import com.musicshop.service.product.ProductService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ReviewAggregateIntegrationTest {
+
+    @Autowired
+    private ReviewService reviewService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void startupRebuildMatchesTheReviewsTable() {
+        String rootSlug = categoryService.findAllProperties().get(0).getSlug();
+        List<Long> subtree = categoryService.findSubtreeIds(rootSlug);
+        String ids = subtree.stream().map(String::valueOf).reduce((a, b) -> a + "," + b).orElseThrow();
+        long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM reviews WHERE category_id IN (" + ids + ")", Long.class);
+        long fiveStars = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM reviews WHERE rating = 5 AND category_id IN (" + ids + ")", Long.class);
+
+        CategoryReviewsDTO reviews = reviewService.getReviewsByCategory(rootSlug, 0, 5);
+
+        assertThat(reviews.getReviewCount()).isEqualTo(count);
+        assertThat(reviews.getRatingHistogram().getFiveStars()).isEqualTo(fiveStars);
+        assertThat(reviews.getReviews()).hasSizeLessThanOrEqualTo(5);
+    }
+
+    @Test
+    void createReviewUpdatesProductAndCategoryChain() {
+        Long productId = transactionTemplate.execute(status -> productRepository.findAll().stream()
+                .filter(product -> product.getCategory().getParentCategory() != null)
+                .findFirst().orElseThrow().getId());
+        Product product = productRepository.findById(productId).orElseThrow();
+        Long categoryId = product.getCategory().getId();
+        List<Long> ancestors = categoryService.findAncestorIds(categoryId);
+        String rootSlug = slugOf(ancestors.get(ancestors.size() - 1));
+        CategoryReviewsDTO rootBefore = reviewService.getReviewsByCategory(rootSlug, 0, 1);
+        long productReviewsBefore = listed(product).getReviewCount();
+
+        reviewService.createReview(review(product, 2));
+        reviewService.createReview(review(product, 2));
+
+        CategoryReviewsDTO rootAfter = reviewService.getReviewsByCategory(rootSlug, 0, 1);
+        assertThat(rootAfter.getReviewCount()).isEqualTo(rootBefore.getReviewCount() + 2);
+        assertThat(rootAfter.getRatingHistogram().getTwoStars())
+                .isEqualTo(rootBefore.getRatingHistogram().getTwoStars() + 2);
+        SimpleProductDTO listed = listed(product);
+        assertThat(listed.getReviewCount()).isEqualTo(productReviewsBefore + 2);
+        assertThat(listed.getAverageRating()).isNotNull();
+    }
+
+    @Test
+    void ratingsOutsideOneToFiveAreRejected() {
+        Product product = productRepository.findAll().get(0);
+        assertThatThrownBy(() -> reviewService.createReview(review(product, 6)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private SimpleProductDTO listed(Product product) {
+        return productService.listProducts(product.getName(), null, null, null, null, null, null, false, 0, 50)
+                .getContent().stream()
+                .filter(row -> row.getId().equals(product.getId()))
+                .findFirst().orElseThrow();
+    }
+
+    private String slugOf(Long categoryId) {
+        return jdbcTemplate.queryForObject("SELECT slug FROM categories WHERE id = ?", String.class, categoryId);
+    }
+
+    private Review review(Product product, int rating) {
+        Review review = new Review();
+        review.setUser(userRepository.findAll().get(0));
+        review.setProduct(product);
+        review.setRating(rating);
+        review.setComment("Aggregate test review");
+        return review;
+    }
+}
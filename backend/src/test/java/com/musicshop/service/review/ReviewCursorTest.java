@@ -0,0 +1,27 @@
+package com.musicshop.service.review;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReviewCursorTest {
+
+    @Test
+    void cursorRoundTripsWithFullPrecision() {
+        ReviewCursor cursor = new ReviewCursor(12L, LocalDateTime.of(2024, 5, 2, 8, 0, 1, 987_654_321), 99L);
+
+        assertThat(ReviewCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void malformedTokensAreRejected() {
+        assertThatThrownBy(() -> ReviewCursor.decode("not a cursor"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid cursor");
+        assertThatThrownBy(() -> ReviewCursor.decode("djF8MTJ8eWVzdGVyZGF5fDE"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,109 @@
+package com.musicshop.service.search;
+
+import com.musicshop.model.product.ProductCondition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductFacetIndexTest {
+
+    private static final long ELECTRIC_GUITARS = 11L;
+    private static final long BASS_GUITARS = 12L;
+    private static final long PIANOS = 21L;
+
+    private final ProductFacetIndex index = new ProductFacetIndex();
+
+    @BeforeEach
+    void setUp() {
+        index.put(document(1L, "fender", ELECTRIC_GUITARS, ProductCondition.EXCELLENT, "899.00"));
+        index.put(document(2L, "gibson", ELECTRIC_GUITARS, ProductCondition.GOOD, "2199.00"));
+        index.put(document(3L, "fender", BASS_GUITARS, ProductCondition.GOOD, "749.00"));
+        index.put(document(4L, "yamaha", PIANOS, ProductCondition.FAIR, "79.00"));
+    }
+
+    @Test
+    void countsEachProductUnderItsOwnCategory() {
+        ProductFacetIndex.Counts counts = index.count(filter(null, null, List.of(), List.of()));
+
+        assertThat(counts.total()).isEqualTo(4);
+        assertThat(counts.categories()).containsOnly(Map.entry(ELECTRIC_GUITARS, 2L),
+                Map.entry(BASS_GUITARS, 1L), Map.entry(PIANOS, 1L));
+        assertThat(counts.brands()).containsEntry("fender", 2L).containsEntry("yamaha", 1L);
+        assertThat(counts.priceBuckets()).containsExactly(1L, 0L, 0L, 2L, 1L, 0L);
+    }
+
+    @Test
+    void facetsIgnoreTheirOwnFilterButApplyTheOthers() {
+        ProductFacetIndex.Counts counts = index.count(
+                filter(null, List.of(ELECTRIC_GUITARS, BASS_GUITARS), List.of("fender"), List.of(ProductCondition.GOOD)));
+
+        assertThat(counts.total()).isEqualTo(1);
+        assertThat(counts.brands()).containsEntry("fender", 1L).containsEntry("gibson", 1L);
+        assertThat(counts.conditions()).containsEntry(ProductCondition.GOOD, 1L)
+                .containsEntry(ProductCondition.EXCELLENT, 1L);
+        assertThat(counts.categories()).containsEntry(BASS_GUITARS, 1L).containsEntry(ELECTRIC_GUITARS, 0L);
+    }
+
+    @Test
+    void anEmptyCategorySubtreeMatchesNothing() {
+        ProductFacetIndex.Counts counts = index.count(filter(null, List.of(), List.of(), List.of()));
+
+        assertThat(counts.total()).isZero();
+        assertThat(counts.categories()).containsEntry(PIANOS, 1L);
+    }
+
+    @Test
+    void candidateIdsAndPriceRangeRestrictTheBaseSet() {
+        ProductFacetIndex.Counts counts = index.count(new ProductFacetIndex.Filter(
+                Set.of(1L, 2L, 4L), null, List.of(), new BigDecimal("100"), new BigDecimal("1000"), List.of()));
+
+        assertThat(counts.total()).isEqualTo(1);
+        assertThat(counts.brands()).containsEntry("fender", 1L).containsEntry("gibson", 0L);
+        assertThat(counts.priceBuckets()).containsExactly(1L, 0L, 0L, 1L, 1L, 0L);
+    }
+
+    @Test
+    void priceBoundsInsideABucketAreInclusive() {
+        ProductFacetIndex.Counts counts = index.count(new ProductFacetIndex.Filter(
+                null, null, List.of(), new BigDecimal("750"), new BigDecimal("2199.00"), List.of()));
+
+        assertThat(counts.total()).isEqualTo(2);
+        assertThat(counts.brands()).containsEntry("fender", 1L).containsEntry("gibson", 1L);
+
+        counts = index.count(new ProductFacetIndex.Filter(
+                null, null, List.of(), null, new BigDecimal("100"), List.of()));
+
+        assertThat(counts.total()).isEqualTo(1);
+        assertThat(counts.brands()).containsEntry("yamaha", 1L);
+    }
+
+    @Test
+    void putReplacesAndRemoveClearsPreviousBits() {
+        index.put(document(4L, "roland", PIANOS, ProductCondition.EXCELLENT, "129.00"));
+        index.remove(3L);
+
+        ProductFacetIndex.Counts counts = index.count(filter(null, null, List.of(), List.of()));
+
+        assertThat(counts.total()).isEqualTo(3);
+        assertThat(counts.brands()).containsEntry("roland", 1L).doesNotContainKey("yamaha");
+        assertThat(counts.categories()).doesNotContainKey(BASS_GUITARS);
+        assertThat(counts.conditions()).containsEntry(ProductCondition.FAIR, 0L);
+    }
+
+    private static ProductFacetIndex.Filter filter(Set<Long> candidateIds, Collection<Long> categoryIds,
+            List<String> brandSlugs, List<ProductCondition> conditions) {
+        return new ProductFacetIndex.Filter(candidateIds, categoryIds, brandSlugs, null, null, conditions);
+    }
+
+    private static ProductFacetIndex.Document document(Long id, String brandSlug, Long categoryId,
+            ProductCondition condition, String price) {
+        return new ProductFacetIndex.Document(id, brandSlug, brandSlug, categoryId, condition, new BigDecimal(price));
+    }
+}
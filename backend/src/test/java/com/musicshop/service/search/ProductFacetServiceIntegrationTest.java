@@ -0,0 +1,86 @@
+package com.musicshop.service.search;
+
+import com.musicshop.dto.category.CategoryDTO;
+import com.musicshop.dto.category.CreateCategoryRequest;
+import com.musicshop.dto.product.DetailedProductDTO;
+import com.musicshop.dto.product.FacetCountDTO;
+import com.musicshop.dto.product.ProductFacetsDTO;
+import com.musicshop.dto.product.ProductUpsertRequest;
+import com.musicshop.model.product.ProductCondition;
+import com.musicshop.service.category.CategoryService;
+import com.musicshop.service.product.ProductService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductFacetServiceIntegrationTest {
+
+    @Autowired
+    private ProductFacetService productFacetService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Test
+    void categoryFacetsCoverEveryLevelOfTheSubtree() {
+        CategoryDTO root = categoryService.findAllProperties().get(0);
+        CategoryDTO middle = categoryService.createCategory(request("Faceted Middle", "faceted-middle"), root.getId());
+        CategoryDTO leaf = categoryService.createCategory(request("Faceted Leaf", "faceted-leaf"), middle.getId());
+        long rootBefore = facets(root.getSlug()).getTotalCount();
+
+        DetailedProductDTO created = productService.createProduct(product("Faceted Guitar", leaf.getId()));
+
+        ProductFacetsDTO underRoot = facets(root.getSlug());
+        assertThat(underRoot.getTotalCount()).isEqualTo(rootBefore + 1);
+        assertThat(countOf(underRoot.getCategories(), root.getSlug())).isEqualTo(rootBefore + 1);
+        assertThat(countOf(underRoot.getCategories(), "faceted-middle")).isEqualTo(1);
+        assertThat(countOf(underRoot.getCategories(), "faceted-leaf")).isEqualTo(1);
+        assertThat(facets("faceted-middle").getTotalCount()).isEqualTo(1);
+        assertThat(facets("no-such-category").getTotalCount()).isZero();
+
+        productService.deleteProduct(created.getId());
+        categoryService.deleteCategory(leaf.getId());
+        categoryService.deleteCategory(middle.getId());
+    }
+
+    private ProductFacetsDTO facets(String categorySlug) {
+        return productFacetService.getFacets(null, categorySlug, List.of(), null, null, null);
+    }
+
+    private static long countOf(List<FacetCountDTO> facets, String slug) {
+        return facets.stream()
+                .filter(facet -> facet.getValue().equals(slug))
+                .mapToLong(FacetCountDTO::getCount)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static CreateCategoryRequest request(String name, String slug) {
+        CreateCategoryRequest request = new CreateCategoryRequest();
+        request.setCategoryName(name);
+        request.setSlug(slug);
+        return request;
+    }
+
+    private static ProductUpsertRequest product(String name, Long categoryId) {
+        ProductUpsertRequest request = new ProductUpsertRequest();
+        request.setName(name);
+        request.setDescription("Facet test product");
+        request.setPrice(new BigDecimal("100.00"));
+        request.setQuantityAvailable(3);
+        request.setCategoryId(categoryId);
+        request.setCondition(ProductCondition.GOOD);
+        return request;
+    }
+}
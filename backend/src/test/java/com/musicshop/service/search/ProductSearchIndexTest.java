@@ -0,0 +1,81 @@
+package com.musicshop.service.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductSearchIndexTest {
+
+    private final ProductSearchIndex index = new ProductSearchIndex();
+
+    @Test
+    void matchesTokenPrefixesAcrossAllIndexedFields() {
+        index.index(1L, "Stratocaster Deluxe", "Alder body", "Fender", "Electric Guitar");
+        index.index(2L, "Les Paul Standard", "Mahogany body", "Gibson", "Electric Guitar");
+        index.index(3L, "C40", "Nylon strings", "Yamaha", "Acoustic Guitar");
+
+        assertThat(index.search("strat")).containsExactly(1L);
+        assertThat(index.search("GIBSON")).containsExactly(2L);
+        assertThat(index.search("guitar")).containsExactlyInAnyOrder(1L, 2L, 3L);
+        assertThat(index.search("electric body")).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(index.search("electric nylon")).isEmpty();
+        assertThat(index.search("   ")).isEmpty();
+    }
+
+    @Test
+    void reindexReplacesPreviousTermsAndRemoveDropsProduct() {
+        index.index(1L, "Precision Bass", "Classic", "Fender", "Bass Guitar");
+        index.index(1L, "Jazz Bass", "Classic", "Fender", "Bass Guitar");
+
+        assertThat(index.search("precision")).isEmpty();
+        assertThat(index.search("jazz")).containsExactly(1L);
+
+        index.remove(1L);
+
+        assertThat(index.search("bass")).isEmpty();
+        assertThat(index.size()).isZero();
+        assertThat(index.termCount()).isZero();
+    }
+
+    @Test
+    void fuzzySearchToleratesTyposAndRanksByMatchQuality() {
+        index.index(1L, "Stratocaster Deluxe", "Alder body", "Fender", "Electric Guitar");
+        index.index(2L, "RG550", "Basswood body", "Ibanez", "Electric Guitar");
+        index.index(3L, "Strat Tribute", "Alder body", "Squier", "Electric Guitar");
+        index.index(4L, "Stratocastr Copy", "Alder body", "Harley", "Electric Guitar");
+
+        assertThat(index.fuzzySearch("ibanes", 10)).containsExactly(2L);
+        assertThat(index.fuzzySearch("stratocastr", 10)).containsExactly(4L, 1L);
+        assertThat(index.fuzzySearch("strat", 10)).containsExactly(3L, 1L, 4L);
+        assertThat(index.fuzzySearch("fendr alder", 10)).containsExactly(1L);
+        assertThat(index.fuzzySearch("ibanes alder", 10)).isEmpty();
+        assertThat(index.fuzzySearch("stratocastr", 1)).containsExactly(4L);
+        assertThat(index.fuzzySearch("stratocastr", 1, productId -> productId != 4L)).containsExactly(1L);
+        assertThat(index.fuzzySearch("zq", 10)).isEmpty();
+
+        index.remove(2L);
+        assertThat(index.fuzzySearch("ibanes", 10)).isEmpty();
+    }
+
+    @Test
+    void boundedEditDistanceStopsAtTheBudget() {
+        assertThat(ProductSearchIndex.boundedEditDistance("ibanes", "ibanez", 2)).isEqualTo(1);
+        assertThat(ProductSearchIndex.boundedEditDistance("stratocastr", "stratocaster", 2)).isEqualTo(1);
+        assertThat(ProductSearchIndex.boundedEditDistance("gibsn", "gibson", 1)).isEqualTo(1);
+        assertThat(ProductSearchIndex.boundedEditDistance("yamaha", "yamaha", 2)).isZero();
+        assertThat(ProductSearchIndex.boundedEditDistance("pual", "paul", 1)).isEqualTo(1);
+        assertThat(ProductSearchIndex.boundedEditDistance("fender", "gibson", 2)).isEqualTo(3);
+        assertThat(ProductSearchIndex.boundedEditDistance("bass", "basswood", 2)).isEqualTo(3);
+    }
+
+    @Test
+    void tokenizeNormalizesCaseAccentsAndPunctuation() {
+        List<String> tokens = ProductSearchIndex.tokenize("Höfner \"Violin\" Bass, 1962-Reissue");
+
+        assertThat(tokens).containsExactly("hofner", "violin", "bass", "1962", "reissue");
+        assertThat(Set.copyOf(ProductSearchIndex.tokenize(null))).isEmpty();
+    }
+}
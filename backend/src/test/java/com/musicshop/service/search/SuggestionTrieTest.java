@@ -0,0 +1,71 @@
+package com.musicshop.service.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SuggestionTrieTest {
+
+    private final SuggestionTrie trie = new SuggestionTrie(1000);
+
+    @Test
+    void completesFromAnyLeadingWordRankedByWeight() {
+        trie.put(SuggestionTrie.Kind.PRODUCT, "1", "Fender Player Stratocaster", "player-strat", 10);
+        trie.put(SuggestionTrie.Kind.PRODUCT, "2", "Squier Stratocaster", "squier-strat", 30);
+        trie.put(SuggestionTrie.Kind.BRAND, "fender", "Fender", "fender", 20);
+
+        assertThat(texts(trie.suggest("strat", 10)))
+                .containsExactly("Squier Stratocaster", "Fender Player Stratocaster");
+        assertThat(texts(trie.suggest("FEN", 10))).containsExactly("Fender", "Fender Player Stratocaster");
+        assertThat(texts(trie.suggest("fender  pl", 10))).containsExactly("Fender Player Stratocaster");
+        assertThat(trie.suggest("strat", 1)).hasSize(1);
+        assertThat(trie.suggest("stratx", 10)).isEmpty();
+        assertThat(trie.suggest("  ", 10)).isEmpty();
+    }
+
+    @Test
+    void normalizesCaseAndDiacritics() {
+        trie.put(SuggestionTrie.Kind.BRAND, "hofner", "Höfner", "hofner", 1);
+
+        assertThat(texts(trie.suggest("hof", 10))).containsExactly("Höfner");
+        assertThat(texts(trie.suggest("HÖF", 10))).containsExactly("Höfner");
+    }
+
+    @Test
+    void replacingAndRemovingEntriesUpdatesRanking() {
+        trie.put(SuggestionTrie.Kind.PRODUCT, "1", "Jazz Bass", "jazz-bass", 5);
+        trie.put(SuggestionTrie.Kind.PRODUCT, "2", "Jazzmaster", "jazzmaster", 10);
+        trie.put(SuggestionTrie.Kind.PRODUCT, "1", "Jazz Bass", "jazz-bass", 50);
+
+        assertThat(texts(trie.suggest("jazz", 10))).containsExactly("Jazz Bass", "Jazzmaster");
+
+        trie.put(SuggestionTrie.Kind.PRODUCT, "1", "Precision Bass", "precision-bass", 50);
+        assertThat(texts(trie.suggest("jazz", 10))).containsExactly("Jazzmaster");
+
+        trie.remove(SuggestionTrie.Kind.PRODUCT, "2");
+        trie.remove(SuggestionTrie.Kind.PRODUCT, "1");
+        assertThat(trie.suggest("j", 10)).isEmpty();
+        assertThat(trie.suggest("bass", 10)).isEmpty();
+        assertThat(trie.size()).isZero();
+    }
+
+    @Test
+    void keepsTopKAcrossLargeSubtreesAndRefusesEntriesBeyondCapacity() {
+        SuggestionTrie bounded = new SuggestionTrie(500);
+        for (int i = 0; i < 600; i++) {
+            bounded.put(SuggestionTrie.Kind.PRODUCT, Integer.toString(i), "Guitar " + i, "guitar-" + i, i);
+        }
+
+        assertThat(bounded.size()).isEqualTo(500);
+        assertThat(texts(bounded.suggest("gui", 3))).containsExactly("Guitar 499", "Guitar 498", "Guitar 497");
+        assertThat(bounded.suggest("guitar", 20)).hasSize(SuggestionTrie.TOP_K);
+        assertThat(bounded.put(SuggestionTrie.Kind.PRODUCT, "1", "Guitar 1", "guitar-1", 1000)).isTrue();
+        assertThat(texts(bounded.suggest("guitar", 1))).containsExactly("Guitar 1");
+    }
+
+    private static List<String> texts(List<SuggestionTrie.Entry> entries) {
+        return entries.stream().map(SuggestionTrie.Entry::text).toList();
+    }
+}
@@ -141,7 +141,11 @@ async function mockApi(page: Page, options: MockApiOptions): Promise<MockApiStat
 
     if (path === '/api/orders/checkout' && method === 'POST') {
       state.checkoutCalls += 1;
-      return json(200, { orderId: 501, totalAmount: 245.78, paymentStatus: 'PAID', transactionId: 'txn-smoke' });
+      return json(202, { orderId: 501, totalAmount: 245.78, paymentStatus: 'PENDING' });
+    }
+
+    if (path === '/api/orders/501' && method === 'GET') {
+      return json(200, { orderId: 501, totalAmount: 245.78, paymentStatus: 'CONFIRMED', transactionId: 'txn-smoke' });
     }
 
     if (path.startsWith('/api/users/') && method === 'GET') {
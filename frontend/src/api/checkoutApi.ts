@@ -1,13 +1,38 @@
 import {
   API_BASE,
+  fetchJson,
   postJson,
+  type OperationPath,
   type OperationRequestBody,
   type OperationResponse,
 } from '@/api/core';
 import { mapCheckoutResult } from '@/api/mappers';
 import type { CheckoutRequestPayload, CheckoutResult } from '@/types';
 
-export function submitCheckout(data: CheckoutRequestPayload): Promise<CheckoutResult> {
+const CHECKOUT_POLL_INTERVAL_MS = 1000;
+const CHECKOUT_POLL_TIMEOUT_MS = 60000;
+
+export function fetchCheckoutStatus(orderId: number): Promise<CheckoutResult> {
+  const pathParams: OperationPath<'getCheckoutStatus'> = { orderId };
+  return fetchJson<OperationResponse<'getCheckoutStatus'>>(`${API_BASE}/orders/${pathParams.orderId}`).then(
+    mapCheckoutResult,
+  );
+}
+
+// The order is placed as PENDING and its payment completes in the background:
+// poll it until it is CONFIRMED or PAYMENT_FAILED, or give up still PENDING.
+export async function submitCheckout(data: CheckoutRequestPayload): Promise<CheckoutResult> {
   const body: OperationRequestBody<'checkout'> = data;
-  return postJson<OperationResponse<'checkout'>>(`${API_BASE}/orders/checkout`, body).then(mapCheckoutResult);
+  const placed = await postJson<OperationResponse<'checkout'>>(`${API_BASE}/orders/checkout`, body).then(
+    mapCheckoutResult,
+  );
+  const deadline = Date.now() + CHECKOUT_POLL_TIMEOUT_MS;
+  let status = placed;
+  while (status.paymentStatus === 'PENDING' && Date.now() < deadline) {
+    status = await fetchCheckoutStatus(placed.orderId);
+    if (status.paymentStatus === 'PENDING') {
+      await new Promise((resolve) => setTimeout(resolve, CHECKOUT_POLL_INTERVAL_MS));
+    }
+  }
+  return status;
 }
@@ -84,15 +84,26 @@ describe('api client', () => {
     expect(result.number).toBe(2);
   });
 
-  it('posts checkout payload and returns typed response', async () => {
+  it('posts checkout payload and polls the order until its payment completes', async () => {
     server.use(
       http.post('/api/orders/checkout', async ({ request }) => {
         const body = await request.json();
         expect(body).toMatchObject({ paymentMethod: 'CARD', city: 'Boston' });
+        return HttpResponse.json(
+          {
+            orderId: 100,
+            totalAmount: 125,
+            paymentStatus: 'PENDING',
+          },
+          { status: 202 },
+        );
+      }),
+      http.get('/api/orders/:orderId', ({ params }) => {
+        expect(params.orderId).toBe('100');
         return HttpResponse.json({
           orderId: 100,
           totalAmount: 125,
-          paymentStatus: 'PAID',
+          paymentStatus: 'CONFIRMED',
           transactionId: 'txn-1',
         });
       }),
@@ -107,7 +118,31 @@ describe('api client', () => {
       country: 'US',
     });
 
-    expect(result.paymentStatus).toBe('PAID');
+    expect(result.paymentStatus).toBe('CONFIRMED');
+    expect(result.transactionId).toBe('txn-1');
+  });
+
+  it('returns a cancelled order when its payment fails', async () => {
+    server.use(
+      http.post('/api/orders/checkout', () =>
+        HttpResponse.json({ orderId: 101, totalAmount: 125, paymentStatus: 'PENDING' }, { status: 202 }),
+      ),
+      http.get('/api/orders/:orderId', () =>
+        HttpResponse.json({ orderId: 101, totalAmount: 125, paymentStatus: 'PAYMENT_FAILED' }),
+      ),
+    );
+
+    const result = await submitCheckout({
+      paymentMethod: 'CARD',
+      street: 'Main',
+      number: '12',
+      postalCode: '02110',
+      city: 'Boston',
+      country: 'US',
+    });
+
+    expect(result.paymentStatus).toBe('PAYMENT_FAILED');
+    expect(result.transactionId).toBeNull();
   });
 
   it('calls add-to-cart endpoint with path and query values', async () => {
@@ -26,7 +26,7 @@ export { fetchBrands } from '@/api/brandsApi';
 
 export { fetchCartItems, addToCart, deleteCartItem, clearCart } from '@/api/cartApi';
 
-export { submitCheckout } from '@/api/checkoutApi';
+export { fetchCheckoutStatus, submitCheckout } from '@/api/checkoutApi';
 
 export { fetchUserProfile, updateUserProfile } from '@/api/userApi';
 
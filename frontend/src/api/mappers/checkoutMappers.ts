@@ -1,6 +1,6 @@
 import type { components } from '@/types/generated/openapi';
 import type { CheckoutResult } from '@/types';
-import { requiredNumber, requiredString } from '@/api/mappers/shared';
+import { optionalString, requiredNumber, requiredString } from '@/api/mappers/shared';
 
 type Schemas = components['schemas'];
 
@@ -9,6 +9,6 @@ export function mapCheckoutResult(dto: Schemas['CheckoutResponse']): CheckoutRes
     orderId: requiredNumber(dto.orderId, 'checkout.orderId'),
     totalAmount: requiredNumber(dto.totalAmount, 'checkout.totalAmount'),
     paymentStatus: requiredString(dto.paymentStatus, 'checkout.paymentStatus'),
-    transactionId: requiredString(dto.transactionId, 'checkout.transactionId'),
+    transactionId: optionalString(dto.transactionId),
   };
 }
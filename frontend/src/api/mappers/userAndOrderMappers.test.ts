@@ -12,12 +12,16 @@ describe('user/order mappers', () => {
     ).toThrow('auth.userId');
   });
 
-  it('throws when checkout response misses transaction id', () => {
-    expect(() => mapCheckoutResult({ orderId: 1, totalAmount: 99, paymentStatus: 'PAID' })).toThrow(
-      'checkout.transactionId',
+  it('throws when checkout response misses payment status', () => {
+    expect(() => mapCheckoutResult({ orderId: 1, totalAmount: 99, transactionId: 'txn-1' })).toThrow(
+      'checkout.paymentStatus',
     );
   });
 
+  it('maps a pending checkout without transaction id', () => {
+    expect(mapCheckoutResult({ orderId: 1, totalAmount: 99, paymentStatus: 'PENDING' }).transactionId).toBeNull();
+  });
+
   it('throws when user profile misses firstName', () => {
     expect(() => mapUserProfile({ lastName: 'L', email: 'u@test.com' })).toThrow('user.firstName');
   });
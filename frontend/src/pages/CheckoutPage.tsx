@@ -112,7 +112,11 @@ const CheckoutPage = () => {
         );
 
         if (result && isMountedRef.current) {
-            setOrderResult(result);
+            if (result.paymentStatus === 'PAYMENT_FAILED') {
+                setError(`Payment for order #${result.orderId} failed and the order was cancelled. Please try again.`);
+            } else {
+                setOrderResult(result);
+            }
             void refreshCart();
         }
         if (isMountedRef.current) {
@@ -120,8 +124,9 @@ const CheckoutPage = () => {
         }
     };
 
-    // Success screen
+    // Success screen; a payment still PENDING after polling completes in the background
     if (orderResult) {
+        const isConfirmed = orderResult.paymentStatus === 'CONFIRMED';
         return (
             <div className="min-h-screen bg-background">
                 <div className="bg-[#073642] border-b-2 border-[#002b36]">
@@ -129,7 +134,7 @@ const CheckoutPage = () => {
                         <div className="flex items-center gap-3">
                             <CheckCircle className="w-8 h-8 text-[#859900]" />
                             <h1 className="font-[family-name:var(--font-display)] text-4xl text-[#fdf6e3] tracking-tight">
-                                ORDER CONFIRMED
+                                {isConfirmed ? 'ORDER CONFIRMED' : 'ORDER PLACED'}
                             </h1>
                         </div>
                     </div>
@@ -140,7 +145,9 @@ const CheckoutPage = () => {
                             <CheckCircle className="w-16 h-16 text-[#859900] mx-auto mb-4" />
                             <h2 className="text-2xl font-bold text-foreground mb-2">Thank you for your order!</h2>
                             <p className="text-muted-foreground mb-6">
-                                Your order #{orderResult.orderId} has been placed successfully.
+                                {isConfirmed
+                                    ? `Your order #${orderResult.orderId} has been placed successfully.`
+                                    : `Your order #${orderResult.orderId} has been placed. Your payment is still being processed and you will be notified once it completes.`}
                             </p>
                             <div className="bg-muted rounded-lg p-4 mb-6 text-left space-y-2">
                                 <div className="flex justify-between text-sm">
@@ -155,10 +162,12 @@ const CheckoutPage = () => {
                                     <span className="text-muted-foreground">Payment</span>
                                     <span className="font-medium text-foreground">{orderResult.paymentStatus}</span>
                                 </div>
-                                <div className="flex justify-between text-sm">
-                                    <span className="text-muted-foreground">Transaction</span>
-                                    <span className="font-mono text-xs text-foreground">{orderResult.transactionId}</span>
-                                </div>
+                                {orderResult.transactionId && (
+                                    <div className="flex justify-between text-sm">
+                                        <span className="text-muted-foreground">Transaction</span>
+                                        <span className="font-mono text-xs text-foreground">{orderResult.transactionId}</span>
+                                    </div>
+                                )}
                             </div>
                             <Button onClick={() => navigate('/')} size="lg">
                                 Continue Shopping
@@ -12,5 +12,5 @@ export interface CheckoutResult {
   orderId: number;
   totalAmount: number;
   paymentStatus: string;
-  transactionId: string;
+  transactionId: string | null;
 }